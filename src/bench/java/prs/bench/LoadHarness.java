@@ -0,0 +1,96 @@
+package prs.bench;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import prs.RunReport;
+import prs.Seeder;
+import prs.config.RunOptions;
+import prs.db.DbType;
+import prs.filler.LoaderMode;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.util.*;
+
+// mjerenje cijelog punjenja na sintetickoj semi: pravi semu u ciljnoj bazi, pokrece Seeder i upisuje JSON
+// sa redovima/s po tabeli, nivou i ukupno. Ciljevi:
+//   --target=h2 (podrazumijevano): H2 u memoriji u PostgreSQL modu, bez instalacije baze
+//   --target=postgresql|mysql --url=jdbc:... --user=... --password=...: lokalna baza (brise tabele t<nivo>_<i>)
+// ostale opcije (--rows, --loader, --streaming, --chunk-size, --shards, --executor...) idu u Seeder
+public class LoadHarness {
+
+    public static void main(String[] args) throws Exception {
+        RunOptions opts = RunOptions.parse(args);
+        String target = opts.get("target", "h2").toLowerCase();
+        int poolSize = opts.getInt("pool", 15);
+        Path out = Path.of(opts.get("out", "load-bench.json"));
+
+        SyntheticSchema schema = new SyntheticSchema(
+                opts.getInt("depth", 4),
+                opts.getInt("width", 5),
+                opts.getInt("fan-out", 2),
+                opts.getInt("composite-every", 3),
+                opts.getInt("columns", 6),
+                opts.getInt("unique-every", 0));
+
+        DbType dbType;
+        String url;
+        HikariConfig config = new HikariConfig();
+        switch (target) {
+            case "h2" -> {
+                dbType = DbType.POSTGRESQL;
+                url = "jdbc:h2:mem:seedbench;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+            }
+            case "postgresql" -> {
+                dbType = DbType.POSTGRESQL;
+                url = required(opts, "url");
+            }
+            case "mysql" -> {
+                dbType = DbType.MYSQL;
+                url = required(opts, "url");
+            }
+            default -> throw new IllegalArgumentException("Nepoznat --target: " + target);
+        }
+        config.setJdbcUrl(url);
+        config.setUsername(opts.get("user", target.equals("h2") ? "sa" : null));
+        config.setPassword(opts.get("password", ""));
+        config.setMaximumPoolSize(poolSize);
+        config.setConnectionTimeout(30_000);
+
+        Seeder seeder = new Seeder(opts, poolSize);
+        config.setMetricsTrackerFactory(seeder.metrics().hikariTrackerFactory());
+        if (target.equals("h2") && seeder.loaderMode() == LoaderMode.NATIVE) {
+            throw new IllegalArgumentException("--loader=native trazi pravu bazu (COPY / LOAD DATA), H2 ga nema");
+        }
+
+        RunReport report;
+        try (HikariDataSource dataSource = new HikariDataSource(config)) {
+            try (Connection conn = dataSource.getConnection()) {
+                schema.create(conn, dbType);
+            }
+            System.out.println("Sinteticka sema: " + schema.tableCount() + " tabela " + schema.describe());
+            report = seeder.run(dataSource, dbType, schema.snapshot("seedbench"));
+        }
+        if (report == null) {
+            System.err.println("Punjenje nije izvrseno");
+            return;
+        }
+
+        Map<String, String> runConfig = new TreeMap<>(opts.asMap());
+        runConfig.remove("password");
+        runConfig.put("target", target);
+        runConfig.putAll(schema.describe());
+        report.writeJson(out, runConfig);
+        System.out.printf(Locale.ROOT, "%d redova u %d ms (%.1f redova/s), rezultat u %s%n",
+                report.totalRows(), report.totalMillis(),
+                report.totalRows() * 1000.0 / Math.max(1, report.totalMillis()), out);
+    }
+
+    private static String required(RunOptions opts, String name) {
+        String v = opts.get(name, null);
+        if (v == null) {
+            throw new IllegalArgumentException("--" + name + " je obavezno za ovaj --target");
+        }
+        return v;
+    }
+}
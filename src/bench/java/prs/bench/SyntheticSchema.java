@@ -0,0 +1,176 @@
+package prs.bench;
+
+import prs.db.DbType;
+import prs.schema.ColumnMeta;
+import prs.schema.ForeignKeyMeta;
+import prs.schema.SchemaSnapshot;
+import prs.schema.TableMeta;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.*;
+
+// sinteticka sema zadatog oblika: depth nivoa po width tabela, svaka tabela ispod nivoa 0 ima fanOut roditelja
+// iz prethodnog nivoa; svaka compositeEvery-ta tabela ima pk od svih svojih fk (kao veza vise-prema-vise),
+// a svaka uniqueEvery-ta tabela unique na c0 i na (c1, c3)
+public class SyntheticSchema {
+
+    private static final int[] VALUE_TYPES = {
+            Types.INTEGER, Types.VARCHAR, Types.DECIMAL, Types.DATE, Types.BOOLEAN, Types.BIGINT, Types.TIMESTAMP
+    };
+
+    private final int depth;
+    private final int width;
+    private final int fanOut;
+    private final int compositeEvery;
+    private final int columns;
+    private final int uniqueEvery;
+    private final List<TableMeta> tables = new ArrayList<>();
+
+    public SyntheticSchema(int depth, int width, int fanOut, int compositeEvery, int columns, int uniqueEvery) {
+        if (depth < 1 || width < 1 || fanOut < 0 || columns < 0) {
+            throw new IllegalArgumentException("Neispravan oblik seme: depth=" + depth + ", width=" + width
+                    + ", fanOut=" + fanOut + ", columns=" + columns);
+        }
+        this.depth = depth;
+        this.width = width;
+        this.fanOut = fanOut;
+        this.compositeEvery = compositeEvery;
+        this.columns = columns;
+        this.uniqueEvery = uniqueEvery;
+        build();
+    }
+
+    private static String name(int level, int i) {
+        return "t" + level + "_" + i;
+    }
+
+    // slozeni pk samo ako ima bar dva roditelja; tabela 0 svakog nivoa je uvijek obicna pa djeca imaju roditelja
+    private boolean isComposite(int level, int i) {
+        return level > 0 && compositeEvery > 1 && fanOut >= 2 && Math.min(fanOut, width) >= 2
+                && i % compositeEvery == compositeEvery - 1;
+    }
+
+    private void build() {
+        for (int level = 0; level < depth; level++) {
+            for (int i = 0; i < width; i++) {
+                boolean composite = isComposite(level, i);
+                List<ColumnMeta> cols = new ArrayList<>();
+                List<ForeignKeyMeta> fks = new ArrayList<>();
+                List<String> pk = new ArrayList<>();
+                if (!composite) {
+                    cols.add(new ColumnMeta("id", Types.INTEGER, "INTEGER", 10, false, true));
+                    pk.add("id");
+                }
+                if (level > 0) {
+                    List<String> parents = parentsOf(level, i);
+                    for (int k = 0; k < parents.size(); k++) {
+                        String fkCol = "p" + k + "_id";
+                        cols.add(new ColumnMeta(fkCol, Types.INTEGER, "INTEGER", 10, false, false));
+                        fks.add(new ForeignKeyMeta("fk_" + name(level, i) + "_" + k, List.of(fkCol),
+                                parents.get(k), List.of("id")));
+                        if (composite) {
+                            pk.add(fkCol);
+                        }
+                    }
+                }
+                for (int c = 0; c < columns; c++) {
+                    int type = VALUE_TYPES[c % VALUE_TYPES.length];
+                    cols.add(new ColumnMeta("c" + c, type, typeName(type, DbType.POSTGRESQL), 50, c % 3 == 2, false));
+                }
+                List<List<String>> uniques = new ArrayList<>();
+                if (uniqueEvery > 0 && (level * width + i) % uniqueEvery == 0) {
+                    if (columns > 0) {
+                        uniques.add(List.of("c0"));
+                    }
+                    if (columns > 3) {
+                        uniques.add(List.of("c1", "c3"));
+                    }
+                }
+                tables.add(new TableMeta(name(level, i), cols, pk, fks, uniques, List.of()));
+            }
+        }
+    }
+
+    // fanOut razlicitih obicnih tabela iz prethodnog nivoa, pocevsi od i (roditelj sa slozenim pk se preskace)
+    private List<String> parentsOf(int level, int i) {
+        List<String> parents = new ArrayList<>();
+        for (int step = 0; step < width && parents.size() < fanOut; step++) {
+            int p = (i + step) % width;
+            if (!isComposite(level - 1, p)) {
+                parents.add(name(level - 1, p));
+            }
+        }
+        return parents;
+    }
+
+    public SchemaSnapshot snapshot(String dbName) {
+        return new SchemaSnapshot(dbName, tables);
+    }
+
+    public int tableCount() {
+        return tables.size();
+    }
+
+    // brise postojece tabele (djeca prvo) i pravi semu u bazi
+    public void create(Connection conn, DbType dbType) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            for (int t = tables.size() - 1; t >= 0; t--) {
+                st.execute("DROP TABLE IF EXISTS " + tables.get(t).name()
+                        + (dbType == DbType.POSTGRESQL ? " CASCADE" : ""));
+            }
+            for (TableMeta table : tables) {
+                st.execute(ddl(table, dbType));
+            }
+        }
+    }
+
+    private static String ddl(TableMeta table, DbType dbType) {
+        List<String> parts = new ArrayList<>();
+        for (ColumnMeta col : table.columns()) {
+            if (col.autoIncrement()) {
+                parts.add(dbType == DbType.MYSQL
+                        ? col.name() + " INT AUTO_INCREMENT"
+                        : col.name() + " INTEGER GENERATED BY DEFAULT AS IDENTITY");
+            } else {
+                parts.add(col.name() + " " + typeName(col.sqlType(), dbType) + (col.nullable() ? "" : " NOT NULL"));
+            }
+        }
+        parts.add("PRIMARY KEY (" + String.join(", ", table.primaryKey()) + ")");
+        for (int u = 0; u < table.uniqueConstraints().size(); u++) {
+            parts.add("CONSTRAINT uq_" + table.name() + "_" + u + " UNIQUE ("
+                    + String.join(", ", table.uniqueConstraints().get(u)) + ")");
+        }
+        for (ForeignKeyMeta fk : table.foreignKeys()) {
+            parts.add("CONSTRAINT " + fk.name() + " FOREIGN KEY (" + String.join(", ", fk.columns()) + ") REFERENCES "
+                    + fk.parentTable() + " (" + String.join(", ", fk.parentColumns()) + ")");
+        }
+        return "CREATE TABLE " + table.name() + " (" + String.join(", ", parts) + ")";
+    }
+
+    private static String typeName(int sqlType, DbType dbType) {
+        return switch (sqlType) {
+            case Types.INTEGER -> "INTEGER";
+            case Types.BIGINT -> "BIGINT";
+            case Types.VARCHAR -> "VARCHAR(50)";
+            case Types.DECIMAL -> "DECIMAL(10,2)";
+            case Types.DATE -> "DATE";
+            case Types.BOOLEAN -> dbType == DbType.MYSQL ? "TINYINT(1)" : "BOOLEAN";
+            case Types.TIMESTAMP -> dbType == DbType.MYSQL ? "DATETIME" : "TIMESTAMP";
+            default -> throw new IllegalArgumentException("Nepodrzan tip " + sqlType);
+        };
+    }
+
+    public Map<String, String> describe() {
+        Map<String, String> shape = new LinkedHashMap<>();
+        shape.put("depth", Integer.toString(depth));
+        shape.put("width", Integer.toString(width));
+        shape.put("fan-out", Integer.toString(fanOut));
+        shape.put("composite-every", Integer.toString(compositeEvery));
+        shape.put("columns", Integer.toString(columns));
+        shape.put("unique-every", Integer.toString(uniqueEvery));
+        return shape;
+    }
+}
@@ -0,0 +1,60 @@
+package prs;
+
+import org.openjdk.jmh.annotations.*;
+import prs.graph.DependencyGraph;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+// topoloski sort i nivoi na sintetickom grafu: svaka tabela ima 0-3 roditelja medju ranijim tabelama
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SchedulingBenchmark {
+
+    @Param({"1000", "10000"})
+    public int tables;
+
+    private List<String> allTables;
+    private Map<String, List<String>> deps;
+    private DependencyGraph graph;
+    private List<String> sorted;
+
+    @Setup
+    public void setup() {
+        Random rnd = new Random(42L);
+        List<String> names = new ArrayList<>();
+        deps = new HashMap<>();
+        for (int i = 0; i < tables; i++) {
+            String name = "tabela_" + i;
+            List<String> parents = new ArrayList<>();
+            int parentCount = i == 0 ? 0 : rnd.nextInt(4);
+            for (int p = 0; p < parentCount; p++) {
+                String parent = names.get(rnd.nextInt(names.size()));
+                if (!parents.contains(parent)) {
+                    parents.add(parent);
+                }
+            }
+            names.add(name);
+            deps.put(name, parents);
+        }
+        // tabele ne dolaze sortirane iz baze
+        Collections.shuffle(names, rnd);
+        allTables = names;
+        graph = new DependencyGraph(deps);
+        sorted = graph.topologicalSort(allTables);
+    }
+
+    @Benchmark
+    public List<String> topologicalSort() {
+        return graph.topologicalSort(allTables);
+    }
+
+    @Benchmark
+    public Map<String, Integer> computeLevels() {
+        return Seeder.computeLevels(sorted, deps);
+    }
+}
@@ -0,0 +1,61 @@
+package prs.data;
+
+import org.openjdk.jmh.annotations.*;
+import prs.keys.KeyRegistry;
+import prs.keys.LongRangeKeys;
+import prs.schema.ColumnMeta;
+import prs.schema.ForeignKeyMeta;
+import prs.schema.TableMeta;
+
+import java.sql.Types;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// petlja parova za pk sastavljen samo od fk; gustina = rows / (parentKeys * parentKeys/2)
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CompositePkBenchmark {
+
+    @Param({"10000"})
+    public int rows;
+
+    // 200 -> 200x100 parova (gustina 50%), 2000 -> 2000x1000 (gustina 0.5%)
+    @Param({"200", "2000"})
+    public int parentKeys;
+
+    private TableMeta table;
+    private KeyRegistry registry;
+    private DataGenerator generator;
+
+    @Setup
+    public void setup() {
+        table = new TableMeta("veza", List.of(
+                new ColumnMeta("a_id", Types.INTEGER, "INT", 11, false, false),
+                new ColumnMeta("b_id", Types.INTEGER, "INT", 11, false, false),
+                new ColumnMeta("kolicina", Types.INTEGER, "INT", 11, false, false)),
+                List.of("a_id", "b_id"),
+                List.of(new ForeignKeyMeta("fk_a", List.of("a_id"), "a", List.of("id")),
+                        new ForeignKeyMeta("fk_b", List.of("b_id"), "b", List.of("id"))),
+                List.of(), List.of());
+
+        registry = new KeyRegistry();
+        registry.put("a", new LongRangeKeys(1, parentKeys, 1));
+        registry.put("b", new LongRangeKeys(1, parentKeys / 2, 1));
+        generator = new DataGenerator(42L);
+    }
+
+    @Benchmark
+    public int samplePairs() throws InterruptedException {
+        int[] produced = new int[1];
+        generator.generateChunks(table, rows, 1_000, registry, full -> {
+            produced[0] += full.size();
+            full.reset();
+            return full;
+        });
+        return produced[0];
+    }
+}
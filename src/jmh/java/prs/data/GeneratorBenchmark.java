@@ -0,0 +1,80 @@
+package prs.data;
+
+import org.openjdk.jmh.annotations.*;
+import prs.keys.KeyRegistry;
+import prs.schema.ColumnMeta;
+import prs.schema.TableMeta;
+
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// generisanje po tipu kolone: tabela sa auto-increment id i 8 kolona istog tipa
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GeneratorBenchmark {
+
+    private static final int COLUMNS = 8;
+
+    // LONGTEXT = VARCHAR kolona "Opis" (prefiks + 20 slova)
+    @Param({"INTEGER", "BIGINT", "DECIMAL", "BOOLEAN", "DATE", "TIMESTAMP", "VARCHAR", "LONGTEXT"})
+    public String columnType;
+
+    @Param({"10000"})
+    public int rows;
+
+    private TableMeta table;
+    private KeyRegistry registry;
+    private DataGenerator generator;
+    private ColumnBatch reuse;
+
+    @Setup
+    public void setup() {
+        boolean longText = columnType.equals("LONGTEXT");
+        int sqlType = longText ? Types.VARCHAR : typeOf(columnType);
+        List<ColumnMeta> cols = new ArrayList<>();
+        cols.add(new ColumnMeta("id", Types.INTEGER, "INT", 11, false, true));
+        for (int c = 0; c < COLUMNS; c++) {
+            String name = longText && c == 0 ? "Opis" : "c" + c;
+            cols.add(new ColumnMeta(name, sqlType, columnType, 255, false, false));
+        }
+        table = new TableMeta("bench", cols, List.of("id"), List.of(), List.of(), List.of());
+        registry = new KeyRegistry();
+        generator = new DataGenerator(42L);
+    }
+
+    private static int typeOf(String name) {
+        return switch (name) {
+            case "INTEGER" -> Types.INTEGER;
+            case "BIGINT" -> Types.BIGINT;
+            case "DECIMAL" -> Types.DECIMAL;
+            case "BOOLEAN" -> Types.BOOLEAN;
+            case "DATE" -> Types.DATE;
+            case "TIMESTAMP" -> Types.TIMESTAMP;
+            default -> Types.VARCHAR;
+        };
+    }
+
+    // cijela tabela u novom batchu, kao u ne-streaming modu
+    @Benchmark
+    public ColumnBatch generateData() {
+        return generator.generateData(table, rows, registry);
+    }
+
+    // isti batch se prazni i ponovo puni, kao u streaming modu; mjeri samo generator
+    @Benchmark
+    public int generateChunksReused() throws InterruptedException {
+        int[] produced = new int[1];
+        generator.generateChunks(table, rows, 1_000, registry, full -> {
+            produced[0] += full.size();
+            full.reset();
+            return full;
+        });
+        return produced[0];
+    }
+}
@@ -0,0 +1,75 @@
+package prs.filler;
+
+import org.openjdk.jmh.annotations.*;
+import prs.data.ColumnBatch;
+import prs.data.DataGenerator;
+import prs.db.DbType;
+import prs.keys.KeyRegistry;
+import prs.keys.KeySetBuilder;
+import prs.schema.ColumnMeta;
+import prs.schema.TableMeta;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// vezivanje parametara INSERT batcha (ChunkWriter) bez baze: konekcija je Proxy (poziva se par puta po chunku),
+// statement je StubPreparedStatement
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BindBenchmark {
+
+    @Param({"5000"})
+    public int rows;
+
+    private ColumnBatch batch;
+    private TableWriter writer;
+    private StubPreparedStatement stmt;
+
+    @Setup
+    public void setup() throws SQLException {
+        TableMeta table = new TableMeta("bench", List.of(
+                new ColumnMeta("id", Types.INTEGER, "INT", 11, false, true),
+                new ColumnMeta("naziv", Types.VARCHAR, "VARCHAR", 50, false, false),
+                new ColumnMeta("Opis", Types.VARCHAR, "VARCHAR", 255, true, false),
+                new ColumnMeta("kolicina", Types.INTEGER, "INT", 11, false, false),
+                new ColumnMeta("broj", Types.BIGINT, "BIGINT", 20, false, false),
+                new ColumnMeta("cijena", Types.DECIMAL, "DECIMAL", 10, false, false),
+                new ColumnMeta("aktivan", Types.BOOLEAN, "BOOLEAN", 1, false, false),
+                new ColumnMeta("datum", Types.DATE, "DATE", 10, false, false),
+                new ColumnMeta("vrijeme", Types.TIMESTAMP, "TIMESTAMP", 19, true, false)),
+                List.of("id"), List.of(), List.of(), List.of());
+        batch = new DataGenerator(42L).generateData(table, rows, new KeyRegistry());
+
+        ResultSet noKeys = (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+                new Class<?>[]{ResultSet.class}, (proxy, method, args) ->
+                        method.getReturnType() == boolean.class ? Boolean.FALSE : null);
+        stmt = new StubPreparedStatement(noKeys);
+        Connection conn = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "prepareStatement" -> stmt;
+                    case "getAutoCommit", "isValid" -> Boolean.TRUE;
+                    default -> null;
+                });
+        writer = new DataFiller(null, DbType.MYSQL).openWriter(conn, table.name(), batch);
+    }
+
+    @Benchmark
+    public long insertBatch() throws SQLException {
+        writer.write(batch, new KeySetBuilder());
+        return stmt.sink;
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        writer.close();
+    }
+}
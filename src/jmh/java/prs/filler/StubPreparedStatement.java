@@ -0,0 +1,466 @@
+package prs.filler;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.net.URL;
+import java.sql.*;
+import java.util.Arrays;
+import java.util.Calendar;
+
+// PreparedStatement bez drivera: setteri samo sabiraju vrijednosti u sink da JIT ne izbaci vezivanje,
+// executeBatch vraca 1 po redu, upiti (i getGeneratedKeys) prazan rezultat; pisan rucno (ne Proxy) da boxing argumenata ne ulazi u mjerenje alokacija
+final class StubPreparedStatement implements PreparedStatement {
+
+    long sink;
+    private int batched;
+    private final ResultSet generatedKeys;   // prazan
+
+    StubPreparedStatement(ResultSet generatedKeys) {
+        this.generatedKeys = generatedKeys;
+    }
+
+    @Override
+    public void addBatch() {
+        batched++;
+    }
+
+    @Override
+    public void addBatch(String p1) {
+    }
+
+    @Override
+    public void cancel() {
+    }
+
+    @Override
+    public void clearBatch() {
+    }
+
+    @Override
+    public void clearParameters() {
+    }
+
+    @Override
+    public void clearWarnings() {
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public void closeOnCompletion() {
+    }
+
+    @Override
+    public boolean execute() {
+        return false;
+    }
+
+    @Override
+    public boolean execute(String p1, int[] p2) {
+        return false;
+    }
+
+    @Override
+    public boolean execute(String p1, String[] p2) {
+        return false;
+    }
+
+    @Override
+    public boolean execute(String p1, int p2) {
+        return false;
+    }
+
+    @Override
+    public boolean execute(String p1) {
+        return false;
+    }
+
+    @Override
+    public int[] executeBatch() {
+        int[] counts = new int[batched];
+        Arrays.fill(counts, 1);
+        batched = 0;
+        return counts;
+    }
+
+    @Override
+    public ResultSet executeQuery() {
+        return generatedKeys;
+    }
+
+    @Override
+    public ResultSet executeQuery(String p1) {
+        return null;
+    }
+
+    @Override
+    public int executeUpdate() {
+        return 0;
+    }
+
+    @Override
+    public int executeUpdate(String p1, int[] p2) {
+        return 0;
+    }
+
+    @Override
+    public int executeUpdate(String p1, String[] p2) {
+        return 0;
+    }
+
+    @Override
+    public int executeUpdate(String p1, int p2) {
+        return 0;
+    }
+
+    @Override
+    public int executeUpdate(String p1) {
+        return 0;
+    }
+
+    @Override
+    public Connection getConnection() {
+        return null;
+    }
+
+    @Override
+    public int getFetchDirection() {
+        return 0;
+    }
+
+    @Override
+    public int getFetchSize() {
+        return 0;
+    }
+
+    @Override
+    public ResultSet getGeneratedKeys() {
+        return generatedKeys;
+    }
+
+    @Override
+    public int getMaxFieldSize() {
+        return 0;
+    }
+
+    @Override
+    public int getMaxRows() {
+        return 0;
+    }
+
+    @Override
+    public ResultSetMetaData getMetaData() {
+        return null;
+    }
+
+    @Override
+    public boolean getMoreResults() {
+        return false;
+    }
+
+    @Override
+    public boolean getMoreResults(int p1) {
+        return false;
+    }
+
+    @Override
+    public ParameterMetaData getParameterMetaData() {
+        return null;
+    }
+
+    @Override
+    public int getQueryTimeout() {
+        return 0;
+    }
+
+    @Override
+    public ResultSet getResultSet() {
+        return null;
+    }
+
+    @Override
+    public int getResultSetConcurrency() {
+        return 0;
+    }
+
+    @Override
+    public int getResultSetHoldability() {
+        return 0;
+    }
+
+    @Override
+    public int getResultSetType() {
+        return 0;
+    }
+
+    @Override
+    public int getUpdateCount() {
+        return 0;
+    }
+
+    @Override
+    public SQLWarning getWarnings() {
+        return null;
+    }
+
+    @Override
+    public boolean isCloseOnCompletion() {
+        return false;
+    }
+
+    @Override
+    public boolean isClosed() {
+        return false;
+    }
+
+    @Override
+    public boolean isPoolable() {
+        return false;
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> p1) {
+        return false;
+    }
+
+    @Override
+    public void setArray(int p1, Array p2) {
+    }
+
+    @Override
+    public void setAsciiStream(int p1, InputStream p2, int p3) {
+    }
+
+    @Override
+    public void setAsciiStream(int p1, InputStream p2, long p3) {
+    }
+
+    @Override
+    public void setAsciiStream(int p1, InputStream p2) {
+    }
+
+    @Override
+    public void setBigDecimal(int p1, BigDecimal p2) {
+    }
+
+    @Override
+    public void setBinaryStream(int p1, InputStream p2, int p3) {
+    }
+
+    @Override
+    public void setBinaryStream(int p1, InputStream p2, long p3) {
+    }
+
+    @Override
+    public void setBinaryStream(int p1, InputStream p2) {
+    }
+
+    @Override
+    public void setBlob(int p1, InputStream p2, long p3) {
+    }
+
+    @Override
+    public void setBlob(int p1, InputStream p2) {
+    }
+
+    @Override
+    public void setBlob(int p1, Blob p2) {
+    }
+
+    @Override
+    public void setBoolean(int p1, boolean p2) {
+        sink += p2 ? 1 : 0;
+    }
+
+    @Override
+    public void setByte(int p1, byte p2) {
+    }
+
+    @Override
+    public void setBytes(int p1, byte[] p2) {
+    }
+
+    @Override
+    public void setCharacterStream(int p1, Reader p2, int p3) {
+    }
+
+    @Override
+    public void setCharacterStream(int p1, Reader p2, long p3) {
+    }
+
+    @Override
+    public void setCharacterStream(int p1, Reader p2) {
+    }
+
+    @Override
+    public void setClob(int p1, Reader p2, long p3) {
+    }
+
+    @Override
+    public void setClob(int p1, Reader p2) {
+    }
+
+    @Override
+    public void setClob(int p1, Clob p2) {
+    }
+
+    @Override
+    public void setCursorName(String p1) {
+    }
+
+    @Override
+    public void setDate(int p1, Date p2, Calendar p3) {
+    }
+
+    @Override
+    public void setDate(int p1, Date p2) {
+        sink += p2.getTime();
+    }
+
+    @Override
+    public void setDouble(int p1, double p2) {
+        sink += Double.doubleToRawLongBits(p2);
+    }
+
+    @Override
+    public void setEscapeProcessing(boolean p1) {
+    }
+
+    @Override
+    public void setFetchDirection(int p1) {
+    }
+
+    @Override
+    public void setFetchSize(int p1) {
+    }
+
+    @Override
+    public void setFloat(int p1, float p2) {
+    }
+
+    @Override
+    public void setInt(int p1, int p2) {
+        sink += p2;
+    }
+
+    @Override
+    public void setLong(int p1, long p2) {
+        sink += p2;
+    }
+
+    @Override
+    public void setMaxFieldSize(int p1) {
+    }
+
+    @Override
+    public void setMaxRows(int p1) {
+    }
+
+    @Override
+    public void setNCharacterStream(int p1, Reader p2, long p3) {
+    }
+
+    @Override
+    public void setNCharacterStream(int p1, Reader p2) {
+    }
+
+    @Override
+    public void setNClob(int p1, Reader p2, long p3) {
+    }
+
+    @Override
+    public void setNClob(int p1, Reader p2) {
+    }
+
+    @Override
+    public void setNClob(int p1, NClob p2) {
+    }
+
+    @Override
+    public void setNString(int p1, String p2) {
+    }
+
+    @Override
+    public void setNull(int p1, int p2, String p3) {
+    }
+
+    @Override
+    public void setNull(int p1, int p2) {
+        sink++;
+    }
+
+    @Override
+    public void setObject(int p1, Object p2, int p3, int p4) {
+    }
+
+    @Override
+    public void setObject(int p1, Object p2, int p3) {
+    }
+
+    @Override
+    public void setObject(int p1, Object p2) {
+        sink += p2.hashCode();
+    }
+
+    @Override
+    public void setPoolable(boolean p1) {
+    }
+
+    @Override
+    public void setQueryTimeout(int p1) {
+    }
+
+    @Override
+    public void setRef(int p1, Ref p2) {
+    }
+
+    @Override
+    public void setRowId(int p1, RowId p2) {
+    }
+
+    @Override
+    public void setSQLXML(int p1, SQLXML p2) {
+    }
+
+    @Override
+    public void setShort(int p1, short p2) {
+    }
+
+    @Override
+    public void setString(int p1, String p2) {
+        sink += p2.length();
+    }
+
+    @Override
+    public void setTime(int p1, Time p2, Calendar p3) {
+    }
+
+    @Override
+    public void setTime(int p1, Time p2) {
+    }
+
+    @Override
+    public void setTimestamp(int p1, Timestamp p2, Calendar p3) {
+    }
+
+    @Override
+    public void setTimestamp(int p1, Timestamp p2) {
+        sink += p2.getTime();
+    }
+
+    @Override
+    public void setURL(int p1, URL p2) {
+    }
+
+    @Override
+    public void setUnicodeStream(int p1, InputStream p2, int p3) {
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> p1) {
+        return null;
+    }
+}
@@ -2,249 +2,239 @@ package prs;
 
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
+import prs.config.RunOptions;
 import prs.db.DbType;
-import prs.graph.DependencyGraph;
+import prs.filler.LoaderMode;
 import prs.schema.SchemaReader;
-import prs.data.DataGenerator;
-import prs.filler.DataFiller;
+import prs.schema.SchemaSnapshot;
 
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.Connection;
 import java.util.*;
-import java.util.concurrent.*;
 
 public class Main {
 
+    private static final int POOL_SIZE = 15;
+
     public static void main(String[] args) throws Exception {
-        Scanner sc = new Scanner(System.in);
-
-        System.out.println("Unesite vrstu (unesite broj):");
-        System.out.println("1) MySQL (lokalna)");
-        System.out.println("2) MySQL (Aiven - udaljeni server)");
-        System.out.println("3) PostgreSQL (lokalna)");
-        System.out.println("4) PostgreSQL (Aiven – udaljeni server)");
-        int izbor = Integer.parseInt(sc.nextLine().trim());
-
-        DbType dbType;
-        String host;
-        int port;
-        String dbName;
-        String user;
-        String pass;
-
-        switch (izbor) {
-            case 1 -> {
-                // MySQL local
-                dbType = DbType.MYSQL;
-                host   = "localhost";
-                port   = 3306;
-                dbName = "prsprojlocal";
-                user   = "root";
-                pass   = "placeholder";
-            }
-            case 2 -> {
-                // MySQL Aiven remote
-                dbType = DbType.MYSQL;
-                host   = "prsprojekat-prsprojekat.g.aivencloud.com";
-                port   = 15406;
-                dbName = "mydb";
-                user   = "avnadmin";
-                pass   = "placeholder";
+        RunOptions opts = RunOptions.parse(args);
+        Seeder seeder = new Seeder(opts, POOL_SIZE);
+        LoaderMode loaderMode = seeder.loaderMode();
+        String reportFile = opts.get("report", null);
+        // --schema-cache=fajl: sema se cita iz fajla ako postoji, inace se ucita iz baze i sacuva
+        String schemaCache = opts.get("schema-cache", null);
+        boolean refreshSchema = opts.flag("refresh-schema");
+
+        // --targets=1,3: iste podatke u vise baza (brojevi iz menija), bez pitanja; prva je glavna
+        String targetsOpt = opts.get("targets", null);
+        List<Integer> choices = new ArrayList<>();
+        if (targetsOpt == null) {
+            Scanner sc = new Scanner(System.in);
+
+            System.out.println("Unesite vrstu (unesite broj):");
+            System.out.println("1) MySQL (lokalna)");
+            System.out.println("2) MySQL (Aiven - udaljeni server)");
+            System.out.println("3) PostgreSQL (lokalna)");
+            System.out.println("4) PostgreSQL (Aiven – udaljeni server)");
+            choices.add(Integer.parseInt(sc.nextLine().trim()));
+        } else {
+            for (String part : targetsOpt.split(",")) {
+                int izbor = Integer.parseInt(part.trim());
+                if (!choices.contains(izbor)) {
+                    choices.add(izbor);
+                }
             }
-            case 3 -> {
-                // PostgreSQL local
-                dbType = DbType.POSTGRESQL;
-                host   = "localhost";
-                port   = 5432;
-                dbName = "prsprojlocalPOSTGRESQL";
-                user   = "postgres";
-                pass   = "placeholder";
+        }
+        List<Target> targets = new ArrayList<>();
+        for (int izbor : choices) {
+            Target t = target(izbor);
+            if (t == null) {
+                System.err.println("pogresan odabir");
+                return;
             }
-            case 4 -> {
-                // PostgreSQL Aiven remote
-                dbType = DbType.POSTGRESQL;
-                host   = "prsprojekat-postgresql-prsprojekat.g.aivencloud.com";
-                port   = 15406;
-                dbName = "mydb";
-                user   = "avnadmin";
-                pass   = "placeholder";
+            targets.add(t);
+        }
+        Target primary = targets.get(0);
+        DbType dbType = primary.dbType();
+        String dbName = primary.dbName();
+        if (targets.size() > 1 && seeder.offline()) {
+            System.err.println("--dump pise fajlove za jednu bazu, --targets sa vise baza nije moguc");
+            return;
+        }
+
+        // --dump sa postojecim --schema-cache fajlom: ne otvara se nijedna konekcija
+        SchemaSnapshot offlineSchema = seeder.offline() && !refreshSchema ? cachedSchema(schemaCache, primary) : null;
+        if (offlineSchema != null) {
+            System.out.println("Punjenje bez baze, sema iz fajla " + schemaCache);
+            writeReport(seeder.run(null, dbType, offlineSchema), reportFile, opts);
+            return;
+        }
+
+        // cekanje na konekciju ide u metrike (--metrics, JMX) samo za glavnu bazu
+        HikariDataSource dataSource = openPool(primary, loaderMode, seeder);
+        if (dataSource == null) {
+            return;
+        }
+        List<HikariDataSource> otherPools = new ArrayList<>();
+        try {
+            SchemaSnapshot schema = loadSchema(new SchemaReader(dataSource, dbType), primary, schemaCache, refreshSchema);
+
+            List<String> allTablesOrig = schema.tableNames();
+            if (allTablesOrig.isEmpty()) {
+                System.err.println("Nema pronadnjenih tablica u bazi \"" + dbName + "\". Provjerite parametre");
+                return;
             }
-            default -> {
-                System.err.println("pogresan odabir");
+
+            if (seeder.offline()) {
+                // baza je trebala samo za citanje seme
+                dataSource.close();
+                writeReport(seeder.run(null, dbType, schema), reportFile, opts);
                 return;
             }
+
+            // dodatne baze moraju imati iste tabele i kolone, inace bi upis pao tek usred punjenja
+            List<Seeder.Target> others = new ArrayList<>();
+            for (Target t : targets.subList(1, targets.size())) {
+                HikariDataSource ds = openPool(t, loaderMode, null);
+                if (ds == null) {
+                    return;
+                }
+                otherPools.add(ds);
+                List<String> missing = schema.missingIn(new SchemaReader(ds, t.dbType()).readSnapshot(t.dbName()));
+                if (!missing.isEmpty()) {
+                    System.err.println("Baza " + t.label() + " nema: " + String.join(", ", missing));
+                    return;
+                }
+                others.add(new Seeder.Target(t.label(), ds, t.dbType()));
+            }
+
+            RunReport report = seeder.run(dataSource, dbType, schema, others);
+            writeReport(report, reportFile, opts);
+        } finally {
+            for (HikariDataSource ds : otherPools) {
+                ds.close();
+            }
+            dataSource.close();
+        }
+    }
+
+    private record Target(String label, DbType dbType, String host, int port, String dbName,
+                          String user, String pass) {
+
+        // adresa bez parametara konekcije; po njoj se prepoznaje fajl seme ove baze
+        String url() {
+            return (dbType == DbType.MYSQL ? "jdbc:mysql://" : "jdbc:postgresql://") + host + ":" + port + "/" + dbName;
         }
+    }
+
+    // baza iz menija; null za nepoznat broj
+    private static Target target(int izbor) {
+        return switch (izbor) {
+            // MySQL local
+            case 1 -> new Target("mysql-lokalna", DbType.MYSQL, "localhost", 3306,
+                    "prsprojlocal", "root", "placeholder");
+            // MySQL Aiven remote
+            case 2 -> new Target("mysql-aiven", DbType.MYSQL, "prsprojekat-prsprojekat.g.aivencloud.com", 15406,
+                    "mydb", "avnadmin", "placeholder");
+            // PostgreSQL local
+            case 3 -> new Target("postgresql-lokalna", DbType.POSTGRESQL, "localhost", 5432,
+                    "prsprojlocalPOSTGRESQL", "postgres", "placeholder");
+            // PostgreSQL Aiven remote
+            case 4 -> new Target("postgresql-aiven", DbType.POSTGRESQL,
+                    "prsprojekat-postgresql-prsprojekat.g.aivencloud.com", 15406, "mydb", "avnadmin", "placeholder");
+            default -> null;
+        };
+    }
 
+    // pool za bazu, null ako se ne moze spojiti; seeder != null: cekanje na konekciju ide u njegove metrike
+    private static HikariDataSource openPool(Target t, LoaderMode loaderMode, Seeder seeder) {
         HikariConfig config = new HikariConfig();
         String jdbcUrl;
-        if (dbType == DbType.MYSQL) {
-            jdbcUrl = "jdbc:mysql://" + host + ":" + port + "/" + dbName +
-                    "?useSSL=true&requireSSL=true&serverTimezone=UTC";
+        if (t.dbType() == DbType.MYSQL) {
+            jdbcUrl = t.url() + "?useSSL=true&requireSSL=true&serverTimezone=UTC&rewriteBatchedStatements=true";
+            if (loaderMode == LoaderMode.NATIVE) {
+                // stream se predaje drajveru, bez fajlova na disku
+                jdbcUrl += "&allowLoadLocalInfile=true";
+            }
             config.setDriverClassName("com.mysql.cj.jdbc.Driver");
         } else {
-            jdbcUrl = "jdbc:postgresql://" + host + ":" + port + "/" + dbName;
-            if (!host.equalsIgnoreCase("localhost")) {
-                jdbcUrl += "?sslmode=require";
+            jdbcUrl = t.url() + "?reWriteBatchedInserts=true";
+            if (!t.host().equalsIgnoreCase("localhost")) {
+                jdbcUrl += "&sslmode=require";
             }
             config.setDriverClassName("org.postgresql.Driver");
         }
         config.setJdbcUrl(jdbcUrl);
-        config.setUsername(user);
-        config.setPassword(pass);
+        config.setUsername(t.user());
+        config.setPassword(t.pass());
 
-        config.setMaximumPoolSize(15);
+        config.setMaximumPoolSize(POOL_SIZE);
         config.setMinimumIdle(2);
         config.setConnectionTimeout(30_000);
         config.setIdleTimeout(300_000);
         config.setMaxLifetime(1_500_000);
+        if (seeder != null) {
+            config.setMetricsTrackerFactory(seeder.metrics().hikariTrackerFactory());
+        }
 
         HikariDataSource dataSource = new HikariDataSource(config);
 
         // check
         try (Connection testConn = dataSource.getConnection()) {
-            System.out.println("Uspjesna konekcija preko HikariCP poola");
+            System.out.println("Uspjesna konekcija preko HikariCP poola (" + t.label() + ")");
         } catch (Exception e) {
-            System.err.println("Neuspjesna konekcija preko HCP poola" + e.getMessage());
+            System.err.println("Neuspjesna konekcija preko HCP poola (" + t.label() + ") " + e.getMessage());
             dataSource.close();
-            return;
+            return null;
         }
+        return dataSource;
+    }
 
-        SchemaReader reader = new SchemaReader(dataSource, dbType);
-
-        List<String> allTablesOrig = reader.getAllTables(dbName);
-        if (allTablesOrig.isEmpty()) {
-            System.err.println("Nema pronadnjenih tablica u bazi \"" + dbName + "\". Provjerite parametre");
-            dataSource.close();
-            return;
+    // --report=fajl.json: vremena po tabeli, nivou i ukupno
+    private static void writeReport(RunReport report, String reportFile, RunOptions opts) throws Exception {
+        if (report != null && reportFile != null) {
+            report.writeJson(Path.of(reportFile), opts.asMap());
+            System.out.println("Izvjestaj sacuvan u " + reportFile);
         }
+    }
 
-        Map<String, String> lcToOriginal = new HashMap<>();
-        for (String orig : allTablesOrig) {
-            lcToOriginal.put(orig.toLowerCase(), orig);
+    // null kad fajla nema, kad je za drugu bazu (vrsta, adresa, ime) ili je iz starije verzije
+    private static SchemaSnapshot cachedSchema(String cacheFile, Target t) throws IOException {
+        if (cacheFile == null || !Files.exists(Path.of(cacheFile))) {
+            return null;
         }
-
-        System.out.println("\nTabele u bazi:");
-        allTablesOrig.forEach(t -> System.out.println("  - " + t));
-
-        Map<String, List<String>> deps = reader.getTableDependencies(dbName);
-
-        List<String> allTablesLC = new ArrayList<>(lcToOriginal.keySet());
-        DependencyGraph graph = new DependencyGraph(deps);
-        List<String> sortedTablesLC;
+        SchemaSnapshot cached;
         try {
-            sortedTablesLC = graph.topologicalSort(allTablesLC);
-        } catch (RuntimeException e) {
-            System.err.println("Greska: ciklicne zavisnosti medju tabelama " + e.getMessage());
-            dataSource.close();
-            return;
+            cached = SchemaSnapshot.load(Path.of(cacheFile));
+        } catch (InvalidClassException e) {
+            System.out.println("Fajl " + cacheFile + " je iz starije verzije, sema se cita ponovo");
+            return null;
         }
-
-        System.out.println("\nRedoslijed za punjenje (lower-case):");
-        sortedTablesLC.forEach(t -> System.out.println("  - " + t));
-
-        //level za svaku tablicu 0->nema roditelja moze se popunjavati sama, 1->zavisi od nivoa 0...
-        Map<String, Integer> levelMap = computeLevels(sortedTablesLC, deps);
-
-        Map<Integer, List<String>> tablesByLevel = new TreeMap<>();
-        for (String tableLC : sortedTablesLC) {
-            int lvl = levelMap.getOrDefault(tableLC, 0);
-            tablesByLevel.computeIfAbsent(lvl, k -> new ArrayList<>()).add(tableLC);
+        if (!cached.readFrom(t.dbType(), t.url(), t.dbName())) {
+            System.out.println("Fajl " + cacheFile + " je za bazu " + cached.dbType() + " " + cached.url()
+                    + ", sema se cita ponovo");
+            return null;
         }
-
-        Map<String, List<Object>> knownValues = new ConcurrentHashMap<>();
-
-        //int maxThreads = Math.min(Runtime.getRuntime().availableProcessors(), 15);
-        ExecutorService executor = Executors.newFixedThreadPool(15);
-
-        long overallStart = System.currentTimeMillis();
-
-        for (Map.Entry<Integer, List<String>> entry : tablesByLevel.entrySet()) {
-            List<String> levelTablesLC = entry.getValue();
-            List<Future<?>> futures = new ArrayList<>();
-
-            for (String tableLC : levelTablesLC) {
-                String tableOrig = lcToOriginal.get(tableLC);
-
-                Future<?> future = executor.submit(() -> {
-                    try {
-                        System.out.println("\nPopunjavanje tabele: " + tableOrig);
-                        long start = System.currentTimeMillis();
-
-                        SchemaReader threadReader = new SchemaReader(dataSource, dbType);
-                        DataGenerator threadGen   = new DataGenerator(dataSource);
-                        DataFiller threadFill = new DataFiller(dataSource, dbType);
-
-
-                        Map<String, String> foreignKeys = threadReader.getForeignKeys(dbName, tableOrig);
-
-                        List<Map<String, Object>> data =
-                                threadGen.generateData(tableOrig, 10_000, knownValues, foreignKeys);
-
-                        List<Object> genKeys = threadFill.fillTable(tableOrig, data);
-
-                       if (!genKeys.isEmpty()) {
-                            knownValues.put(tableLC, genKeys);
-                        } else if (!data.isEmpty()) {
-                            String firstCol = data.get(0).keySet().iterator().next();
-                            List<Object> vals = new ArrayList<>();
-                            for (Map<String, Object> row : data) {
-                                Object v = row.get(firstCol);
-                                if (v != null) {
-                                    vals.add(v);
-                                }
-                            }
-                            knownValues.put(tableLC, vals);
-                        }
-
-                        long end = System.currentTimeMillis();
-                        System.out.println("Tabela " + tableOrig +
-                                " popunjena u " + (end - start) + " ms " +
-                                "(ubaceno " + (genKeys.isEmpty() ? 0 : genKeys.size()) + " redova)");
-                    } catch (Exception e) {
-                        System.out.println("Greska pri popunjavanju tabele " +
-                                tableOrig + ": " + e.getMessage());
-                    }
-                });
-
-                futures.add(future);
-            }
-
-            // sve niti sa cur nivoa moraju finish
-            for (Future<?> f : futures) {
-                try {
-                    f.get();
-                } catch (InterruptedException | ExecutionException ignored) {
-                }
-            }
-        }
-
-        executor.shutdown();
-        executor.awaitTermination(1, TimeUnit.HOURS);
-
-        long overallEnd = System.currentTimeMillis();
-        System.out.println("\nPopunjavanje baze zavrseno. Ukupno vrijeme: " +
-                (overallEnd - overallStart) + " ms");
-
-        dataSource.close();
+        System.out.println("Sema ucitana iz fajla " + cacheFile + " (" + cached.tables().size() + " tabela)");
+        return cached;
     }
 
-    private static Map<String, Integer> computeLevels(
-            List<String> sortedTablesLC,
-            Map<String, List<String>> deps) {
-
-        Map<String, Integer> levelMap = new HashMap<>();
-
-        for (String tableLC : sortedTablesLC) {
-            List<String> parents = deps.getOrDefault(tableLC, Collections.emptyList());
-            int maxParentLevel = -1;
-            for (String p : parents) {
-                int pl = levelMap.getOrDefault(p.toLowerCase(), 0);
-                if (pl > maxParentLevel) {
-                    maxParentLevel = pl;
-                }
-            }
-            levelMap.put(tableLC, maxParentLevel + 1);
+    private static SchemaSnapshot loadSchema(SchemaReader reader, Target t,
+                                             String cacheFile, boolean refresh) throws Exception {
+        SchemaSnapshot cached = refresh ? null : cachedSchema(cacheFile, t);
+        if (cached != null) {
+            return cached;
         }
-
-        return levelMap;
+        long start = System.currentTimeMillis();
+        SchemaSnapshot snapshot = reader.readSnapshot(t.dbName(), t.url());
+        System.out.println("Sema procitana iz baze u " + (System.currentTimeMillis() - start) + " ms");
+        if (cacheFile != null) {
+            snapshot.save(Path.of(cacheFile));
+            System.out.println("Sema sacuvana u " + cacheFile);
+        }
+        return snapshot;
     }
 }
@@ -0,0 +1,135 @@
+package prs;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+// vremena punjenja po tabeli, nivou i ukupno; JSON da se pokretanja mogu porediti (loader, chunk, shardovi...)
+public class RunReport {
+
+    // startMs/endMs su relativni u odnosu na pocetak punjenja
+    public record TableStats(String table, int level, long rows, long startMs, long endMs) {
+
+        public long millis() {
+            return endMs - startMs;
+        }
+    }
+
+    private final List<TableStats> tables;
+    private final long totalMillis;
+
+    public RunReport(List<TableStats> tables, long totalMillis) {
+        List<TableStats> sorted = new ArrayList<>(tables);
+        sorted.sort(Comparator.comparingInt(TableStats::level).thenComparingLong(TableStats::startMs));
+        this.tables = List.copyOf(sorted);
+        this.totalMillis = totalMillis;
+    }
+
+    public List<TableStats> tables() {
+        return tables;
+    }
+
+    public long totalMillis() {
+        return totalMillis;
+    }
+
+    public long totalRows() {
+        long rows = 0;
+        for (TableStats t : tables) {
+            rows += t.rows();
+        }
+        return rows;
+    }
+
+    static double rowsPerSec(long rows, long millis) {
+        return millis <= 0 ? rows * 1000.0 : rows * 1000.0 / millis;
+    }
+
+    // config: opcije pokretanja koje se upisuju uz rezultat
+    public String toJson(Map<String, String> config) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\n  \"config\": {");
+        String sep = "";
+        for (Map.Entry<String, String> e : new TreeMap<>(config).entrySet()) {
+            sb.append(sep).append("\n    ").append(quote(e.getKey())).append(": ").append(quote(e.getValue()));
+            sep = ",";
+        }
+        sb.append(config.isEmpty() ? "},\n" : "\n  },\n");
+
+        long rows = totalRows();
+        sb.append("  \"overall\": {\"tables\": ").append(tables.size())
+                .append(", \"rows\": ").append(rows)
+                .append(", \"millis\": ").append(totalMillis)
+                .append(", \"rowsPerSec\": ").append(fmt(rowsPerSec(rows, totalMillis))).append("},\n");
+
+        // nivo: od pocetka prve do kraja posljednje tabele nivoa (nivoi se preklapaju jer se ne ceka cijeli nivo)
+        Map<Integer, long[]> levels = new TreeMap<>();
+        for (TableStats t : tables) {
+            long[] l = levels.computeIfAbsent(t.level(), k -> new long[]{0, 0, Long.MAX_VALUE, Long.MIN_VALUE});
+            l[0]++;
+            l[1] += t.rows();
+            l[2] = Math.min(l[2], t.startMs());
+            l[3] = Math.max(l[3], t.endMs());
+        }
+        sb.append("  \"levels\": [");
+        sep = "";
+        for (Map.Entry<Integer, long[]> e : levels.entrySet()) {
+            long[] l = e.getValue();
+            long millis = l[3] - l[2];
+            sb.append(sep).append("\n    {\"level\": ").append(e.getKey())
+                    .append(", \"tables\": ").append(l[0])
+                    .append(", \"rows\": ").append(l[1])
+                    .append(", \"millis\": ").append(millis)
+                    .append(", \"rowsPerSec\": ").append(fmt(rowsPerSec(l[1], millis))).append('}');
+            sep = ",";
+        }
+        sb.append(levels.isEmpty() ? "],\n" : "\n  ],\n");
+
+        sb.append("  \"tables\": [");
+        sep = "";
+        for (TableStats t : tables) {
+            sb.append(sep).append("\n    {\"table\": ").append(quote(t.table()))
+                    .append(", \"level\": ").append(t.level())
+                    .append(", \"rows\": ").append(t.rows())
+                    .append(", \"startMs\": ").append(t.startMs())
+                    .append(", \"millis\": ").append(t.millis())
+                    .append(", \"rowsPerSec\": ").append(fmt(rowsPerSec(t.rows(), t.millis()))).append('}');
+            sep = ",";
+        }
+        sb.append(tables.isEmpty() ? "]\n" : "\n  ]\n");
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    public void writeJson(Path file, Map<String, String> config) throws IOException {
+        Files.writeString(file, toJson(config), StandardCharsets.UTF_8);
+    }
+
+    private static String fmt(double v) {
+        return String.format(Locale.ROOT, "%.1f", v);
+    }
+
+    private static String quote(String s) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
@@ -0,0 +1,725 @@
+package prs;
+
+import com.zaxxer.hikari.HikariDataSource;
+import prs.checkpoint.CheckpointJournal;
+import prs.checkpoint.TableCheckpoint;
+import prs.config.LoadProfile;
+import prs.config.RunOptions;
+import prs.data.ColumnBatch;
+import prs.data.ColumnRules;
+import prs.data.DataGenerator;
+import prs.data.ExistingRows;
+import prs.data.Seeds;
+import prs.db.AdaptiveLimit;
+import prs.db.BulkLoad;
+import prs.db.DbType;
+import prs.db.ExistingReader;
+import prs.db.PermitDataSource;
+import prs.filler.DataFiller;
+import prs.filler.DumpSink;
+import prs.filler.FanOutSink;
+import prs.filler.LoaderMode;
+import prs.filler.RowSink;
+import prs.graph.CyclePlan;
+import prs.graph.DagScheduler;
+import prs.graph.DependencyGraph;
+import prs.keys.ConcatKeys;
+import prs.keys.KeyRegistry;
+import prs.keys.KeySet;
+import prs.keys.KeySetBuilder;
+import prs.metrics.Metrics;
+import prs.metrics.MetricsReporter;
+import prs.metrics.TableMetrics;
+import prs.pipeline.CyclePatcher;
+import prs.pipeline.LoadResult;
+import prs.pipeline.ShardedLoader;
+import prs.pipeline.StreamingLoader;
+import prs.pipeline.Workers;
+import prs.schema.SchemaSnapshot;
+import prs.schema.TableMeta;
+import prs.stats.StatsReader;
+import prs.stats.StatsSnapshot;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.*;
+
+// punjenje cijele seme: redoslijed tabela, generisanje i upis; ne zna odakle je DataSource ni sema
+// (Main ih pravi iz izbora baze, harness za mjerenje iz sinteticke seme)
+public class Seeder {
+
+    // dodatna baza za --targets: dobija iste redove kao glavna
+    public record Target(String name, DataSource dataSource, DbType dbType) {
+    }
+
+    // tabele koje se pune istovremeno na platformskim nitima (--executor=platform)
+    private static final int PLATFORM_TABLE_THREADS = 15;
+
+    private final int rowCount;
+    private final LoadProfile profile;
+    private final boolean streaming;
+    private final int chunkSize;
+    private final int queueCapacity;
+    private final int insertersPerTable;
+    private final LoaderMode loaderMode;
+    private final int maxShards;
+    private final long runSeed;
+    private final long baseTime;
+    private final Workers.Mode executorMode;
+    private final int maxTables;
+    private final int poolSize;
+    private final String metricsSpec;
+    private final int metricsInterval;
+    private final Path checkpointFile;
+    private final Path dumpDir;
+    private final boolean dumpGzip;
+    private final long dumpPartRows;
+    private final boolean bulkLoad;
+    private final boolean unlogged;
+    private final Path bulkRestoreFile;
+    private final Path statsFile;
+    private final boolean refreshStats;
+    private final String statsUrl;
+    private final String statsUser;
+    private final String statsPassword;
+    private final int statsSample;
+    private final int fanOutBuffer;
+    private final boolean adaptive;
+    private final int minConnections;
+    private final int maxConnections;
+    private final int adaptiveInterval;
+    private final boolean append;
+    private final double growBy;
+    private final long appendMaxHashes;
+    private final Metrics metrics = new Metrics();
+    // zaglavlje prekinutog punjenja (--resume), iz njega dolaze seed i velicine; null bez --resume
+    private final CheckpointJournal.Header resumed;
+    // --checkpoint dnevnik, otvoren samo dok traje run
+    private CheckpointJournal journal;
+
+    public Seeder(RunOptions opts, int poolSize) throws IOException {
+        // --checkpoint=fajl: dnevnik commitovanih chunkova; --resume nastavlja prekinuto punjenje iz njega
+        String checkpoint = opts.get("checkpoint", null);
+        this.checkpointFile = checkpoint == null ? null : Path.of(checkpoint);
+        if (opts.flag("resume")) {
+            if (checkpointFile == null) {
+                throw new IllegalArgumentException("--resume trazi --checkpoint=<fajl>");
+            }
+            this.resumed = CheckpointJournal.readHeader(checkpointFile);
+        } else {
+            this.resumed = null;
+        }
+
+        // pri nastavku sve sto odredjuje podatke dolazi iz dnevnika, ne sa komandne linije
+        this.rowCount = resumed != null ? resumed.rows() : opts.getInt("rows", 10_000);
+        // --profile=fajl.json: redovi po tabeli i pravila kolona; pri nastavku tekst profila je u dnevniku
+        String profileFile = opts.get("profile", null);
+        if (resumed != null) {
+            this.profile = LoadProfile.parse(resumed.profile());
+        } else {
+            this.profile = profileFile == null ? LoadProfile.NONE : LoadProfile.load(Path.of(profileFile));
+        }
+        // --streaming: generisanje i insert se preklapaju, memorija ne zavisi od broja redova
+        this.streaming = resumed != null ? resumed.streaming() : opts.flag("streaming");
+        this.chunkSize = resumed != null ? resumed.chunkSize() : opts.getInt("chunk-size", 5_000);
+        this.queueCapacity = opts.getInt("queue", 4);
+        this.insertersPerTable = opts.getInt("inserters", 2);
+        // --loader=multirow: INSERT sa vise redova po naredbi; --loader=native: COPY na PostgreSQL-u / LOAD DATA LOCAL INFILE na MySQL-u umjesto INSERT batcha
+        this.loaderMode = LoaderMode.parse(opts.get("loader", "insert"));
+        // --shards=N: velika tabela se dijeli na N opsega redova, svaki na svojoj konekciji
+        this.maxShards = resumed != null ? resumed.shards() : opts.getInt("shards", 1);
+        // --seed: isti seed daje iste podatke
+        this.runSeed = resumed != null ? resumed.seed()
+                : Long.parseLong(opts.get("seed", Long.toString(System.nanoTime())));
+        // --base-time: epoch ms od kojeg se datumi racunaju unazad; uz isti seed daje iste datume i drugog dana
+        this.baseTime = resumed != null ? resumed.baseTime()
+                : Long.parseLong(opts.get("base-time", Long.toString(DataGenerator.startOfToday())));
+        // --executor=virtual: virtualne niti za tabele i I/O, konekcije ograniceno na velicinu poola
+        this.executorMode = Workers.Mode.parse(opts.get("executor", "platform"));
+        this.maxTables = opts.getInt("max-tables", 256);
+        this.poolSize = poolSize;
+        // --metrics=console,csv:fajl,json:fajl: periodican ispis metrika svakih --metrics-interval sekundi
+        this.metricsSpec = opts.get("metrics", null);
+        this.metricsInterval = opts.getInt("metrics-interval", 10);
+        // --dump=dir: redovi idu u fajlove za psql \copy / LOAD DATA umjesto u bazu
+        String dump = opts.get("dump", null);
+        this.dumpDir = dump == null ? null : Path.of(dump);
+        String compress = opts.get("dump-compress", "gzip").toLowerCase();
+        if (!compress.equals("gzip") && !compress.equals("none")) {
+            throw new IllegalArgumentException("Nepoznat --dump-compress: " + compress + " (gzip|none)");
+        }
+        this.dumpGzip = compress.equals("gzip");
+        this.dumpPartRows = Long.parseLong(opts.get("dump-part-rows", "1000000"));
+        if (dumpDir != null && checkpointFile != null) {
+            // fajl dumpa nije commit: nakon pada nema sta da se nastavi
+            throw new IllegalArgumentException("--checkpoint se ne koristi sa --dump");
+        }
+        // --bulk-load: bez FK provjera i sekundarnih indeksa tokom upisa, indeksi i ANALYZE na kraju;
+        // --unlogged: PostgreSQL tabele su UNLOGGED dok traje upis
+        this.bulkLoad = opts.flag("bulk-load");
+        this.unlogged = opts.flag("unlogged");
+        // naredbe za vracanje; ostane li fajl nakon pada, izvrsava se pri sljedecem pokretanju
+        this.bulkRestoreFile = Path.of(opts.get("bulk-restore", "bulk-restore.sql"));
+        if (unlogged && !bulkLoad) {
+            throw new IllegalArgumentException("--unlogged trazi --bulk-load");
+        }
+        if (bulkLoad && dumpDir != null) {
+            throw new IllegalArgumentException("--bulk-load se ne koristi sa --dump");
+        }
+        // --stats=fajl: vrijednosti po statistici izvorne baze (--stats-url, inace ciljna baza);
+        // cita se jednom i cuva u fajl, --refresh-stats cita ponovo
+        String stats = opts.get("stats", null);
+        this.statsFile = stats == null ? null : Path.of(stats);
+        this.refreshStats = opts.flag("refresh-stats");
+        this.statsUrl = opts.get("stats-url", null);
+        this.statsUser = opts.get("stats-user", null);
+        this.statsPassword = opts.get("stats-password", null);
+        this.statsSample = opts.getInt("stats-sample", 10_000);
+        // --fanout-buffer: chunkova koji cekaju na svaku dodatnu bazu (--targets) po writeru
+        this.fanOutBuffer = Math.max(1, opts.getInt("fanout-buffer", 4));
+        // --adaptive: broj istovremenih konekcija (i velicina Hikari poola) se prilagodjava latenciji upisa,
+        // cekanju na pool i odbijenim konekcijama, izmedju --min-connections i --max-connections
+        this.adaptive = opts.flag("adaptive");
+        this.minConnections = opts.getInt("min-connections", 2);
+        this.maxConnections = opts.getInt("max-connections", 2 * poolSize);
+        this.adaptiveInterval = opts.getInt("adaptive-interval", 1_000);
+        if (adaptive && dumpDir != null) {
+            throw new IllegalArgumentException("--adaptive se ne koristi sa --dump");
+        }
+        // --append: tabele vec imaju redove, --rows / profil su ukupan broj i dodaje se samo ono sto nedostaje;
+        // --grow=0.1: svaka tabela dobija jos 10% svojih postojecih redova (ukljucuje --append)
+        String grow = opts.get("grow", null);
+        this.growBy = grow == null ? -1 : Double.parseDouble(grow);
+        this.append = opts.flag("append") || grow != null;
+        // --append-max-hashes: najvise heseva postojecih kombinacija po tabeli (oko 16 bajtova svaki)
+        this.appendMaxHashes = Long.parseLong(opts.get("append-max-hashes", "50000000"));
+        if (grow != null && growBy < 0) {
+            throw new IllegalArgumentException("--grow mora biti >= 0: " + grow);
+        }
+        if (append && (dumpDir != null || checkpointFile != null)) {
+            // prekinuto --append punjenje se nastavlja ponovnim pokretanjem: dodaje se ono sto jos nedostaje
+            throw new IllegalArgumentException("--append se ne koristi sa --dump ni --checkpoint");
+        }
+    }
+
+    public LoaderMode loaderMode() {
+        return loaderMode;
+    }
+
+    // --dump: punjenje ne treba konekciju, sema dolazi iz --schema-cache fajla (ili jednog citanja baze)
+    public boolean offline() {
+        return dumpDir != null;
+    }
+
+    // za HikariConfig.setMetricsTrackerFactory, prije pravljenja poola
+    public Metrics metrics() {
+        return metrics;
+    }
+
+    // null ako se tabele ne mogu poredati (ciklus); dataSource je null uz --dump
+    public RunReport run(DataSource dataSource, DbType dbType, SchemaSnapshot schema) throws Exception {
+        return run(dataSource, dbType, schema, List.of());
+    }
+
+    // others: dodatne baze iste seme, svaki chunk se generise jednom i upisuje u sve (FanOutSink)
+    public RunReport run(DataSource dataSource, DbType dbType, SchemaSnapshot schema, List<Target> others)
+            throws Exception {
+        try {
+            return load(dataSource, dbType, schema, others);
+        } finally {
+            closeJournal();
+        }
+    }
+
+    // stanje jednog punjenja koje dijele sve tabele (loadTable)
+    private record LoadState(SchemaSnapshot schema, Map<String, Integer> tableRows, Map<String, Integer> levelMap,
+                             Map<String, List<String>> loadDeps, Map<String, List<String>> childTables,
+                             Map<String, ExistingReader.Summary> existing, ExistingReader existingReader,
+                             ColumnRules generation, CyclePlan cycles, Workers workers, RowSink sink,
+                             CyclePatcher patcher, KeyRegistry knownValues, Set<String> completed,
+                             Queue<RunReport.TableStats> stats, long overallStart) {
+    }
+
+    // Workers i granica konekcija (--adaptive, inace null)
+    private record Pool(Workers workers, AdaptiveLimit limit) {
+    }
+
+    // dnevnik se otvara tek kad su sema i statistika provjerene; zatvara ga run na svakom izlazu
+    private RunReport load(DataSource dataSource, DbType dbType, SchemaSnapshot schema, List<Target> others)
+            throws Exception {
+        if (!others.isEmpty() && (dataSource == null || checkpointFile != null || bulkLoad || append)) {
+            // commit u glavnoj bazi ne znaci commit u ostalim, --bulk-load priprema samo jednu bazu,
+            // a postojeci redovi (--append) se razlikuju od baze do baze
+            throw new IllegalArgumentException(
+                    "vise baza (--targets) se ne koristi sa --dump, --checkpoint, --bulk-load ni --append");
+        }
+        List<String> allTablesOrig = schema.tableNames();
+        List<String> allTablesLC = new ArrayList<>();
+        for (String orig : allTablesOrig) {
+            allTablesLC.add(orig.toLowerCase());
+        }
+
+        System.out.println("\nTabele u bazi:");
+        allTablesOrig.forEach(t -> System.out.println("  - " + t));
+
+        ColumnRules rules = profile.compile(schema);
+        Map<String, Integer> tableRows = new HashMap<>(profile.rowCounts(allTablesLC, rowCount));
+        ExistingReader existingReader = new ExistingReader(dbType);
+        Map<String, ExistingReader.Summary> existing = Map.of();
+        if (append) {
+            existing = readExisting(dataSource, existingReader, schema);
+            appendRowCounts(schema, existing, tableRows);
+        }
+        StatsSnapshot sourceStats = loadStats(dataSource, dbType, schema);
+        ColumnRules generation = sourceStats == null ? rules : rules.withStats(schema, sourceStats, tableRows, runSeed);
+
+        DependencyGraph fullGraph = new DependencyGraph(schema.dependencies());
+        // fk ciklusi: odlozene ivice se upisuju kao NULL i popunjavaju kad je ciklus upisan (CyclePatcher)
+        CyclePlan cycles;
+        try {
+            cycles = CyclePlan.build(fullGraph, allTablesLC,
+                    (child, parent) -> CyclePatcher.deferrable(schema, child, parent));
+        } catch (IllegalStateException e) {
+            System.err.println("Greska: ciklicne zavisnosti medju tabelama, " + e.getMessage());
+            return null;
+        }
+        DependencyGraph graph = cycles.acyclic();
+        List<String> sortedTablesLC = graph.topologicalSort(allTablesLC);
+        Map<String, List<String>> loadDeps = graph.dependencies();
+        for (List<String> component : cycles.cyclicComponents()) {
+            for (DependencyGraph.Edge e : cycles.deferredIn(component)) {
+                System.out.println("Ciklus " + component + ": fk " + e.child() + " -> " + e.parent()
+                        + " se upisuje kao NULL i popunjava nakon ciklusa");
+            }
+        }
+
+        openJournal(schema, sourceStats);
+        Map<String, Integer> levelMap = computeLevels(sortedTablesLC, loadDeps);
+        BulkLoad bulk = dataSource == null ? null
+                : prepareBulkLoad(dataSource, dbType, schema, cycles, fullGraph, allTablesLC, levelMap);
+
+        // tezina tabele za kriticni put = broj redova (iz profila ili --rows)
+        Map<String, Long> weights = new HashMap<>();
+        for (String tableLC : sortedTablesLC) {
+            weights.put(tableLC, (long) tableRows.get(tableLC));
+        }
+        DagScheduler scheduler = new DagScheduler(graph, sortedTablesLC, weights);
+
+        System.out.println("\nRedoslijed za punjenje (lower-case):");
+        sortedTablesLC.forEach(t -> System.out.println("  - " + t + " (nivo " + levelMap.get(t)
+                + ", redova " + tableRows.get(t) + ", kriticni put " + scheduler.priorities().get(t) + ")"));
+
+        KeyRegistry knownValues = new KeyRegistry();
+        Pool pool = openPool(dataSource);
+        Workers workers = pool.workers();
+        DataSource loadDs = bulk == null ? workers.dataSource() : bulk.loaderDataSource(workers.dataSource());
+        RowSink sink = openSink(loadDs, dbType, schema, others);
+        CyclePatcher patcher = new CyclePatcher(cycles, schema, sink, knownValues, runSeed, workers.ioPool());
+        System.out.println("Seed: " + runSeed + ", base-time: " + baseTime);
+
+        long overallStart = System.currentTimeMillis();
+        // kljucevi se pamte samo za tabele koje imaju djecu, ukljucujuci odlozene ivice (trebaju patchu);
+        // completed: tabele ciji su svi redovi upisani (ovde ili u prekinutom punjenju)
+        LoadState state = new LoadState(schema, tableRows, levelMap, loadDeps, fullGraph.children(sortedTablesLC),
+                existing, existingReader, generation, cycles, workers, sink, patcher, knownValues,
+                ConcurrentHashMap.newKeySet(), new ConcurrentLinkedQueue<>(), overallStart);
+        metrics.registerJmx();
+        MetricsReporter reporter = metricsSpec == null ? null
+                : MetricsReporter.start(metrics, metricsSpec, metricsInterval);
+        boolean loaded = false;
+        try {
+            // tabela krece cim su njeni roditelji gotovi, ne ceka se cijeli nivo
+            scheduler.run(workers.tableExecutor(), workers.tableConcurrency(), tableLC -> loadTable(state, tableLC));
+            patcher.await();
+            if (sink instanceof FanOutSink fanOut) {
+                // vrijeme koje je upis cekao na svaku dodatnu bazu, najvece je usko grlo
+                System.out.println("Cekanje na dodatne baze (ms): " + fanOut.waitMillis());
+            }
+            if (sink instanceof DumpSink dump) {
+                System.out.println("Dump u " + dumpDir + ", ucitavanje: " + dump.writeLoadScript(sortedTablesLC));
+            }
+            loaded = true;
+        } finally {
+            workers.close();
+            if (pool.limit() != null) {
+                pool.limit().close();
+            }
+            if (reporter != null) {
+                reporter.close();
+            }
+            metrics.unregisterJmx();
+            if (bulk != null) {
+                restoreBulkLoad(bulk, loaded);
+            }
+        }
+
+        long overallEnd = System.currentTimeMillis();
+        System.out.println("\nPopunjavanje baze zavrseno. Ukupno vrijeme: " +
+                (overallEnd - overallStart) + " ms");
+
+        return new RunReport(new ArrayList<>(state.stats()), overallEnd - overallStart);
+    }
+
+    // --append: --rows / profil (ili --grow) postaju broj redova koji nedostaje svakoj tabeli
+    private void appendRowCounts(SchemaSnapshot schema, Map<String, ExistingReader.Summary> existing,
+                                 Map<String, Integer> tableRows) {
+        // tabele se citaju istovremeno, pa se granica provjerava prije upisa, ne kad heap vec ponestane
+        List<String> tooLarge = new ArrayList<>();
+        for (TableMeta table : schema.tables()) {
+            long hashes = ExistingReader.hashedValues(table, existing.get(table.nameLC()));
+            if (hashes > appendMaxHashes) {
+                tooLarge.add(table.name() + " (" + hashes + ")");
+            }
+        }
+        if (!tooLarge.isEmpty()) {
+            throw new IllegalArgumentException("--append: jedinstvene kombinacije bez cjelobrojne kolone bi se "
+                    + "drzale kao hesevi postojecih redova, vise od --append-max-hashes=" + appendMaxHashes
+                    + " (oko 16 bajtova svaki): " + String.join(", ", tooLarge));
+        }
+        System.out.println("\nPostojeci redovi (--append):");
+        for (TableMeta table : schema.tables()) {
+            String tableLC = table.nameLC();
+            long have = existing.get(tableLC).rows();
+            long target = growBy >= 0 ? (long) Math.ceil(have * (1 + growBy)) : tableRows.get(tableLC);
+            int missing = (int) Math.min(Integer.MAX_VALUE, Math.max(0, target - have));
+            tableRows.put(tableLC, missing);
+            System.out.println("  - " + table.name() + ": postoji " + have + ", dodaje se " + missing);
+        }
+    }
+
+    // --resume nastavlja dnevnik iste seme i statistike, --checkpoint pocinje novi
+    private void openJournal(SchemaSnapshot schema, StatsSnapshot sourceStats) throws IOException {
+        long schemaHash = CheckpointJournal.schemaHash(schema);
+        long statsHash = sourceStats == null ? 0 : sourceStats.hash();
+        if (resumed != null) {
+            if (resumed.schemaHash() != schemaHash) {
+                throw new IllegalStateException("Sema se promijenila od prekinutog punjenja, --resume nije moguc");
+            }
+            if (resumed.statsHash() != statsHash) {
+                throw new IllegalStateException("--resume trazi isti --stats fajl kao prekinuto punjenje");
+            }
+            journal = CheckpointJournal.open(checkpointFile);
+            System.out.println("Nastavak punjenja iz " + journal.file());
+        } else if (checkpointFile != null) {
+            journal = CheckpointJournal.create(checkpointFile, new CheckpointJournal.Header(
+                    runSeed, baseTime, rowCount, chunkSize, maxShards, streaming, schemaHash, profile.text(),
+                    statsHash));
+        }
+    }
+
+    // vraca ono sto je ostalo od prekinutog --bulk-load punjenja, pa uz --bulk-load priprema tabele;
+    // null bez --bulk-load
+    private BulkLoad prepareBulkLoad(DataSource dataSource, DbType dbType, SchemaSnapshot schema, CyclePlan cycles,
+                                     DependencyGraph fullGraph, List<String> allTablesLC,
+                                     Map<String, Integer> levelMap) throws SQLException, IOException {
+        BulkLoad.replay(dataSource, dbType, bulkRestoreFile);
+        if (!bulkLoad) {
+            return null;
+        }
+        // tabele koje se medjusobno referenciraju ne mogu nazad u LOGGED (svaka referencira UNLOGGED),
+        // a ni njihovi preci ne mogu u UNLOGGED dok ih referencira LOGGED tabela
+        Deque<String> pending = new ArrayDeque<>();
+        for (List<String> component : cycles.cyclicComponents()) {
+            if (component.size() > 1) {
+                pending.addAll(component);
+            }
+        }
+        Set<String> keepLogged = new HashSet<>();
+        while (!pending.isEmpty()) {
+            String t = pending.pop();
+            if (keepLogged.add(t)) {
+                pending.addAll(fullGraph.parents(t, allTablesLC));
+            }
+        }
+        return BulkLoad.prepare(dataSource, dbType, schema, levelMap, unlogged, keepLogged, bulkRestoreFile);
+    }
+
+    private Pool openPool(DataSource dataSource) {
+        if (adaptive && dataSource != null) {
+            // pocinje kao fiksna podjela (poolSize - 5 za upis), pool ima 5 konekcija vise za ostale upite
+            AdaptiveLimit limit = new AdaptiveLimit(Math.max(1, poolSize - 5), minConnections, maxConnections,
+                    metrics, poolResizer(dataSource), adaptiveInterval);
+            PermitDataSource limited = new PermitDataSource(dataSource, limit);
+            Workers workers = executorMode == Workers.Mode.VIRTUAL
+                    ? Workers.virtual(limited, maxTables, Runtime.getRuntime().availableProcessors())
+                    : Workers.platform(limited, PLATFORM_TABLE_THREADS, maxConnections);
+            return new Pool(workers, limit);
+        }
+        if (executorMode == Workers.Mode.VIRTUAL) {
+            // konekcije ogranicava semafor velicine poola, generisanje ide na platformske niti
+            return new Pool(Workers.virtual(dataSource, poolSize, maxTables,
+                    Runtime.getRuntime().availableProcessors()), null);
+        }
+        // inserteri i shardovi drze konekciju cijelo vrijeme, ostavlja se par slobodnih za ostale upite
+        return new Pool(Workers.platform(dataSource, PLATFORM_TABLE_THREADS, Math.max(1, poolSize - 5)), null);
+    }
+
+    // gdje idu redovi: fajlovi (--dump), glavna baza, ili glavna i dodatne baze (--targets)
+    private RowSink openSink(DataSource loadDs, DbType dbType, SchemaSnapshot schema, List<Target> others)
+            throws IOException {
+        if (dumpDir != null) {
+            return new DumpSink(dumpDir, dbType, schema, dumpGzip, dumpPartRows, metrics);
+        }
+        if (others.isEmpty()) {
+            return new DataFiller(loadDs, dbType, loaderMode, metrics);
+        }
+        // metrike mjere glavnu bazu; dodatne baze drze najvise poolSize konekcija, ostali writeri cekaju
+        List<FanOutSink.Target> rest = new ArrayList<>();
+        for (Target t : others) {
+            rest.add(new FanOutSink.Target(t.name(), new DataFiller(
+                    new PermitDataSource(t.dataSource(), poolSize), t.dbType(), loaderMode, null)));
+        }
+        return new FanOutSink(new DataFiller(loadDs, dbType, loaderMode, metrics), rest, schema, fanOutBuffer);
+    }
+
+    private void loadTable(LoadState s, String tableLC) throws Exception {
+        TableMeta tableMeta = s.schema().table(tableLC);
+        String tableOrig = tableMeta.name();
+        int rows = s.tableRows().get(tableLC);
+        boolean hasChildren = !s.childTables().getOrDefault(tableLC, List.of()).isEmpty();
+        TableCheckpoint checkpoint = journal == null ? TableCheckpoint.NONE : journal.table(tableLC);
+        if (skipResumed(s, tableLC, tableOrig, checkpoint, hasChildren)) {
+            return;
+        }
+
+        System.out.println("\nPopunjavanje tabele: " + tableOrig);
+        long start = System.currentTimeMillis();
+
+        ExistingReader.Existing found = readTableExisting(s, tableMeta, hasChildren);
+        ExistingRows unique = found.unique();
+        DataGenerator.Factory tableGenerators = seed -> new DataGenerator(seed, baseTime, s.generation(), unique);
+        long inserted = loadRows(s, tableMeta, rows, hasChildren, checkpoint, found, tableGenerators);
+
+        checkpoint.finished();
+        s.sink().tableFinished(tableOrig);
+        s.completed().add(tableLC);
+        s.patcher().tableCompleted(tableLC);
+        metrics.table(tableOrig).done();
+        long end = System.currentTimeMillis();
+        System.out.println("Tabela " + tableOrig +
+                " popunjena u " + (end - start) + " ms " +
+                "(ubaceno " + inserted + " redova)");
+        s.stats().add(new RunReport.TableStats(tableOrig, s.levelMap().get(tableLC), inserted,
+                start - s.overallStart(), end - s.overallStart()));
+    }
+
+    // tabela upisana u prekinutom punjenju, ili tabela ciji roditelj nije upisan (ostaje za --resume)
+    private boolean skipResumed(LoadState s, String tableLC, String tableOrig, TableCheckpoint checkpoint,
+                                boolean hasChildren) {
+        if (checkpoint.done()) {
+            if (hasChildren) {
+                s.knownValues().put(tableLC, checkpoint.keys());
+            }
+            s.completed().add(tableLC);
+            s.patcher().tableCompleted(tableLC);
+            System.out.println("\nTabela " + tableOrig + " je upisana u prekinutom punjenju ("
+                    + checkpoint.committedRows() + " redova), preskace se");
+            return true;
+        }
+        if (journal != null) {
+            // scheduler pokrece djecu i kad roditelj padne; bez kljuceva roditelja podaci ne bi bili
+            // isti kao u punjenju bez prekida, pa se tabela ostavlja za --resume
+            for (String parent : s.loadDeps().getOrDefault(tableLC, List.of())) {
+                String parentLC = parent.toLowerCase();
+                if (!parentLC.equals(tableLC) && !s.completed().contains(parentLC)) {
+                    System.out.println("\nTabela " + tableOrig + " se preskace: roditelj " + parent
+                            + " nije upisan, nastavlja se sa --resume");
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // --append: postojeci kljucevi za djecu i jedinstvene vrijednosti koje novi redovi ne smiju ponoviti
+    private ExistingReader.Existing readTableExisting(LoadState s, TableMeta tableMeta, boolean hasChildren)
+            throws SQLException {
+        ExistingReader.Summary before = s.existing().get(tableMeta.nameLC());
+        if (before == null || before.rows() == 0) {
+            return new ExistingReader.Existing(ExistingRows.NONE, KeySet.EMPTY);
+        }
+        long readStart = System.currentTimeMillis();
+        ExistingReader.Existing found;
+        try (Connection conn = s.workers().dataSource().getConnection()) {
+            found = s.existingReader().read(conn, tableMeta, before, hasChildren);
+        }
+        System.out.println("Postojeci redovi tabele " + tableMeta.name() + " procitani za "
+                + (System.currentTimeMillis() - readStart) + " ms"
+                + (hasChildren ? " (" + found.keys().size() + " kljuceva)" : ""));
+        return found;
+    }
+
+    // generisanje i upis redova tabele: shardovi, streaming ili jedan batch; vraca broj upisanih redova
+    private long loadRows(LoadState s, TableMeta tableMeta, int rows, boolean hasChildren, TableCheckpoint checkpoint,
+                          ExistingReader.Existing found, DataGenerator.Factory tableGenerators) throws Exception {
+        String tableLC = tableMeta.nameLC();
+        long tableSeed = Seeds.forTable(runSeed, tableLC);
+        TableMetrics tableMetrics = metrics.table(tableMeta.name());
+        // fk kolone odlozenih ivica ciklusa ostaju NULL do patcha
+        KeyRegistry parentKeys = s.knownValues().without(s.cycles().deferredParents(tableLC));
+        Workers workers = s.workers();
+
+        int shards = ShardedLoader.shardCount(tableMeta, rows, chunkSize, maxShards, found.unique());
+        if (shards > 1 || streaming) {
+            LoadResult res;
+            if (shards > 1) {
+                res = new ShardedLoader(s.sink(), workers.ioPool(), chunkSize, shards, tableGenerators, metrics)
+                        .load(tableMeta, rows, parentKeys, tableSeed, hasChildren, checkpoint);
+            } else {
+                res = new StreamingLoader(s.sink(), workers.ioPool(), workers.cpuExecutor(), chunkSize,
+                        queueCapacity, insertersPerTable, tableGenerators, metrics)
+                        .load(tableMeta, rows, parentKeys, tableSeed, hasChildren, checkpoint);
+            }
+            if (hasChildren) {
+                s.knownValues().put(tableLC, ConcatKeys.of(found.keys(), res.knownKeys()));
+            }
+            return res.rowsInserted;
+        }
+        if (checkpoint.committed(TableCheckpoint.chunkId(0, 0))) {
+            // cijela tabela je jedan chunk; pad je bio izmedju commita i oznake kraja
+            if (hasChildren) {
+                s.knownValues().put(tableLC, checkpoint.keys());
+            }
+            return 0;
+        }
+
+        DataGenerator threadGen = tableGenerators.create(tableSeed);
+        ColumnBatch data = workers.onCpu(() -> {
+            long genStart = System.nanoTime();
+            ColumnBatch generated = threadGen.generateData(tableMeta, rows, parentKeys);
+            tableMetrics.generated(generated == null ? 0 : generated.size(), System.nanoTime() - genStart);
+            return generated;
+        });
+
+        KeySetBuilder genKeys = s.sink().fillTable(tableMeta.name(), data);
+        long inserted = data == null ? 0 : data.size();
+
+        KeySet keys = KeySet.EMPTY;
+        if (hasChildren && data != null && !data.isEmpty()) {
+            keys = LoadResult.chunkKeys(tableMeta, data, genKeys);
+        }
+        if (hasChildren) {
+            s.knownValues().put(tableLC, ConcatKeys.of(found.keys(), keys));
+        }
+        checkpoint.chunkCommitted(TableCheckpoint.chunkId(0, 0), (int) inserted, keys);
+        return inserted;
+    }
+
+    // null bez --stats; postojeci fajl se koristi bez konekcije na izvornu bazu
+    private StatsSnapshot loadStats(DataSource dataSource, DbType dbType, SchemaSnapshot schema)
+            throws SQLException, IOException {
+        if (statsFile == null) {
+            return null;
+        }
+        if (!refreshStats && Files.exists(statsFile)) {
+            StatsSnapshot stats = StatsSnapshot.load(statsFile);
+            System.out.println("Statistika ucitana iz fajla " + statsFile + " (" + stats.columnCount() + " kolona)");
+            return stats;
+        }
+        if (statsUrl == null && dataSource == null) {
+            throw new IllegalArgumentException("--stats fajl " + statsFile + " ne postoji; bez baze (--dump) treba --stats-url");
+        }
+        DbType sourceType = statsUrl == null ? dbType
+                : statsUrl.startsWith("jdbc:mysql:") ? DbType.MYSQL : DbType.POSTGRESQL;
+        long start = System.currentTimeMillis();
+        StatsSnapshot stats;
+        try (Connection conn = statsUrl == null ? dataSource.getConnection()
+                : DriverManager.getConnection(statsUrl, statsUser, statsPassword)) {
+            stats = new StatsReader(sourceType, statsSample).read(conn, schema);
+        }
+        stats.save(statsFile);
+        System.out.println("Statistika procitana u " + (System.currentTimeMillis() - start) + " ms i sacuvana u " + statsFile);
+        return stats;
+    }
+
+    // broj redova i granice kljuceva svih tabela prije punjenja; upiti idu paralelno (COUNT velike tabele traje)
+    private Map<String, ExistingReader.Summary> readExisting(DataSource dataSource, ExistingReader reader,
+                                                             SchemaSnapshot schema) throws Exception {
+        long start = System.currentTimeMillis();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, poolSize - 5));
+        try {
+            Map<String, Future<ExistingReader.Summary>> futures = new LinkedHashMap<>();
+            for (TableMeta table : schema.tables()) {
+                futures.put(table.nameLC(), pool.submit(() -> {
+                    try (Connection conn = dataSource.getConnection()) {
+                        return reader.summary(conn, table);
+                    }
+                }));
+            }
+            Map<String, ExistingReader.Summary> out = new HashMap<>();
+            for (Map.Entry<String, Future<ExistingReader.Summary>> e : futures.entrySet()) {
+                try {
+                    out.put(e.getKey(), e.getValue().get());
+                } catch (ExecutionException ex) {
+                    throw ex.getCause() instanceof Exception cause ? cause : ex;
+                }
+            }
+            System.out.println("Postojeci redovi prebrojani za " + (System.currentTimeMillis() - start) + " ms");
+            return out;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // Hikari pool prati granicu (+5 za upite van upisa); kad baza odbija konekcije prazne se zatvaraju odmah
+    private static AdaptiveLimit.Resizer poolResizer(DataSource dataSource) {
+        if (!(dataSource instanceof HikariDataSource hikari)) {
+            return (limit, overloaded) -> {
+            };
+        }
+        return (limit, overloaded) -> {
+            hikari.getHikariConfigMXBean().setMaximumPoolSize(limit + 5);
+            if (overloaded && hikari.getHikariPoolMXBean() != null) {
+                hikari.getHikariPoolMXBean().softEvictConnections();
+            }
+        };
+    }
+
+    // indeksi i tabele se vracaju i kad punjenje padne; greska vracanja ne sakriva gresku punjenja
+    private void restoreBulkLoad(BulkLoad bulk, boolean loaded) throws SQLException, IOException {
+        try {
+            bulk.restore();
+        } catch (SQLException | IOException e) {
+            if (loaded) {
+                throw e;
+            }
+            System.err.println("Vracanje nakon --bulk-load nije uspjelo (" + e.getMessage()
+                    + "), ponavlja se iz " + bulkRestoreFile + " pri sljedecem pokretanju");
+        }
+    }
+
+    private void closeJournal() throws IOException {
+        if (journal != null) {
+            journal.close();
+            journal = null;
+        }
+    }
+
+    //level za svaku tablicu 0->nema roditelja moze se popunjavati sama, 1->zavisi od nivoa 0...
+    static Map<String, Integer> computeLevels(
+            List<String> sortedTablesLC,
+            Map<String, List<String>> deps) {
+
+        Map<String, Integer> levelMap = new HashMap<>();
+
+        for (String tableLC : sortedTablesLC) {
+            List<String> parents = deps.getOrDefault(tableLC, Collections.emptyList());
+            int maxParentLevel = -1;
+            for (String p : parents) {
+                int pl = levelMap.getOrDefault(p.toLowerCase(), 0);
+                if (pl > maxParentLevel) {
+                    maxParentLevel = pl;
+                }
+            }
+            levelMap.put(tableLC, maxParentLevel + 1);
+        }
+
+        return levelMap;
+    }
+}
@@ -0,0 +1,302 @@
+package prs.checkpoint;
+
+import prs.keys.KeySet;
+import prs.keys.KeySetBuilder;
+import prs.keys.LongArrayKeys;
+import prs.keys.LongRangeKeys;
+import prs.keys.StringKeys;
+import prs.schema.ColumnMeta;
+import prs.schema.SchemaSnapshot;
+import prs.schema.TableMeta;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.zip.CRC32;
+
+// dnevnik punjenja za --resume: zaglavlje sa parametrima od kojih zavise podaci, zatim zapis za svaki
+// commitovan chunk (broj redova i kljucevi) i za svaku zavrsenu tabelu. Zapis se dodaje tek poslije
+// commita u bazi, pa dnevnik nikad ne tvrdi vise nego sto je upisano; zapis je [duzina][crc32][sadrzaj]
+// pa se nedovrsen zapis sa kraja (pad usred upisa) prepoznaje i odsijeca
+public class CheckpointJournal implements Closeable {
+
+    private static final int MAGIC = 0x50525343;
+    private static final int VERSION = 3;
+
+    private static final byte HEADER = 'H';
+    private static final byte CHUNK = 'C';
+    private static final byte DONE = 'D';
+
+    private static final byte KEYS_EMPTY = 0;
+    private static final byte KEYS_RANGE = 1;
+    private static final byte KEYS_LONGS = 2;
+    private static final byte KEYS_STRINGS = 3;
+    private static final byte KEYS_OBJECTS = 4;
+
+    // sve sto odredjuje koji red ide u koji chunk i sa kojim seedom; profile je tekst --profile fajla ("" bez njega),
+    // statsHash hes --stats fajla (0 bez njega)
+    public record Header(long seed, long baseTime, int rows, int chunkSize, int shards,
+                         boolean streaming, long schemaHash, String profile, long statsHash) {
+    }
+
+    // stanje tabele iz prethodnog pokretanja
+    static final class TableState {
+        final TreeMap<Long, TableCheckpoint.Chunk> chunks = new TreeMap<>();
+        boolean done;
+    }
+
+    private final Path file;
+    private final FileChannel channel;
+    private final Header header;
+    private final Map<String, TableState> previous;
+
+    private CheckpointJournal(Path file, FileChannel channel, Header header, Map<String, TableState> previous) {
+        this.file = file;
+        this.channel = channel;
+        this.header = header;
+        this.previous = previous;
+    }
+
+    // novo punjenje: postojeci fajl se brise
+    public static CheckpointJournal create(Path file, Header header) throws IOException {
+        FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        CheckpointJournal journal = new CheckpointJournal(file, ch, header, Map.of());
+        journal.append(HEADER, out -> {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(header.seed());
+            out.writeLong(header.baseTime());
+            out.writeInt(header.rows());
+            out.writeInt(header.chunkSize());
+            out.writeInt(header.shards());
+            out.writeBoolean(header.streaming());
+            out.writeLong(header.schemaHash());
+            byte[] profile = header.profile().getBytes(StandardCharsets.UTF_8);
+            out.writeInt(profile.length);
+            out.write(profile);
+            out.writeLong(header.statsHash());
+        });
+        return journal;
+    }
+
+    // sadrzaj dnevnika; valid je duzina do kraja zadnjeg cijelog zapisa
+    private record Contents(Header header, Map<String, TableState> tables, long valid) {
+    }
+
+    // samo parametri prekinutog punjenja, fajl ostaje netaknut (Seeder ih cita prije otvaranja dnevnika)
+    public static Header readHeader(Path file) throws IOException {
+        return read(file).header();
+    }
+
+    // nastavak: cita se sve sto je ranije upisano, nedovrsen rep se odsijeca i dalje se dopisuje
+    public static CheckpointJournal open(Path file) throws IOException {
+        Contents contents = read(file);
+        FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE);
+        ch.truncate(contents.valid());
+        ch.position(contents.valid());
+        return new CheckpointJournal(file, ch, contents.header(), contents.tables());
+    }
+
+    private static Contents read(Path file) throws IOException {
+        Header header = null;
+        Map<String, TableState> tables = new HashMap<>();
+        long valid = 0;
+        long size = Files.size(file);
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file.toFile())))) {
+            CRC32 crc = new CRC32();
+            while (true) {
+                byte[] payload;
+                try {
+                    int len = in.readInt();
+                    int sum = in.readInt();
+                    if (len <= 0 || len > size - valid - 8) {
+                        break;
+                    }
+                    payload = new byte[len];
+                    in.readFully(payload);
+                    crc.reset();
+                    crc.update(payload);
+                    if ((int) crc.getValue() != sum) {
+                        break;
+                    }
+                } catch (EOFException e) {
+                    break;
+                }
+
+                DataInputStream rec = new DataInputStream(new ByteArrayInputStream(payload));
+                byte type = rec.readByte();
+                if (header == null) {
+                    if (type != HEADER || rec.readInt() != MAGIC || rec.readInt() != VERSION) {
+                        throw new IOException("Fajl nije checkpoint dnevnik ove verzije: " + file);
+                    }
+                    long seed = rec.readLong();
+                    long baseTime = rec.readLong();
+                    int rows = rec.readInt();
+                    int chunkSize = rec.readInt();
+                    int shards = rec.readInt();
+                    boolean streaming = rec.readBoolean();
+                    long schemaHash = rec.readLong();
+                    byte[] profile = new byte[rec.readInt()];
+                    rec.readFully(profile);
+                    header = new Header(seed, baseTime, rows, chunkSize, shards, streaming, schemaHash,
+                            new String(profile, StandardCharsets.UTF_8), rec.readLong());
+                } else if (type == CHUNK) {
+                    TableState state = tables.computeIfAbsent(rec.readUTF(), t -> new TableState());
+                    long chunkId = rec.readLong();
+                    int rows = rec.readInt();
+                    state.chunks.put(chunkId, new TableCheckpoint.Chunk(rows, readKeys(rec)));
+                } else if (type == DONE) {
+                    tables.computeIfAbsent(rec.readUTF(), t -> new TableState()).done = true;
+                } else {
+                    throw new IOException("Nepoznat zapis u checkpoint dnevniku: " + (char) type);
+                }
+                valid += 8 + payload.length;
+            }
+        }
+        if (header == null) {
+            throw new IOException("Checkpoint dnevnik je prazan: " + file);
+        }
+        return new Contents(header, tables, valid);
+    }
+
+    // otisak seme: imena tabela i kolona sa tipovima; nastavak na promijenjenoj semi bi dao druge podatke
+    public static long schemaHash(SchemaSnapshot schema) {
+        List<TableMeta> tables = new ArrayList<>(schema.tables());
+        tables.sort(Comparator.comparing(TableMeta::nameLC));
+        long h = 1;
+        for (TableMeta t : tables) {
+            h = h * 31 + t.nameLC().hashCode();
+            for (ColumnMeta c : t.columns()) {
+                h = h * 31 + c.name().toLowerCase().hashCode();
+                h = h * 31 + c.sqlType();
+                h = h * 31 + c.size();
+            }
+        }
+        return h;
+    }
+
+    public Path file() {
+        return file;
+    }
+
+    public Header header() {
+        return header;
+    }
+
+    public TableCheckpoint table(String tableLC) {
+        TableState state = previous.get(tableLC);
+        return new TableCheckpoint(this, tableLC, state == null ? new TableState() : state);
+    }
+
+    void chunkCommitted(String tableLC, long chunkId, int rows, KeySet keys) throws IOException {
+        append(CHUNK, out -> {
+            out.writeUTF(tableLC);
+            out.writeLong(chunkId);
+            out.writeInt(rows);
+            writeKeys(out, keys);
+        });
+    }
+
+    void tableDone(String tableLC) throws IOException {
+        append(DONE, out -> out.writeUTF(tableLC));
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    private interface RecordBody {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    // force poslije svakog zapisa: izgubljen rep dnevnika znaci ponovo upisan (dupli) chunk pri nastavku
+    private void append(byte type, RecordBody body) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(type);
+        body.write(out);
+        out.flush();
+        byte[] payload = bytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+
+        ByteBuffer buf = ByteBuffer.allocate(8 + payload.length);
+        buf.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+        synchronized (this) {
+            while (buf.hasRemaining()) {
+                channel.write(buf);
+            }
+            channel.force(false);
+        }
+    }
+
+    private static void writeKeys(DataOutputStream out, KeySet keys) throws IOException {
+        if (keys.isEmpty()) {
+            out.writeByte(KEYS_EMPTY);
+        } else if (keys instanceof LongRangeKeys r) {
+            out.writeByte(KEYS_RANGE);
+            out.writeLong(r.start());
+            out.writeInt(r.size());
+            out.writeLong(r.step());
+        } else if (keys instanceof LongArrayKeys a) {
+            out.writeByte(KEYS_LONGS);
+            out.writeInt(a.size());
+            for (int i = 0; i < a.size(); i++) {
+                out.writeLong(a.getLong(i));
+            }
+        } else if (keys instanceof StringKeys s) {
+            out.writeByte(KEYS_STRINGS);
+            out.writeInt(s.size());
+            for (int i = 0; i < s.size(); i++) {
+                out.writeUTF((String) s.get(i));
+            }
+        } else {
+            // rijetko (UUID, BigDecimal...): java serijalizacija cuva tip za setObject u djeci
+            out.writeByte(KEYS_OBJECTS);
+            out.writeInt(keys.size());
+            ObjectOutputStream oos = new ObjectOutputStream(out);
+            for (int i = 0; i < keys.size(); i++) {
+                oos.writeObject(keys.get(i));
+            }
+            oos.flush();
+        }
+    }
+
+    private static KeySet readKeys(DataInputStream in) throws IOException {
+        byte kind = in.readByte();
+        if (kind == KEYS_EMPTY) {
+            return KeySet.EMPTY;
+        } else if (kind == KEYS_RANGE) {
+            return new LongRangeKeys(in.readLong(), in.readInt(), in.readLong());
+        }
+        int n = in.readInt();
+        KeySetBuilder b = new KeySetBuilder();
+        if (kind == KEYS_LONGS) {
+            for (int i = 0; i < n; i++) {
+                b.addLong(in.readLong());
+            }
+        } else if (kind == KEYS_STRINGS) {
+            for (int i = 0; i < n; i++) {
+                b.add(in.readUTF());
+            }
+        } else {
+            ObjectInputStream ois = new ObjectInputStream(in);
+            try {
+                for (int i = 0; i < n; i++) {
+                    b.add(ois.readObject());
+                }
+            } catch (ClassNotFoundException e) {
+                throw new IOException("Neispravni kljucevi u checkpoint dnevniku", e);
+            }
+        }
+        return b.build();
+    }
+}
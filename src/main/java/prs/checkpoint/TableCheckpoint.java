@@ -0,0 +1,76 @@
+package prs.checkpoint;
+
+import prs.keys.KeySet;
+import prs.keys.KeySetBuilder;
+
+import java.io.IOException;
+
+// pogled jedne tabele na dnevnik: sta je commitovano u prethodnom pokretanju i upis novih chunkova.
+// Chunk je oznacen sa (shard << 32 | redni broj chunka u shardu) pa ne zavisi od toga koji ga je inserter upisao
+public class TableCheckpoint {
+
+    // bez --checkpoint: nista nije commitovano, upis se ignorise
+    public static final TableCheckpoint NONE =
+            new TableCheckpoint(null, null, new CheckpointJournal.TableState());
+
+    record Chunk(int rows, KeySet keys) {
+    }
+
+    private final CheckpointJournal journal;
+    private final String tableLC;
+    private final CheckpointJournal.TableState previous;
+
+    TableCheckpoint(CheckpointJournal journal, String tableLC, CheckpointJournal.TableState previous) {
+        this.journal = journal;
+        this.tableLC = tableLC;
+        this.previous = previous;
+    }
+
+    public static long chunkId(int shard, int chunk) {
+        return ((long) shard << 32) | chunk;
+    }
+
+    // tabela je cijela upisana u prethodnom pokretanju
+    public boolean done() {
+        return previous.done;
+    }
+
+    public boolean committed(long chunkId) {
+        return previous.chunks.containsKey(chunkId);
+    }
+
+    public KeySet keys(long chunkId) {
+        Chunk c = previous.chunks.get(chunkId);
+        return c == null ? KeySet.EMPTY : c.keys();
+    }
+
+    public long committedRows() {
+        long rows = 0;
+        for (Chunk c : previous.chunks.values()) {
+            rows += c.rows();
+        }
+        return rows;
+    }
+
+    // kljucevi svih ranije commitovanih chunkova, redom chunkova kao pri generisanju
+    public KeySet keys() {
+        KeySetBuilder b = new KeySetBuilder();
+        for (Chunk c : previous.chunks.values()) {
+            b.addAll(c.keys());
+        }
+        return b.build();
+    }
+
+    // poziva se tek kad je chunk commitovan u bazi
+    public void chunkCommitted(long chunkId, int rows, KeySet keys) throws IOException {
+        if (journal != null) {
+            journal.chunkCommitted(tableLC, chunkId, rows, keys);
+        }
+    }
+
+    public void finished() throws IOException {
+        if (journal != null) {
+            journal.tableDone(tableLC);
+        }
+    }
+}
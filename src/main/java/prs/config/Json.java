@@ -0,0 +1,210 @@
+package prs.config;
+
+import java.util.*;
+
+// mali JSON citac za profile i kes fajlove: objekat -> LinkedHashMap, niz -> ArrayList, cio broj -> Long,
+// ostali brojevi -> Double, true/false -> Boolean, null -> null. Greska navodi poziciju u tekstu
+public final class Json {
+
+    private final String text;
+    private int pos;
+
+    private Json(String text) {
+        this.text = text;
+    }
+
+    public static Object parse(String text) {
+        Json p = new Json(text);
+        p.skipSpace();
+        Object value = p.value();
+        p.skipSpace();
+        if (p.pos < text.length()) {
+            throw p.error("visak teksta");
+        }
+        return value;
+    }
+
+    private Object value() {
+        if (pos >= text.length()) {
+            throw error("neocekivan kraj");
+        }
+        char ch = text.charAt(pos);
+        switch (ch) {
+            case '{':
+                return object();
+            case '[':
+                return array();
+            case '"':
+                return string();
+            case 't':
+                return literal("true", Boolean.TRUE);
+            case 'f':
+                return literal("false", Boolean.FALSE);
+            case 'n':
+                return literal("null", null);
+            default:
+                if (ch == '-' || (ch >= '0' && ch <= '9')) {
+                    return number();
+                }
+                throw error("neocekivan znak '" + ch + "'");
+        }
+    }
+
+    private Map<String, Object> object() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        pos++;
+        skipSpace();
+        if (peek() == '}') {
+            pos++;
+            return map;
+        }
+        while (true) {
+            skipSpace();
+            if (peek() != '"') {
+                throw error("ocekivan kljuc");
+            }
+            String key = string();
+            skipSpace();
+            expect(':');
+            skipSpace();
+            if (map.put(key, value()) != null) {
+                throw error("kljuc \"" + key + "\" se ponavlja");
+            }
+            skipSpace();
+            if (peek() == ',') {
+                pos++;
+            } else {
+                expect('}');
+                return map;
+            }
+        }
+    }
+
+    private List<Object> array() {
+        List<Object> list = new ArrayList<>();
+        pos++;
+        skipSpace();
+        if (peek() == ']') {
+            pos++;
+            return list;
+        }
+        while (true) {
+            skipSpace();
+            list.add(value());
+            skipSpace();
+            if (peek() == ',') {
+                pos++;
+            } else {
+                expect(']');
+                return list;
+            }
+        }
+    }
+
+    private String string() {
+        pos++;
+        StringBuilder sb = new StringBuilder();
+        while (true) {
+            if (pos >= text.length()) {
+                throw error("nezavrsen string");
+            }
+            char ch = text.charAt(pos++);
+            if (ch == '"') {
+                return sb.toString();
+            }
+            if (ch != '\\') {
+                sb.append(ch);
+                continue;
+            }
+            if (pos >= text.length()) {
+                throw error("nezavrsen string");
+            }
+            char esc = text.charAt(pos++);
+            switch (esc) {
+                case '"', '\\', '/' -> sb.append(esc);
+                case 'b' -> sb.append('\b');
+                case 'f' -> sb.append('\f');
+                case 'n' -> sb.append('\n');
+                case 'r' -> sb.append('\r');
+                case 't' -> sb.append('\t');
+                case 'u' -> {
+                    if (pos + 4 > text.length()) {
+                        throw error("neispravan \\u");
+                    }
+                    try {
+                        sb.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                    } catch (NumberFormatException e) {
+                        throw error("neispravan \\u");
+                    }
+                    pos += 4;
+                }
+                default -> throw error("neispravan escape \\" + esc);
+            }
+        }
+    }
+
+    private Number number() {
+        int start = pos;
+        boolean integral = true;
+        if (peek() == '-') {
+            pos++;
+        }
+        while (pos < text.length()) {
+            char ch = text.charAt(pos);
+            if (ch >= '0' && ch <= '9') {
+                pos++;
+            } else if (ch == '.' || ch == 'e' || ch == 'E' || ch == '+' || ch == '-') {
+                integral = false;
+                pos++;
+            } else {
+                break;
+            }
+        }
+        String s = text.substring(start, pos);
+        try {
+            return integral ? (Number) Long.parseLong(s) : (Number) Double.parseDouble(s);
+        } catch (NumberFormatException e) {
+            pos = start;
+            throw error("neispravan broj " + s);
+        }
+    }
+
+    private Object literal(String word, Object value) {
+        if (!text.startsWith(word, pos)) {
+            throw error("neocekivan tekst");
+        }
+        pos += word.length();
+        return value;
+    }
+
+    private void expect(char ch) {
+        if (peek() != ch) {
+            throw error("ocekivano '" + ch + "'");
+        }
+        pos++;
+    }
+
+    private char peek() {
+        return pos < text.length() ? text.charAt(pos) : '\0';
+    }
+
+    private void skipSpace() {
+        while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+            pos++;
+        }
+    }
+
+    private IllegalArgumentException error(String message) {
+        int line = 1;
+        int col = 1;
+        for (int i = 0; i < Math.min(pos, text.length()); i++) {
+            if (text.charAt(i) == '\n') {
+                line++;
+                col = 1;
+            } else {
+                col++;
+            }
+        }
+        return new IllegalArgumentException("JSON: " + message + " (red " + line + ", kolona " + col + ")");
+    }
+}
@@ -0,0 +1,195 @@
+package prs.config;
+
+import prs.data.ColumnRule;
+import prs.data.ColumnRules;
+import prs.schema.ColumnMeta;
+import prs.schema.SchemaSnapshot;
+import prs.schema.TableMeta;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+// --profile: broj redova po tabeli (apsolutno ili kao umnozak broja redova druge tabele) i pravila
+// generisanja po koloni. JSON:
+//   {"rows": 10000,
+//    "tables": {"drzava": {"rows": 50},
+//               "stavka": {"ratio": 4, "of": "narudzba",
+//                          "columns": {"kolicina": {"min": 1, "max": 20},
+//                                      "proizvod_id": {"distribution": "zipf", "s": 1.1}}}}}
+public final class LoadProfile {
+
+    public static final LoadProfile NONE = new LoadProfile("", null, Map.of());
+
+    private static final Set<String> TABLE_KEYS = Set.of("rows", "ratio", "of", "columns");
+
+    private record TableSpec(Integer rows, double ratio, String ofLC, Map<String, Map<String, Object>> columns) {
+    }
+
+    // izvorni tekst ide u checkpoint dnevnik, pa --resume ne zavisi od fajla na disku
+    private final String text;
+    private final Integer defaultRows;
+    private final Map<String, TableSpec> tables;
+
+    private LoadProfile(String text, Integer defaultRows, Map<String, TableSpec> tables) {
+        this.text = text;
+        this.defaultRows = defaultRows;
+        this.tables = tables;
+    }
+
+    public static LoadProfile load(Path file) throws IOException {
+        try {
+            return parse(Files.readString(file));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Profil " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    // prazan tekst je profil bez pravila
+    public static LoadProfile parse(String text) {
+        if (text.isBlank()) {
+            return NONE;
+        }
+        if (!(Json.parse(text) instanceof Map<?, ?> root)) {
+            throw new IllegalArgumentException("profil mora biti JSON objekat");
+        }
+        for (Object key : root.keySet()) {
+            if (!key.equals("rows") && !key.equals("tables")) {
+                throw new IllegalArgumentException("nepoznat kljuc \"" + key + "\"");
+            }
+        }
+        Integer defaultRows = root.containsKey("rows") ? rowCount("rows", root.get("rows")) : null;
+
+        Map<String, TableSpec> tables = new LinkedHashMap<>();
+        Object tablesObj = root.get("tables");
+        if (tablesObj != null && !(tablesObj instanceof Map<?, ?>)) {
+            throw new IllegalArgumentException("tables mora biti objekat");
+        }
+        Map<?, ?> tableMap = tablesObj == null ? Map.of() : (Map<?, ?>) tablesObj;
+        for (Map.Entry<?, ?> e : tableMap.entrySet()) {
+            String name = e.getKey().toString();
+            if (!(e.getValue() instanceof Map<?, ?> spec)) {
+                throw new IllegalArgumentException(name + ": ocekivan objekat");
+            }
+            for (Object key : spec.keySet()) {
+                if (!TABLE_KEYS.contains(key.toString())) {
+                    throw new IllegalArgumentException(name + ": nepoznat kljuc \"" + key + "\"");
+                }
+            }
+            Integer rows = spec.containsKey("rows") ? rowCount(name + ".rows", spec.get("rows")) : null;
+            double ratio = 0;
+            String ofLC = null;
+            if (spec.containsKey("ratio") || spec.containsKey("of")) {
+                if (rows != null) {
+                    throw new IllegalArgumentException(name + ": zadaje se rows ili ratio/of, ne oboje");
+                }
+                if (!(spec.get("ratio") instanceof Number r) || r.doubleValue() < 0 || !(spec.get("of") instanceof String of)) {
+                    throw new IllegalArgumentException(name + ": ratio trazi broj >= 0 i \"of\" sa imenom tabele");
+                }
+                ratio = r.doubleValue();
+                ofLC = of.toLowerCase();
+            }
+
+            Map<String, Map<String, Object>> columns = new LinkedHashMap<>();
+            Object colsObj = spec.get("columns");
+            if (colsObj != null) {
+                if (!(colsObj instanceof Map<?, ?> colMap)) {
+                    throw new IllegalArgumentException(name + ".columns mora biti objekat");
+                }
+                for (Map.Entry<?, ?> c : colMap.entrySet()) {
+                    if (!(c.getValue() instanceof Map<?, ?> colSpec)) {
+                        throw new IllegalArgumentException(name + "." + c.getKey() + ": ocekivan objekat");
+                    }
+                    Map<String, Object> copy = new LinkedHashMap<>();
+                    colSpec.forEach((k, v) -> copy.put(k.toString(), v));
+                    columns.put(c.getKey().toString().toLowerCase(), copy);
+                }
+            }
+            if (tables.put(name.toLowerCase(), new TableSpec(rows, ratio, ofLC, columns)) != null) {
+                throw new IllegalArgumentException("tabela " + name + " je navedena dva puta");
+            }
+        }
+        return new LoadProfile(text, defaultRows, Map.copyOf(tables));
+    }
+
+    private static int rowCount(String where, Object v) {
+        if (!(v instanceof Long l) || l < 0 || l > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(where + ": ocekivan cio broj izmedju 0 i " + Integer.MAX_VALUE);
+        }
+        return l.intValue();
+    }
+
+    public String text() {
+        return text;
+    }
+
+    // broj redova za svaku tabelu; tabela bez unosa dobija "rows" profila ili defaultRows (--rows)
+    public Map<String, Integer> rowCounts(Collection<String> tablesLC, int defaultRows) {
+        int fallback = this.defaultRows != null ? this.defaultRows : defaultRows;
+        Map<String, Integer> counts = new HashMap<>();
+        for (String t : tablesLC) {
+            resolve(t, fallback, counts, new LinkedHashSet<>());
+        }
+        return counts;
+    }
+
+    private int resolve(String tableLC, int fallback, Map<String, Integer> counts, Set<String> path) {
+        Integer known = counts.get(tableLC);
+        if (known != null) {
+            return known;
+        }
+        if (!path.add(tableLC)) {
+            throw new IllegalArgumentException("ratio/of tabela se zatvara u krug: " + path);
+        }
+        TableSpec spec = tables.get(tableLC);
+        int rows;
+        if (spec == null) {
+            rows = fallback;
+        } else if (spec.rows() != null) {
+            rows = spec.rows();
+        } else if (spec.ofLC() != null) {
+            long r = Math.round(spec.ratio() * resolve(spec.ofLC(), fallback, counts, path));
+            rows = (int) Math.min(Integer.MAX_VALUE, r);
+        } else {
+            rows = fallback;
+        }
+        path.remove(tableLC);
+        counts.put(tableLC, rows);
+        return rows;
+    }
+
+    // prevodi pravila kolona za tipove iz seme; IllegalArgumentException za nepoznatu tabelu ili kolonu
+    // (greska u kucanju inace tiho ne bi imala efekta) i za pravilo koje ne odgovara tipu kolone
+    public ColumnRules compile(SchemaSnapshot schema) {
+        Map<String, Map<String, ColumnRule>> rules = new HashMap<>();
+        for (Map.Entry<String, TableSpec> e : tables.entrySet()) {
+            TableMeta table = schema.table(e.getKey());
+            if (table == null) {
+                throw new IllegalArgumentException("Profil: tabela " + e.getKey() + " ne postoji u semi");
+            }
+            TableSpec spec = e.getValue();
+            if (spec.ofLC() != null && schema.table(spec.ofLC()) == null) {
+                throw new IllegalArgumentException("Profil: " + table.name() + ".of, tabela " + spec.ofLC()
+                        + " ne postoji u semi");
+            }
+            Map<String, String> foreignKeys = table.foreignKeyMap();
+            Map<String, ColumnRule> cols = new HashMap<>();
+            for (Map.Entry<String, Map<String, Object>> c : spec.columns().entrySet()) {
+                ColumnMeta col = table.column(c.getKey());
+                String where = "Profil: " + table.name() + "." + c.getKey();
+                if (col == null) {
+                    throw new IllegalArgumentException(where + ": kolona ne postoji");
+                }
+                if (col.autoIncrement()) {
+                    throw new IllegalArgumentException(where + ": auto-increment kolonu ne puni generator");
+                }
+                cols.put(c.getKey(), ColumnRule.compile(where, col, foreignKeys.containsKey(c.getKey()), c.getValue()));
+            }
+            if (!cols.isEmpty()) {
+                rules.put(e.getKey(), cols);
+            }
+        }
+        return rules.isEmpty() ? ColumnRules.NONE : new ColumnRules(rules);
+    }
+}
@@ -0,0 +1,55 @@
+package prs.config;
+
+import java.util.*;
+
+// opcije pokretanja iz komandne linije: --kljuc=vrijednost ili samo --flag
+public class RunOptions {
+
+    private final Map<String, String> values;
+
+    private RunOptions(Map<String, String> values) {
+        this.values = values;
+    }
+
+    public static RunOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Nepoznat argument: " + arg);
+            }
+            String body = arg.substring(2);
+            int eq = body.indexOf('=');
+            if (eq < 0) {
+                values.put(body.toLowerCase(), "true");
+            } else {
+                values.put(body.substring(0, eq).toLowerCase(), body.substring(eq + 1));
+            }
+        }
+        return new RunOptions(values);
+    }
+
+    public boolean flag(String name) {
+        return Boolean.parseBoolean(values.getOrDefault(name, "false"));
+    }
+
+    public String get(String name, String def) {
+        return values.getOrDefault(name, def);
+    }
+
+    public int getInt(String name, int def) {
+        String v = values.get(name);
+        if (v == null) {
+            return def;
+        }
+        try {
+            return Integer.parseInt(v.replace("_", ""));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("--" + name + " ocekuje broj, dobijeno: " + v);
+        }
+    }
+
+    // sve zadate opcije, npr. za upis uz izvjestaj
+    public Map<String, String> asMap() {
+        return Collections.unmodifiableMap(values);
+    }
+}
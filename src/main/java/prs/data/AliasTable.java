@@ -0,0 +1,92 @@
+package prs.data;
+
+import java.util.random.RandomGenerator;
+
+// alias metoda (Vose): uzorak iz diskretne raspodjele u O(1), jedan indeks i jedno poredjenje,
+// bez alokacije. Pravi se jednom (O(n)) i dijeli izmedju niti jer je nepromjenljiva
+public final class AliasTable {
+
+    private final double[] prob;
+    private final int[] alias;
+
+    private AliasTable(double[] prob, int[] alias) {
+        this.prob = prob;
+        this.alias = alias;
+    }
+
+    // tezine ne moraju biti normalizovane, sve >= 0 i bar jedna > 0
+    public static AliasTable of(double[] weights) {
+        int n = weights.length;
+        double sum = 0;
+        for (double w : weights) {
+            if (!(w >= 0) || Double.isInfinite(w)) {
+                throw new IllegalArgumentException("tezina mora biti konacan broj >= 0: " + w);
+            }
+            sum += w;
+        }
+        if (n == 0 || sum <= 0) {
+            throw new IllegalArgumentException("bar jedna tezina mora biti > 0");
+        }
+
+        double[] prob = new double[n];
+        int[] alias = new int[n];
+        double[] scaled = new double[n];
+        // indeksi sa vjerovatnocom ispod i iznad prosjeka, kao stekovi u jednom nizu
+        int[] small = new int[n];
+        int[] large = new int[n];
+        int ns = 0;
+        int nl = 0;
+        for (int i = 0; i < n; i++) {
+            scaled[i] = weights[i] * n / sum;
+            if (scaled[i] < 1.0) {
+                small[ns++] = i;
+            } else {
+                large[nl++] = i;
+            }
+        }
+        while (ns > 0 && nl > 0) {
+            int s = small[--ns];
+            int l = large[--nl];
+            prob[s] = scaled[s];
+            alias[s] = l;
+            scaled[l] = (scaled[l] + scaled[s]) - 1.0;
+            if (scaled[l] < 1.0) {
+                small[ns++] = l;
+            } else {
+                large[nl++] = l;
+            }
+        }
+        // ostatak je 1 do greske zaokruzivanja
+        while (nl > 0) {
+            prob[large[--nl]] = 1.0;
+        }
+        while (ns > 0) {
+            prob[small[--ns]] = 1.0;
+        }
+        return new AliasTable(prob, alias);
+    }
+
+    // Zipf nad rangovima 0..n-1: rang k ima tezinu 1 / (k + 1)^s
+    public static AliasTable zipf(int n, double s) {
+        double[] w = new double[n];
+        for (int k = 0; k < n; k++) {
+            w[k] = Math.pow(k + 1, -s);
+        }
+        return of(w);
+    }
+
+    public int size() {
+        return prob.length;
+    }
+
+    public int sample(RandomGenerator rand) {
+        int i = rand.nextInt(prob.length);
+        return rand.nextDouble() < prob[i] ? i : alias[i];
+    }
+
+    // isto iz 64 slucajna bita (npr. hesa), kad izbor mora zavisiti samo od ulaza: gornja polovina bira indeks, donja poredjenje
+    public int sample(long bits) {
+        int i = (int) (((bits >>> 32) * prob.length) >>> 32);
+        return (bits & 0xFFFFFFFFL) * 0x1p-32 < prob[i] ? i : alias[i];
+    }
+}
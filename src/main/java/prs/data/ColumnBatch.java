@@ -0,0 +1,328 @@
+package prs.data;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Types;
+import java.util.Arrays;
+
+// kolonski batch redova: vrijednosti po indeksu kolone u primitivnim nizovima,
+// stringovi u byte areni, null kao bitmapa. Koristi se ponovo preko reset() pa chunk ne alocira po redu.
+public class ColumnBatch {
+
+    public enum Kind {
+        INT, LONG, DOUBLE, BOOLEAN, STRING, DATE, TIMESTAMP, OBJECT;
+
+        public static Kind of(int sqlType) {
+            return switch (sqlType) {
+                case Types.INTEGER, Types.SMALLINT, Types.TINYINT -> INT;
+                case Types.BIGINT -> LONG;
+                case Types.DECIMAL, Types.NUMERIC, Types.DOUBLE, Types.FLOAT, Types.REAL -> DOUBLE;
+                case Types.BOOLEAN, Types.BIT -> BOOLEAN;
+                case Types.VARCHAR, Types.CHAR, Types.LONGVARCHAR -> STRING;
+                case Types.DATE -> DATE;
+                case Types.TIMESTAMP -> TIMESTAMP;
+                default -> OBJECT;
+            };
+        }
+    }
+
+    private static final int INITIAL_ARENA_BYTES_PER_ROW = 16;
+
+    private final String[] names;
+    private final int[] sqlTypes;
+    private final Kind[] kinds;
+    private final int capacity;
+    private int size;
+
+    // samo niz koji odgovara vrsti kolone je alociran, ostali su null
+    private final int[][] ints;
+    private final long[][] longs;
+    private final double[][] doubles;
+    private final Object[][] objects;
+    private final byte[][] arena;
+    private final int[][] strOffsets;   // pocetak stringa reda u areni, strOffsets[row + 1] je kraj
+    private final int[] arenaPos;
+    private final long[][] nulls;
+
+    public ColumnBatch(String[] names, int[] sqlTypes, int capacity) {
+        this.names = names;
+        this.sqlTypes = sqlTypes;
+        this.capacity = capacity;
+        int n = names.length;
+        this.kinds = new Kind[n];
+        this.ints = new int[n][];
+        this.longs = new long[n][];
+        this.doubles = new double[n][];
+        this.objects = new Object[n][];
+        this.arena = new byte[n][];
+        this.strOffsets = new int[n][];
+        this.arenaPos = new int[n];
+        this.nulls = new long[n][];
+
+        for (int c = 0; c < n; c++) {
+            kinds[c] = Kind.of(sqlTypes[c]);
+            nulls[c] = new long[(capacity + 63) >>> 6];
+            switch (kinds[c]) {
+                case INT, BOOLEAN -> ints[c] = new int[capacity];
+                case LONG, DATE, TIMESTAMP -> longs[c] = new long[capacity];
+                case DOUBLE -> doubles[c] = new double[capacity];
+                case STRING -> {
+                    arena[c] = new byte[Math.max(64, capacity * INITIAL_ARENA_BYTES_PER_ROW)];
+                    strOffsets[c] = new int[capacity + 1];
+                }
+                default -> objects[c] = new Object[capacity];
+            }
+        }
+    }
+
+    // prazan batch istog oblika
+    public ColumnBatch newEmptyLike() {
+        return new ColumnBatch(names, sqlTypes, capacity);
+    }
+
+    public void reset() {
+        for (int c = 0; c < names.length; c++) {
+            Arrays.fill(nulls[c], 0L);
+            arenaPos[c] = 0;
+            if (objects[c] != null) {
+                Arrays.fill(objects[c], 0, size, null);
+            }
+        }
+        size = 0;
+    }
+
+    // zauzima sljedeci red; sve kolone tog reda moraju biti postavljene prije sljedeceg addRow
+    public int addRow() {
+        if (size == capacity) {
+            throw new IllegalStateException("ColumnBatch je pun (" + capacity + ")");
+        }
+        return size++;
+    }
+
+    // ponistava posljednji (potpuno upisan) red, npr. odbacen duplikat: vracaju se nulls, string arena i objekti
+    public void removeLastRow() {
+        if (size == 0) {
+            throw new IllegalStateException("ColumnBatch je prazan");
+        }
+        int row = --size;
+        for (int c = 0; c < names.length; c++) {
+            nulls[c][row >>> 6] &= ~(1L << row);
+            if (kinds[c] == Kind.STRING) {
+                arenaPos[c] = strOffsets[c][row];
+            } else if (objects[c] != null) {
+                objects[c][row] = null;
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public boolean isFull() {
+        return size == capacity;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // procjena velicine podataka (bez protokola i null markera): stringovi po areni, ostalo po sirini tipa
+    public long payloadBytes() {
+        long bytes = 0;
+        for (int c = 0; c < names.length; c++) {
+            bytes += switch (kinds[c]) {
+                case STRING -> arenaPos[c];
+                case BOOLEAN -> size;
+                case INT -> 4L * size;
+                case LONG, DOUBLE, DATE, TIMESTAMP -> 8L * size;
+                default -> 16L * size;
+            };
+        }
+        return bytes;
+    }
+
+    public int columnCount() {
+        return names.length;
+    }
+
+    public String name(int col) {
+        return names[col];
+    }
+
+    public int sqlType(int col) {
+        return sqlTypes[col];
+    }
+
+    public Kind kind(int col) {
+        return kinds[col];
+    }
+
+    // --- pisanje ---
+
+    public void setNull(int col, int row) {
+        nulls[col][row >>> 6] |= 1L << row;
+        if (kinds[col] == Kind.STRING) {
+            strOffsets[col][row] = arenaPos[col];
+            strOffsets[col][row + 1] = arenaPos[col];
+        }
+    }
+
+    public void setInt(int col, int row, int v) {
+        ints[col][row] = v;
+        clearNull(col, row);
+    }
+
+    public void setBoolean(int col, int row, boolean v) {
+        ints[col][row] = v ? 1 : 0;
+        clearNull(col, row);
+    }
+
+    public void setLong(int col, int row, long v) {
+        longs[col][row] = v;
+        clearNull(col, row);
+    }
+
+    public void setDouble(int col, int row, double v) {
+        doubles[col][row] = v;
+        clearNull(col, row);
+    }
+
+    public void setObject(int col, int row, Object v) {
+        objects[col][row] = v;
+        clearNull(col, row);
+    }
+
+    // kopira bajtove (UTF-8) u arenu kolone
+    public void setBytes(int col, int row, byte[] src, int off, int len) {
+        int pos = arenaPos[col];
+        byte[] a = arena[col];
+        if (pos + len > a.length) {
+            a = Arrays.copyOf(a, Math.max(a.length * 2, pos + len));
+            arena[col] = a;
+        }
+        System.arraycopy(src, off, a, pos, len);
+        strOffsets[col][row] = pos;
+        strOffsets[col][row + 1] = pos + len;
+        arenaPos[col] = pos + len;
+        clearNull(col, row);
+    }
+
+    // vrijednost upisana preko ranijeg null-a (CyclePatcher, ponovno generisanje reda) brise bit
+    private void clearNull(int col, int row) {
+        nulls[col][row >>> 6] &= ~(1L << row);
+    }
+
+    public void setString(int col, int row, String v) {
+        byte[] b = v.getBytes(StandardCharsets.UTF_8);
+        setBytes(col, row, b, 0, b.length);
+    }
+
+    // vrijednost iz drugog batcha iste vrste kolone, bez boxinga
+    public void copyValue(int col, int row, ColumnBatch src, int srcCol, int srcRow) {
+        if (src.isNull(srcCol, srcRow)) {
+            setNull(col, row);
+            return;
+        }
+        switch (kinds[col]) {
+            case INT, BOOLEAN -> setInt(col, row, src.ints[srcCol][srcRow]);
+            case LONG, DATE, TIMESTAMP -> setLong(col, row, src.longs[srcCol][srcRow]);
+            case DOUBLE -> setDouble(col, row, src.doubles[srcCol][srcRow]);
+            case STRING -> setBytes(col, row, src.arena[srcCol], src.strOffsets[srcCol][srcRow],
+                    src.stringLength(srcCol, srcRow));
+            default -> setObject(col, row, src.objects[srcCol][srcRow]);
+        }
+    }
+
+    // cjelobrojni kljuc roditelja u kolonu bilo koje vrste, bez boxinga za brojeve
+    public void setLongValue(int col, int row, long v) {
+        switch (kinds[col]) {
+            case INT -> setInt(col, row, (int) v);
+            case LONG, DATE, TIMESTAMP -> setLong(col, row, v);
+            case DOUBLE -> setDouble(col, row, v);
+            case BOOLEAN -> setBoolean(col, row, v != 0);
+            case STRING -> setString(col, row, Long.toString(v));
+            default -> setObject(col, row, v);
+        }
+    }
+
+    // postavlja boxovanu vrijednost (npr. kljuc roditelja) prema vrsti kolone
+    public void setValue(int col, int row, Object v) {
+        if (v == null) {
+            setNull(col, row);
+            return;
+        }
+        switch (kinds[col]) {
+            case INT -> setInt(col, row, v instanceof Number n ? n.intValue() : Integer.parseInt(v.toString()));
+            case LONG -> setLong(col, row, v instanceof Number n ? n.longValue() : Long.parseLong(v.toString()));
+            case DOUBLE -> setDouble(col, row, v instanceof Number n ? n.doubleValue() : Double.parseDouble(v.toString()));
+            case BOOLEAN -> setBoolean(col, row, v instanceof Boolean b ? b : (v instanceof Number n && n.intValue() != 0));
+            case STRING -> setString(col, row, v.toString());
+            case DATE, TIMESTAMP -> setLong(col, row, ((java.util.Date) v).getTime());
+            default -> setObject(col, row, v);
+        }
+    }
+
+    // --- citanje ---
+
+    public boolean isNull(int col, int row) {
+        return (nulls[col][row >>> 6] & (1L << row)) != 0;
+    }
+
+    public int getInt(int col, int row) {
+        return ints[col][row];
+    }
+
+    public boolean getBoolean(int col, int row) {
+        return ints[col][row] != 0;
+    }
+
+    public long getLong(int col, int row) {
+        return longs[col][row];
+    }
+
+    public double getDouble(int col, int row) {
+        return doubles[col][row];
+    }
+
+    public Object getObject(int col, int row) {
+        return objects[col][row];
+    }
+
+    public byte[] arena(int col) {
+        return arena[col];
+    }
+
+    public int stringOffset(int col, int row) {
+        return strOffsets[col][row];
+    }
+
+    public int stringLength(int col, int row) {
+        return strOffsets[col][row + 1] - strOffsets[col][row];
+    }
+
+    public String getString(int col, int row) {
+        int off = strOffsets[col][row];
+        return new String(arena[col], off, strOffsets[col][row + 1] - off, StandardCharsets.UTF_8);
+    }
+
+    // boxovana vrijednost; nije za hot path
+    public Object getValue(int col, int row) {
+        if (isNull(col, row)) {
+            return null;
+        }
+        return switch (kinds[col]) {
+            case INT -> ints[col][row];
+            case LONG -> longs[col][row];
+            case DOUBLE -> doubles[col][row];
+            case BOOLEAN -> ints[col][row] != 0;
+            case STRING -> getString(col, row);
+            case DATE -> new java.sql.Date(longs[col][row]);
+            case TIMESTAMP -> new java.sql.Timestamp(longs[col][row]);
+            default -> objects[col][row];
+        };
+    }
+}
@@ -0,0 +1,315 @@
+package prs.data;
+
+import prs.schema.ColumnMeta;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.random.RandomGenerator;
+
+// pravilo profila za jednu kolonu, prevedeno za njen tip: udio NULL vrijednosti, opseg ili lista
+// vrijednosti (sa tezinama), a za fk kolonu raspodjela po kljucevima roditelja. Sve se racuna
+// unaprijed (nizovi vrijednosti, alias tabele) pa generisanje reda ne alocira
+public final class ColumnRule {
+
+    // indeks kljuca roditelja u [0, n) za n zadat pri pravljenju
+    @FunctionalInterface
+    public interface KeyPicker {
+        int pick(RandomGenerator rand);
+    }
+
+    enum Distribution {
+        UNIFORM, ZIPF, HOTSET
+    }
+
+    private static final long DAY_MILLIS = 86_400_000L;
+    private static final Set<String> KEYS = Set.of("nullRatio", "values", "weights", "min", "max",
+            "distribution", "s", "hot", "share");
+
+    private record Bound(int n, KeyPicker picker) {
+    }
+
+    private final ColumnBatch.Kind kind;
+    private final double nullRatio;
+    // lista vrijednosti: long za cijele brojeve, datume i boolean, double za decimalne, UTF-8 za tekst
+    private final long[] longValues;
+    private final double[] doubleValues;
+    private final byte[][] textValues;
+    private final AliasTable valueWeights;
+    // opseg [min, max], oba ukljucena
+    private final boolean range;
+    private final long minLong;
+    private final long maxLong;
+    private final double minDouble;
+    private final double maxDouble;
+    private final Distribution distribution;
+    private final double zipfS;
+    private final double hotFraction;
+    private final double hotShare;
+    // alias tabela za posljednji broj kljuceva roditelja (isti za sve chunkove i shardove tabele)
+    private volatile Bound bound;
+
+    private ColumnRule(ColumnBatch.Kind kind, double nullRatio, long[] longValues, double[] doubleValues,
+                       byte[][] textValues, AliasTable valueWeights, boolean range, long minLong, long maxLong,
+                       double minDouble, double maxDouble, Distribution distribution, double zipfS,
+                       double hotFraction, double hotShare) {
+        this.kind = kind;
+        this.nullRatio = nullRatio;
+        this.longValues = longValues;
+        this.doubleValues = doubleValues;
+        this.textValues = textValues;
+        this.valueWeights = valueWeights;
+        this.range = range;
+        this.minLong = minLong;
+        this.maxLong = maxLong;
+        this.minDouble = minDouble;
+        this.maxDouble = maxDouble;
+        this.distribution = distribution;
+        this.zipfS = zipfS;
+        this.hotFraction = hotFraction;
+        this.hotShare = hotShare;
+    }
+
+    // where: "tabela.kolona" za poruke o greskama; IllegalArgumentException za pravilo koje ne odgovara koloni
+    public static ColumnRule compile(String where, ColumnMeta col, boolean foreignKey, Map<String, Object> spec) {
+        for (String key : spec.keySet()) {
+            if (!KEYS.contains(key)) {
+                throw new IllegalArgumentException(where + ": nepoznat kljuc \"" + key + "\"");
+            }
+        }
+        ColumnBatch.Kind kind = ColumnBatch.Kind.of(col.sqlType());
+
+        double nullRatio = fraction(where, spec, "nullRatio", 0);
+        if (nullRatio > 0 && !col.nullable()) {
+            throw new IllegalArgumentException(where + ": nullRatio za NOT NULL kolonu");
+        }
+
+        Distribution distribution = Distribution.UNIFORM;
+        Object dist = spec.get("distribution");
+        if (dist != null) {
+            if (!foreignKey) {
+                throw new IllegalArgumentException(where + ": distribution vazi samo za fk kolone");
+            }
+            try {
+                distribution = Distribution.valueOf(dist.toString().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(where + ": nepoznata raspodjela " + dist + " (uniform|zipf|hotset)");
+            }
+        }
+        double zipfS = number(where, spec, "s", 1.0);
+        if (zipfS <= 0) {
+            throw new IllegalArgumentException(where + ": s mora biti > 0");
+        }
+        double hotFraction = fraction(where, spec, "hot", 0.1);
+        double hotShare = fraction(where, spec, "share", 0.9);
+        if ((spec.containsKey("s") && distribution != Distribution.ZIPF)
+                || ((spec.containsKey("hot") || spec.containsKey("share")) && distribution != Distribution.HOTSET)) {
+            throw new IllegalArgumentException(where + ": parametar ne odgovara raspodjeli " + distribution);
+        }
+
+        boolean hasValues = spec.containsKey("values");
+        boolean range = spec.containsKey("min") || spec.containsKey("max");
+        if ((hasValues || range) && foreignKey) {
+            throw new IllegalArgumentException(where + ": vrijednosti fk kolone su kljucevi roditelja, zadaje se distribution");
+        }
+        if (hasValues && range) {
+            throw new IllegalArgumentException(where + ": zadaje se values ili min/max, ne oboje");
+        }
+        if (spec.containsKey("weights") && !hasValues) {
+            throw new IllegalArgumentException(where + ": weights bez values");
+        }
+
+        long[] longValues = null;
+        double[] doubleValues = null;
+        byte[][] textValues = null;
+        AliasTable weights = null;
+        if (hasValues) {
+            if (!(spec.get("values") instanceof List<?> values) || values.isEmpty()) {
+                throw new IllegalArgumentException(where + ": values mora biti neprazan niz");
+            }
+            switch (kind) {
+                case STRING -> {
+                    textValues = new byte[values.size()][];
+                    for (int i = 0; i < values.size(); i++) {
+                        textValues[i] = String.valueOf(values.get(i)).getBytes(StandardCharsets.UTF_8);
+                    }
+                }
+                case DOUBLE -> {
+                    doubleValues = new double[values.size()];
+                    for (int i = 0; i < values.size(); i++) {
+                        doubleValues[i] = toNumber(where, values.get(i)).doubleValue();
+                    }
+                }
+                case INT, LONG, BOOLEAN, DATE, TIMESTAMP -> {
+                    longValues = new long[values.size()];
+                    for (int i = 0; i < values.size(); i++) {
+                        longValues[i] = toLong(where, kind, values.get(i), false);
+                    }
+                }
+                default -> throw new IllegalArgumentException(where + ": tip " + col.typeName() + " nema values");
+            }
+            if (spec.get("weights") != null) {
+                if (!(spec.get("weights") instanceof List<?> w) || w.size() != values.size()) {
+                    throw new IllegalArgumentException(where + ": weights mora imati isto elemenata kao values");
+                }
+                double[] wd = new double[w.size()];
+                for (int i = 0; i < wd.length; i++) {
+                    wd[i] = toNumber(where, w.get(i)).doubleValue();
+                }
+                try {
+                    weights = AliasTable.of(wd);
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException(where + ": " + e.getMessage());
+                }
+            }
+        }
+
+        long minLong = 0;
+        long maxLong = 0;
+        double minDouble = 0;
+        double maxDouble = 0;
+        if (range) {
+            if (spec.get("min") == null || spec.get("max") == null) {
+                throw new IllegalArgumentException(where + ": opseg trazi min i max");
+            }
+            switch (kind) {
+                case DOUBLE -> {
+                    minDouble = toNumber(where, spec.get("min")).doubleValue();
+                    maxDouble = toNumber(where, spec.get("max")).doubleValue();
+                    if (minDouble > maxDouble) {
+                        throw new IllegalArgumentException(where + ": min > max");
+                    }
+                }
+                case INT, LONG, DATE, TIMESTAMP -> {
+                    minLong = toLong(where, kind, spec.get("min"), false);
+                    maxLong = toLong(where, kind, spec.get("max"), true);
+                    if (minLong > maxLong) {
+                        throw new IllegalArgumentException(where + ": min > max");
+                    }
+                }
+                default -> throw new IllegalArgumentException(where + ": tip " + col.typeName() + " nema min/max");
+            }
+        }
+
+        return new ColumnRule(kind, nullRatio, longValues, doubleValues, textValues, weights, range,
+                minLong, maxLong, minDouble, maxDouble, distribution, zipfS, hotFraction, hotShare);
+    }
+
+    // red dobija NULL (nullRatio); poziva se prije vrijednosti pa ostale kolone ne zavise od toga da li je pravilo zadato
+    public boolean nullRow(RandomGenerator rand) {
+        return nullRatio > 0 && rand.nextDouble() < nullRatio;
+    }
+
+    // false ako pravilo ne zadaje vrijednost, tada je daje podrazumijevani generator
+    public boolean writeValue(ColumnBatch batch, int col, int row, RandomGenerator rand) {
+        if (textValues != null) {
+            byte[] v = textValues[index(rand, textValues.length)];
+            batch.setBytes(col, row, v, 0, v.length);
+        } else if (longValues != null) {
+            batch.setLongValue(col, row, longValues[index(rand, longValues.length)]);
+        } else if (doubleValues != null) {
+            batch.setDouble(col, row, doubleValues[index(rand, doubleValues.length)]);
+        } else if (range && kind == ColumnBatch.Kind.DOUBLE) {
+            double v = minDouble + rand.nextDouble() * (maxDouble - minDouble);
+            batch.setDouble(col, row, Math.min(maxDouble, Math.round(v * 100.0) / 100.0));
+        } else if (range) {
+            long v = maxLong == Long.MAX_VALUE ? rand.nextLong(minLong, maxLong) : rand.nextLong(minLong, maxLong + 1);
+            batch.setLongValue(col, row, v);
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    // null za ravnomjernu raspodjelu (dovoljan je rand.nextInt(n))
+    public KeyPicker keys(int n) {
+        if (distribution == Distribution.UNIFORM || n <= 0) {
+            return null;
+        }
+        Bound b = bound;
+        if (b != null && b.n() == n) {
+            return b.picker();
+        }
+        synchronized (this) {
+            b = bound;
+            if (b == null || b.n() != n) {
+                b = new Bound(n, picker(n));
+                bound = b;
+            }
+            return b.picker();
+        }
+    }
+
+    private KeyPicker picker(int n) {
+        if (distribution == Distribution.ZIPF) {
+            // rang 0 (najcesci) je prvi upisani kljuc roditelja
+            AliasTable zipf = AliasTable.zipf(n, zipfS);
+            return zipf::sample;
+        }
+        // hotset: udio share redova pokazuje na prvih hot * n kljuceva
+        int hot = (int) Math.max(1, Math.min(n, Math.round(n * hotFraction)));
+        if (hot == n) {
+            return rand -> rand.nextInt(n);
+        }
+        double share = hotShare;
+        return rand -> rand.nextDouble() < share ? rand.nextInt(hot) : hot + rand.nextInt(n - hot);
+    }
+
+    private int index(RandomGenerator rand, int n) {
+        return valueWeights != null ? valueWeights.sample(rand) : rand.nextInt(n);
+    }
+
+    private static double fraction(String where, Map<String, Object> spec, String key, double def) {
+        double v = number(where, spec, key, def);
+        if (v < 0 || v > 1) {
+            throw new IllegalArgumentException(where + ": " + key + " mora biti izmedju 0 i 1");
+        }
+        return v;
+    }
+
+    private static double number(String where, Map<String, Object> spec, String key, double def) {
+        Object v = spec.get(key);
+        return v == null ? def : toNumber(where, v).doubleValue();
+    }
+
+    private static Number toNumber(String where, Object v) {
+        if (v instanceof Number n) {
+            return n;
+        }
+        throw new IllegalArgumentException(where + ": ocekivan broj, dobijeno " + v);
+    }
+
+    // endOfRange: datum bez vremena kao gornja granica obuhvata cijeli dan
+    private static long toLong(String where, ColumnBatch.Kind kind, Object v, boolean endOfRange) {
+        switch (kind) {
+            case BOOLEAN:
+                if (v instanceof Boolean b) {
+                    return b ? 1 : 0;
+                }
+                throw new IllegalArgumentException(where + ": ocekivano true/false, dobijeno " + v);
+            case DATE:
+            case TIMESTAMP:
+                String s = String.valueOf(v);
+                try {
+                    if (s.contains("T")) {
+                        return LocalDateTime.parse(s).toInstant(ZoneOffset.UTC).toEpochMilli();
+                    }
+                    long day = LocalDate.parse(s).toEpochDay() * DAY_MILLIS;
+                    return endOfRange ? day + DAY_MILLIS - 1 : day;
+                } catch (DateTimeParseException e) {
+                    throw new IllegalArgumentException(where + ": ocekivan datum yyyy-MM-dd[THH:mm:ss], dobijeno " + v);
+                }
+            default:
+                if (!(v instanceof Long l)) {
+                    throw new IllegalArgumentException(where + ": ocekivan cio broj, dobijeno " + v);
+                }
+                if (kind == ColumnBatch.Kind.INT && (l < Integer.MIN_VALUE || l > Integer.MAX_VALUE)) {
+                    throw new IllegalArgumentException(where + ": " + l + " je van opsega kolone");
+                }
+                return l;
+        }
+    }
+}
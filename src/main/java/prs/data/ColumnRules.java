@@ -0,0 +1,67 @@
+package prs.data;
+
+import prs.schema.ColumnMeta;
+import prs.schema.SchemaSnapshot;
+import prs.schema.TableMeta;
+import prs.stats.ColumnStats;
+import prs.stats.StatsSnapshot;
+
+import java.util.*;
+
+// prevedena pravila profila i generatori iz statistike po tabeli i koloni (lower-case);
+// nepromjenljivo, dijele ga svi generatori. Pravilo profila ima prednost pred statistikom
+public final class ColumnRules {
+
+    public static final ColumnRules NONE = new ColumnRules(Map.of());
+
+    private final Map<String, Map<String, ColumnRule>> byTable;
+    private final Map<String, Map<String, ColumnSampler>> samplers;
+
+    public ColumnRules(Map<String, Map<String, ColumnRule>> byTable) {
+        this(byTable, Map.of());
+    }
+
+    private ColumnRules(Map<String, Map<String, ColumnRule>> byTable, Map<String, Map<String, ColumnSampler>> samplers) {
+        this.byTable = copy(byTable);
+        this.samplers = copy(samplers);
+    }
+
+    private static <T> Map<String, Map<String, T>> copy(Map<String, Map<String, T>> m) {
+        Map<String, Map<String, T>> copy = new HashMap<>();
+        m.forEach((t, cols) -> copy.put(t, Map.copyOf(cols)));
+        return Map.copyOf(copy);
+    }
+
+    // generatori za sve kolone sa statistikom; tableRows je broj redova koje ce tabela dobiti
+    public ColumnRules withStats(SchemaSnapshot schema, StatsSnapshot stats, Map<String, Integer> tableRows, long runSeed) {
+        Map<String, Map<String, ColumnSampler>> samplers = new HashMap<>();
+        for (TableMeta table : schema.tables()) {
+            Map<String, String> foreignKeys = table.foreignKeyMap();
+            for (ColumnMeta col : table.columns()) {
+                String colLC = col.name().toLowerCase();
+                ColumnStats cs = stats.get(table.nameLC(), colLC);
+                if (cs == null || col.autoIncrement()) {
+                    continue;
+                }
+                ColumnSampler sampler = ColumnSampler.compile(col, foreignKeys.containsKey(colLC), cs,
+                        tableRows.get(table.nameLC()), Seeds.forTable(runSeed, table.nameLC() + "." + colLC));
+                if (sampler != null) {
+                    samplers.computeIfAbsent(table.nameLC(), t -> new HashMap<>()).put(colLC, sampler);
+                }
+            }
+        }
+        return new ColumnRules(byTable, samplers);
+    }
+
+    // null ako kolona nema pravilo
+    public ColumnRule get(String tableLC, String columnLC) {
+        Map<String, ColumnRule> cols = byTable.get(tableLC);
+        return cols == null ? null : cols.get(columnLC);
+    }
+
+    // null ako za kolonu nema statistike
+    public ColumnSampler sampler(String tableLC, String columnLC) {
+        Map<String, ColumnSampler> cols = samplers.get(tableLC);
+        return cols == null ? null : cols.get(columnLC);
+    }
+}
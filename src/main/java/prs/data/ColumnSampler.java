@@ -0,0 +1,244 @@
+package prs.data;
+
+import prs.schema.ColumnMeta;
+import prs.stats.ColumnStats;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.random.RandomGenerator;
+
+// generator vrijednosti kolone po statistici izvorne baze (--stats): udio NULL, najcesce vrijednosti
+// preko alias tabele, ostale vrijednosti iz kanti histograma, a tekst kao jedna od distinct sintetickih
+// vrijednosti cija duzina prati izvornu raspodjelu. Nizovi i alias tabele se prave jednom po koloni
+public final class ColumnSampler {
+
+    private static final long DAY_MILLIS = 86_400_000L;
+    // najduzi sinteticki tekst, i velicina bafera koji generator predaje u writeValue
+    static final int MAX_TEXT = 256;
+    private static final byte[] LETTERS =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz".getBytes(StandardCharsets.US_ASCII);
+
+    private final ColumnBatch.Kind kind;
+    private final double nullFrac;
+    // indeks < mcvCount je najcesca vrijednost, mcvCount su ostale; null ako nema najcescih
+    private final AliasTable choice;
+    private final int mcvCount;
+    private final long[] mcvLong;
+    private final double[] mcvDouble;
+    private final byte[][] mcvText;
+    // kante za ostale brojeve i datume, granice ukljucene
+    private final AliasTable buckets;
+    private final long[] lo;
+    private final long[] hi;
+    private final double[] loDouble;
+    private final double[] hiDouble;
+    // ostali tekst: id u [0, distinct) odredjuje vrijednost, pa kolona ima priblizno izvoran broj razlicitih
+    private final long distinct;
+    private final AliasTable lengths;
+    private final int[] lengthValues;
+    private final long salt;
+
+    private ColumnSampler(ColumnBatch.Kind kind, double nullFrac, AliasTable choice, int mcvCount,
+                          long[] mcvLong, double[] mcvDouble, byte[][] mcvText, AliasTable buckets,
+                          long[] lo, long[] hi, double[] loDouble, double[] hiDouble,
+                          long distinct, AliasTable lengths, int[] lengthValues, long salt) {
+        this.kind = kind;
+        this.nullFrac = nullFrac;
+        this.choice = choice;
+        this.mcvCount = mcvCount;
+        this.mcvLong = mcvLong;
+        this.mcvDouble = mcvDouble;
+        this.mcvText = mcvText;
+        this.buckets = buckets;
+        this.lo = lo;
+        this.hi = hi;
+        this.loDouble = loDouble;
+        this.hiDouble = hiDouble;
+        this.distinct = distinct;
+        this.lengths = lengths;
+        this.lengthValues = lengthValues;
+        this.salt = salt;
+    }
+
+    // null ako statistika ne daje nista za ovaj tip kolone; vrijednosti koje se ne mogu procitati kao
+    // tip kolone se preskacu. rows: redova koje ce tabela imati (za distinct zadat kao udio);
+    // salt bira sinteticke tekstove (isti salt, isti tekstovi)
+    public static ColumnSampler compile(ColumnMeta col, boolean foreignKey, ColumnStats stats, int rows, long salt) {
+        ColumnBatch.Kind kind = ColumnBatch.Kind.of(col.sqlType());
+        double nullFrac = col.nullable() ? Math.max(0, Math.min(1, stats.nullFrac())) : 0;
+        if (foreignKey || kind == ColumnBatch.Kind.OBJECT) {
+            // fk vrijednosti su kljucevi roditelja, iz statistike se uzima samo udio NULL
+            return nullFrac > 0 ? new ColumnSampler(kind, nullFrac, null, 0, null, null, null, null,
+                    null, null, null, null, 0, null, null, salt) : null;
+        }
+
+        List<String> mcv = stats.mcv();
+        double[] mcvFreq = stats.mcvFreq();
+        // najcesce vrijednosti koje se mogu procitati kao tip kolone
+        List<Integer> keep = new ArrayList<>();
+        long[] mcvLong = new long[mcv.size()];
+        double[] mcvDouble = new double[mcv.size()];
+        byte[][] mcvText = new byte[mcv.size()][];
+        double mcvMass = 0;
+        for (int i = 0; i < mcv.size(); i++) {
+            String v = mcv.get(i);
+            try {
+                switch (kind) {
+                    case STRING -> mcvText[keep.size()] = v.getBytes(StandardCharsets.UTF_8);
+                    case DOUBLE -> mcvDouble[keep.size()] = Double.parseDouble(v);
+                    default -> mcvLong[keep.size()] = toLong(kind, v);
+                }
+            } catch (IllegalArgumentException | DateTimeParseException e) {
+                continue;
+            }
+            keep.add(i);
+            mcvMass += mcvFreq[i];
+        }
+        int mcvCount = keep.size();
+        double rest = Math.max(0, 1 - stats.nullFrac() - mcvMass);
+
+        // kante za brojeve i datume
+        AliasTable bucketTable = null;
+        long[] lo = null;
+        long[] hi = null;
+        double[] loDouble = null;
+        double[] hiDouble = null;
+        List<String> bucketLo = stats.bucketLo();
+        List<String> bucketHi = stats.bucketHi();
+        double[] bucketFreq = stats.bucketFreq();
+        if (kind != ColumnBatch.Kind.STRING && kind != ColumnBatch.Kind.BOOLEAN && !bucketLo.isEmpty()) {
+            int n = bucketLo.size();
+            lo = new long[n];
+            hi = new long[n];
+            loDouble = new double[n];
+            hiDouble = new double[n];
+            double[] w = new double[n];
+            int b = 0;
+            for (int i = 0; i < n; i++) {
+                try {
+                    if (kind == ColumnBatch.Kind.DOUBLE) {
+                        double a = Double.parseDouble(bucketLo.get(i));
+                        double z = Double.parseDouble(bucketHi.get(i));
+                        loDouble[b] = Math.min(a, z);
+                        hiDouble[b] = Math.max(a, z);
+                    } else {
+                        long a = toLong(kind, bucketLo.get(i));
+                        long z = toLong(kind, bucketHi.get(i));
+                        lo[b] = Math.min(a, z);
+                        hi[b] = Math.max(a, z);
+                    }
+                } catch (IllegalArgumentException | DateTimeParseException e) {
+                    continue;
+                }
+                w[b++] = Math.max(bucketFreq[i], 0);
+            }
+            if (b > 0 && Arrays.stream(w, 0, b).sum() > 0) {
+                bucketTable = AliasTable.of(Arrays.copyOf(w, b));
+            } else {
+                lo = null;
+                hi = null;
+                loDouble = null;
+                hiDouble = null;
+            }
+        }
+
+        // duzine teksta, ograniceno velicinom kolone
+        AliasTable lengthTable = null;
+        int[] lengthValues = null;
+        long distinct = 0;
+        int[] lengthsIn = stats.lengths();
+        if (kind == ColumnBatch.Kind.STRING && lengthsIn.length > 0 && Arrays.stream(stats.lengthFreq()).sum() > 0) {
+            int max = col.size() > 0 ? Math.min(col.size(), MAX_TEXT) : MAX_TEXT;
+            lengthValues = new int[lengthsIn.length];
+            for (int i = 0; i < lengthsIn.length; i++) {
+                lengthValues[i] = Math.max(1, Math.min(max, lengthsIn[i]));
+            }
+            lengthTable = AliasTable.of(stats.lengthFreq());
+            double d = stats.distinct() > 0 ? stats.distinct() : -stats.distinct() * rows;
+            distinct = Math.max(0, Math.round(d) - mcvCount);
+        }
+
+        boolean restKnown = bucketTable != null || lengthTable != null;
+        if (mcvCount == 0 && !restKnown && nullFrac == 0) {
+            return null;
+        }
+        AliasTable choice = null;
+        if (mcvCount > 0 && mcvMass + rest > 0) {
+            double[] w = new double[mcvCount + 1];
+            for (int i = 0; i < mcvCount; i++) {
+                w[i] = Math.max(mcvFreq[keep.get(i)], 0);
+            }
+            w[mcvCount] = rest;
+            choice = AliasTable.of(w);
+        }
+        return new ColumnSampler(kind, nullFrac, choice, mcvCount, mcvLong, mcvDouble, mcvText, bucketTable,
+                lo, hi, loDouble, hiDouble, distinct, lengthTable, lengthValues, salt);
+    }
+
+    public boolean nullRow(RandomGenerator rand) {
+        return nullFrac > 0 && rand.nextDouble() < nullFrac;
+    }
+
+    // false kad statistika ne pokriva izabranu vrijednost, tada je daje podrazumijevani generator;
+    // buf je bafer generatora, najmanje MAX_TEXT bajtova
+    public boolean writeValue(ColumnBatch batch, int col, int row, RandomGenerator rand, byte[] buf) {
+        int k = choice == null ? mcvCount : choice.sample(rand);
+        if (k < mcvCount) {
+            switch (kind) {
+                case STRING -> batch.setBytes(col, row, mcvText[k], 0, mcvText[k].length);
+                case DOUBLE -> batch.setDouble(col, row, mcvDouble[k]);
+                default -> batch.setLongValue(col, row, mcvLong[k]);
+            }
+            return true;
+        }
+        if (lengths != null) {
+            long id = distinct > 0 ? rand.nextLong(distinct) : rand.nextLong();
+            long h = Seeds.mix(id ^ salt);
+            int len = lengthValues[lengths.sample(h)];
+            for (int i = 0; i < len; i += 8) {
+                h = Seeds.mix(h + 0x9E3779B97F4A7C15L);
+                for (int j = 0; j < 8 && i + j < len; j++) {
+                    buf[i + j] = LETTERS[(int) ((((h >>> (8 * j)) & 0xFF) * LETTERS.length) >>> 8)];
+                }
+            }
+            batch.setBytes(col, row, buf, 0, len);
+            return true;
+        }
+        if (buckets != null) {
+            int b = buckets.sample(rand);
+            if (kind == ColumnBatch.Kind.DOUBLE) {
+                double v = loDouble[b] + rand.nextDouble() * (hiDouble[b] - loDouble[b]);
+                batch.setDouble(col, row, Math.round(v * 100.0) / 100.0);
+            } else {
+                batch.setLongValue(col, row, hi[b] == Long.MAX_VALUE ? rand.nextLong(lo[b], hi[b]) : rand.nextLong(lo[b], hi[b] + 1));
+            }
+            return true;
+        }
+        return false;
+    }
+
+    // cijeli brojevi, boolean (t/f, true/false, 1/0) i datumi (yyyy-MM-dd[ HH:mm:ss...], bez zone, UTC)
+    private static long toLong(ColumnBatch.Kind kind, String v) {
+        switch (kind) {
+            case BOOLEAN:
+                return switch (v.toLowerCase()) {
+                    case "t", "true", "1" -> 1;
+                    case "f", "false", "0" -> 0;
+                    default -> throw new IllegalArgumentException(v);
+                };
+            case DATE:
+            case TIMESTAMP:
+                if (v.length() <= 10) {
+                    return LocalDate.parse(v).toEpochDay() * DAY_MILLIS;
+                }
+                String t = v.substring(0, Math.min(v.length(), 19)).replace(' ', 'T');
+                return LocalDateTime.parse(t).toInstant(ZoneOffset.UTC).toEpochMilli();
+            default:
+                return Long.parseLong(v);
+        }
+    }
+}
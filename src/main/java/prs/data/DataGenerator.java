@@ -1,228 +1,357 @@
 package prs.data;
 
-import javax.sql.DataSource;
-import java.sql.*;
+import prs.keys.KeyRegistry;
+import prs.keys.KeySet;
+import prs.schema.ColumnMeta;
+import prs.schema.TableMeta;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Types;
 import java.util.*;
+import java.util.random.RandomGenerator;
+import java.util.random.RandomGeneratorFactory;
 
 public class DataGenerator {
 
-    private final DataSource ds;
+    // prima pun chunk i vraca prazan batch u koji se nastavlja generisanje; moze blokirati kad je red pun
+    @FunctionalInterface
+    public interface ChunkSink {
+        ColumnBatch accept(ColumnBatch full) throws InterruptedException;
+    }
 
-    public DataGenerator(DataSource ds) {
-        this.ds = ds;
+    // pravi generator za dati seed (po tabeli ili shardu); drzi zajednicka podesavanja pokretanja
+    @FunctionalInterface
+    public interface Factory {
+        DataGenerator create(long seed);
     }
-    public List<Map<String, Object>> generateData(
-            String tableNameOrig,
-            int rowCount,
-            Map<String, List<Object>> knownValues,
-            Map<String, String> foreignKeys) throws SQLException {
 
-        // podaci o atributima i pk
-        List<ColumnInfo> columns;
-        List<String> pkColsOrig;
-        try (Connection conn = ds.getConnection()) {
-            columns = getTableColumns(conn, tableNameOrig);
-            pkColsOrig = getPrimaryKeys(conn, tableNameOrig);
-        }
+    // L64X128MixRandom: bez CAS nad AtomicLong kao java.util.Random i sa boljom raspodjelom za paralelne seedove
+    private static final RandomGeneratorFactory<RandomGenerator> RNG = RandomGeneratorFactory.of("L64X128MixRandom");
+    private static final long DAY_MILLIS = 86_400_000L;
 
-        // pk to lower
-        List<String> pkColsLC = new ArrayList<>();
-        for (String pk : pkColsOrig) {
-            pkColsLC.add(pk.toLowerCase());
-        }
+    private static final byte[] LETTERS =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] AUTO_TEXT_PREFIX = "Automatski tekst: ".getBytes(StandardCharsets.US_ASCII);
 
-        // za moj slucaj kad je pk sastavljen samo od fk
-        boolean isCompositePK_AllFK = false;
-        if (pkColsLC.size() > 1) {
-            isCompositePK_AllFK = true;
-            for (String pkLC : pkColsLC) {
-                if (!foreignKeys.containsKey(pkLC)) {
-                    isCompositePK_AllFK = false;
-                    break;
-                }
-            }
-        }
+    // bafer za stringove, generator je po niti pa ga nije potrebno dijeliti
+    private final byte[] strBuf = new byte[ColumnSampler.MAX_TEXT];
+    // dio tabele koji generator pravi: redovi [firstRow, firstRow + n) od totalRows;
+    // uniqueSeed je isti za sve shardove tabele pa jedinstvene kolone ne ponavljaju vrijednosti izmedju shardova
+    public record RowSlice(long uniqueSeed, long firstRow, long totalRows) {
+    }
 
-        List<Map<String, Object>> result = new ArrayList<>();
+    // kolone batcha sa unaprijed nadjenim roditeljima i pravilima profila, da se u petlji ne trazi po imenu
+    private record ColumnPlan(List<ColumnMeta> cols, KeySet[] fkParents, boolean[] longText,
+                              ColumnRule[] rules, ColumnRule.KeyPicker[] pickers, ColumnSampler[] samplers) {
+    }
 
-        if (isCompositePK_AllFK) {
-            // pk=komb fkova poznatih
-            String parentA = foreignKeys.get(pkColsLC.get(0));
-            String parentB = foreignKeys.get(pkColsLC.get(1));
-            List<Object> parentValsA = knownValues.getOrDefault(parentA, Collections.emptyList());
-            List<Object> parentValsB = knownValues.getOrDefault(parentB, Collections.emptyList());
-
-            if (parentValsA.isEmpty() || parentValsB.isEmpty()) {
-                return result; // nisu upani parenti
-            }
+    private final RandomGenerator rand;
+    private final long seed;
+    // datumi se racunaju unazad od ovog trenutka, fiksnog za cijelo pokretanje
+    private final long baseTimeMillis;
+    // --profile: opsezi, liste vrijednosti, udio NULL i raspodjela fk po kolonama; --stats: vrijednosti po statistici
+    private final ColumnRules rules;
+    // --append: redovi koji su vec u tabeli
+    private final ExistingRows existing;
+
+    public DataGenerator() {
+        this(RNG.create().nextLong(), startOfToday());
+    }
+
+    // isti seed i isti roditeljski kljucevi daju iste redove
+    public DataGenerator(long seed) {
+        this(seed, startOfToday());
+    }
 
-            int maxComb = parentValsA.size() * parentValsB.size();
-            int desired = Math.min(rowCount, maxComb);
+    public DataGenerator(long seed, long baseTimeMillis) {
+        this(seed, baseTimeMillis, ColumnRules.NONE);
+    }
 
-            Set<String> usedPairs = new HashSet<>(desired);
-            Random rand = new Random();
+    public DataGenerator(long seed, long baseTimeMillis, ColumnRules rules) {
+        this(seed, baseTimeMillis, rules, ExistingRows.NONE);
+    }
 
-            while (result.size() < desired) {
-                Object a = parentValsA.get(rand.nextInt(parentValsA.size()));
-                Object b = parentValsB.get(rand.nextInt(parentValsB.size()));
-                String key = a.toString() + "||" + b.toString();
-                if (usedPairs.contains(key)) {
-                    continue;
-                }
-                usedPairs.add(key);
+    public DataGenerator(long seed, long baseTimeMillis, ColumnRules rules, ExistingRows existing) {
+        this.rand = RNG.create(seed);
+        this.seed = seed;
+        this.baseTimeMillis = baseTimeMillis;
+        this.rules = rules;
+        this.existing = existing;
+    }
 
-                Map<String, Object> row = new LinkedHashMap<>();
-                // slozeni pk
-                row.put(pkColsOrig.get(0), a);
-                row.put(pkColsOrig.get(1), b);
+    // podrazumijevano bazno vrijeme: pocetak danasnjeg dana (UTC), pa je isti seed isti tokom dana
+    public static long startOfToday() {
+        long now = System.currentTimeMillis();
+        return now - Math.floorMod(now, DAY_MILLIS);
+    }
 
-                // generisanje ostalih kolona, neputpuno skroz, prilagodjeno samo za moju semu
-                for (ColumnInfo col : columns) {
-                    String colNameOrig = col.name;
-                    String colLC = colNameOrig.toLowerCase();
+    // pk sastavljen samo od fk: parovi se biraju bez ponavljanja pa se tabela ne moze dijeliti na shardove
+    public static boolean isCompositePkAllFk(TableMeta table) {
+        if (table.primaryKey().size() < 2) {
+            return false;
+        }
+        Map<String, String> foreignKeys = table.foreignKeyMap();
+        for (String pk : table.primaryKey()) {
+            if (!foreignKeys.containsKey(pk.toLowerCase())) {
+                return false;
+            }
+        }
+        return true;
+    }
 
-                    if (col.isAutoIncrement || pkColsLC.contains(colLC)) {
-                        continue;
-                    }
+    // jedinstvenost (pk, unique) se moze odrzati i kad shardovi generisu nezavisno
+    public static boolean shardable(TableMeta table) {
+        return UniquePlan.shardable(table);
+    }
 
-                    Object value;
-                    if (foreignKeys.containsKey(colLC)) {
-                        String parentTableLC = foreignKeys.get(colLC);
-                        List<Object> parentList = knownValues.getOrDefault(parentTableLC, Collections.emptyList());
-                        value = parentList.isEmpty()
-                                ? null
-                                : parentList.get(rand.nextInt(parentList.size()));
-                    } else {
-                        value = generateRandomValue(colNameOrig, col.type, !col.nullable);
-                    }
-                    row.put(colNameOrig, value);
-                }
+    // odbaceni red trosi sljedeci indeks permutacije, koji bi bio u opsegu sljedeceg sharda; zato se tabela
+    // sa hesevima postojecih kombinacija (--append) ne dijeli
+    public static boolean shardable(TableMeta table, ExistingRows existing) {
+        return !existing.hasHashes() && shardable(table);
+    }
 
-                result.add(row);
-            }
+    // cijela tabela u jednom batchu; null ako nema redova (npr. nisu upisani roditelji)
+    public ColumnBatch generateData(
+            TableMeta table,
+            int rowCount,
+            KeyRegistry knownValues) {
+
+        ColumnBatch[] result = new ColumnBatch[1];
+        try {
+            generateChunks(table, rowCount, Math.max(rowCount, 1), knownValues, full -> {
+                result[0] = full;
+                return full.newEmptyLike();
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return result[0];
+    }
 
-            return result;
+    // isto kao generateData, ali redovi idu u sink u chunkovima od chunkSize pa memorija ne raste sa rowCount
+    public void generateChunks(
+            TableMeta table,
+            int rowCount,
+            int chunkSize,
+            KeyRegistry knownValues,
+            ChunkSink sink) throws InterruptedException {
+        generateChunks(table, rowCount, chunkSize, knownValues, sink, new RowSlice(seed, 0, rowCount));
+    }
+
+    // rowCount redova pocevsi od slice.firstRow(); jedinstvene kolone racunaju se za cijelu tabelu (slice.totalRows())
+    public void generateChunks(
+            TableMeta table,
+            int rowCount,
+            int chunkSize,
+            KeyRegistry knownValues,
+            ChunkSink sink,
+            RowSlice slice) throws InterruptedException {
+
+        // podaci o atributima i pk iz snimka seme
+        List<ColumnMeta> columns = table.columns();
+        List<String> pkColsOrig = table.primaryKey();
+        Map<String, String> foreignKeys = table.foreignKeyMap();
+
+        // pk to lower
+        List<String> pkColsLC = new ArrayList<>();
+        for (String pk : pkColsOrig) {
+            pkColsLC.add(pk.toLowerCase());
         }
 
-        // standardni slucaj: pk sa jednom vr ili bez slozenih fk
-        Random rand = new Random();
-        for (int i = 0; i < rowCount; i++) {
-            Map<String, Object> row = new LinkedHashMap<>();
+        // za moj slucaj kad je pk sastavljen samo od fk
+        boolean isCompositePK_AllFK = isCompositePkAllFk(table);
 
-            for (ColumnInfo col : columns) {
-                if (col.isAutoIncrement) {
-                    continue;
-                }
-                String colLC = col.name.toLowerCase();
-                Object value;
-
-                if (foreignKeys.containsKey(colLC)) {
-                    String parentTableLC = foreignKeys.get(colLC);
-                    List<Object> parentVals = knownValues.getOrDefault(parentTableLC, Collections.emptyList());
-                    if (!parentVals.isEmpty()) {
-                        value = parentVals.get(rand.nextInt(parentVals.size()));
-                    } else {
-                        value = null;
+        // redoslijed kolona u batchu: kod slozenog pk prvo pk kolone pa ostale
+        List<ColumnMeta> batchCols = new ArrayList<>();
+        if (isCompositePK_AllFK) {
+            for (String pk : pkColsOrig) {
+                for (ColumnMeta col : columns) {
+                    if (col.name().equalsIgnoreCase(pk)) {
+                        batchCols.add(col);
                     }
-                } else {
-                    value = generateRandomValue(col.name, col.type, !col.nullable);
                 }
-                row.put(col.name, value);
             }
+        }
+        for (ColumnMeta col : columns) {
+            if (col.autoIncrement() || (isCompositePK_AllFK && pkColsLC.contains(col.name().toLowerCase()))) {
+                continue;
+            }
+            batchCols.add(col);
+        }
+
+        // plan po koloni da se u petlji ne radi toLowerCase/lookup po imenu
+        int n = batchCols.size();
+        String[] names = new String[n];
+        int[] types = new int[n];
+        KeySet[] fkParents = new KeySet[n];
+        boolean[] longText = new boolean[n];
+        ColumnRule[] colRules = new ColumnRule[n];
+        ColumnRule.KeyPicker[] pickers = new ColumnRule.KeyPicker[n];
+        ColumnSampler[] samplers = new ColumnSampler[n];
+        for (int c = 0; c < n; c++) {
+            ColumnMeta col = batchCols.get(c);
+            names[c] = col.name();
+            types[c] = col.sqlType();
+            String parentLC = foreignKeys.get(col.name().toLowerCase());
+            if (parentLC != null) {
+                fkParents[c] = knownValues.get(parentLC);
+            }
+            longText[c] = col.name().equalsIgnoreCase("Opis") || col.name().equalsIgnoreCase("UputeZaPripremu");
+            colRules[c] = rules.get(table.nameLC(), col.name().toLowerCase());
+            if (colRules[c] != null && fkParents[c] != null) {
+                pickers[c] = colRules[c].keys(fkParents[c].size());
+            }
+            samplers[c] = rules.sampler(table.nameLC(), col.name().toLowerCase());
+        }
+        ColumnPlan plan = new ColumnPlan(batchCols, fkParents, longText, colRules, pickers, samplers);
+
+        // pk i unique kolone: kombinacije iz permutacije, bez skupa iskoristenih parova i bez odbacivanja;
+        // za pk od samih fk (veza vise-prema-vise) broj redova je ogranicen brojem kombinacija roditelja
+        UniquePlan unique = UniquePlan.build(table, batchCols, fkParents, slice.uniqueSeed(), slice.totalRows(),
+                existing);
+        int desired = unique.rowsFor(slice.firstRow(), rowCount);
+
+        ColumnBatch batch = new ColumnBatch(names, types, Math.min(chunkSize, Math.max(desired, 1)));
+        long globalRow = slice.firstRow();
+        int produced = 0;
+        while (produced < desired && unique.hasIndex(globalRow)) {
+            int row = batch.addRow();
+            unique.writePermuted(batch, row, globalRow++, strBuf, baseTimeMillis);
+            writeRow(batch, row, plan, unique);
+
+            if (unique.checksRows() && !resolveDuplicates(batch, row, plan, unique)) {
+                batch.removeLastRow();
+                unique.rejected();
+                continue;
+            }
+            unique.accepted();
 
-            result.add(row);
+            produced++;
+            if (batch.isFull()) {
+                batch = sink.accept(batch);
+            }
         }
 
-        return result;
+        if (!batch.isEmpty()) {
+            sink.accept(batch);
+        }
     }
 
-    private List<String> getPrimaryKeys(Connection conn, String tableNameOrig) throws SQLException {
-        List<String> pks = new ArrayList<>();
-        DatabaseMetaData meta = conn.getMetaData();
-        try (ResultSet rs = meta.getPrimaryKeys(null, null, tableNameOrig)) {
-            while (rs.next()) {
-                pks.add(rs.getString("COLUMN_NAME"));
+    private void writeRow(ColumnBatch batch, int row, ColumnPlan plan, UniquePlan unique) {
+        for (int c = 0; c < plan.cols().size(); c++) {
+            if (!unique.managed(c)) {
+                writeColumn(batch, row, c, plan);
             }
         }
-        return pks;
     }
 
-    private List<ColumnInfo> getTableColumns(Connection conn, String tableNameOrig) throws SQLException {
-        List<ColumnInfo> cols = new ArrayList<>();
-        DatabaseMetaData meta = conn.getMetaData();
-        try (ResultSet rs = meta.getColumns(null, null, tableNameOrig, null)) {
-            while (rs.next()) {
-                String name = rs.getString("COLUMN_NAME");
-                int type = rs.getInt("DATA_TYPE");
-                boolean nullable = "YES".equalsIgnoreCase(rs.getString("IS_NULLABLE"));
-                boolean autoInc = "YES".equalsIgnoreCase(rs.getString("IS_AUTOINCREMENT"));
-                cols.add(new ColumnInfo(name, type, nullable, autoInc));
+    private void writeColumn(ColumnBatch batch, int row, int c, ColumnPlan plan) {
+        ColumnRule rule = plan.rules()[c];
+        ColumnSampler sampler = plan.samplers()[c];
+        // udio NULL iz profila zamjenjuje udio iz statistike
+        if (rule != null ? rule.nullRow(rand) : sampler != null && sampler.nullRow(rand)) {
+            batch.setNull(c, row);
+            return;
+        }
+        KeySet parentVals = plan.fkParents()[c];
+        if (parentVals != null) {
+            if (!parentVals.isEmpty()) {
+                ColumnRule.KeyPicker picker = plan.pickers()[c];
+                parentVals.writeTo(batch, c, row, picker != null ? picker.pick(rand) : rand.nextInt(parentVals.size()));
+            } else {
+                batch.setNull(c, row);
             }
+        } else if ((rule == null || !rule.writeValue(batch, c, row, rand))
+                && (sampler == null || !sampler.writeValue(batch, c, row, rand, strBuf))) {
+            ColumnMeta col = plan.cols().get(c);
+            writeRandomValue(batch, c, row, col.sqlType(), !col.nullable(), plan.longText()[c]);
         }
-        return cols;
     }
 
-    private Object generateRandomValue(String columnName, int columnType, boolean required) {
-        Random rand = new Random();
+    // unique grupe koje se provjeravaju hesom: slobodne kolone grupe se ponovo generisu dok red ne bude jedinstven
+    private boolean resolveDuplicates(ColumnBatch batch, int row, ColumnPlan plan, UniquePlan unique) {
+        for (int attempt = 0; attempt < UniquePlan.MAX_RETRIES; attempt++) {
+            int[] free = unique.duplicateGroupFree(batch, row);
+            if (free == null) {
+                return true;
+            }
+            if (free.length == 0) {
+                return false;
+            }
+            for (int c : free) {
+                writeColumn(batch, row, c, plan);
+            }
+        }
+        return false;
+    }
 
+    private void writeRandomValue(ColumnBatch batch, int col, int row, int columnType, boolean required, boolean longText) {
         switch (columnType) {
             case Types.VARCHAR:
             case Types.CHAR:
             case Types.LONGVARCHAR:
-                if (columnName.equalsIgnoreCase("Opis") || columnName.equalsIgnoreCase("UputeZaPripremu")) {
-                    return "Automatski tekst: " + generateRandomString(20);
+                if (longText) {
+                    System.arraycopy(AUTO_TEXT_PREFIX, 0, strBuf, 0, AUTO_TEXT_PREFIX.length);
+                    fillRandomLetters(strBuf, AUTO_TEXT_PREFIX.length, 20);
+                    batch.setBytes(col, row, strBuf, 0, AUTO_TEXT_PREFIX.length + 20);
+                } else {
+                    fillRandomLetters(strBuf, 0, 10);
+                    batch.setBytes(col, row, strBuf, 0, 10);
                 }
-                return generateRandomString(10);
+                return;
 
             case Types.INTEGER:
             case Types.SMALLINT:
-                return rand.nextInt(1_000_000);
+                batch.setInt(col, row, rand.nextInt(1_000_000));
+                return;
+
+            case Types.BIGINT:
+                batch.setLong(col, row, rand.nextInt(1_000_000));
+                return;
 
             case Types.TINYINT:
                 // MySQL TINYINT(1) se koristi kao boolean, vraća 0 ili 1w
-                return rand.nextInt(2);
+                batch.setInt(col, row, rand.nextInt(2));
+                return;
 
             case Types.BOOLEAN:
             case Types.BIT:
                 // PostgreSQL BOOLEAN moze biti kao BIT; vraca pravi boolean
-                return rand.nextBoolean();
+                batch.setBoolean(col, row, rand.nextBoolean());
+                return;
 
             case Types.DECIMAL:
             case Types.NUMERIC:
-                return Math.round(rand.nextDouble() * 10_000.0) / 100.0;
+            case Types.DOUBLE:
+            case Types.FLOAT:
+            case Types.REAL:
+                batch.setDouble(col, row, Math.round(rand.nextDouble() * 10_000.0) / 100.0);
+                return;
 
             case Types.DATE:
-                return new java.sql.Date(System.currentTimeMillis() - rand.nextInt(1_000_000_000));
-
             case Types.TIMESTAMP:
-                return new java.sql.Timestamp(System.currentTimeMillis() - rand.nextInt(1_000_000_000));
+                batch.setLong(col, row, baseTimeMillis - rand.nextInt(1_000_000_000));
+                return;
 
             default:
-                return required ? "DefaultVal" : null;
+                if (required) {
+                    batch.setObject(col, row, "DefaultVal");
+                } else {
+                    batch.setNull(col, row);
+                }
         }
     }
 
-    private String generateRandomString(int length) {
-        String letters = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
-        StringBuilder sb = new StringBuilder();
-        Random r = new Random();
-        for (int i = 0; i < length; i++) {
-            sb.append(letters.charAt(r.nextInt(letters.length())));
+    // dva slova po nextLong: svaka 32-bitna polovina se mnozenjem svodi na [0, 52) (bez dijeljenja i petlje)
+    private void fillRandomLetters(byte[] buf, int off, int length) {
+        int i = 0;
+        for (; i + 1 < length; i += 2) {
+            long bits = rand.nextLong();
+            buf[off + i] = LETTERS[(int) (((bits & 0xFFFFFFFFL) * LETTERS.length) >>> 32)];
+            buf[off + i + 1] = LETTERS[(int) (((bits >>> 32) * LETTERS.length) >>> 32)];
         }
-        return sb.toString();
-    }
-
-    private static class ColumnInfo {
-        String name;
-        int type;
-        boolean nullable;
-        boolean isAutoIncrement;
-
-        ColumnInfo(String name, int type, boolean nullable, boolean isAutoIncrement) {
-            this.name = name;
-            this.type = type;
-            this.nullable = nullable;
-            this.isAutoIncrement = isAutoIncrement;
+        if (i < length) {
+            buf[off + i] = LETTERS[(int) (((rand.nextInt() & 0xFFFFFFFFL) * LETTERS.length) >>> 32)];
         }
     }
 }
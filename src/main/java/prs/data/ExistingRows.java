@@ -0,0 +1,93 @@
+package prs.data;
+
+import prs.schema.TableMeta;
+
+import java.util.*;
+
+// redovi koji su vec u tabeli (--append), da novi redovi ne ponove njihove jedinstvene vrijednosti:
+// grupa sa cjelobrojnom kolonom (koja nije fk) nastavlja tu kolonu iznad postojeceg MAX, a za ostale grupe se
+// ucitaju hesevi postojecih kombinacija. Dijele ga svi shardovi tabele, poslije build() se ne mijenja
+public final class ExistingRows {
+
+    public static final ExistingRows NONE = new ExistingRows(0, Map.of(), Map.of());
+
+    private final long rows;
+    // kolona (lower-case) -> prva slobodna vrijednost
+    private final Map<String, Long> valueBase;
+    // kolone grupe (lower-case, zarezom) -> hesevi postojecih kombinacija
+    private final Map<String, LongHashSet> groupHashes;
+
+    private ExistingRows(long rows, Map<String, Long> valueBase, Map<String, LongHashSet> groupHashes) {
+        this.rows = rows;
+        this.valueBase = valueBase;
+        this.groupHashes = groupHashes;
+    }
+
+    public long rows() {
+        return rows;
+    }
+
+    // kolone koje nastavljaju iznad postojeceg MAX
+    public static List<String> maxColumns(TableMeta table) {
+        return List.copyOf(new LinkedHashSet<>(UniquePlan.aboveMaxColumns(table).values()));
+    }
+
+    // grupe cije se postojece kombinacije citaju iz tabele
+    public static List<List<String>> hashedGroups(TableMeta table) {
+        Map<String, String> aboveMax = UniquePlan.aboveMaxColumns(table);
+        List<List<String>> out = new ArrayList<>();
+        for (List<String> g : UniquePlan.groupNames(table)) {
+            if (!aboveMax.containsKey(UniquePlan.groupKey(g))) {
+                out.add(g);
+            }
+        }
+        return out;
+    }
+
+    // ima li grupa cije se kombinacije provjeravaju hesom postojecih redova
+    public boolean hasHashes() {
+        return !groupHashes.isEmpty();
+    }
+
+    long valueBase(String columnLC) {
+        return valueBase.getOrDefault(columnLC, 0L);
+    }
+
+    // null ako grupa nema procitane redove
+    LongHashSet hashes(String groupKey) {
+        return groupHashes.get(groupKey);
+    }
+
+    public static final class Builder {
+
+        private final long rows;
+        private final Map<String, Long> valueBase = new HashMap<>();
+        private final Map<String, LongHashSet> groupHashes = new HashMap<>();
+
+        public Builder(long rows) {
+            this.rows = rows;
+        }
+
+        // max: najveca postojeca vrijednost kolone
+        public Builder max(String column, long max) {
+            valueBase.put(column.toLowerCase(), max + 1);
+            return this;
+        }
+
+        // redovi batcha za grupu; cols su kolone batcha redom kolona grupe. Redovi sa NULL se preskacu
+        public Builder addRows(List<String> group, ColumnBatch batch, int[] cols) {
+            LongHashSet set = groupHashes.computeIfAbsent(UniquePlan.groupKey(group),
+                    k -> new LongHashSet((int) Math.min(rows, 1 << 20)));
+            for (int r = 0; r < batch.size(); r++) {
+                if (!UniquePlan.hasNull(batch, cols, r)) {
+                    set.add(UniquePlan.rowHash(batch, cols, r));
+                }
+            }
+            return this;
+        }
+
+        public ExistingRows build() {
+            return new ExistingRows(rows, Map.copyOf(valueBase), Map.copyOf(groupHashes));
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package prs.data;
+
+// pseudoslucajna bijekcija na [0, n): Feistel mreza nad parnim brojem bitova (domen < 4n) uz cycle walking.
+// i -> apply(i) za i = 0..k-1 daje k razlicitih vrijednosti, bez skupa i bez odbacivanja
+final class FeistelPermutation {
+
+    private static final int ROUNDS = 4;
+
+    private final long n;
+    private final int halfBits;
+    private final long halfMask;
+    private final long[] keys = new long[ROUNDS];
+
+    FeistelPermutation(long n, long seed) {
+        if (n < 0 || n > 1L << 62) {
+            throw new IllegalArgumentException("Domen permutacije van [0, 2^62]: " + n);
+        }
+        this.n = n;
+        int bits = n <= 1 ? 0 : 64 - Long.numberOfLeadingZeros(n - 1);
+        this.halfBits = (bits + 1) / 2;
+        this.halfMask = (1L << halfBits) - 1;
+        long k = seed;
+        for (int r = 0; r < ROUNDS; r++) {
+            k = Seeds.mix(k + 0x9E3779B97F4A7C15L);
+            keys[r] = k;
+        }
+    }
+
+    long size() {
+        return n;
+    }
+
+    long apply(long index) {
+        if (index < 0 || index >= n) {
+            throw new IndexOutOfBoundsException(index + " van [0, " + n + ")");
+        }
+        if (n <= 1) {
+            return index;
+        }
+        long x = index;
+        do {
+            x = encrypt(x);
+        } while (x >= n);
+        return x;
+    }
+
+    private long encrypt(long x) {
+        long left = x >>> halfBits;
+        long right = x & halfMask;
+        for (int r = 0; r < ROUNDS; r++) {
+            long next = left ^ (Seeds.mix(right ^ keys[r]) & halfMask);
+            left = right;
+            right = next;
+        }
+        return (left << halfBits) | right;
+    }
+}
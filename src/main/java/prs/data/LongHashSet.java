@@ -0,0 +1,81 @@
+package prs.data;
+
+import java.util.Arrays;
+
+// skup long vrijednosti bez boxinga: otvoreno adresiranje, linearno trazenje, 0 se pamti posebno
+final class LongHashSet {
+
+    private long[] table;
+    private int size;
+    private boolean hasZero;
+
+    LongHashSet(int expected) {
+        int cap = Integer.highestOneBit(Math.max(16, (int) Math.min(1 << 30, expected * 2L)) - 1) << 1;
+        table = new long[cap];
+    }
+
+    // true ako vrijednost nije bila u skupu
+    boolean add(long v) {
+        if (v == 0) {
+            if (hasZero) {
+                return false;
+            }
+            hasZero = true;
+            size++;
+            return true;
+        }
+        int mask = table.length - 1;
+        int i = (int) Seeds.mix(v) & mask;
+        while (table[i] != 0) {
+            if (table[i] == v) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        table[i] = v;
+        if (++size * 2 > table.length) {
+            grow();
+        }
+        return true;
+    }
+
+    boolean contains(long v) {
+        if (v == 0) {
+            return hasZero;
+        }
+        int mask = table.length - 1;
+        int i = (int) Seeds.mix(v) & mask;
+        while (table[i] != 0) {
+            if (table[i] == v) {
+                return true;
+            }
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        Arrays.fill(table, 0L);
+        size = 0;
+        hasZero = false;
+    }
+
+    private void grow() {
+        long[] old = table;
+        table = new long[old.length * 2];
+        int mask = table.length - 1;
+        for (long v : old) {
+            if (v != 0) {
+                int i = (int) Seeds.mix(v) & mask;
+                while (table[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                table[i] = v;
+            }
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package prs.data;
+
+// izvodjenje seedova: iz jednog seeda pokretanja dobija se nezavisan seed po tabeli i po shardu (SplitMix64)
+public final class Seeds {
+
+    private Seeds() {
+    }
+
+    public static long forTable(long runSeed, String tableLC) {
+        return mix(runSeed ^ mix(tableLC.hashCode()));
+    }
+
+    public static long forShard(long tableSeed, int shard) {
+        return mix(tableSeed + (shard + 1) * 0x9E3779B97F4A7C15L);
+    }
+
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,517 @@
+package prs.data;
+
+import prs.keys.KeySet;
+import prs.schema.ColumnMeta;
+import prs.schema.TableMeta;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Types;
+import java.util.*;
+
+// jedinstvenost pri generisanju: pk (ako nije auto-increment) i unique ogranicenja.
+// Grupa ciji svi stupci imaju konacan domen (fk -> indeks roditelja, broj, string, datum...) puni se iz
+// Feistel permutacije prostora kombinacija: globalni red i -> perm(i) -> mjesoviti radiks po stupcima.
+// Razliciti i daju razlicite kombinacije, pa nema skupa ni odbacivanja i vrijeme je linearno i za gustu tabelu;
+// shardovi koriste disjunktne opsege i istu permutaciju (seed tabele).
+// Ostale grupe (preklapanje sa vec pokrivenim stupcem, tip bez domena) provjeravaju se hesom reda u LongHashSet.
+// Uz --append (ExistingRows) cjelobrojna kolona koja je sama grupa nastavlja iznad postojeceg MAX, a ostale
+// grupe odbacuju red cija kombinacija vec postoji u tabeli (hesevi postojecih redova, samo za citanje)
+final class UniquePlan {
+
+    // najveci prostor kombinacija; veci se smanjuje polovljenjem najveceg domena
+    private static final long MAX_SPACE = 1L << 62;
+    private static final int DEFAULT_DOMAIN = 1_000_000;
+    private static final long DAY_MILLIS = 86_400_000L;
+    private static final int MAX_STRING_LEN = 10;
+    private static final byte[] LETTERS =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz".getBytes(StandardCharsets.US_ASCII);
+    // uzastopno odbacenih redova nakon kojih se smatra da je prostor hesiranih grupa iscrpljen
+    private static final int MAX_MISSES = 1_000;
+    static final int MAX_RETRIES = 16;
+
+    private static final int[] NO_FREE = new int[0];
+    private static final TimeZone ZONE = TimeZone.getDefault();
+
+    static final UniquePlan NONE = new UniquePlan(List.of(), List.of(), new boolean[0], Long.MAX_VALUE);
+
+    // grupa iz permutacije; bases: pocetak cjelobrojnih vrijednosti (iznad postojecih), divisors: decimalne
+    // vrijednosti su indeks / divisor, existing: hesevi kombinacija koje su vec u tabeli ili null
+    private record Permuted(int[] cols, int[] sqlTypes, long[] dims, int[] strLen, KeySet[] parents,
+                            long[] bases, double[] divisors, FeistelPermutation perm, LongHashSet existing) {
+    }
+
+    // grupa provjeravana hesom; free su stupci grupe koji se mogu ponovo generisati
+    private record Hashed(int[] cols, int[] free, LongHashSet seen, LongHashSet existing) {
+    }
+
+    private final List<Permuted> permuted;
+    private final List<Hashed> hashed;
+    private final boolean[] managed;
+    private final long capacity;
+    private final boolean checksExisting;
+    private final long[] rowHashes;
+    private final boolean[] rowHasNull;
+    private int misses;
+
+    private UniquePlan(List<Permuted> permuted, List<Hashed> hashed, boolean[] managed, long capacity) {
+        this.permuted = permuted;
+        this.hashed = hashed;
+        this.managed = managed;
+        this.capacity = capacity;
+        this.checksExisting = permuted.stream().anyMatch(p -> p.existing() != null);
+        this.rowHashes = new long[hashed.size()];
+        this.rowHasNull = new boolean[hashed.size()];
+    }
+
+    private static List<ColumnMeta> withoutAutoIncrement(TableMeta table) {
+        List<ColumnMeta> cols = new ArrayList<>();
+        for (ColumnMeta col : table.columns()) {
+            if (!col.autoIncrement()) {
+                cols.add(col);
+            }
+        }
+        return cols;
+    }
+
+    // grupe jedinstvenosti kao imena kolona (redom iz pk / unique ogranicenja), bez grupa sa auto-increment kolonom
+    static List<List<String>> groupNames(TableMeta table) {
+        List<ColumnMeta> cols = withoutAutoIncrement(table);
+        List<List<String>> out = new ArrayList<>();
+        for (int[] g : groups(table, cols)) {
+            List<String> names = new ArrayList<>();
+            for (int c : g) {
+                names.add(cols.get(c).name());
+            }
+            out.add(names);
+        }
+        return out;
+    }
+
+    // --append: kljuc grupe -> kolona koja nastavlja iznad postojeceg MAX. To je prva cjelobrojna kolona (nije fk)
+    // grupe iz permutacije; njena nova vrijednost je veca od svih postojecih, pa je i cijela kombinacija nova.
+    // Grupe bez takve kolone provjeravaju se hesevima postojecih redova
+    static Map<String, String> aboveMaxColumns(TableMeta table) {
+        List<ColumnMeta> cols = withoutAutoIncrement(table);
+        Map<String, String> fks = table.foreignKeyMap();
+        boolean[] isFk = new boolean[cols.size()];
+        for (int c = 0; c < cols.size(); c++) {
+            isFk[c] = fks.containsKey(cols.get(c).name().toLowerCase());
+        }
+        List<int[]> groups = groups(table, cols);
+        boolean[] viaPermutation = classify(groups, cols, isFk);
+        Map<String, String> out = new HashMap<>();
+        for (int g = 0; g < groups.size(); g++) {
+            int i = viaPermutation[g] ? aboveMaxIndex(groups.get(g), cols, isFk) : -1;
+            if (i >= 0) {
+                out.put(groupKey(groups.get(g), cols), cols.get(groups.get(g)[i]).name());
+            }
+        }
+        return out;
+    }
+
+    // indeks u grupi, -1 ako grupa nema cjelobrojnu kolonu koja nije fk
+    private static int aboveMaxIndex(int[] group, List<ColumnMeta> cols, boolean[] isFk) {
+        for (int i = 0; i < group.length; i++) {
+            if (!isFk[group[i]] && isInteger(cols.get(group[i]).sqlType())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isInteger(int sqlType) {
+        return sqlType == Types.INTEGER || sqlType == Types.SMALLINT || sqlType == Types.BIGINT;
+    }
+
+    static String groupKey(List<String> names) {
+        StringBuilder sb = new StringBuilder();
+        for (String n : names) {
+            sb.append(sb.isEmpty() ? "" : ",").append(n.toLowerCase());
+        }
+        return sb.toString();
+    }
+
+    // grupe jedinstvenosti kao indeksi u cols; grupa sa auto-increment stupcem se preskace (baza je garantuje)
+    private static List<int[]> groups(TableMeta table, List<ColumnMeta> cols) {
+        Map<String, Integer> index = new HashMap<>();
+        for (int c = 0; c < cols.size(); c++) {
+            index.put(cols.get(c).name().toLowerCase(), c);
+        }
+        List<List<String>> candidates = new ArrayList<>();
+        if (!table.primaryKey().isEmpty()) {
+            candidates.add(table.primaryKey());
+        }
+        candidates.addAll(table.uniqueConstraints());
+
+        List<int[]> groups = new ArrayList<>();
+        Set<Set<Integer>> seen = new HashSet<>();
+        outer:
+        for (List<String> names : candidates) {
+            int[] g = new int[names.size()];
+            Set<Integer> key = new HashSet<>();
+            for (int i = 0; i < g.length; i++) {
+                Integer c = index.get(names.get(i).toLowerCase());
+                if (c == null) {
+                    continue outer;
+                }
+                g[i] = c;
+                key.add(c);
+            }
+            if (g.length > 0 && seen.add(key)) {
+                groups.add(g);
+            }
+        }
+        return groups;
+    }
+
+    private static boolean enumerable(int sqlType) {
+        return switch (sqlType) {
+            case Types.INTEGER, Types.SMALLINT, Types.TINYINT, Types.BIGINT, Types.BOOLEAN, Types.BIT,
+                 Types.DECIMAL, Types.NUMERIC, Types.DOUBLE, Types.FLOAT, Types.REAL,
+                 Types.DATE, Types.TIMESTAMP, Types.VARCHAR, Types.CHAR, Types.LONGVARCHAR -> true;
+            default -> false;
+        };
+    }
+
+    // da li grupa ide kroz permutaciju; isFk[c] = stupac je fk (domen je skup kljuceva roditelja)
+    private static boolean[] classify(List<int[]> groups, List<ColumnMeta> cols, boolean[] isFk) {
+        boolean[] viaPermutation = new boolean[groups.size()];
+        boolean[] claimed = new boolean[cols.size()];
+        for (int g = 0; g < groups.size(); g++) {
+            boolean ok = true;
+            for (int c : groups.get(g)) {
+                if (claimed[c] || (!isFk[c] && !enumerable(cols.get(c).sqlType()))) {
+                    ok = false;
+                    break;
+                }
+            }
+            if (ok) {
+                for (int c : groups.get(g)) {
+                    claimed[c] = true;
+                }
+            }
+            viaPermutation[g] = ok;
+        }
+        return viaPermutation;
+    }
+
+    // tabela se moze dijeliti na shardove ako sve grupe idu kroz permutaciju (hes skup je po generatoru)
+    static boolean shardable(TableMeta table) {
+        List<ColumnMeta> cols = withoutAutoIncrement(table);
+        Map<String, String> fks = table.foreignKeyMap();
+        boolean[] isFk = new boolean[cols.size()];
+        for (int c = 0; c < cols.size(); c++) {
+            isFk[c] = fks.containsKey(cols.get(c).name().toLowerCase());
+        }
+        for (boolean p : classify(groups(table, cols), cols, isFk)) {
+            if (!p) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // totalRows: novih redova tabele; domeni kolona se racunaju i za redove koji vec postoje
+    static UniquePlan build(TableMeta table, List<ColumnMeta> cols, KeySet[] fkParents, long seed,
+                            long totalRows, ExistingRows existing) {
+        List<int[]> groups = groups(table, cols);
+        if (groups.isEmpty()) {
+            return NONE;
+        }
+        long domainRows = totalRows + existing.rows();
+        // druga permutacija za svako dodavanje: isti --seed inace ponavlja kombinacije prethodnog punjenja
+        long permSeed = existing.rows() == 0 ? seed : seed ^ Seeds.mix(existing.rows());
+        boolean[] isFk = new boolean[cols.size()];
+        for (int c = 0; c < cols.size(); c++) {
+            isFk[c] = fkParents[c] != null;
+        }
+        boolean[] viaPermutation = classify(groups, cols, isFk);
+
+        List<Permuted> permuted = new ArrayList<>();
+        List<Hashed> hashed = new ArrayList<>();
+        boolean[] managed = new boolean[cols.size()];
+        long capacity = Long.MAX_VALUE;
+        for (int g = 0; g < groups.size(); g++) {
+            int[] gc = groups.get(g);
+            if (!viaPermutation[g]) {
+                continue;
+            }
+            // nullable fk bez roditelja: stupac ostaje NULL, a NULL ne krsi jedinstvenost
+            boolean nullFk = false;
+            for (int c : gc) {
+                if (isFk[c] && fkParents[c].isEmpty() && cols.get(c).nullable()) {
+                    nullFk = true;
+                }
+            }
+            if (nullFk) {
+                continue;
+            }
+            int[] sqlTypes = new int[gc.length];
+            long[] dims = new long[gc.length];
+            int[] strLen = new int[gc.length];
+            KeySet[] parents = new KeySet[gc.length];
+            long[] bases = new long[gc.length];
+            double[] divisors = new double[gc.length];
+            String key = groupKey(gc, cols);
+            LongHashSet existingHashes = existing.hashes(key);
+            int aboveMax = aboveMaxIndex(gc, cols, isFk);
+            for (int i = 0; i < gc.length; i++) {
+                ColumnMeta col = cols.get(gc[i]);
+                sqlTypes[i] = col.sqlType();
+                divisors[i] = divisor(col);
+                if (isFk[gc[i]]) {
+                    parents[i] = fkParents[gc[i]];
+                    dims[i] = parents[i].size();
+                } else {
+                    strLen[i] = col.size() > 0 ? Math.min(MAX_STRING_LEN, col.size()) : MAX_STRING_LEN;
+                    if (i == aboveMax) {
+                        bases[i] = existing.valueBase(col.name().toLowerCase());
+                    }
+                    dims[i] = domain(col, strLen[i], domainRows, bases[i]);
+                }
+            }
+            long space = shrinkToFit(dims);
+            capacity = Math.min(capacity, space);
+            permuted.add(new Permuted(gc, sqlTypes, dims, strLen, parents, bases, divisors,
+                    new FeistelPermutation(space, permSeed ^ Seeds.mix(g + 1)), existingHashes));
+            for (int c : gc) {
+                managed[c] = true;
+            }
+        }
+        for (int g = 0; g < groups.size(); g++) {
+            if (viaPermutation[g]) {
+                continue;
+            }
+            int[] gc = groups.get(g);
+            int[] free = Arrays.stream(gc).filter(c -> !managed[c]).toArray();
+            hashed.add(new Hashed(gc, free, new LongHashSet((int) Math.min(totalRows, 1 << 20)),
+                    existing.hashes(groupKey(gc, cols))));
+        }
+        return new UniquePlan(permuted, hashed, managed, capacity);
+    }
+
+    private static String groupKey(int[] group, List<ColumnMeta> cols) {
+        List<String> names = new ArrayList<>();
+        for (int c : group) {
+            names.add(cols.get(c).name());
+        }
+        return groupKey(names);
+    }
+
+    // broj razlicitih vrijednosti stupca; prati opsege koje koristi DataGenerator.writeRandomValue.
+    // base: prva vrijednost cjelobrojne kolone, domen je ono sto do kraja tipa ostaje iznad nje
+    private static long domain(ColumnMeta col, int strLen, long totalRows, long base) {
+        long wide = Math.max(DEFAULT_DOMAIN, totalRows);
+        return switch (col.sqlType()) {
+            case Types.INTEGER -> Math.max(0, Math.min(wide, (long) Integer.MAX_VALUE - base));
+            case Types.SMALLINT -> Math.max(0, Short.MAX_VALUE + 1L - base);
+            // TINYINT se koristi kao boolean (0/1)
+            case Types.TINYINT, Types.BOOLEAN, Types.BIT -> 2;
+            case Types.BIGINT -> base > 0 ? Math.min(wide, Long.MAX_VALUE - base) : wide;
+            // vrijednost je indeks / 10^s, DECIMAL(p, s) ima 10^p razlicitih vrijednosti
+            case Types.DECIMAL, Types.NUMERIC -> col.size() > 0 && col.size() < 18
+                    ? Math.min(wide, pow10(col.size())) : wide;
+            case Types.DOUBLE, Types.FLOAT, Types.REAL -> wide;
+            case Types.DATE -> 36_500;
+            case Types.TIMESTAMP -> Math.max(1_000_000_000L, totalRows);
+            default -> {
+                long d = 1;
+                for (int i = 0; i < strLen && d < MAX_SPACE / LETTERS.length; i++) {
+                    d *= LETTERS.length;
+                }
+                yield d;
+            }
+        };
+    }
+
+    // DECIMAL(p, s) dobija tacno s decimala; DOUBLE/REAL ostaju na dvije kao kod slucajnih vrijednosti
+    private static double divisor(ColumnMeta col) {
+        return switch (col.sqlType()) {
+            case Types.DECIMAL, Types.NUMERIC -> pow10(Math.min(col.scale(), 18));
+            default -> 100.0;
+        };
+    }
+
+    private static long pow10(int exp) {
+        long v = 1;
+        for (int i = 0; i < exp; i++) {
+            v *= 10;
+        }
+        return v;
+    }
+
+    // proizvod domena; dok prelazi MAX_SPACE najveci domen se polovi (kombinacije ostaju razlicite)
+    private static long shrinkToFit(long[] dims) {
+        while (true) {
+            long space = 1;
+            boolean overflow = false;
+            for (long d : dims) {
+                if (d == 0) {
+                    return 0;
+                }
+                if (space > MAX_SPACE / d) {
+                    overflow = true;
+                    break;
+                }
+                space *= d;
+            }
+            if (!overflow) {
+                return space;
+            }
+            int largest = 0;
+            for (int i = 1; i < dims.length; i++) {
+                if (dims[i] > dims[largest]) {
+                    largest = i;
+                }
+            }
+            dims[largest] = Math.max(1, dims[largest] / 2);
+        }
+    }
+
+    // stupci koje puni plan; DataGenerator ih preskace
+    boolean managed(int col) {
+        return col < managed.length && managed[col];
+    }
+
+    boolean isEmpty() {
+        return permuted.isEmpty() && hashed.isEmpty();
+    }
+
+    // redova koje dio tabele [firstRow, firstRow + rows) moze dati bez ponavljanja
+    int rowsFor(long firstRow, int rows) {
+        if (capacity == Long.MAX_VALUE) {
+            return rows;
+        }
+        return (int) Math.max(0, Math.min(rows, capacity - firstRow));
+    }
+
+    // ima li jos indeksa u permutacijama (hesirane grupe mogu trositi indekse na odbacene redove)
+    boolean hasIndex(long globalRow) {
+        return globalRow < capacity && misses < MAX_MISSES;
+    }
+
+    void writePermuted(ColumnBatch batch, int row, long globalRow, byte[] strBuf, long baseTimeMillis) {
+        for (Permuted p : permuted) {
+            long x = p.perm().apply(globalRow);
+            for (int i = 0; i < p.cols().length; i++) {
+                long d = p.dims()[i];
+                long idx = x % d;
+                x /= d;
+                writeIndex(batch, p.cols()[i], row, p.sqlTypes()[i], p.strLen()[i], p.parents()[i],
+                        p.bases()[i] + idx, p.divisors()[i], strBuf, baseTimeMillis);
+            }
+        }
+    }
+
+    private static void writeIndex(ColumnBatch batch, int col, int row, int sqlType, int strLen, KeySet parents,
+                                   long idx, double divisor, byte[] strBuf, long baseTimeMillis) {
+        if (parents != null) {
+            parents.writeTo(batch, col, row, (int) idx);
+            return;
+        }
+        switch (sqlType) {
+            case Types.INTEGER, Types.SMALLINT, Types.TINYINT -> batch.setInt(col, row, (int) idx);
+            case Types.BIGINT -> batch.setLong(col, row, idx);
+            case Types.BOOLEAN, Types.BIT -> batch.setBoolean(col, row, idx != 0);
+            case Types.DECIMAL, Types.NUMERIC, Types.DOUBLE, Types.FLOAT, Types.REAL ->
+                    batch.setDouble(col, row, idx / divisor);
+            case Types.DATE -> batch.setLong(col, row, baseTimeMillis - idx * DAY_MILLIS);
+            case Types.TIMESTAMP -> batch.setLong(col, row, baseTimeMillis - idx);
+            default -> {
+                // indeks u osnovi 52, fiksne duzine
+                for (int i = strLen - 1; i >= 0; i--) {
+                    strBuf[i] = LETTERS[(int) (idx % LETTERS.length)];
+                    idx /= LETTERS.length;
+                }
+                batch.setBytes(col, row, strBuf, 0, strLen);
+            }
+        }
+    }
+
+    // red treba provjeriti poslije generisanja (hesirane grupe ili postojeci redovi)
+    boolean checksRows() {
+        return !hashed.isEmpty() || checksExisting;
+    }
+
+    // stupci (koji se mogu ponovo generisati) prve grupe u kojoj je red duplikat, ili null ako je red jedinstven.
+    // Prazan niz: duplikat bez slobodnih stupaca, red se mora odbaciti.
+    // Hesevi se pamte tek kad je red jedinstven u svim grupama, pa odbaceni pokusaj ne ostavlja trag
+    int[] duplicateGroupFree(ColumnBatch batch, int row) {
+        if (checksExisting) {
+            // kombinacija iz permutacije koja vec postoji u tabeli: red se odbacuje, sljedeci indeks daje drugu
+            for (Permuted p : permuted) {
+                if (p.existing() != null && !hasNull(batch, p.cols(), row)
+                        && p.existing().contains(rowHash(batch, p.cols(), row))) {
+                    return NO_FREE;
+                }
+            }
+        }
+        for (int g = 0; g < hashed.size(); g++) {
+            Hashed h = hashed.get(g);
+            // NULL ne krsi unique
+            boolean hasNull = hasNull(batch, h.cols(), row);
+            long hash = hasNull ? 0 : rowHash(batch, h.cols(), row);
+            rowHasNull[g] = hasNull;
+            rowHashes[g] = hash;
+            if (!hasNull && (h.seen().contains(hash) || h.existing() != null && h.existing().contains(hash))) {
+                return h.free();
+            }
+        }
+        for (int g = 0; g < hashed.size(); g++) {
+            if (!rowHasNull[g]) {
+                hashed.get(g).seen().add(rowHashes[g]);
+            }
+        }
+        return null;
+    }
+
+    void accepted() {
+        misses = 0;
+    }
+
+    void rejected() {
+        misses++;
+    }
+
+    static boolean hasNull(ColumnBatch batch, int[] cols, int row) {
+        for (int c : cols) {
+            if (batch.isNull(c, row)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // hes kombinacije vrijednosti; ExistingRows na isti nacin hesira redove procitane iz baze
+    static long rowHash(ColumnBatch batch, int[] cols, int row) {
+        long hash = 0x9E3779B97F4A7C15L;
+        for (int c : cols) {
+            hash = Seeds.mix(hash ^ valueHash(batch, c, row));
+        }
+        return hash;
+    }
+
+    private static long valueHash(ColumnBatch batch, int col, int row) {
+        return switch (batch.kind(col)) {
+            case INT, BOOLEAN -> batch.getInt(col, row);
+            // baza cuva dan u lokalnoj zoni (setDate), pa se isti dan procitan nazad poklapa sa generisanim
+            case DATE -> {
+                long millis = batch.getLong(col, row);
+                yield Math.floorDiv(millis + ZONE.getOffset(millis), DAY_MILLIS);
+            }
+            case LONG, TIMESTAMP -> batch.getLong(col, row);
+            case DOUBLE -> Double.doubleToLongBits(batch.getDouble(col, row));
+            case STRING -> {
+                byte[] a = batch.arena(col);
+                int off = batch.stringOffset(col, row);
+                int len = batch.stringLength(col, row);
+                long h = len;
+                for (int i = 0; i < len; i++) {
+                    h = h * 31 + a[off + i];
+                }
+                yield Seeds.mix(h);
+            }
+            default -> Objects.hashCode(batch.getObject(col, row));
+        };
+    }
+}
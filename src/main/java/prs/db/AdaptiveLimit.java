@@ -0,0 +1,200 @@
+package prs.db;
+
+import prs.metrics.Metrics;
+
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// granica istovremenih konekcija koja se mijenja za vrijeme punjenja (--adaptive), AIMD:
+//   baza odbija konekcije (too many connections, timeout poola) -> granica se prepolovi
+//   latencija upisa (ns po KB) iznad TOLERANCE * dugog prosjeka ili dugo cekanje na pool -> granica * 0.9
+//   inace, ako niti cekaju na konekciju, granica + 1
+// Svi inserteri, shardovi i tabele dobijaju konekciju preko PermitDataSource, pa granica odredjuje koliko
+// ih radi istovremeno. Resizer prati granicu velicinom Hikari poola
+public class AdaptiveLimit implements PermitDataSource.Permits, AutoCloseable {
+
+    // velicina poola za granicu n; overloaded: baza je odbila konekcije, prazne treba zatvoriti odmah
+    public interface Resizer {
+        void resize(int limit, boolean overloaded);
+    }
+
+    private static final double TOLERANCE = 1.5;
+    private static final double DECREASE = 0.9;
+    // dugi prosjek latencije se sporo pomjera, pa prozor sa naglim rastom odstupa od njega
+    private static final double LONG_SMOOTHING = 0.05;
+    private static final long POOL_WAIT_LIMIT_NANOS = 100_000_000L;
+    // prozor sa manje chunkova je sum
+    private static final int MIN_CHUNKS = 2;
+    private static final int MAX_RETRIES = 5;
+    private static final long RETRY_PAUSE_MILLIS = 1_000;
+
+    private final int min;
+    private final int max;
+    private final Metrics metrics;
+    private final Resizer resizer;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition freed = lock.newCondition();
+    private final AtomicInteger overloads = new AtomicInteger();
+    private final ScheduledExecutorService timer;
+    private int limit;
+    private int inUse;
+    private int waiting;
+    private int lowest;
+    private int highest;
+    // samo nit tajmera
+    private Metrics.Sample last;
+    private double longLatency;
+
+    public AdaptiveLimit(int initial, int min, int max, Metrics metrics, Resizer resizer, int intervalMillis) {
+        this.min = Math.max(1, min);
+        this.max = Math.max(this.min, max);
+        this.limit = Math.max(this.min, Math.min(this.max, initial));
+        this.lowest = limit;
+        this.highest = limit;
+        this.metrics = metrics;
+        this.resizer = resizer;
+        this.last = metrics.sample();
+        resizer.resize(limit, false);
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "adaptive-limit");
+            t.setDaemon(true);
+            return t;
+        });
+        timer.scheduleAtFixedRate(this::adjustQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void acquire() throws InterruptedException {
+        lock.lock();
+        try {
+            waiting++;
+            try {
+                while (inUse >= limit) {
+                    freed.await();
+                }
+            } finally {
+                waiting--;
+            }
+            inUse++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void release() {
+        lock.lock();
+        try {
+            inUse--;
+            freed.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // granica se smanjuje u sljedecem prozoru; nit pauzira i pokusava ponovo umjesto da obori tabelu
+    @Override
+    public boolean retry(SQLException e, int attempt) {
+        if (!overload(e) || attempt >= MAX_RETRIES) {
+            return false;
+        }
+        overloads.incrementAndGet();
+        try {
+            Thread.sleep(RETRY_PAUSE_MILLIS * attempt);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        return true;
+    }
+
+    // PostgreSQL 53300 too_many_connections, MySQL 1040 (08004), Hikari timeout cekanja na konekciju
+    static boolean overload(SQLException e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof SQLTransientConnectionException) {
+                return true;
+            }
+            if (t instanceof SQLException s && ("53300".equals(s.getSQLState()) || s.getErrorCode() == 1040)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void adjustQuietly() {
+        try {
+            adjust();
+        } catch (RuntimeException e) {
+            System.err.println("Adaptivna granica: " + e.getMessage());
+        }
+    }
+
+    private void adjust() {
+        Metrics.Sample now = metrics.sample();
+        Metrics.Sample d = now.minus(last);
+        last = now;
+        int events = overloads.getAndSet(0) + (int) d.poolTimeouts();
+
+        int old;
+        int next;
+        String reason = null;
+        lock.lock();
+        try {
+            old = limit;
+            next = old;
+            if (events > 0) {
+                next = old / 2;
+                reason = "baza odbija konekcije (" + events + ")";
+            } else if (d.chunks() >= MIN_CHUNKS && d.bytes() > 0) {
+                double latency = d.insertNanos() * 1024.0 / d.bytes();
+                long poolWait = d.poolAcquires() == 0 ? 0 : d.poolWaitNanos() / d.poolAcquires();
+                if (longLatency == 0) {
+                    longLatency = latency;
+                }
+                if (latency > TOLERANCE * longLatency) {
+                    next = (int) Math.floor(old * DECREASE);
+                    reason = String.format("latencija %.0f us/KB, prosjek %.0f us/KB", latency / 1000, longLatency / 1000);
+                } else if (poolWait > POOL_WAIT_LIMIT_NANOS) {
+                    next = (int) Math.floor(old * DECREASE);
+                    reason = "cekanje na pool " + poolWait / 1_000_000 + " ms";
+                } else if (waiting > 0 && inUse >= old) {
+                    next = old + 1;
+                }
+                longLatency += LONG_SMOOTHING * (latency - longLatency);
+            }
+            next = Math.max(min, Math.min(max, next));
+            limit = next;
+            lowest = Math.min(lowest, next);
+            highest = Math.max(highest, next);
+            if (next > old) {
+                freed.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (next != old) {
+            resizer.resize(next, events > 0);
+            if (reason != null) {
+                System.out.println("Adaptivno: konekcija " + old + " -> " + next + ", " + reason);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        timer.shutdownNow();
+        lock.lock();
+        try {
+            System.out.println("Adaptivno: granica konekcija najmanje " + lowest + ", najvise " + highest
+                    + ", na kraju " + limit);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package prs.db;
+
+import prs.schema.SchemaSnapshot;
+import prs.schema.TableMeta;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+// --bulk-load: punjenje bez FK provjera i sekundarnih indeksa, koji se prave tek kad su svi redovi upisani.
+//   FK (i UNIQUE na MySQL-u) provjere se iskljucuju na nivou sesije konekcija za upis (SessionDataSource),
+//   pa nestaju sa konekcijom i kad punjenje padne.
+//   Ne-unique indeksi koji ne pripadaju ogranicenju se brisu, uz --unlogged tabele na PostgreSQL-u postaju UNLOGGED.
+// Naredbe za vracanje se upisu u restoreFile prije prve izmjene; restore() ih izvrsava paralelno i brise fajl.
+// Ako proces bude ubijen prije restore(), sljedece pokretanje izvrsi fajl (replay) prije punjenja.
+public class BulkLoad {
+
+    // indeksi i ANALYZE paralelno; svaki zadatak drzi jednu konekciju
+    private static final int RESTORE_THREADS = 4;
+    // ER_DUP_KEYNAME: indeks vec postoji (ponovljen restore ili DROP koji nije uspio)
+    private static final int ER_DUP_KEYNAME = 1061;
+
+    private final DataSource ds;
+    private final DbType dbType;
+    private final Path restoreFile;
+    // SET LOGGED po nivou tabele: roditelj mora biti LOGGED prije djeteta
+    private final TreeMap<Integer, List<String>> logged = new TreeMap<>();
+    private final List<String> indexes = new ArrayList<>();
+    private final List<String> analyze = new ArrayList<>();
+    private String sessionInit;
+    private String sessionReset;
+
+    private BulkLoad(DataSource ds, DbType dbType, Path restoreFile) {
+        this.ds = ds;
+        this.dbType = dbType;
+        this.restoreFile = restoreFile;
+    }
+
+    // levels: nivo tabele (lower-case) iz redoslijeda punjenja, 0 = bez roditelja;
+    // keepLogged: tabele koje ostaju LOGGED i uz --unlogged
+    public static BulkLoad prepare(DataSource ds, DbType dbType, SchemaSnapshot schema,
+                                   Map<String, Integer> levels, boolean unlogged, Set<String> keepLogged,
+                                   Path restoreFile)
+            throws SQLException, IOException {
+        BulkLoad bulk = new BulkLoad(ds, dbType, restoreFile);
+        char q = dbType == DbType.MYSQL ? '`' : '"';
+        List<String> drops = new ArrayList<>();
+        List<String> unloggedStmts = new ArrayList<>();
+
+        try (Connection conn = ds.getConnection()) {
+            bulk.probeSession(conn);
+            if (dbType == DbType.MYSQL) {
+                bulk.mySqlIndexes(conn, schema, drops);
+            } else {
+                bulk.postgresIndexes(conn, schema, drops);
+            }
+        }
+
+        // djeca prije roditelja za UNLOGGED (trajna tabela ne smije referencirati UNLOGGED)
+        List<TableMeta> byLevel = new ArrayList<>(schema.tables());
+        byLevel.sort(Comparator.comparingInt(t -> levels.getOrDefault(t.nameLC(), 0)));
+        for (TableMeta t : byLevel) {
+            String table = q + t.name() + q;
+            if (unlogged && dbType == DbType.POSTGRESQL && !keepLogged.contains(t.nameLC())) {
+                unloggedStmts.add(0, "ALTER TABLE " + table + " SET UNLOGGED");
+                bulk.logged.computeIfAbsent(levels.getOrDefault(t.nameLC(), 0), l -> new ArrayList<>())
+                        .add("ALTER TABLE " + table + " SET LOGGED");
+            }
+            bulk.analyze.add(dbType == DbType.MYSQL ? "ANALYZE TABLE " + table : "ANALYZE " + table);
+        }
+
+        bulk.writeRestoreFile();
+
+        long start = System.currentTimeMillis();
+        try (Connection conn = ds.getConnection(); Statement st = conn.createStatement()) {
+            for (String sql : unloggedStmts) {
+                st.execute(sql);
+            }
+            for (String sql : drops) {
+                try {
+                    st.execute(sql);
+                } catch (SQLException e) {
+                    // MySQL ne da obrisati indeks koji koristi FK; ostaje, restore ga preskace
+                    System.out.println("bulk-load: " + sql + " nije uspjelo (" + e.getMessage() + "), indeks ostaje");
+                }
+            }
+        } catch (SQLException e) {
+            // dio izmjena je vec izvrsen
+            try {
+                bulk.restore();
+            } catch (SQLException | IOException r) {
+                e.addSuppressed(r);
+            }
+            throw e;
+        }
+        System.out.println("bulk-load: " + drops.size() + " sekundarnih indeksa obrisano"
+                + (unloggedStmts.isEmpty() ? "" : ", " + unloggedStmts.size() + " tabela UNLOGGED")
+                + (bulk.sessionInit == null ? "" : ", FK provjere iskljucene") + " za "
+                + (System.currentTimeMillis() - start) + " ms; vracanje u " + restoreFile);
+        return bulk;
+    }
+
+    // konekcije za upis; bez prava na podesavanje sesije upis ide sa FK provjerama
+    public DataSource loaderDataSource(DataSource loadDs) {
+        return sessionInit == null ? loadDs : new SessionDataSource(loadDs, sessionInit, sessionReset);
+    }
+
+    private void probeSession(Connection conn) {
+        String init;
+        String reset;
+        if (dbType == DbType.MYSQL) {
+            init = "SET FOREIGN_KEY_CHECKS = 0, UNIQUE_CHECKS = 0";
+            reset = "SET FOREIGN_KEY_CHECKS = 1, UNIQUE_CHECKS = 1";
+        } else {
+            // replica preskace FK (i korisnicke) trigere; trazi superusera ili GRANT SET (PostgreSQL 15+)
+            init = "SET session_replication_role = replica";
+            reset = "SET session_replication_role = DEFAULT";
+        }
+        try (Statement st = conn.createStatement()) {
+            st.execute(init);
+            st.execute(reset);
+            sessionInit = init;
+            sessionReset = reset;
+        } catch (SQLException e) {
+            System.out.println("bulk-load: " + init + " nije dozvoljeno (" + e.getMessage()
+                    + "), FK provjere ostaju ukljucene");
+        }
+    }
+
+    private void postgresIndexes(Connection conn, SchemaSnapshot schema, List<String> drops) throws SQLException {
+        String sql = "SELECT c.relname AS table_name, ic.relname AS index_name, pg_get_indexdef(i.indexrelid) AS def "
+                + "FROM pg_index i "
+                + "JOIN pg_class c ON c.oid = i.indrelid "
+                + "JOIN pg_class ic ON ic.oid = i.indexrelid "
+                + "JOIN pg_namespace n ON n.oid = c.relnamespace "
+                + "WHERE n.nspname = 'public' AND NOT i.indisunique AND NOT i.indisprimary "
+                + "AND NOT EXISTS (SELECT 1 FROM pg_constraint con WHERE con.conindid = i.indexrelid) "
+                + "ORDER BY c.relname, ic.relname";
+        try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery(sql)) {
+            while (rs.next()) {
+                if (schema.table(rs.getString("table_name").toLowerCase()) == null) {
+                    continue;
+                }
+                drops.add("DROP INDEX \"" + rs.getString("index_name") + "\"");
+                // restore se moze ponoviti (replay nakon pada tokom restore)
+                indexes.add(rs.getString("def").replaceFirst("^CREATE INDEX ", "CREATE INDEX IF NOT EXISTS "));
+            }
+        }
+    }
+
+    private void mySqlIndexes(Connection conn, SchemaSnapshot schema, List<String> drops) throws SQLException {
+        String sql = "SELECT table_name, index_name, column_name, sub_part, collation, index_type "
+                + "FROM information_schema.statistics "
+                + "WHERE table_schema = DATABASE() AND non_unique = 1 "
+                + "ORDER BY table_name, index_name, seq_in_index";
+        // tabela.indeks -> definicija kolona; null za funkcionalni indeks (column_name je NULL), on ostaje
+        Map<String, StringBuilder> defs = new LinkedHashMap<>();
+        Map<String, String[]> names = new HashMap<>();
+        try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery(sql)) {
+            while (rs.next()) {
+                String table = rs.getString("table_name");
+                String index = rs.getString("index_name");
+                if (schema.table(table.toLowerCase()) == null) {
+                    continue;
+                }
+                String key = table + "." + index;
+                if (!defs.containsKey(key)) {
+                    String type = rs.getString("index_type");
+                    String kind = "FULLTEXT".equalsIgnoreCase(type) ? "FULLTEXT INDEX"
+                            : "SPATIAL".equalsIgnoreCase(type) ? "SPATIAL INDEX" : "INDEX";
+                    defs.put(key, new StringBuilder());
+                    names.put(key, new String[]{table, index, kind});
+                }
+                StringBuilder def = defs.get(key);
+                String column = rs.getString("column_name");
+                if (def == null) {
+                    continue;
+                }
+                if (column == null) {
+                    defs.put(key, null);
+                    continue;
+                }
+                if (def.length() > 0) {
+                    def.append(", ");
+                }
+                def.append('`').append(column).append('`');
+                long subPart = rs.getLong("sub_part");
+                if (!rs.wasNull()) {
+                    def.append('(').append(subPart).append(')');
+                }
+                if ("D".equals(rs.getString("collation"))) {
+                    def.append(" DESC");
+                }
+            }
+        }
+        for (Map.Entry<String, StringBuilder> e : defs.entrySet()) {
+            if (e.getValue() == null) {
+                continue;
+            }
+            String[] n = names.get(e.getKey());
+            drops.add("ALTER TABLE `" + n[0] + "` DROP INDEX `" + n[1] + "`");
+            indexes.add("ALTER TABLE `" + n[0] + "` ADD " + n[2] + " `" + n[1] + "` (" + e.getValue() + ")");
+        }
+    }
+
+    // jedna naredba po liniji, redom kojim ih izvrsava replay
+    private void writeRestoreFile() throws IOException {
+        StringBuilder sb = new StringBuilder("-- vracanje nakon --bulk-load, izvrsava se automatski pri sljedecem pokretanju\n");
+        for (List<String> level : logged.values()) {
+            level.forEach(s -> sb.append(s).append(";\n"));
+        }
+        indexes.forEach(s -> sb.append(s).append(";\n"));
+        analyze.forEach(s -> sb.append(s).append(";\n"));
+        try (FileChannel ch = FileChannel.open(restoreFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buf = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+            while (buf.hasRemaining()) {
+                ch.write(buf);
+            }
+            ch.force(true);
+        }
+    }
+
+    // LOGGED po nivoima, zatim svi indeksi pa ANALYZE, paralelno unutar svakog koraka.
+    // Izvrsava sve sto moze i tek onda baci prvu gresku; fajl se brise samo ako je sve uspjelo
+    public void restore() throws SQLException, IOException {
+        long start = System.currentTimeMillis();
+        ExecutorService pool = Executors.newFixedThreadPool(RESTORE_THREADS);
+        List<SQLException> errors = new ArrayList<>();
+        try {
+            for (List<String> level : logged.values()) {
+                runAll(pool, level, errors);
+            }
+            runAll(pool, indexes, errors);
+            runAll(pool, analyze, errors);
+        } finally {
+            pool.shutdown();
+        }
+        if (!errors.isEmpty()) {
+            SQLException first = errors.get(0);
+            errors.subList(1, errors.size()).forEach(first::addSuppressed);
+            throw first;
+        }
+        Files.deleteIfExists(restoreFile);
+        System.out.println("bulk-load: " + indexes.size() + " indeksa napravljeno, ANALYZE za "
+                + analyze.size() + " tabela za " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    private void runAll(ExecutorService pool, List<String> statements, List<SQLException> errors) {
+        List<Future<?>> futures = new ArrayList<>();
+        for (String sql : statements) {
+            futures.add(pool.submit(() -> {
+                try (Connection conn = ds.getConnection()) {
+                    execute(conn, sql);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> f : futures) {
+            try {
+                f.get();
+            } catch (ExecutionException e) {
+                errors.add(e.getCause() instanceof SQLException se ? se : new SQLException(e.getCause()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                errors.add(new SQLException("Prekinuto vracanje nakon --bulk-load", e));
+                return;
+            }
+        }
+    }
+
+    private void execute(Connection conn, String sql) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            st.execute(sql);
+        } catch (SQLException e) {
+            if (dbType == DbType.MYSQL && e.getErrorCode() == ER_DUP_KEYNAME) {
+                return;
+            }
+            throw new SQLException(sql + ": " + e.getMessage(), e.getSQLState(), e.getErrorCode(), e);
+        }
+    }
+
+    // fajl koji je ostao od punjenja koje nije stiglo do restore(); izvrsava se redom
+    public static void replay(DataSource ds, DbType dbType, Path restoreFile) throws SQLException, IOException {
+        if (!Files.exists(restoreFile)) {
+            return;
+        }
+        System.out.println("bulk-load: prethodno punjenje nije vratilo indekse/tabele, izvrsava se " + restoreFile);
+        BulkLoad bulk = new BulkLoad(ds, dbType, restoreFile);
+        try (Connection conn = ds.getConnection()) {
+            for (String line : Files.readAllLines(restoreFile, StandardCharsets.UTF_8)) {
+                String sql = line.strip();
+                if (sql.isEmpty() || sql.startsWith("--")) {
+                    continue;
+                }
+                bulk.execute(conn, sql.endsWith(";") ? sql.substring(0, sql.length() - 1) : sql);
+            }
+        }
+        Files.delete(restoreFile);
+    }
+}
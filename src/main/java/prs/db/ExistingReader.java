@@ -0,0 +1,282 @@
+package prs.db;
+
+import prs.data.ColumnBatch;
+import prs.data.ExistingRows;
+import prs.keys.KeySet;
+import prs.keys.KeySetBuilder;
+import prs.keys.LongRangeKeys;
+import prs.schema.ColumnMeta;
+import prs.schema.TableMeta;
+
+import java.sql.*;
+import java.util.*;
+
+// postojeci redovi tabele za --append, u dva koraka:
+//   summary: COUNT, MIN/MAX kljuca i MAX kolona koje nastavljaju iznad postojecih, jedan upit po tabeli
+//   read: kljucevi za djecu i hesevi jedinstvenih grupa u jednom prolazu kroz tabelu (server-side kursor,
+//         setFetchSize), osim kad je kljuc gust cjelobrojni niz: tada su kljucevi samo MIN..MAX
+public class ExistingReader {
+
+    // postojeci redovi jedne tabele; keyMin/keyMax su null kad kljuc nije cijeli broj ili je tabela prazna
+    public record Summary(long rows, Long keyMin, Long keyMax, Map<String, Long> max) {
+
+        // kljucevi bez praznina (identity bez brisanja): skup je MIN..MAX, ne cita se tabela
+        public boolean denseKey() {
+            return keyMin != null && keyMax != null && keyMax - keyMin + 1 == rows;
+        }
+    }
+
+    public record Existing(ExistingRows unique, KeySet keys) {
+    }
+
+    // redova po fetch-u kursora i po batchu koji se hesira
+    private static final int FETCH_SIZE = 10_000;
+    // KeySet se indeksira int-om, a LongArrayKeys drzi ~537M kljuceva
+    private static final int MAX_KEYS = 500_000_000;
+
+    private final DbType dbType;
+    private final char q;
+
+    public ExistingReader(DbType dbType) {
+        this.dbType = dbType;
+        this.q = dbType == DbType.MYSQL ? '`' : '"';
+    }
+
+    // kolona ciji se kljucevi pamte za djecu, kao kod upisa: auto-increment (generisani kljucevi),
+    // inace kolona jednostavnog pk, inace prva kolona batcha (prva pk kolona kad je pk sastavljen od fk)
+    public static ColumnMeta keyColumn(TableMeta table) {
+        for (ColumnMeta c : table.columns()) {
+            if (c.autoIncrement()) {
+                return c;
+            }
+        }
+        if (!table.primaryKey().isEmpty()) {
+            ColumnMeta pk = table.column(table.primaryKey().get(0));
+            if (pk != null) {
+                return pk;
+            }
+        }
+        return table.columns().get(0);
+    }
+
+    // hesevi koje read drzi u memoriji (8-16 bajtova svaki): jedan po postojecem redu za svaku grupu bez
+    // cjelobrojne kolone koja nastavlja iznad MAX
+    public static long hashedValues(TableMeta table, Summary summary) {
+        return summary.rows() * ExistingRows.hashedGroups(table).size();
+    }
+
+    public Summary summary(Connection conn, TableMeta table) throws SQLException {
+        ColumnMeta key = keyColumn(table);
+        boolean intKey = isInteger(key);
+        List<String> maxColumns = ExistingRows.maxColumns(table);
+        StringBuilder sql = new StringBuilder("SELECT COUNT(*)");
+        if (intKey) {
+            sql.append(", MIN(").append(quoted(key.name())).append("), MAX(").append(quoted(key.name())).append(')');
+        }
+        for (String c : maxColumns) {
+            sql.append(", MAX(").append(quoted(c)).append(')');
+        }
+        sql.append(" FROM ").append(quoted(table.name()));
+        try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery(sql.toString())) {
+            rs.next();
+            long rows = rs.getLong(1);
+            int i = 2;
+            Long keyMin = null;
+            Long keyMax = null;
+            if (intKey) {
+                keyMin = longOrNull(rs, i++);
+                keyMax = longOrNull(rs, i++);
+            }
+            Map<String, Long> max = new HashMap<>();
+            for (String c : maxColumns) {
+                Long v = longOrNull(rs, i++);
+                if (v != null) {
+                    max.put(c, v);
+                }
+            }
+            return new Summary(rows, keyMin, keyMax, max);
+        }
+    }
+
+    // keys: tabela ima djecu pa trebaju postojeci kljucevi
+    public Existing read(Connection conn, TableMeta table, Summary summary, boolean keys) throws SQLException {
+        ExistingRows.Builder unique = new ExistingRows.Builder(summary.rows());
+        summary.max().forEach(unique::max);
+        if (summary.rows() == 0) {
+            return new Existing(unique.build(), KeySet.EMPTY);
+        }
+
+        KeySet rangeKeys = null;
+        boolean scanKeys = false;
+        if (keys && summary.denseKey()) {
+            rangeKeys = new LongRangeKeys(summary.keyMin(), (int) Math.min(summary.rows(), MAX_KEYS), 1);
+        } else {
+            scanKeys = keys;
+        }
+
+        // kolone prolaza: kljuc (ako se cita) pa kolone grupa, svaka jednom
+        List<ColumnMeta> cols = new ArrayList<>();
+        Map<String, Integer> index = new HashMap<>();
+        if (scanKeys) {
+            add(cols, index, keyColumn(table));
+        }
+        List<List<String>> groups = ExistingRows.hashedGroups(table);
+        List<int[]> groupCols = new ArrayList<>();
+        for (List<String> g : groups) {
+            int[] gc = new int[g.size()];
+            for (int i = 0; i < gc.length; i++) {
+                gc[i] = add(cols, index, table.column(g.get(i)));
+            }
+            groupCols.add(gc);
+        }
+        if (cols.isEmpty()) {
+            return new Existing(unique.build(), rangeKeys == null ? KeySet.EMPTY : rangeKeys);
+        }
+
+        String[] names = new String[cols.size()];
+        int[] types = new int[cols.size()];
+        StringBuilder sql = new StringBuilder("SELECT ");
+        for (int c = 0; c < names.length; c++) {
+            names[c] = cols.get(c).name();
+            types[c] = cols.get(c).sqlType();
+            sql.append(c == 0 ? "" : ", ").append(quoted(names[c]));
+        }
+        sql.append(" FROM ").append(quoted(table.name()));
+
+        KeySetBuilder keyBuilder = new KeySetBuilder();
+        ColumnBatch batch = new ColumnBatch(names, types, FETCH_SIZE);
+        boolean autoCommit = conn.getAutoCommit();
+        // PostgreSQL drzi kursor samo u transakciji, MySQL salje red po red uz fetch size Integer.MIN_VALUE
+        if (dbType == DbType.POSTGRESQL) {
+            conn.setAutoCommit(false);
+        }
+        try (Statement st = conn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            st.setFetchSize(dbType == DbType.MYSQL ? Integer.MIN_VALUE : FETCH_SIZE);
+            try (ResultSet rs = st.executeQuery(sql.toString())) {
+                while (rs.next()) {
+                    int row = batch.addRow();
+                    for (int c = 0; c < names.length; c++) {
+                        readValue(rs, c + 1, batch, c, row);
+                    }
+                    if (batch.isFull()) {
+                        consume(batch, scanKeys, keyBuilder, groups, groupCols, unique);
+                    }
+                }
+            }
+            consume(batch, scanKeys, keyBuilder, groups, groupCols, unique);
+        } finally {
+            if (dbType == DbType.POSTGRESQL) {
+                conn.rollback();
+                conn.setAutoCommit(autoCommit);
+            }
+        }
+        if (keyBuilder.size() >= MAX_KEYS) {
+            System.out.println("Tabela " + table.name() + ": djeca biraju medju prvih " + MAX_KEYS
+                    + " postojecih kljuceva");
+        }
+        KeySet existingKeys = rangeKeys != null ? rangeKeys : keyBuilder.build();
+        return new Existing(unique.build(), existingKeys);
+    }
+
+    private static void consume(ColumnBatch batch, boolean scanKeys, KeySetBuilder keys, List<List<String>> groups,
+                                List<int[]> groupCols, ExistingRows.Builder unique) {
+        if (scanKeys && keys.size() < MAX_KEYS) {
+            keys.addColumn(batch, 0);
+        }
+        for (int g = 0; g < groups.size(); g++) {
+            unique.addRows(groups.get(g), batch, groupCols.get(g));
+        }
+        batch.reset();
+    }
+
+    private static int add(List<ColumnMeta> cols, Map<String, Integer> index, ColumnMeta col) {
+        return index.computeIfAbsent(col.name().toLowerCase(), k -> {
+            cols.add(col);
+            return cols.size() - 1;
+        });
+    }
+
+    // isti oblik kao kod generisanja: datumi kao epoch ms, tekst kao UTF-8
+    private static void readValue(ResultSet rs, int i, ColumnBatch batch, int col, int row) throws SQLException {
+        switch (batch.kind(col)) {
+            case INT -> {
+                int v = rs.getInt(i);
+                if (rs.wasNull()) {
+                    batch.setNull(col, row);
+                } else {
+                    batch.setInt(col, row, v);
+                }
+            }
+            case LONG -> {
+                long v = rs.getLong(i);
+                if (rs.wasNull()) {
+                    batch.setNull(col, row);
+                } else {
+                    batch.setLong(col, row, v);
+                }
+            }
+            case DOUBLE -> {
+                double v = rs.getDouble(i);
+                if (rs.wasNull()) {
+                    batch.setNull(col, row);
+                } else {
+                    batch.setDouble(col, row, v);
+                }
+            }
+            case BOOLEAN -> {
+                boolean v = rs.getBoolean(i);
+                if (rs.wasNull()) {
+                    batch.setNull(col, row);
+                } else {
+                    batch.setBoolean(col, row, v);
+                }
+            }
+            case STRING -> {
+                String v = rs.getString(i);
+                if (v == null) {
+                    batch.setNull(col, row);
+                } else {
+                    batch.setString(col, row, v);
+                }
+            }
+            case DATE -> {
+                java.sql.Date v = rs.getDate(i);
+                if (v == null) {
+                    batch.setNull(col, row);
+                } else {
+                    batch.setLong(col, row, v.getTime());
+                }
+            }
+            case TIMESTAMP -> {
+                Timestamp v = rs.getTimestamp(i);
+                if (v == null) {
+                    batch.setNull(col, row);
+                } else {
+                    batch.setLong(col, row, v.getTime());
+                }
+            }
+            default -> {
+                Object v = rs.getObject(i);
+                if (v == null) {
+                    batch.setNull(col, row);
+                } else {
+                    batch.setObject(col, row, v);
+                }
+            }
+        }
+    }
+
+    private static boolean isInteger(ColumnMeta col) {
+        ColumnBatch.Kind kind = ColumnBatch.Kind.of(col.sqlType());
+        return col.sqlType() != Types.TINYINT && (kind == ColumnBatch.Kind.INT || kind == ColumnBatch.Kind.LONG);
+    }
+
+    private static Long longOrNull(ResultSet rs, int i) throws SQLException {
+        long v = rs.getLong(i);
+        return rs.wasNull() ? null : v;
+    }
+
+    private String quoted(String name) {
+        return q + name + q;
+    }
+}
@@ -0,0 +1,151 @@
+package prs.db;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+
+// DataSource koji pusti najvise N konekcija istovremeno; ostali cekaju na semaforu bez timeouta
+// (umjesto Hikari connectionTimeout-a kad stotine virtualnih niti traze konekciju).
+// N je fiksan ili ga mijenja AdaptiveLimit (--adaptive)
+public class PermitDataSource implements DataSource {
+
+    // ko pusta konekcije
+    public interface Permits {
+
+        void acquire() throws InterruptedException;
+
+        void release();
+
+        // otvaranje konekcije nije uspjelo; true: baza je preopterecena i pokusava se ponovo (nakon pauze)
+        default boolean retry(SQLException e, int attempt) {
+            return false;
+        }
+    }
+
+    private final DataSource delegate;
+    private final Permits permits;
+
+    public PermitDataSource(DataSource delegate, int maxConnections) {
+        this(delegate, fixed(maxConnections));
+    }
+
+    public PermitDataSource(DataSource delegate, Permits permits) {
+        this.delegate = delegate;
+        this.permits = permits;
+    }
+
+    private static Permits fixed(int maxConnections) {
+        Semaphore semaphore = new Semaphore(maxConnections, true);
+        return new Permits() {
+            @Override
+            public void acquire() throws InterruptedException {
+                semaphore.acquire();
+            }
+
+            @Override
+            public void release() {
+                semaphore.release();
+            }
+        };
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(() -> delegate.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(() -> delegate.getConnection(username, password));
+    }
+
+    private interface ConnectionOpener {
+        Connection open() throws SQLException;
+    }
+
+    private Connection wrap(ConnectionOpener opener) throws SQLException {
+        Connection opened;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Prekinuto cekanje na konekciju", e);
+            }
+            try {
+                opened = opener.open();
+                break;
+            } catch (SQLException e) {
+                permits.release();
+                if (!permits.retry(e, attempt)) {
+                    throw e;
+                }
+            } catch (RuntimeException e) {
+                permits.release();
+                throw e;
+            }
+        }
+        Connection conn = opened;
+        AtomicBoolean released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("close") && method.getParameterCount() == 0) {
+                        try {
+                            conn.close();
+                        } finally {
+                            if (released.compareAndSet(false, true)) {
+                                permits.release();
+                            }
+                        }
+                        return null;
+                    }
+                    try {
+                        return method.invoke(conn, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return delegate.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        delegate.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        delegate.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return delegate.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return delegate.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        return delegate.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return delegate.isWrapperFor(iface);
+    }
+}
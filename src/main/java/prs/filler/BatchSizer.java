@@ -0,0 +1,41 @@
+package prs.filler;
+
+// bira broj redova po INSERT naredbi na osnovu izmjerene propusnosti (redova/s):
+// raste dok propusnost raste, kad padne okrece smjer. Ograniceno odozgo sa cap (parametri/paket).
+class BatchSizer {
+
+    private static final double SMOOTHING = 0.5;
+    private static final double TOLERANCE = 0.95;
+
+    private final int min;
+    private final int cap;
+    private int current;
+    private boolean growing = true;
+    private double smoothedRate = -1;
+
+    BatchSizer(int min, int initial, int cap) {
+        this.min = Math.max(1, Math.min(min, cap));
+        this.cap = Math.max(this.min, cap);
+        this.current = clamp(initial);
+    }
+
+    int current() {
+        return current;
+    }
+
+    void record(int rows, long nanos) {
+        if (rows < current || nanos <= 0) {
+            return; // ostatak chunka nije reprezentativan
+        }
+        double rate = rows * 1_000_000_000.0 / nanos;
+        if (smoothedRate >= 0 && rate < smoothedRate * TOLERANCE) {
+            growing = !growing;
+        }
+        smoothedRate = smoothedRate < 0 ? rate : SMOOTHING * rate + (1 - SMOOTHING) * smoothedRate;
+        current = clamp(growing ? current * 2 : current / 2);
+    }
+
+    private int clamp(int v) {
+        return Math.max(min, Math.min(cap, v));
+    }
+}
@@ -0,0 +1,63 @@
+package prs.filler;
+
+import prs.data.ColumnBatch;
+import prs.keys.KeySet;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.random.RandomGenerator;
+import java.util.random.RandomGeneratorFactory;
+
+// naknadno popunjavanje fk kolona koje su u ciklusu upisane kao NULL: red ciji je kljuc rowKeys[i]
+// dobija u svakoj koloni nasumican kljuc odgovarajuceg roditelja. Isti seed i isti kljucevi daju iste vrijednosti
+public record ColumnPatch(String tableName, String keyColumn, int keyType, KeySet rowKeys,
+                          List<String> columns, List<Integer> columnTypes, List<KeySet> parentKeys, long seed) {
+
+    @FunctionalInterface
+    public interface BatchConsumer {
+        void accept(ColumnBatch rows) throws SQLException;
+    }
+
+    private static final RandomGeneratorFactory<RandomGenerator> RNG = RandomGeneratorFactory.of("L64X128MixRandom");
+
+    public ColumnPatch {
+        columns = List.copyOf(columns);
+        columnTypes = List.copyOf(columnTypes);
+        parentKeys = List.copyOf(parentKeys);
+    }
+
+    // batchevi (kljuc reda, nove vrijednosti kolona) od najvise batchRows redova, redom kljuceva
+    public void forEachBatch(int batchRows, BatchConsumer consumer) throws SQLException {
+        int n = columns.size();
+        String[] names = new String[n + 1];
+        int[] types = new int[n + 1];
+        names[0] = keyColumn;
+        types[0] = keyType;
+        for (int c = 0; c < n; c++) {
+            names[c + 1] = columns.get(c);
+            types[c + 1] = columnTypes.get(c);
+        }
+
+        RandomGenerator rand = RNG.create(seed);
+        ColumnBatch batch = new ColumnBatch(names, types, batchRows);
+        for (int r = 0; r < rowKeys.size(); r++) {
+            int row = batch.addRow();
+            rowKeys.writeTo(batch, 0, row, r);
+            for (int c = 0; c < n; c++) {
+                KeySet parent = parentKeys.get(c);
+                if (parent.isEmpty()) {
+                    batch.setNull(c + 1, row);
+                } else {
+                    parent.writeTo(batch, c + 1, row, rand.nextInt(parent.size()));
+                }
+            }
+            if (batch.isFull()) {
+                consumer.accept(batch);
+                batch.reset();
+            }
+        }
+        if (!batch.isEmpty()) {
+            consumer.accept(batch);
+        }
+    }
+}
@@ -1,80 +1,296 @@
 package prs.filler;
 
+import prs.data.ColumnBatch;
 import prs.db.DbType;
+import prs.keys.KeySetBuilder;
+import prs.metrics.Metrics;
 
 import javax.sql.DataSource;
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
-public class DataFiller {
+public class DataFiller implements RowSink {
+
+    // redova po executeBatch u INSERT modu; vise od toga drajver i server drze u memoriji bez koristi
+    private static final int INSERT_BATCH_ROWS = 1_000;
+    // redova po UPDATE naredbi kod naknadnog popunjavanja fk kolona ciklusa
+    private static final int PATCH_BATCH_ROWS = 1_000;
 
     private final DataSource ds;
     private final DbType dbType;
+    private final LoaderMode loaderMode;
+    private final Metrics metrics;
+    // kolona kljuca i alokator po tabeli, dijele ih svi writeri (inserteri, shardovi) iste tabele
+    private final Map<String, TableKeys> tableKeys = new ConcurrentHashMap<>();
 
     public DataFiller(DataSource ds, DbType dbType) {
+        this(ds, dbType, LoaderMode.INSERT);
+    }
+
+    public DataFiller(DataSource ds, DbType dbType, LoaderMode loaderMode) {
+        this(ds, dbType, loaderMode, null);
+    }
+
+    // metrics == null: upis se ne mjeri
+    public DataFiller(DataSource ds, DbType dbType, LoaderMode loaderMode, Metrics metrics) {
         this.ds = ds;
         this.dbType = dbType;
+        this.loaderMode = loaderMode;
+        this.metrics = metrics;
     }
 
-    public List<Object> fillTable(String tableName, List<Map<String, Object>> rows) throws SQLException {
-        List<Object> generatedKeys = new ArrayList<>();
-        if (rows.isEmpty()) {
+    @Override
+    public KeySetBuilder fillTable(String tableName, ColumnBatch rows) throws SQLException {
+        KeySetBuilder generatedKeys = new KeySetBuilder();
+        if (rows == null || rows.isEmpty()) {
             System.out.println("fillTable: Nema redova za ubaciti u tablicu " + tableName);
             return generatedKeys;
         }
 
-        List<String> columns = new ArrayList<>(rows.get(0).keySet());
+        try (Connection conn = ds.getConnection();
+             TableWriter writer = openWriter(conn, tableName, rows)) {
 
-        char q = (dbType == DbType.MYSQL) ? '`' : '"';
+            int rowsAffected = writer.write(rows, generatedKeys);
+            System.out.println("fillTable: U tablicu \"" + tableName + "\" ubaceno (prema updateCounts) = "
+                    + rowsAffected + " redova.");
+            System.out.println("fillTable: Dobijeno auto-generated kljuceva = "
+                    + generatedKeys.size() + " za tablicu \"" + tableName + "\".");
 
-        List<String> quotedColumns = new ArrayList<>();
-        for (String col : columns) {
-            quotedColumns.add(q + col + q);
+        } catch (SQLException e) {
+            System.err.println("fillTable: SQL Exception pri ubacivanju u \""
+                    + tableName + "\": " + e.getMessage());
+            throw e;
         }
-        String colNamesQuoted = String.join(", ", quotedColumns);
 
-        String placeholders = String.join(", ", Collections.nCopies(columns.size(), "?"));
+        return generatedKeys;
+    }
+
+    // writer drzi svoju konekciju iz poola i vraca je kad se zatvori
+    @Override
+    public TableWriter open(String tableName, ColumnBatch shape) throws SQLException {
+        Connection conn = ds.getConnection();
+        try {
+            return new PooledWriter(openWriter(conn, tableName, shape), conn);
+        } catch (SQLException | RuntimeException e) {
+            conn.close();
+            throw e;
+        }
+    }
 
-        String sql = "INSERT INTO " + q + tableName + q + " (" + colNamesQuoted + ") VALUES (" + placeholders + ")";
+    // jedan UPDATE ... FROM (VALUES ...) po batchu, svaki u svojoj transakciji (autocommit);
+    // ponavljanje je bezbjedno jer isti patch upisuje iste vrijednosti
+    @Override
+    public void patch(ColumnPatch patch) throws SQLException {
+        Map<Integer, PreparedStatement> statements = new HashMap<>();
+        try (Connection conn = ds.getConnection()) {
+            try {
+                patch.forEachBatch(PATCH_BATCH_ROWS, rows -> {
+                    PreparedStatement ps = statements.get(rows.size());
+                    if (ps == null) {
+                        ps = conn.prepareStatement(PatchSql.update(dbType, patch, rows.size(), (r, c) -> "?"));
+                        statements.put(rows.size(), ps);
+                    }
+                    int p = 1;
+                    for (int r = 0; r < rows.size(); r++) {
+                        for (int c = 0; c < rows.columnCount(); c++) {
+                            bind(ps, p++, rows, c, r);
+                        }
+                    }
+                    ps.executeUpdate();
+                });
+            } finally {
+                for (PreparedStatement ps : statements.values()) {
+                    ps.close();
+                }
+            }
+        }
+    }
 
+    // nakon upisa eksplicitnih auto-increment kljuceva (FanOutSink): PostgreSQL sekvenca se pomjera iza
+    // najveceg kljuca, MySQL brojac se pomjera sam. Tabela bez sekvence (identity, H2) se preskace
+    public void syncKeyCounter(String tableName, String column) throws SQLException {
+        if (dbType != DbType.POSTGRESQL) {
+            return;
+        }
+        String sql = "SELECT setval(pg_get_serial_sequence(quote_ident(?), ?), "
+                + "(SELECT MAX(\"" + column + "\") FROM \"" + tableName + "\"))";
         try (Connection conn = ds.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, tableName);
+            ps.setString(2, column);
+            ps.executeQuery().close();
+        } catch (SQLException e) {
+            // nema setval / pg_get_serial_sequence (H2 u PostgreSQL modu), kao kod TableKeys
+            if (!TableKeys.missingFunction(e)) {
+                throw e;
+            }
+        }
+    }
 
-            // batch
-            for (Map<String, Object> row : rows) {
-                for (int i = 0; i < columns.size(); i++) {
-                    stmt.setObject(i + 1, row.get(columns.get(i)));
-                }
-                stmt.addBatch();
+    // statement se priprema jednom po konekciji i koristi za svaki chunk (streaming mod)
+    // kolone se uzimaju iz oblika batcha, svi chunkovi iste tabele imaju isti oblik
+    public TableWriter openWriter(Connection conn, String tableName, ColumnBatch shape) throws SQLException {
+        TableWriter writer = openLoaderWriter(conn, tableName, shape);
+        return metrics == null ? writer : new MeteredWriter(writer, metrics.table(tableName));
+    }
+
+    private TableWriter openLoaderWriter(Connection conn, String tableName, ColumnBatch shape) throws SQLException {
+        TableKeys keys = tableKeys(conn, tableName, shape);
+        if (loaderMode == LoaderMode.NATIVE && dbType == DbType.POSTGRESQL) {
+            TableWriter copy = PgCopyWriter.open(conn, tableName, shape, keys);
+            if (copy != null) {
+                return copy;
             }
+            System.out.println("fillTable: COPY nije moguc za \"" + tableName + "\" (kljuceve daje baza, npr. GENERATED ALWAYS), koristi se INSERT");
+        } else if (loaderMode == LoaderMode.NATIVE && dbType == DbType.MYSQL) {
+            return MySqlInfileWriter.open(conn, tableName, shape, keys, () -> openInsertWriter(conn, tableName, shape, keys));
+        } else if (loaderMode == LoaderMode.MULTI_ROW) {
+            return MultiRowInsertWriter.open(conn, dbType, tableName, shape, keys);
+        }
+        return openInsertWriter(conn, tableName, shape, keys);
+    }
 
-            // exec batch i klk je redova ubaceno
-            int[] updateCounts = stmt.executeBatch();
+    // prvi writer tabele trazi kolonu kljuca, ostali koriste isti alokator
+    private TableKeys tableKeys(Connection conn, String tableName, ColumnBatch shape) throws SQLException {
+        TableKeys keys = tableKeys.get(tableName);
+        if (keys == null) {
+            keys = TableKeys.lookup(conn, dbType, tableName, shape);
+            TableKeys prev = tableKeys.putIfAbsent(tableName, keys);
+            if (prev != null) {
+                keys = prev;
+            }
+        }
+        return keys;
+    }
+
+    private TableWriter openInsertWriter(Connection conn, String tableName, ColumnBatch shape,
+                                         TableKeys keys) throws SQLException {
+        char q = (dbType == DbType.MYSQL) ? '`' : '"';
+
+        String placeholders = String.join(", ", Collections.nCopies(keys.columnCount(shape), "?"));
+
+        String sql = "INSERT INTO " + q + tableName + q + " (" + keys.columnList(shape, q) + ") VALUES (" + placeholders + ")";
+
+        return new ChunkWriter(conn, keys.prepare(conn, sql), keys);
+    }
+
+    private static final class PooledWriter implements TableWriter {
+
+        private final TableWriter delegate;
+        private final Connection conn;
+
+        private PooledWriter(TableWriter delegate, Connection conn) {
+            this.delegate = delegate;
+            this.conn = conn;
+        }
+
+        @Override
+        public int write(ColumnBatch rows, KeySetBuilder keysOut) throws SQLException {
+            return delegate.write(rows, keysOut);
+        }
+
+        @Override
+        public void close() throws SQLException {
+            try (conn) {
+                delegate.close();
+            }
+        }
+    }
+
+    // chunk se salje u executeBatch dijelovima od INSERT_BATCH_ROWS i commituje kao jedna transakcija
+    private static class ChunkWriter implements TableWriter {
+
+        private final Connection conn;
+        private final PreparedStatement stmt;
+        private final TableKeys keys;
+        private final boolean prevAutoCommit;
+
+        private ChunkWriter(Connection conn, PreparedStatement stmt, TableKeys keys) throws SQLException {
+            this.conn = conn;
+            this.stmt = stmt;
+            this.keys = keys;
+            this.prevAutoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+        }
+
+        @Override
+        public int write(ColumnBatch rows, KeySetBuilder keysOut) throws SQLException {
             int rowsAffected = 0;
-            for (int count : updateCounts) {
-                if (count > 0) {
-                    rowsAffected += count;
-                } else if (count == Statement.SUCCESS_NO_INFO) {
-                    rowsAffected += 1;
+            int cols = rows.columnCount();
+            try {
+                long firstKey = 0;
+                long step = 0;
+                int shift = 0;
+                if (keys.clientSide() && !rows.isEmpty()) {
+                    firstKey = keys.reserve(conn, rows.size());
+                    step = keys.step();
+                    shift = 1;
                 }
-            }
-            System.out.println("fillTable: U tablicu \"" + tableName + "\" ubaceno (prema updateCounts) = "
-                    + rowsAffected + " redova.");
+                for (int from = 0; from < rows.size(); from += INSERT_BATCH_ROWS) {
+                    int to = Math.min(rows.size(), from + INSERT_BATCH_ROWS);
+                    // batch
+                    for (int r = from; r < to; r++) {
+                        if (shift > 0) {
+                            stmt.setLong(1, firstKey + r * step);
+                        }
+                        for (int c = 0; c < cols; c++) {
+                            bind(stmt, c + 1 + shift, rows, c, r);
+                        }
+                        stmt.addBatch();
+                    }
 
-            try (ResultSet rsKeys = stmt.getGeneratedKeys()) {
-                while (rsKeys.next()) {
-                    generatedKeys.add(rsKeys.getObject(1));
+                    // exec batch i klk je redova ubaceno
+                    int[] updateCounts = stmt.executeBatch();
+                    for (int count : updateCounts) {
+                        if (count > 0) {
+                            rowsAffected += count;
+                        } else if (count == Statement.SUCCESS_NO_INFO) {
+                            rowsAffected += 1;
+                        }
+                    }
+
+                    if (keys.returnKeys) {
+                        try (ResultSet rsKeys = stmt.getGeneratedKeys()) {
+                            while (rsKeys.next()) {
+                                keysOut.add(rsKeys.getObject(1));
+                            }
+                        }
+                    }
+                }
+                conn.commit();
+                if (shift > 0) {
+                    keys.record(keysOut, firstKey, rows.size());
                 }
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
             }
-            System.out.println("fillTable: Dobijeno auto-generated kljuceva = "
-                    + generatedKeys.size() + " za tablicu \"" + tableName + "\".");
+            return rowsAffected;
+        }
 
-        } catch (SQLException e) {
-            System.err.println("fillTable: SQL Exception pri ubacivanju u \""
-                    + tableName + "\": " + e.getMessage());
-            throw e;
+        @Override
+        public void close() throws SQLException {
+            stmt.close();
+            conn.setAutoCommit(prevAutoCommit);
         }
+    }
 
-        return generatedKeys;
+    // tipizirani setteri umjesto setObject, bez boxinga za brojeve
+    static void bind(PreparedStatement stmt, int idx, ColumnBatch rows, int col, int row) throws SQLException {
+        if (rows.isNull(col, row)) {
+            stmt.setNull(idx, rows.sqlType(col));
+            return;
+        }
+        switch (rows.kind(col)) {
+            case INT -> stmt.setInt(idx, rows.getInt(col, row));
+            case LONG -> stmt.setLong(idx, rows.getLong(col, row));
+            case DOUBLE -> stmt.setDouble(idx, rows.getDouble(col, row));
+            case BOOLEAN -> stmt.setBoolean(idx, rows.getBoolean(col, row));
+            case STRING -> stmt.setString(idx, rows.getString(col, row));
+            case DATE -> stmt.setDate(idx, new java.sql.Date(rows.getLong(col, row)));
+            case TIMESTAMP -> stmt.setTimestamp(idx, new java.sql.Timestamp(rows.getLong(col, row)));
+            default -> stmt.setObject(idx, rows.getObject(col, row));
+        }
     }
 }
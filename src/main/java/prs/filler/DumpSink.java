@@ -0,0 +1,303 @@
+package prs.filler;
+
+import prs.data.ColumnBatch;
+import prs.db.DbType;
+import prs.keys.KeySetBuilder;
+import prs.metrics.Metrics;
+import prs.schema.ColumnMeta;
+import prs.schema.SchemaSnapshot;
+import prs.schema.TableMeta;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+// punjenje bez baze: redovi idu u fajlove <tabela>.<dio>.tsv[.gz] u formatu koji citaju psql \copy
+// (PostgreSQL) i LOAD DATA LOCAL INFILE (MySQL), uz load.sql koji ih ucitava redom roditelj -> dijete.
+// Svaki writer (inserter, shard) pise i kompresuje svoje fajlove u svojoj niti.
+// Auto-increment kljucevi se dodjeljuju ovde (1, 2, ...) i pisu eksplicitno, kao KeyAllocator kod punjenja baze
+public class DumpSink implements RowSink {
+
+    private final Path dir;
+    private final DbType dbType;
+    private final SchemaSnapshot schema;
+    private final boolean gzip;
+    private final long partRows;
+    private final Metrics metrics;
+    private final Map<String, TableFiles> tables = new ConcurrentHashMap<>();
+    // UPDATE naredbe za fk kolone ciklusa (patch), load.sql ih izvrsava nakon svih tabela
+    private static final String PATCH_FILE = "cycles.sql";
+    private static final int PATCH_BATCH_ROWS = 1_000;
+    private final Object patchLock = new Object();
+    private boolean patched;
+
+    // fajlovi i kljucevi jedne tabele, dijele ih svi writeri te tabele
+    private static final class TableFiles {
+        final String keyColumn;
+        final KeyAllocator keys = KeyAllocator.counter(1, 1);
+        final AtomicInteger nextPart = new AtomicInteger();
+        final List<String> files = Collections.synchronizedList(new ArrayList<>());
+        volatile List<String> columns;
+
+        TableFiles(String keyColumn) {
+            this.keyColumn = keyColumn;
+        }
+    }
+
+    // metrics == null: upis se ne mjeri
+    public DumpSink(Path dir, DbType dbType, SchemaSnapshot schema, boolean gzip, long partRows, Metrics metrics)
+            throws IOException {
+        this.dir = Files.createDirectories(dir);
+        this.dbType = dbType;
+        this.schema = schema;
+        this.gzip = gzip;
+        this.partRows = partRows;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public TableWriter open(String tableName, ColumnBatch shape) {
+        TableFiles files = tables.computeIfAbsent(tableName.toLowerCase(), t -> new TableFiles(keyColumn(shape, t)));
+        if (files.columns == null) {
+            List<String> cols = new ArrayList<>();
+            if (files.keyColumn != null) {
+                cols.add(files.keyColumn);
+            }
+            for (int c = 0; c < shape.columnCount(); c++) {
+                cols.add(shape.name(c));
+            }
+            files.columns = cols;
+        }
+        TableWriter writer = new FileWriter(tableName, files);
+        return metrics == null ? writer : new MeteredWriter(writer, metrics.table(tableName));
+    }
+
+    // prva auto-increment kolona koju generator ne puni
+    private String keyColumn(ColumnBatch shape, String tableLC) {
+        TableMeta table = schema.table(tableLC);
+        if (table == null) {
+            return null;
+        }
+        outer:
+        for (ColumnMeta col : table.columns()) {
+            if (!col.autoIncrement()) {
+                continue;
+            }
+            for (int c = 0; c < shape.columnCount(); c++) {
+                if (shape.name(c).equalsIgnoreCase(col.name())) {
+                    continue outer;
+                }
+            }
+            return col.name();
+        }
+        return null;
+    }
+
+    // patchevi razlicitih ciklusa stizu paralelno, svaki se upisuje cijeli pod lock-om
+    @Override
+    public void patch(ColumnPatch patch) throws SQLException {
+        synchronized (patchLock) {
+            try {
+                OpenOption mode = patched ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING;
+                try (Writer out = Files.newBufferedWriter(dir.resolve(PATCH_FILE), StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.WRITE, mode)) {
+                    patch.forEachBatch(PATCH_BATCH_ROWS, rows -> {
+                        try {
+                            out.write(PatchSql.update(dbType, patch, rows.size(), (r, c) -> literal(rows, c, r)));
+                            out.write(";\n");
+                        } catch (IOException e) {
+                            throw new SQLException("Upis " + PATCH_FILE + " nije uspio", e);
+                        }
+                    });
+                }
+                patched = true;
+            } catch (IOException e) {
+                throw new SQLException("Upis " + PATCH_FILE + " nije uspio", e);
+            }
+        }
+    }
+
+    private String literal(ColumnBatch rows, int c, int r) {
+        if (rows.isNull(c, r)) {
+            return "NULL";
+        }
+        return switch (rows.kind(c)) {
+            case INT -> Integer.toString(rows.getInt(c, r));
+            case LONG -> Long.toString(rows.getLong(c, r));
+            case DOUBLE -> Double.toString(rows.getDouble(c, r));
+            case BOOLEAN -> rows.getBoolean(c, r)
+                    ? (dbType == DbType.MYSQL ? "1" : "true")
+                    : (dbType == DbType.MYSQL ? "0" : "false");
+            default -> {
+                String v = String.valueOf(rows.getValue(c, r)).replace("'", "''");
+                yield "'" + (dbType == DbType.MYSQL ? v.replace("\\", "\\\\") : v) + "'";
+            }
+        };
+    }
+
+    private static boolean[] bitColumns(TableMeta meta, List<String> columns) {
+        boolean[] bit = new boolean[columns.size()];
+        for (int c = 0; c < bit.length && meta != null; c++) {
+            ColumnMeta col = meta.column(columns.get(c));
+            bit[c] = col != null && col.sqlType() == Types.BIT;
+        }
+        return bit;
+    }
+
+    // load.sql u direktorijumu dumpa, pokrece se iz tog direktorijuma (putanje fajlova su relativne)
+    public Path writeLoadScript(List<String> sortedTablesLC) throws IOException {
+        char q = dbType == DbType.MYSQL ? '`' : '"';
+        StringBuilder sql = new StringBuilder();
+        if (dbType == DbType.MYSQL) {
+            sql.append("-- mysql --local-infile=1 <baza> < load.sql\n");
+            if (gzip) {
+                sql.append("-- LOAD DATA ne cita gzip: prvo gunzip *.gz u ovom direktorijumu\n");
+            }
+            sql.append("SET NAMES utf8mb4;\n");
+        } else {
+            sql.append("-- psql -d <baza> -f load.sql\n");
+        }
+
+        for (String tableLC : sortedTablesLC) {
+            TableFiles files = tables.get(tableLC);
+            if (files == null) {
+                continue;
+            }
+            TableMeta meta = schema.table(tableLC);
+            String table = q + (meta == null ? tableLC : meta.name()) + q;
+            StringBuilder cols = new StringBuilder();
+            for (String c : files.columns) {
+                if (cols.length() > 0) {
+                    cols.append(", ");
+                }
+                cols.append(q).append(c).append(q);
+            }
+            List<String> names = new ArrayList<>(files.files);
+            Collections.sort(names);
+            for (String name : names) {
+                if (dbType == DbType.MYSQL) {
+                    String plain = gzip ? name.substring(0, name.length() - 3) : name;
+                    sql.append("LOAD DATA LOCAL INFILE '").append(plain).append("' INTO TABLE ").append(table)
+                            .append(" CHARACTER SET utf8mb4 ").append(MySqlInfileWriter.loadColumns(files.columns,
+                                    bitColumns(meta, files.columns))).append(";\n");
+                } else if (gzip) {
+                    sql.append("\\copy ").append(table).append(" (").append(cols)
+                            .append(") FROM PROGRAM 'gzip -dc ").append(name).append("'\n");
+                } else {
+                    sql.append("\\copy ").append(table).append(" (").append(cols)
+                            .append(") FROM '").append(name).append("'\n");
+                }
+            }
+            // eksplicitni kljucevi ne pomjeraju sekvencu na PostgreSQL-u
+            if (dbType == DbType.POSTGRESQL && files.keyColumn != null) {
+                String key = q + files.keyColumn + q;
+                sql.append("SELECT setval(pg_get_serial_sequence('").append(table).append("', '")
+                        .append(files.keyColumn).append("'), max(").append(key).append(")) FROM ")
+                        .append(table).append(" HAVING max(").append(key).append(") IS NOT NULL;\n");
+            }
+        }
+
+        if (patched) {
+            // fk kolone ciklusa, tek kad su upisane sve tabele
+            sql.append(dbType == DbType.MYSQL ? "SOURCE " + PATCH_FILE + ";\n" : "\\i " + PATCH_FILE + "\n");
+        }
+
+        Path script = dir.resolve("load.sql");
+        Files.writeString(script, sql, StandardCharsets.UTF_8);
+        return script;
+    }
+
+    // pise u tekuci dio dok ne dostigne partRows redova, zatim otvara sljedeci
+    private final class FileWriter implements TableWriter {
+
+        private static final int FLUSH_BYTES = 64 * 1024;
+
+        private final String tableName;
+        private final TableFiles files;
+        private final TextRowEncoder encoder = dbType == DbType.MYSQL
+                ? TextRowEncoder.forMySql(FLUSH_BYTES + 1024)
+                : TextRowEncoder.forPostgres(FLUSH_BYTES + 1024);
+
+        private OutputStream out;
+        private long rowsInPart;
+
+        private FileWriter(String tableName, TableFiles files) {
+            this.tableName = tableName;
+            this.files = files;
+        }
+
+        @Override
+        public int write(ColumnBatch rows, KeySetBuilder keysOut) throws SQLException {
+            long firstKey = -1;
+            if (files.keyColumn != null) {
+                firstKey = files.keys.reserve(null, rows.size());
+                keysOut.addRange(firstKey, rows.size(), 1);
+            }
+            try {
+                encoder.clear();
+                for (int r = 0; r < rows.size(); r++) {
+                    if (out == null || rowsInPart >= partRows) {
+                        flush();
+                        nextPart();
+                    }
+                    encoder.writeRow(rows, r, firstKey < 0 ? -1 : firstKey + r);
+                    rowsInPart++;
+                    if (encoder.length() >= FLUSH_BYTES) {
+                        flush();
+                    }
+                }
+                flush();
+            } catch (IOException e) {
+                throw new SQLException("Upis dumpa za tabelu " + tableName + " nije uspio", e);
+            }
+            return rows.size();
+        }
+
+        private void flush() throws IOException {
+            if (encoder.length() > 0) {
+                out.write(encoder.buffer(), 0, encoder.length());
+                encoder.clear();
+            }
+        }
+
+        private void nextPart() throws IOException {
+            closePart();
+            String name = tableName + "." + files.nextPart.getAndIncrement() + (gzip ? ".tsv.gz" : ".tsv");
+            FileChannel channel = FileChannel.open(dir.resolve(name), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            OutputStream raw = Channels.newOutputStream(channel);
+            out = gzip ? new GZIPOutputStream(raw, FLUSH_BYTES) : raw;
+            files.files.add(name);
+            rowsInPart = 0;
+        }
+
+        private void closePart() throws IOException {
+            if (out != null) {
+                out.close();
+                out = null;
+            }
+        }
+
+        @Override
+        public void close() throws SQLException {
+            try {
+                closePart();
+            } catch (IOException e) {
+                throw new SQLException("Zatvaranje dumpa za tabelu " + tableName + " nije uspjelo", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package prs.filler;
+
+import prs.data.ColumnBatch;
+import prs.keys.KeySet;
+import prs.keys.KeySetBuilder;
+import prs.schema.ColumnMeta;
+import prs.schema.SchemaSnapshot;
+import prs.schema.TableMeta;
+
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+// isti redovi u vise baza iz jednog generisanja (--targets). Chunk se upisuje u prvu bazu u niti
+// writera, a ostalim bazama se predaje kopija kroz ogranicen red po bazi koji prazni posebna nit sa svojom
+// konekcijom. Spora baza puni svoj red i tako koci writer, pa ukupno vrijeme odredjuje najsporija baza.
+// Auto-increment kljuceve dodjeljuje prva baza, a ostalima se salju eksplicitno da fk vrijednosti vaze svuda
+public class FanOutSink implements RowSink {
+
+    public record Target(String name, DataFiller filler) {
+    }
+
+    // signal kraja, poredi se po referenci
+    private static final Shared POISON = new Shared(null, null);
+
+    // kopija chunka koju dijele sve ostale baze; vraca se na ponovnu upotrebu kad je sve upisu
+    private record Shared(ColumnBatch rows, AtomicInteger pending) {
+    }
+
+    private final DataFiller primary;
+    private final List<Target> others;
+    private final SchemaSnapshot schema;
+    private final int bufferChunks;
+    // vrijeme koje su writeri cekali na mjesto u redu pojedine baze
+    private final Map<String, LongAdder> waitNanos = new ConcurrentHashMap<>();
+    // tabela -> auto-increment kolona cije su vrijednosti poslate ostalim bazama
+    private final Map<String, String> explicitKeys = new ConcurrentHashMap<>();
+    private final Set<String> keyWarnings = ConcurrentHashMap.newKeySet();
+
+    // bufferChunks: chunkova koji cekaju u redu jedne baze po writeru
+    public FanOutSink(DataFiller primary, List<Target> others, SchemaSnapshot schema, int bufferChunks) {
+        this.primary = primary;
+        this.others = List.copyOf(others);
+        this.schema = schema;
+        this.bufferChunks = bufferChunks;
+        for (Target t : this.others) {
+            waitNanos.put(t.name(), new LongAdder());
+        }
+    }
+
+    @Override
+    public TableWriter open(String tableName, ColumnBatch shape) throws SQLException {
+        TableWriter first = primary.open(tableName, shape);
+        return new FanOutWriter(tableName, first);
+    }
+
+    // fk kolone ciklusa se upisuju svuda istim redom; tabele su tada upisane u svim bazama
+    @Override
+    public void patch(ColumnPatch patch) throws SQLException {
+        primary.patch(patch);
+        for (Target t : others) {
+            t.filler().patch(patch);
+        }
+    }
+
+    @Override
+    public void tableFinished(String tableName) throws SQLException {
+        String column = explicitKeys.get(tableName);
+        if (column != null) {
+            for (Target t : others) {
+                t.filler().syncKeyCounter(tableName, column);
+            }
+        }
+    }
+
+    // koliko je upis cekao na svaku od ostalih baza; najveci broj je usko grlo
+    public Map<String, Long> waitMillis() {
+        Map<String, Long> out = new LinkedHashMap<>();
+        for (Target t : others) {
+            out.put(t.name(), waitNanos.get(t.name()).sum() / 1_000_000);
+        }
+        return out;
+    }
+
+    // auto-increment kolona koju baza puni (nije u batchu); null ako je nema
+    private ColumnMeta keyColumn(String tableName, ColumnBatch shape) {
+        TableMeta table = schema.table(tableName);
+        if (table == null) {
+            return null;
+        }
+        for (ColumnMeta c : table.columns()) {
+            if (!c.autoIncrement()) {
+                continue;
+            }
+            for (int i = 0; i < shape.columnCount(); i++) {
+                if (shape.name(i).equalsIgnoreCase(c.name())) {
+                    return null;
+                }
+            }
+            return c;
+        }
+        return null;
+    }
+
+    private final class FanOutWriter implements TableWriter {
+
+        private final String tableName;
+        private final TableWriter first;
+        private final List<Lane> lanes = new ArrayList<>();
+        private final Queue<ColumnBatch> free = new ConcurrentLinkedQueue<>();
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        private ColumnMeta keyColumn;
+        private Boolean withKey;
+
+        private FanOutWriter(String tableName, TableWriter first) {
+            this.tableName = tableName;
+            this.first = first;
+            for (Target t : others) {
+                Lane lane = new Lane(t, tableName, bufferChunks, free, failure);
+                lanes.add(lane);
+                lane.thread = Thread.ofPlatform().daemon().name("fanout-" + t.name() + "-" + tableName)
+                        .start(lane::drain);
+            }
+        }
+
+        @Override
+        public int write(ColumnBatch rows, KeySetBuilder keysOut) throws SQLException {
+            checkFailure();
+            KeySetBuilder generated = new KeySetBuilder();
+            int inserted = first.write(rows, generated);
+            KeySet keys = generated.build();
+            if (withKey == null) {
+                // oblik kopije (sa kljucem ili bez) se odredjuje uz prvi chunk, writeri ostalih baza ga zadrzavaju
+                keyColumn = keyColumn(tableName, rows);
+                withKey = keyColumn != null && keys.size() == rows.size();
+                if (keyColumn != null && !withKey && keyWarnings.add(tableName)) {
+                    System.out.println("Fan-out: prva baza nije vratila kljuceve za " + tableName
+                            + ", ostale baze dodjeljuju svoje auto-increment kljuceve");
+                }
+                if (withKey) {
+                    explicitKeys.putIfAbsent(tableName, keyColumn.name());
+                }
+            } else if (withKey && keys.size() != rows.size()) {
+                throw new SQLException("Fan-out: prva baza je vratila " + keys.size() + " kljuceva za "
+                        + rows.size() + " redova tabele " + tableName);
+            }
+
+            Shared copy = new Shared(copy(rows, withKey ? keys : null), new AtomicInteger(lanes.size()));
+            for (Lane lane : lanes) {
+                long start = System.nanoTime();
+                try {
+                    while (!lane.queue.offer(copy, 100, TimeUnit.MILLISECONDS)) {
+                        checkFailure();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SQLException("Prekinut upis u " + lane.target.name(), e);
+                }
+                waitNanos.get(lane.target.name()).add(System.nanoTime() - start);
+            }
+            keysOut.addAll(keys);
+            return inserted;
+        }
+
+        // batch sa kljucem (kad ga salje prva baza) kao prvom kolonom, pa kolone chunka
+        private ColumnBatch copy(ColumnBatch rows, KeySet keys) {
+            int shift = keys == null ? 0 : 1;
+            ColumnBatch out = free.poll();
+            if (out == null || out.capacity() < rows.size()) {
+                String[] names = new String[rows.columnCount() + shift];
+                int[] types = new int[names.length];
+                if (shift > 0) {
+                    names[0] = keyColumn.name();
+                    types[0] = keyColumn.sqlType();
+                }
+                for (int c = 0; c < rows.columnCount(); c++) {
+                    names[c + shift] = rows.name(c);
+                    types[c + shift] = rows.sqlType(c);
+                }
+                out = new ColumnBatch(names, types, rows.size());
+            }
+            for (int r = 0; r < rows.size(); r++) {
+                int row = out.addRow();
+                if (shift > 0) {
+                    keys.writeTo(out, 0, row, r);
+                }
+                for (int c = 0; c < rows.columnCount(); c++) {
+                    out.copyValue(c + shift, row, rows, c, r);
+                }
+            }
+            return out;
+        }
+
+        private void checkFailure() throws SQLException {
+            Throwable t = failure.get();
+            if (t != null) {
+                throw t instanceof SQLException e ? e : new SQLException(t.getMessage(), t);
+            }
+        }
+
+        // ceka da ostale baze upisu sve iz svojih redova
+        @Override
+        public void close() throws SQLException {
+            boolean interrupted = false;
+            for (Lane lane : lanes) {
+                // nit koja je izasla (prekinuta) vise ne prazni red
+                while (lane.thread.isAlive()) {
+                    try {
+                        if (lane.queue.offer(POISON, 100, TimeUnit.MILLISECONDS)) {
+                            break;
+                        }
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            }
+            for (Lane lane : lanes) {
+                while (true) {
+                    try {
+                        lane.thread.join();
+                        break;
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            first.close();
+            checkFailure();
+        }
+    }
+
+    // red i nit jedne od ostalih baza za jedan writer; writer baze se otvara uz prvi chunk
+    private static final class Lane {
+
+        final Target target;
+        final String tableName;
+        final BlockingQueue<Shared> queue;
+        final Queue<ColumnBatch> free;
+        final AtomicReference<Throwable> failure;
+        Thread thread;
+
+        Lane(Target target, String tableName, int capacity, Queue<ColumnBatch> free,
+             AtomicReference<Throwable> failure) {
+            this.target = target;
+            this.tableName = tableName;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+            this.free = free;
+            this.failure = failure;
+        }
+
+        void drain() {
+            TableWriter writer = null;
+            try {
+                while (true) {
+                    Shared next = queue.take();
+                    if (next == POISON) {
+                        break;
+                    }
+                    try {
+                        if (failure.get() == null) {
+                            if (writer == null) {
+                                writer = target.filler().open(tableName, next.rows());
+                            }
+                            writer.write(next.rows(), new KeySetBuilder());
+                        }
+                    } catch (Exception e) {
+                        failure.compareAndSet(null, new SQLException(
+                                target.name() + ", tabela " + tableName + ": " + e.getMessage(), e));
+                    } finally {
+                        if (next.pending().decrementAndGet() == 0) {
+                            next.rows().reset();
+                            free.offer(next.rows());
+                        }
+                    }
+                }
+            } catch (InterruptedException e) {
+                failure.compareAndSet(null, e);
+            } finally {
+                if (writer != null) {
+                    try {
+                        writer.close();
+                    } catch (SQLException e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+            }
+        }
+    }
+}
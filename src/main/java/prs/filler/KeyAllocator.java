@@ -0,0 +1,67 @@
+package prs.filler;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+// dodjela kljuceva auto-increment/identity kolone na klijentu: writer rezervise opseg za cijeli chunk
+// prije upisa i salje kljuceve eksplicitno, pa su poznati bez getGeneratedKeys / RETURNING.
+// Jedan alokator po tabeli dijele svi writeri te tabele; pretpostavlja se da u tabelu za vrijeme
+// punjenja ne pise niko drugi
+interface KeyAllocator {
+
+    // prvi od count kljuceva first, first + step(), ...; conn je konekcija writera koji rezervise
+    long reserve(Connection conn, int count) throws SQLException;
+
+    long step();
+
+    // brojac u memoriji: MySQL (baza sama pomjera auto_increment iza eksplicitnih vrijednosti) i dump bez baze
+    static KeyAllocator counter(long first, long step) {
+        AtomicLong next = new AtomicLong(first);
+        return new KeyAllocator() {
+            @Override
+            public long reserve(Connection conn, int count) {
+                return next.getAndAdd(count * step);
+            }
+
+            @Override
+            public long step() {
+                return step;
+            }
+        };
+    }
+
+    // PostgreSQL sekvenca: jedan setval(nextval + ...) po chunku umjesto nextval za svaki red.
+    // nextval i setval nisu atomicni zajedno pa se rezervacije iste sekvence serijalizuju;
+    // ReentrantLock umjesto synchronized da virtualna nit ne blokira nosecu nit za vrijeme upita
+    static KeyAllocator sequence(String sequence, long increment) {
+        ReentrantLock lock = new ReentrantLock();
+        return new KeyAllocator() {
+            @Override
+            public long reserve(Connection conn, int count) throws SQLException {
+                long span = (count - 1) * increment;
+                lock.lock();
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "SELECT setval(?::regclass, nextval(?::regclass) + ?)")) {
+                    ps.setString(1, sequence);
+                    ps.setString(2, sequence);
+                    ps.setLong(3, span);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        rs.next();
+                        return rs.getLong(1) - span;
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+
+            @Override
+            public long step() {
+                return increment;
+            }
+        };
+    }
+}
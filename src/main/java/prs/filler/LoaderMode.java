@@ -0,0 +1,19 @@
+package prs.filler;
+
+public enum LoaderMode {
+    // JDBC INSERT batch, radi svuda
+    INSERT,
+    // INSERT ... VALUES (...),(...) sa automatski podesenim brojem redova po naredbi
+    MULTI_ROW,
+    // nativni bulk put baze: COPY na PostgreSQL-u, LOAD DATA LOCAL INFILE na MySQL-u
+    NATIVE;
+
+    public static LoaderMode parse(String value) {
+        return switch (value.toLowerCase()) {
+            case "insert" -> INSERT;
+            case "multirow", "multi-row" -> MULTI_ROW;
+            case "native", "copy", "infile" -> NATIVE;
+            default -> throw new IllegalArgumentException("Nepoznat --loader: " + value);
+        };
+    }
+}
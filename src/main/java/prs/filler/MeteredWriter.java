@@ -0,0 +1,32 @@
+package prs.filler;
+
+import prs.data.ColumnBatch;
+import prs.keys.KeySetBuilder;
+import prs.metrics.TableMetrics;
+
+import java.sql.SQLException;
+
+// mjeri svaki write: trajanje (batch latencija), redove i procijenjene bajtove
+final class MeteredWriter implements TableWriter {
+
+    private final TableWriter delegate;
+    private final TableMetrics metrics;
+
+    MeteredWriter(TableWriter delegate, TableMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public int write(ColumnBatch rows, KeySetBuilder keysOut) throws SQLException {
+        long start = System.nanoTime();
+        int written = delegate.write(rows, keysOut);
+        metrics.written(written, rows.payloadBytes(), System.nanoTime() - start);
+        return written;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        delegate.close();
+    }
+}
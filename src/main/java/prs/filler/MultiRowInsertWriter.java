@@ -0,0 +1,158 @@
+package prs.filler;
+
+import prs.data.ColumnBatch;
+import prs.db.DbType;
+import prs.keys.KeySetBuilder;
+
+import java.sql.*;
+import java.util.*;
+
+// INSERT ... VALUES (...),(...),... sa vise redova po naredbi. Broj redova po naredbi bira BatchSizer,
+// a ogranicen je brojem bind parametara (65535) i max_allowed_packet. Svaki chunk je jedna transakcija.
+class MultiRowInsertWriter implements TableWriter {
+
+    private static final int MAX_BIND_PARAMS = 65_535;
+    private static final long PG_MAX_STATEMENT_BYTES = 64L * 1024 * 1024;
+    private static final int MIN_ROWS = 16;
+    private static final int INITIAL_ROWS = 256;
+
+    private final Connection conn;
+    private final TableKeys keys;
+    private final String insertPrefix;
+    private final String rowPlaceholders;
+    private final int columnCount;
+    private final long maxStatementBytes;
+    private final boolean prevAutoCommit;
+
+    // pripremljene naredbe po broju redova; BatchSizer vraca mali skup velicina
+    private final Map<Integer, PreparedStatement> statements = new HashMap<>();
+    private BatchSizer sizer;
+
+    private MultiRowInsertWriter(Connection conn, TableKeys keys, String insertPrefix, int columnCount,
+                                 long maxStatementBytes) throws SQLException {
+        this.conn = conn;
+        this.keys = keys;
+        this.insertPrefix = insertPrefix;
+        this.columnCount = columnCount;
+        this.rowPlaceholders = "(" + String.join(", ", Collections.nCopies(columnCount, "?")) + ")";
+        this.maxStatementBytes = maxStatementBytes;
+        this.prevAutoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+    }
+
+    static MultiRowInsertWriter open(Connection conn, DbType dbType, String tableName,
+                                     ColumnBatch shape, TableKeys keys) throws SQLException {
+        char q = (dbType == DbType.MYSQL) ? '`' : '"';
+        String prefix = "INSERT INTO " + q + tableName + q + " (" + keys.columnList(shape, q) + ") VALUES ";
+
+        long maxBytes = PG_MAX_STATEMENT_BYTES;
+        if (dbType == DbType.MYSQL) {
+            try (Statement st = conn.createStatement();
+                 ResultSet rs = st.executeQuery("SELECT @@max_allowed_packet")) {
+                if (rs.next()) {
+                    maxBytes = rs.getLong(1);
+                }
+            }
+        }
+        return new MultiRowInsertWriter(conn, keys, prefix, Math.max(1, keys.columnCount(shape)), maxBytes);
+    }
+
+    @Override
+    public int write(ColumnBatch rows, KeySetBuilder keysOut) throws SQLException {
+        if (sizer == null) {
+            sizer = new BatchSizer(MIN_ROWS, INITIAL_ROWS, computeCap(rows));
+        }
+
+        int inserted = 0;
+        try {
+            long firstKey = 0;
+            boolean clientKeys = keys.clientSide() && !rows.isEmpty();
+            if (clientKeys) {
+                firstKey = keys.reserve(conn, rows.size());
+            }
+            int r = 0;
+            while (r < rows.size()) {
+                int n = Math.min(sizer.current(), rows.size() - r);
+                if (n < sizer.current()) {
+                    // ostatak se dijeli na stepene dvojke da broj pripremljenih naredbi ostane mali
+                    n = Integer.highestOneBit(n);
+                }
+                PreparedStatement ps = statement(n);
+                int p = 1;
+                for (int i = r; i < r + n; i++) {
+                    if (clientKeys) {
+                        ps.setLong(p++, firstKey + i * keys.step());
+                    }
+                    for (int c = 0; c < rows.columnCount(); c++) {
+                        DataFiller.bind(ps, p++, rows, c, i);
+                    }
+                }
+
+                long t0 = System.nanoTime();
+                inserted += ps.executeUpdate();
+                sizer.record(n, System.nanoTime() - t0);
+
+                if (keys.returnKeys) {
+                    try (ResultSet rsKeys = ps.getGeneratedKeys()) {
+                        while (rsKeys.next()) {
+                            keysOut.add(rsKeys.getObject(1));
+                        }
+                    }
+                }
+                r += n;
+            }
+            conn.commit();
+            if (clientKeys) {
+                keys.record(keysOut, firstKey, rows.size());
+            }
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        }
+        return inserted;
+    }
+
+    // granica iz broja parametara i velicine paketa, velicina reda se procjenjuje iz prvog chunka
+    private int computeCap(ColumnBatch rows) {
+        int byParams = MAX_BIND_PARAMS / columnCount;
+
+        long bytes = 0;
+        for (int c = 0; c < rows.columnCount(); c++) {
+            if (rows.kind(c) == ColumnBatch.Kind.STRING) {
+                for (int r = 0; r < rows.size(); r++) {
+                    bytes += rows.stringLength(c, r);
+                }
+            }
+        }
+        long perRow = rows.size() == 0 ? 0 : bytes / rows.size();
+        perRow += 16L * rows.columnCount() + 8;   // brojevi, escape i razdvojnici
+        long byPacket = (maxStatementBytes * 3 / 4) / perRow;   // rezerva za SQL i protokol
+
+        return (int) Math.max(1, Math.min(byParams, byPacket));
+    }
+
+    private PreparedStatement statement(int rowsPerStatement) throws SQLException {
+        PreparedStatement ps = statements.get(rowsPerStatement);
+        if (ps == null) {
+            StringBuilder sql = new StringBuilder(insertPrefix.length() + rowsPerStatement * (rowPlaceholders.length() + 2));
+            sql.append(insertPrefix);
+            for (int i = 0; i < rowsPerStatement; i++) {
+                if (i > 0) {
+                    sql.append(", ");
+                }
+                sql.append(rowPlaceholders);
+            }
+            ps = keys.prepare(conn, sql.toString());
+            statements.put(rowsPerStatement, ps);
+        }
+        return ps;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        for (PreparedStatement ps : statements.values()) {
+            ps.close();
+        }
+        conn.setAutoCommit(prevAutoCommit);
+    }
+}
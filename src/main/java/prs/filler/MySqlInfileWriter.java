@@ -0,0 +1,156 @@
+package prs.filler;
+
+import com.mysql.cj.jdbc.JdbcStatement;
+import prs.data.ColumnBatch;
+import prs.keys.KeySetBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+// LOAD DATA LOCAL INFILE iz memorije: chunk se kodira u TSV bafer i predaje drajveru kao InputStream,
+// nista se ne pise na disk. Ako server ili klijent ne dozvoljava local infile, prelazi na INSERT batch.
+// Svaki chunk je jedna transakcija, kao kod INSERT writera.
+class MySqlInfileWriter implements TableWriter {
+
+    @FunctionalInterface
+    interface FallbackOpener {
+        TableWriter open() throws SQLException;
+    }
+
+    // ER_NOT_ALLOWED_COMMAND i ER_CLIENT_LOCAL_FILES_DISABLED
+    private static final int ER_NOT_ALLOWED_COMMAND = 1148;
+    private static final int ER_CLIENT_LOCAL_FILES_DISABLED = 3948;
+
+    private final Connection conn;
+    private final String tableName;
+    private final String loadSql;
+    private final TableKeys keys;
+    private final FallbackOpener fallbackOpener;
+    private final boolean prevAutoCommit;
+    private final TextRowEncoder encoder = TextRowEncoder.forMySql(64 * 1024);
+
+    private TableWriter fallback;
+
+    private MySqlInfileWriter(Connection conn, String tableName, String loadSql, TableKeys keys,
+                              FallbackOpener fallbackOpener) throws SQLException {
+        this.conn = conn;
+        this.tableName = tableName;
+        this.loadSql = loadSql;
+        this.keys = keys;
+        this.fallbackOpener = fallbackOpener;
+        this.prevAutoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+    }
+
+    // auto_increment kljucevi se dodjeljuju na klijentu i salju kao prva kolona, pa istovremeni
+    // LOAD DATA u istu tabelu ne moraju da cuvaju neprekidan opseg (innodb_autoinc_lock_mode=2)
+    static MySqlInfileWriter open(Connection conn, String tableName, ColumnBatch shape, TableKeys keys,
+                                  FallbackOpener fallbackOpener) throws SQLException {
+        List<String> names = new ArrayList<>();
+        boolean[] bit = new boolean[keys.columnCount(shape)];
+        if (keys.clientSide()) {
+            names.add(keys.column);
+        }
+        for (int c = 0; c < shape.columnCount(); c++) {
+            bit[names.size()] = shape.sqlType(c) == Types.BIT;
+            names.add(shape.name(c));
+        }
+        String sql = "LOAD DATA LOCAL INFILE 'stream' INTO TABLE `" + tableName + "` CHARACTER SET utf8mb4 " +
+                "FIELDS TERMINATED BY '\\t' ESCAPED BY '\\\\' LINES TERMINATED BY '\\n' " + loadColumns(names, bit);
+
+        return new MySqlInfileWriter(conn, tableName, sql, keys, fallbackOpener);
+    }
+
+    // lista kolona za LOAD DATA; BIT kolona cita polje kao binarni niz (i '0' bi postao b'1'),
+    // pa ide preko @varijable i CAST-a
+    static String loadColumns(List<String> names, boolean[] bit) {
+        StringBuilder cols = new StringBuilder("(");
+        StringBuilder set = new StringBuilder();
+        for (int c = 0; c < names.size(); c++) {
+            cols.append(c == 0 ? "" : ", ");
+            if (bit[c]) {
+                cols.append("@bit").append(c);
+                set.append(set.isEmpty() ? " SET " : ", ").append('`').append(names.get(c))
+                        .append("` = CAST(@bit").append(c).append(" AS UNSIGNED)");
+            } else {
+                cols.append('`').append(names.get(c)).append('`');
+            }
+        }
+        return cols.append(')').append(set).toString();
+    }
+
+    @Override
+    public int write(ColumnBatch rows, KeySetBuilder keysOut) throws SQLException {
+        if (fallback != null) {
+            return fallback.write(rows, keysOut);
+        }
+
+        boolean clientKeys = keys.clientSide() && !rows.isEmpty();
+        long firstKey = clientKeys ? keys.reserve(conn, rows.size()) : 0;
+        encoder.clear();
+        for (int r = 0; r < rows.size(); r++) {
+            encoder.writeRow(rows, r, clientKeys ? firstKey + r * keys.step() : -1);
+        }
+
+        try {
+            int loaded = load(rows.size());
+            conn.commit();
+            if (clientKeys) {
+                keys.record(keysOut, firstKey, rows.size());
+            }
+            return loaded;
+        } catch (SQLException e) {
+            conn.rollback();
+            if (!isLocalInfileDisabled(e)) {
+                throw e;
+            }
+            System.out.println("fillTable: LOAD DATA LOCAL nije dozvoljen (" + e.getMessage()
+                    + "), za \"" + tableName + "\" se koristi INSERT batch");
+            fallback = fallbackOpener.open();
+            return fallback.write(rows, keysOut);
+        }
+    }
+
+    // LOAD DATA LOCAL se ponasa kao IGNORE: duplikat ili neispravan red se preskace uz upozorenje,
+    // pa se chunk u kome nisu ucitani svi redovi ponistava (kljucevi se ne pamte), sa razlogom iz SHOW WARNINGS
+    private int load(int expected) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            st.unwrap(JdbcStatement.class)
+                    .setLocalInfileInputStream(new ByteArrayInputStream(encoder.buffer(), 0, encoder.length()));
+            int loaded = st.executeUpdate(loadSql);
+            if (loaded != expected) {
+                throw new SQLException("LOAD DATA u \"" + tableName + "\" ucitao " + loaded + " od " + expected
+                        + " redova: " + warnings(st));
+            }
+            return loaded;
+        }
+    }
+
+    private static String warnings(Statement st) throws SQLException {
+        StringBuilder sb = new StringBuilder();
+        try (ResultSet rs = st.executeQuery("SHOW WARNINGS LIMIT 5")) {
+            while (rs.next()) {
+                sb.append(sb.isEmpty() ? "" : "; ").append(rs.getString("Message"));
+            }
+        }
+        return sb.isEmpty() ? "bez upozorenja" : sb.toString();
+    }
+
+    private static boolean isLocalInfileDisabled(SQLException e) {
+        String msg = e.getMessage() == null ? "" : e.getMessage().toLowerCase();
+        return e.getErrorCode() == ER_NOT_ALLOWED_COMMAND
+                || e.getErrorCode() == ER_CLIENT_LOCAL_FILES_DISABLED
+                || msg.contains("local data is disabled")
+                || msg.contains("load data local infile");
+    }
+
+    @Override
+    public void close() throws SQLException {
+        if (fallback != null) {
+            fallback.close();
+        }
+        conn.setAutoCommit(prevAutoCommit);
+    }
+}
@@ -0,0 +1,69 @@
+package prs.filler;
+
+import prs.db.DbType;
+
+// UPDATE za batch redova ColumnPatch-a; vrijednosti (kljuc reda pa nove vrijednosti kolona) daje Values:
+// "?" za PreparedStatement (DataFiller) ili literal za dump (DumpSink)
+final class PatchSql {
+
+    @FunctionalInterface
+    interface Values {
+        String value(int row, int col);
+    }
+
+    private PatchSql() {
+    }
+
+    static String update(DbType dbType, ColumnPatch patch, int rows, Values values) {
+        int n = patch.columns().size();
+        StringBuilder sb = new StringBuilder(64 + rows * (n + 1) * 4);
+        if (dbType == DbType.MYSQL) {
+            // MySQL nema UPDATE ... FROM (VALUES ...): izvedena tabela od UNION ALL i UPDATE ... JOIN
+            String table = "`" + patch.tableName() + "`";
+            sb.append("UPDATE ").append(table).append(" JOIN (");
+            for (int r = 0; r < rows; r++) {
+                sb.append(r == 0 ? "SELECT " : " UNION ALL SELECT ").append(values.value(r, 0));
+                if (r == 0) {
+                    sb.append(" AS k");
+                }
+                for (int c = 0; c < n; c++) {
+                    sb.append(", ").append(values.value(r, c + 1));
+                    if (r == 0) {
+                        sb.append(" AS p").append(c);
+                    }
+                }
+            }
+            sb.append(") AS v ON ").append(table).append(".`").append(patch.keyColumn()).append("` = v.k SET ");
+            for (int c = 0; c < n; c++) {
+                if (c > 0) {
+                    sb.append(", ");
+                }
+                sb.append(table).append(".`").append(patch.columns().get(c)).append("` = v.p").append(c);
+            }
+            return sb.toString();
+        }
+
+        String table = "\"" + patch.tableName() + "\"";
+        sb.append("UPDATE ").append(table).append(" SET ");
+        for (int c = 0; c < n; c++) {
+            if (c > 0) {
+                sb.append(", ");
+            }
+            sb.append('"').append(patch.columns().get(c)).append("\" = v.p").append(c);
+        }
+        sb.append(" FROM (VALUES ");
+        for (int r = 0; r < rows; r++) {
+            sb.append(r == 0 ? "(" : ", (").append(values.value(r, 0));
+            for (int c = 0; c < n; c++) {
+                sb.append(", ").append(values.value(r, c + 1));
+            }
+            sb.append(')');
+        }
+        sb.append(") AS v(k");
+        for (int c = 0; c < n; c++) {
+            sb.append(", p").append(c);
+        }
+        sb.append(") WHERE ").append(table).append(".\"").append(patch.keyColumn()).append("\" = v.k");
+        return sb.toString();
+    }
+}
@@ -0,0 +1,75 @@
+package prs.filler;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+import prs.data.ColumnBatch;
+import prs.keys.KeySetBuilder;
+
+import java.sql.*;
+
+// COPY ... FROM STDIN u text formatu, redovi se kodiraju direktno iz ColumnBatch u bafer bez SQL-a.
+// COPY ne vraca kljuceve pa se vrijednosti serial/identity kolone rezervisu iz sekvence (KeyAllocator)
+// i salju eksplicitno; tako su kljucevi poznati bez citanja nazad.
+class PgCopyWriter implements TableWriter {
+
+    private static final int FLUSH_BYTES = 64 * 1024;
+
+    private final Connection conn;
+    private final CopyManager copyManager;
+    private final String copySql;
+    private final TableKeys keys;
+
+    private final TextRowEncoder encoder = TextRowEncoder.forPostgres(FLUSH_BYTES + 1024);
+
+    private PgCopyWriter(Connection conn, String copySql, TableKeys keys) throws SQLException {
+        this.conn = conn;
+        this.copyManager = conn.unwrap(PGConnection.class).getCopyAPI();
+        this.copySql = copySql;
+        this.keys = keys;
+    }
+
+    // null ako COPY nije moguc za tabelu (kljuceve daje baza, npr. GENERATED ALWAYS identity)
+    static PgCopyWriter open(Connection conn, String tableName, ColumnBatch shape, TableKeys keys) throws SQLException {
+        if (keys.returnKeys) {
+            return null;
+        }
+        String copySql = "COPY \"" + tableName + "\" (" + keys.columnList(shape, '"') + ") FROM STDIN";
+        return new PgCopyWriter(conn, copySql, keys);
+    }
+
+    @Override
+    public int write(ColumnBatch rows, KeySetBuilder keysOut) throws SQLException {
+        boolean clientKeys = keys.clientSide() && !rows.isEmpty();
+        long firstKey = clientKeys ? keys.reserve(conn, rows.size()) : 0;
+
+        CopyIn copyIn = copyManager.copyIn(copySql);
+        try {
+            encoder.clear();
+            for (int r = 0; r < rows.size(); r++) {
+                encoder.writeRow(rows, r, clientKeys ? firstKey + r * keys.step() : -1);
+                if (encoder.length() >= FLUSH_BYTES) {
+                    copyIn.writeToCopy(encoder.buffer(), 0, encoder.length());
+                    encoder.clear();
+                }
+            }
+            if (encoder.length() > 0) {
+                copyIn.writeToCopy(encoder.buffer(), 0, encoder.length());
+            }
+            long copied = copyIn.endCopy();
+
+            if (clientKeys) {
+                keys.record(keysOut, firstKey, rows.size());
+            }
+            return (int) copied;
+        } finally {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,33 @@
+package prs.filler;
+
+import prs.data.ColumnBatch;
+import prs.keys.KeySetBuilder;
+
+import java.sql.SQLException;
+
+// odrediste generisanih redova: baza (DataFiller) ili fajlovi (DumpSink).
+// Svaka nit koja upisuje (inserter, shard) otvara svoj writer i zatvara ga kad zavrsi
+public interface RowSink {
+
+    // oblik batcha odredjuje kolone, svi chunkovi iste tabele imaju isti oblik
+    TableWriter open(String tableName, ColumnBatch shape) throws SQLException;
+
+    // upisuje fk kolone koje su zbog ciklusa upisane kao NULL; poziva se kad su upisane sve tabele ciklusa
+    void patch(ColumnPatch patch) throws SQLException;
+
+    // svi writeri tabele su zatvoreni i tabela je cijela upisana
+    default void tableFinished(String tableName) throws SQLException {
+    }
+
+    // cijela tabela odjednom (punjenje bez --streaming)
+    default KeySetBuilder fillTable(String tableName, ColumnBatch rows) throws SQLException {
+        KeySetBuilder keys = new KeySetBuilder();
+        if (rows == null || rows.isEmpty()) {
+            return keys;
+        }
+        try (TableWriter writer = open(tableName, rows)) {
+            writer.write(rows, keys);
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,192 @@
+package prs.filler;
+
+import prs.data.ColumnBatch;
+import prs.db.DbType;
+import prs.keys.KeySetBuilder;
+
+import java.sql.*;
+
+// kolona tabele koju puni baza (serial/identity/auto_increment) i ko dodjeljuje njene kljuceve:
+//   allocator != null: klijent, kljuc se salje kao prva kolona (vidi KeyAllocator)
+//   returnKeys: baza, kljucevi se citaju iz getGeneratedKeys (GENERATED ALWAYS, baza bez sekvenci npr. H2)
+//   ni jedno: tabela nema takvu kolonu, kljucevi se ne traze
+final class TableKeys {
+
+    static final TableKeys NONE = new TableKeys(null, null, false);
+
+    final String column;
+    final KeyAllocator allocator;
+    final boolean returnKeys;
+
+    private TableKeys(String column, KeyAllocator allocator, boolean returnKeys) {
+        this.column = column;
+        this.allocator = allocator;
+        this.returnKeys = returnKeys;
+    }
+
+    boolean clientSide() {
+        return allocator != null;
+    }
+
+    // prvi kljuc chunka od count redova, upisuje se tek kad chunk prodje (record)
+    long reserve(Connection conn, int count) throws SQLException {
+        return allocator.reserve(conn, count);
+    }
+
+    void record(KeySetBuilder keysOut, long first, int count) {
+        keysOut.addRange(first, count, allocator.step());
+    }
+
+    long step() {
+        return allocator.step();
+    }
+
+    // kolone za INSERT/COPY/LOAD DATA: kljuc (kad ga dodjeljuje klijent) pa kolone batcha
+    String columnList(ColumnBatch shape, char quote) {
+        StringBuilder cols = new StringBuilder();
+        if (clientSide()) {
+            cols.append(quote).append(column).append(quote);
+        }
+        for (int c = 0; c < shape.columnCount(); c++) {
+            if (cols.length() > 0) {
+                cols.append(", ");
+            }
+            cols.append(quote).append(shape.name(c)).append(quote);
+        }
+        return cols.toString();
+    }
+
+    // broj kolona u naredbi
+    int columnCount(ColumnBatch shape) {
+        return shape.columnCount() + (clientSide() ? 1 : 0);
+    }
+
+    // INSERT koji cita kljuceve samo kad ih daje baza
+    PreparedStatement prepare(Connection conn, String sql) throws SQLException {
+        if (!returnKeys) {
+            return conn.prepareStatement(sql);
+        }
+        // samo kolona kljuca, ne RETURNING * (PostgreSQL)
+        return column != null
+                ? conn.prepareStatement(sql, new String[]{column})
+                : conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+    }
+
+    // poziva se prije nego writer iskljuci autocommit: neuspio upit ne smije oboriti transakciju
+    static TableKeys lookup(Connection conn, DbType dbType, String tableName, ColumnBatch shape) throws SQLException {
+        return dbType == DbType.MYSQL ? lookupMySql(conn, tableName, shape) : lookupPostgres(conn, tableName, shape);
+    }
+
+    private static TableKeys lookupPostgres(Connection conn, String tableName, ColumnBatch shape) throws SQLException {
+        String sql = "SELECT column_name, identity_generation, "
+                + "pg_get_serial_sequence(quote_ident(table_name), column_name) AS seq "
+                + "FROM information_schema.columns "
+                + "WHERE table_schema = 'public' AND table_name = ? "
+                + "AND (column_default LIKE 'nextval(%' OR is_identity = 'YES') "
+                + "ORDER BY ordinal_position";
+        try {
+            String column = null;
+            String sequence = null;
+            boolean always = false;
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setString(1, tableName);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (!rs.next()) {
+                        return NONE;
+                    }
+                    column = rs.getString("column_name");
+                    sequence = rs.getString("seq");
+                    always = "ALWAYS".equalsIgnoreCase(rs.getString("identity_generation"));
+                }
+            }
+            if (inShape(shape, column)) {
+                return NONE;
+            }
+            // GENERATED ALWAYS ne prima eksplicitne vrijednosti
+            if (always || sequence == null) {
+                return new TableKeys(column, null, true);
+            }
+
+            long increment = 1;
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "SELECT seqincrement FROM pg_sequence WHERE seqrelid = ?::regclass")) {
+                ps.setString(1, sequence);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) {
+                        increment = rs.getLong(1);
+                    }
+                }
+            }
+            return new TableKeys(column, KeyAllocator.sequence(sequence, increment), false);
+        } catch (SQLException e) {
+            if (!missingFunction(e)) {
+                throw e;
+            }
+            // nema pg_get_serial_sequence (H2 u PostgreSQL modu): kljuceve vraca baza kao ranije
+            return new TableKeys(null, null, true);
+        }
+    }
+
+    // PostgreSQL undefined_function i H2 FUNCTION_NOT_FOUND
+    static boolean missingFunction(SQLException e) {
+        return "42883".equals(e.getSQLState()) || "90022".equals(e.getSQLState());
+    }
+
+    // eksplicitan kljuc pomjera auto_increment brojac iza sebe, pa je dovoljan brojac na klijentu
+    // koji krece iza najveceg postojeceg kljuca i postuje auto_increment_increment / offset
+    private static TableKeys lookupMySql(Connection conn, String tableName, ColumnBatch shape) throws SQLException {
+        String column;
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT column_name FROM information_schema.columns "
+                        + "WHERE table_schema = DATABASE() AND table_name = ? AND extra LIKE '%auto_increment%'")) {
+            ps.setString(1, tableName);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    return NONE;
+                }
+                column = rs.getString(1);
+            }
+        }
+        if (inShape(shape, column)) {
+            return NONE;
+        }
+
+        long step = 1;
+        long offset = 1;
+        long max = 0;
+        try (Statement st = conn.createStatement()) {
+            try (ResultSet rs = st.executeQuery("SELECT @@auto_increment_increment, @@auto_increment_offset")) {
+                if (rs.next()) {
+                    step = Math.max(1, rs.getLong(1));
+                    offset = rs.getLong(2);
+                }
+            }
+            try (ResultSet rs = st.executeQuery(
+                    "SELECT COALESCE(MAX(`" + column + "`), 0) FROM `" + tableName + "`")) {
+                if (rs.next()) {
+                    max = rs.getLong(1);
+                }
+            }
+        }
+        // offset veci od increment MySQL ignorise
+        if (offset < 1 || offset > step) {
+            offset = 1;
+        }
+        long first = max + 1;
+        long rem = Math.floorMod(first - offset, step);
+        if (rem != 0) {
+            first += step - rem;
+        }
+        return new TableKeys(column, KeyAllocator.counter(first, step), false);
+    }
+
+    // kolonu vec puni generator (npr. pk koji nije auto_increment u semi)
+    private static boolean inShape(ColumnBatch shape, String column) {
+        for (int c = 0; c < shape.columnCount(); c++) {
+            if (shape.name(c).equalsIgnoreCase(column)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,16 @@
+package prs.filler;
+
+import prs.data.ColumnBatch;
+import prs.keys.KeySetBuilder;
+
+import java.sql.SQLException;
+
+// upisuje chunkove jedne tabele preko jedne konekcije
+public interface TableWriter extends AutoCloseable {
+
+    // vraca broj ubacenih redova, generisani kljucevi (ako ih ima) idu u keysOut
+    int write(ColumnBatch rows, KeySetBuilder keysOut) throws SQLException;
+
+    @Override
+    void close() throws SQLException;
+}
@@ -0,0 +1,139 @@
+package prs.filler;
+
+import prs.data.ColumnBatch;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// kodira redove iz ColumnBatch u tab-separated text format koji razumiju i PostgreSQL COPY
+// i MySQL LOAD DATA (\N za null, \ escape za \, tab, novi red i CR)
+class TextRowEncoder {
+
+    private final byte trueByte;
+    private final byte falseByte;
+
+    private byte[] buf;
+    private int pos;
+
+    TextRowEncoder(int initialBytes, byte trueByte, byte falseByte) {
+        this.buf = new byte[initialBytes];
+        this.trueByte = trueByte;
+        this.falseByte = falseByte;
+    }
+
+    // PostgreSQL boolean t/f
+    static TextRowEncoder forPostgres(int initialBytes) {
+        return new TextRowEncoder(initialBytes, (byte) 't', (byte) 'f');
+    }
+
+    // MySQL boolean/tinyint 1/0
+    static TextRowEncoder forMySql(int initialBytes) {
+        return new TextRowEncoder(initialBytes, (byte) '1', (byte) '0');
+    }
+
+    byte[] buffer() {
+        return buf;
+    }
+
+    int length() {
+        return pos;
+    }
+
+    void clear() {
+        pos = 0;
+    }
+
+    // jedan red bez zavrsnog '\n'; key >= 0 se pise kao prva kolona (rezervisani kljuc)
+    void writeRow(ColumnBatch rows, int row, long key) {
+        boolean first = true;
+        if (key >= 0) {
+            writeLong(key);
+            first = false;
+        }
+        for (int c = 0; c < rows.columnCount(); c++) {
+            if (!first) {
+                put((byte) '\t');
+            }
+            first = false;
+            writeValue(rows, c, row);
+        }
+        put((byte) '\n');
+    }
+
+    private void writeValue(ColumnBatch rows, int col, int row) {
+        if (rows.isNull(col, row)) {
+            put((byte) '\\');
+            put((byte) 'N');
+            return;
+        }
+        switch (rows.kind(col)) {
+            case INT -> writeLong(rows.getInt(col, row));
+            case LONG -> writeLong(rows.getLong(col, row));
+            case BOOLEAN -> put(rows.getBoolean(col, row) ? trueByte : falseByte);
+            case STRING -> writeEscaped(rows.arena(col), rows.stringOffset(col, row), rows.stringLength(col, row));
+            case DOUBLE -> writeAscii(Double.toString(rows.getDouble(col, row)));
+            case DATE -> writeAscii(new java.sql.Date(rows.getLong(col, row)).toString());
+            case TIMESTAMP -> writeAscii(new java.sql.Timestamp(rows.getLong(col, row)).toString());
+            default -> {
+                byte[] b = String.valueOf(rows.getObject(col, row)).getBytes(StandardCharsets.UTF_8);
+                writeEscaped(b, 0, b.length);
+            }
+        }
+    }
+
+    // specijalni znakovi su ASCII pa je UTF-8 sigurno obradjivati po bajtu
+    private void writeEscaped(byte[] src, int off, int len) {
+        ensure(len * 2);
+        for (int i = off; i < off + len; i++) {
+            byte b = src[i];
+            switch (b) {
+                case '\\' -> { buf[pos++] = '\\'; buf[pos++] = '\\'; }
+                case '\t' -> { buf[pos++] = '\\'; buf[pos++] = 't'; }
+                case '\n' -> { buf[pos++] = '\\'; buf[pos++] = 'n'; }
+                case '\r' -> { buf[pos++] = '\\'; buf[pos++] = 'r'; }
+                default -> buf[pos++] = b;
+            }
+        }
+    }
+
+    private void writeAscii(String s) {
+        ensure(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            buf[pos++] = (byte) s.charAt(i);
+        }
+    }
+
+    private void writeLong(long v) {
+        ensure(20);
+        if (v == Long.MIN_VALUE) {
+            writeAscii(Long.toString(v));
+            return;
+        }
+        if (v < 0) {
+            buf[pos++] = '-';
+            v = -v;
+        }
+        int start = pos;
+        do {
+            buf[pos++] = (byte) ('0' + (v % 10));
+            v /= 10;
+        } while (v != 0);
+        // cifre su upisane obrnuto
+        for (int i = start, j = pos - 1; i < j; i++, j--) {
+            byte t = buf[i];
+            buf[i] = buf[j];
+            buf[j] = t;
+        }
+    }
+
+    private void put(byte b) {
+        ensure(1);
+        buf[pos++] = b;
+    }
+
+    private void ensure(int extra) {
+        if (pos + extra > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(buf.length * 2, pos + extra));
+        }
+    }
+}
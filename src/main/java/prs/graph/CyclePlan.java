@@ -0,0 +1,121 @@
+package prs.graph;
+
+import java.util.*;
+import java.util.function.BiPredicate;
+
+// kako se pune tabele u fk ciklusima (samoreferenca, tabele koje referenciraju jedna drugu):
+// iz svake ciklicne komponente se uklanja po jedna ivica dok graf ne postane aciklican.
+// Kolone uklonjene (odlozene) ivice upisuju se kao NULL, a kad je cijela komponenta upisana
+// dobijaju vrijednosti iz kljuceva roditelja (RowSink.patch). Ivica se moze odloziti samo ako
+// su joj sve fk kolone nullable i redovi djeteta imaju kljuc po kome se mogu naci (breakable)
+public class CyclePlan {
+
+    private final DependencyGraph acyclic;
+    private final Set<DependencyGraph.Edge> deferred;
+    private final List<List<String>> cyclicComponents;
+
+    private CyclePlan(DependencyGraph acyclic, Set<DependencyGraph.Edge> deferred,
+                      List<List<String>> cyclicComponents) {
+        this.acyclic = acyclic;
+        this.deferred = deferred;
+        this.cyclicComponents = cyclicComponents;
+    }
+
+    // IllegalStateException ako neki ciklus nema ivicu koja se moze odloziti (npr. sve fk su NOT NULL)
+    public static CyclePlan build(DependencyGraph graph, Collection<String> allTablesLC,
+                                  BiPredicate<String, String> breakable) {
+        List<List<String>> cyclic = new ArrayList<>();
+        for (List<String> component : graph.stronglyConnectedComponents(allTablesLC)) {
+            if (isCyclic(graph, component)) {
+                Collections.sort(component);
+                cyclic.add(component);
+            }
+        }
+
+        // po jedna ivica iz svake preostale ciklicne komponente, dok ih ima;
+        // samoreference prve jer ne prekidaju veze izmedju razlicitih tabela
+        Set<DependencyGraph.Edge> deferred = new LinkedHashSet<>();
+        DependencyGraph current = graph;
+        while (true) {
+            boolean changed = false;
+            for (List<String> component : current.stronglyConnectedComponents(allTablesLC)) {
+                if (!isCyclic(current, component)) {
+                    continue;
+                }
+                DependencyGraph.Edge edge = pick(current, component, breakable);
+                if (edge == null) {
+                    Collections.sort(component);
+                    throw new IllegalStateException("ciklus " + component + " nema nullable fk koji se moze popuniti naknadno");
+                }
+                deferred.add(edge);
+                changed = true;
+            }
+            if (!changed) {
+                break;
+            }
+            current = graph.without(deferred);
+        }
+        return new CyclePlan(current, deferred, cyclic);
+    }
+
+    private static boolean isCyclic(DependencyGraph graph, List<String> component) {
+        return component.size() > 1 || graph.hasEdge(component.get(0), component.get(0));
+    }
+
+    private static DependencyGraph.Edge pick(DependencyGraph graph, List<String> component,
+                                             BiPredicate<String, String> breakable) {
+        List<String> members = new ArrayList<>(component);
+        Collections.sort(members);
+        for (String t : members) {
+            if (graph.hasEdge(t, t) && breakable.test(t, t)) {
+                return new DependencyGraph.Edge(t, t);
+            }
+        }
+        for (String child : members) {
+            List<String> parents = graph.parents(child, members);
+            Collections.sort(parents);
+            for (String parent : parents) {
+                if (!parent.equals(child) && breakable.test(child, parent)) {
+                    return new DependencyGraph.Edge(child, parent);
+                }
+            }
+        }
+        return null;
+    }
+
+    // graf bez odlozenih ivica: redoslijed punjenja i scheduler
+    public DependencyGraph acyclic() {
+        return acyclic;
+    }
+
+    public boolean hasCycles() {
+        return !cyclicComponents.isEmpty();
+    }
+
+    // komponente sa ciklusom u polaznom grafu, clanovi sortirani
+    public List<List<String>> cyclicComponents() {
+        return cyclicComponents;
+    }
+
+    // roditelji cije fk kolone tabela upisuje kao NULL
+    public Set<String> deferredParents(String tableLC) {
+        Set<String> parents = new LinkedHashSet<>();
+        for (DependencyGraph.Edge e : deferred) {
+            if (e.child().equals(tableLC)) {
+                parents.add(e.parent());
+            }
+        }
+        return parents;
+    }
+
+    // odlozene ivice unutar komponente
+    public List<DependencyGraph.Edge> deferredIn(Collection<String> component) {
+        List<DependencyGraph.Edge> edges = new ArrayList<>();
+        for (DependencyGraph.Edge e : deferred) {
+            if (component.contains(e.child())) {
+                edges.add(e);
+            }
+        }
+        return edges;
+    }
+}
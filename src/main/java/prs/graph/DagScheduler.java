@@ -0,0 +1,83 @@
+package prs.graph;
+
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+
+// pokrece tabelu cim su zavrseni svi njeni roditelji (bez cekanja cijelog nivoa).
+// Od spremnih tabela prva ide ona sa najduzim kriticnim putem (tezina tabele + najteza grana potomaka).
+public class DagScheduler {
+
+    @FunctionalInterface
+    public interface TableTask {
+        void run(String tableLC) throws Exception;
+    }
+
+    private final Map<String, List<String>> children;
+    private final Map<String, Integer> pendingParents;
+    private final Map<String, Long> priority;
+
+    private final Object lock = new Object();
+    private final PriorityQueue<String> ready;
+    private int running;
+    private CountDownLatch done;
+
+    public DagScheduler(DependencyGraph graph, List<String> sortedTablesLC, Map<String, Long> weights) {
+        this.children = graph.children(sortedTablesLC);
+        this.pendingParents = new HashMap<>();
+        for (String t : sortedTablesLC) {
+            pendingParents.put(t, graph.parents(t, sortedTablesLC).size());
+        }
+        this.priority = graph.criticalPath(sortedTablesLC, weights);
+        this.ready = new PriorityQueue<>(
+                Comparator.comparingLong((String t) -> priority.getOrDefault(t, 0L)).reversed());
+    }
+
+    public Map<String, Long> priorities() {
+        return Collections.unmodifiableMap(priority);
+    }
+
+    // blokira dok sve tabele ne zavrse; greska u tabeli se ispisuje, a djeca se ipak pokrecu (kao ranije)
+    public void run(Executor executor, int maxConcurrent, TableTask task) throws InterruptedException {
+        synchronized (lock) {
+            done = new CountDownLatch(pendingParents.size());
+            for (Map.Entry<String, Integer> e : pendingParents.entrySet()) {
+                if (e.getValue() == 0) {
+                    ready.add(e.getKey());
+                }
+            }
+            dispatch(executor, maxConcurrent, task);
+        }
+        done.await();
+    }
+
+    private void dispatch(Executor executor, int maxConcurrent, TableTask task) {
+        while (running < maxConcurrent && !ready.isEmpty()) {
+            String tableLC = ready.poll();
+            running++;
+            executor.execute(() -> {
+                try {
+                    task.run(tableLC);
+                } catch (Exception e) {
+                    System.out.println("Greska pri popunjavanju tabele " + tableLC + ": " + e.getMessage());
+                } finally {
+                    finished(tableLC, executor, maxConcurrent, task);
+                }
+            });
+        }
+    }
+
+    private void finished(String tableLC, Executor executor, int maxConcurrent, TableTask task) {
+        synchronized (lock) {
+            running--;
+            for (String child : children.getOrDefault(tableLC, List.of())) {
+                int left = pendingParents.merge(child, -1, Integer::sum);
+                if (left == 0) {
+                    ready.add(child);
+                }
+            }
+            dispatch(executor, maxConcurrent, task);
+        }
+        done.countDown();
+    }
+}
@@ -4,6 +4,10 @@ import java.util.*;
 
 public class DependencyGraph {
 
+    // fk ivica: dijete referencira roditelja (lower-case); child == parent za samoreferencu
+    public record Edge(String child, String parent) {
+    }
+
     private final Map<String, List<String>> graph;
 
     public DependencyGraph(Map<String, List<String>> dependencies) {
@@ -66,4 +70,132 @@ public class DependencyGraph {
 
         return sorted;
     }
+
+    // dijete -> roditelji (lower-case), oblik koji prima konstruktor
+    public Map<String, List<String>> dependencies() {
+        Map<String, List<String>> copy = new HashMap<>();
+        graph.forEach((child, parents) -> copy.put(child, new ArrayList<>(parents)));
+        return copy;
+    }
+
+    public boolean hasEdge(String childLC, String parentLC) {
+        return graph.getOrDefault(childLC, List.of()).contains(parentLC);
+    }
+
+    // isti graf bez datih ivica (odlozene fk ivice ciklusa)
+    public DependencyGraph without(Collection<Edge> removed) {
+        Map<String, List<String>> deps = dependencies();
+        for (Edge e : removed) {
+            List<String> parents = deps.get(e.child());
+            if (parents != null) {
+                parents.removeIf(p -> p.equals(e.parent()));
+            }
+        }
+        return new DependencyGraph(deps);
+    }
+
+    // jako povezane komponente (Tarjan, iterativno da duboki lanci ne prepune stek);
+    // tabela bez ciklusa je komponenta sa jednim clanom
+    public List<List<String>> stronglyConnectedComponents(Collection<String> allTablesLC) {
+        Set<String> inSet = new LinkedHashSet<>();
+        for (String t : allTablesLC) {
+            inSet.add(t.toLowerCase());
+        }
+        Map<String, Integer> index = new HashMap<>();
+        Map<String, Integer> low = new HashMap<>();
+        Deque<String> stack = new ArrayDeque<>();
+        Set<String> onStack = new HashSet<>();
+        List<List<String>> result = new ArrayList<>();
+
+        for (String root : inSet) {
+            if (index.containsKey(root)) {
+                continue;
+            }
+            // okvir DFS-a: tabela i roditelji koji jos nisu obidjeni
+            Deque<Map.Entry<String, Iterator<String>>> work = new ArrayDeque<>();
+            visit(root, index, low, stack, onStack, work, inSet);
+            while (!work.isEmpty()) {
+                String v = work.peek().getKey();
+                Iterator<String> it = work.peek().getValue();
+                if (it.hasNext()) {
+                    String w = it.next();
+                    if (!index.containsKey(w)) {
+                        visit(w, index, low, stack, onStack, work, inSet);
+                    } else if (onStack.contains(w)) {
+                        low.put(v, Math.min(low.get(v), index.get(w)));
+                    }
+                    continue;
+                }
+                work.pop();
+                if (!work.isEmpty()) {
+                    String u = work.peek().getKey();
+                    low.put(u, Math.min(low.get(u), low.get(v)));
+                }
+                if (low.get(v).equals(index.get(v))) {
+                    List<String> component = new ArrayList<>();
+                    String w;
+                    do {
+                        w = stack.pop();
+                        onStack.remove(w);
+                        component.add(w);
+                    } while (!w.equals(v));
+                    result.add(component);
+                }
+            }
+        }
+        return result;
+    }
+
+    private void visit(String t, Map<String, Integer> index, Map<String, Integer> low, Deque<String> stack,
+                       Set<String> onStack, Deque<Map.Entry<String, Iterator<String>>> work, Set<String> inSet) {
+        index.put(t, index.size());
+        low.put(t, index.get(t));
+        stack.push(t);
+        onStack.add(t);
+        work.push(Map.entry(t, parentsIn(t, inSet).iterator()));
+    }
+
+    // roditelji tabele koji su u skupu tabela, bez duplikata
+    public List<String> parents(String tableLC, Collection<String> allTablesLC) {
+        return parentsIn(tableLC, new HashSet<>(allTablesLC));
+    }
+
+    private List<String> parentsIn(String tableLC, Set<String> inSet) {
+        List<String> result = new ArrayList<>();
+        for (String p : graph.getOrDefault(tableLC.toLowerCase(), List.of())) {
+            if (inSet.contains(p) && !result.contains(p)) {
+                result.add(p);
+            }
+        }
+        return result;
+    }
+
+    // roditelj -> djeca (obrnute ivice), bez duplikata
+    public Map<String, List<String>> children(Collection<String> allTablesLC) {
+        Map<String, List<String>> result = new HashMap<>();
+        for (String t : allTablesLC) {
+            result.put(t.toLowerCase(), new ArrayList<>());
+        }
+        for (String child : allTablesLC) {
+            for (String parent : parents(child, allTablesLC)) {
+                result.get(parent).add(child.toLowerCase());
+            }
+        }
+        return result;
+    }
+
+    // kriticni put: tezina tabele + najveci kriticni put medju djecom; racuna se od listova prema korijenima
+    public Map<String, Long> criticalPath(List<String> sortedTablesLC, Map<String, Long> weights) {
+        Map<String, List<String>> childMap = children(sortedTablesLC);
+        Map<String, Long> cp = new HashMap<>();
+        for (int i = sortedTablesLC.size() - 1; i >= 0; i--) {
+            String t = sortedTablesLC.get(i);
+            long best = 0;
+            for (String c : childMap.getOrDefault(t, List.of())) {
+                best = Math.max(best, cp.getOrDefault(c, 0L));
+            }
+            cp.put(t, weights.getOrDefault(t, 1L) + best);
+        }
+        return cp;
+    }
 }
@@ -0,0 +1,44 @@
+package prs.keys;
+
+import prs.data.ColumnBatch;
+
+// kljucevi koji su vec bili u tabeli (--append) pa kljucevi upisani sada, bez kopiranja u novi niz
+public final class ConcatKeys implements KeySet {
+
+    private final KeySet first;
+    private final KeySet second;
+
+    private ConcatKeys(KeySet first, KeySet second) {
+        this.first = first;
+        this.second = second;
+    }
+
+    // existing: kljucevi koji su vec bili u tabeli; ukupno najvise Integer.MAX_VALUE, visak iz inserted se ne vidi
+    public static KeySet of(KeySet existing, KeySet inserted) {
+        return existing.isEmpty() ? inserted : new ConcatKeys(existing, inserted);
+    }
+
+    // samo kljucevi upisani u ovom punjenju (CyclePatcher ne dira redove koji su vec bili u tabeli)
+    public static KeySet inserted(KeySet keys) {
+        return keys instanceof ConcatKeys c ? c.second : keys;
+    }
+
+    @Override
+    public int size() {
+        return (int) Math.min(Integer.MAX_VALUE, (long) first.size() + second.size());
+    }
+
+    @Override
+    public Object get(int index) {
+        return index < first.size() ? first.get(index) : second.get(index - first.size());
+    }
+
+    @Override
+    public void writeTo(ColumnBatch batch, int col, int row, int index) {
+        if (index < first.size()) {
+            first.writeTo(batch, col, row, index);
+        } else {
+            second.writeTo(batch, col, row, index - first.size());
+        }
+    }
+}
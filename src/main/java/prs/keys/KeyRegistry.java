@@ -0,0 +1,48 @@
+package prs.keys;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// poznati kljucevi po tabeli (lower-case) za izbor fk vrijednosti u djeci
+public class KeyRegistry {
+
+    private final Map<String, KeySet> byTable = new ConcurrentHashMap<>();
+
+    public void put(String tableLC, KeySet keys) {
+        byTable.put(tableLC.toLowerCase(), keys);
+    }
+
+    public KeySet get(String tableLC) {
+        return byTable.getOrDefault(tableLC.toLowerCase(), KeySet.EMPTY);
+    }
+
+    public boolean contains(String tableLC) {
+        return byTable.containsKey(tableLC.toLowerCase());
+    }
+
+    // pogled bez kljuceva datih tabela: fk kolone prema njima generator upisuje kao NULL
+    // (odlozene ivice fk ciklusa, vidi CyclePlan); upis ide u ovaj registar
+    public KeyRegistry without(Set<String> hiddenLC) {
+        if (hiddenLC.isEmpty()) {
+            return this;
+        }
+        KeyRegistry all = this;
+        return new KeyRegistry() {
+            @Override
+            public void put(String tableLC, KeySet keys) {
+                all.put(tableLC, keys);
+            }
+
+            @Override
+            public KeySet get(String tableLC) {
+                return hiddenLC.contains(tableLC.toLowerCase()) ? KeySet.EMPTY : all.get(tableLC);
+            }
+
+            @Override
+            public boolean contains(String tableLC) {
+                return !hiddenLC.contains(tableLC.toLowerCase()) && all.contains(tableLC);
+            }
+        };
+    }
+}
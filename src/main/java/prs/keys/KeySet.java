@@ -0,0 +1,21 @@
+package prs.keys;
+
+import prs.data.ColumnBatch;
+
+// nepromjenljiv skup kljuceva jedne tabele sa O(1) pristupom po indeksu (za nasumican izbor roditelja)
+public interface KeySet {
+
+    KeySet EMPTY = new LongRangeKeys(0, 0, 1);
+
+    int size();
+
+    default boolean isEmpty() {
+        return size() == 0;
+    }
+
+    // boxovana vrijednost; nije za hot path
+    Object get(int index);
+
+    // upisuje i-ti kljuc u kolonu batcha bez boxinga kad je to moguce
+    void writeTo(ColumnBatch batch, int col, int row, int index);
+}
@@ -0,0 +1,163 @@
+package prs.keys;
+
+import prs.data.ColumnBatch;
+
+import java.math.BigInteger;
+
+// skuplja kljuceve tabele i bira najkompaktniji oblik: dok su vrijednosti aritmeticki niz pamti se
+// samo (start, count, step), a prvi "skok" prebacuje na long niz. Stringovi idu u arenu, ostalo kao objekti.
+public class KeySetBuilder {
+
+    private enum Mode { RANGE, LONGS, STRINGS, OBJECTS }
+
+    private Mode mode = Mode.RANGE;
+    private long start;
+    private long step;
+    private int count;
+
+    private LongArrayKeys longs;
+    private StringKeys strings;
+    private ObjectKeys objects;
+
+    public int size() {
+        return switch (mode) {
+            case RANGE -> count;
+            case LONGS -> longs.size();
+            case STRINGS -> strings.size();
+            case OBJECTS -> objects.size();
+        };
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public void addLong(long v) {
+        switch (mode) {
+            case RANGE -> {
+                if (count == 0) {
+                    start = v;
+                    count = 1;
+                } else if (count == 1 && v != start) {
+                    step = v - start;
+                    count = 2;
+                } else if (count > 1 && v == start + count * step) {
+                    count++;
+                } else {
+                    toLongs();
+                    longs.add(v);
+                }
+            }
+            case LONGS -> longs.add(v);
+            case STRINGS, OBJECTS -> addObject(v);
+        }
+    }
+
+    // niz od count vrijednosti sa korakom step (npr. LAST_INSERT_ID + auto_increment_increment)
+    public void addRange(long first, int n, long stepBy) {
+        if (mode == Mode.RANGE && count == 0 && n > 1) {
+            start = first;
+            step = stepBy;
+            count = n;
+            return;
+        }
+        for (int i = 0; i < n; i++) {
+            addLong(first + i * stepBy);
+        }
+    }
+
+    public void add(Object v) {
+        if (v == null) {
+            return;
+        }
+        if (v instanceof Long || v instanceof Integer || v instanceof Short || v instanceof Byte) {
+            addLong(((Number) v).longValue());
+        } else if (v instanceof BigInteger bi && bi.bitLength() < 64) {
+            addLong(bi.longValue());
+        } else if (v instanceof String s && (mode == Mode.STRINGS || isEmpty())) {
+            if (strings == null) {
+                strings = new StringKeys();
+                mode = Mode.STRINGS;
+            }
+            strings.add(s);
+        } else {
+            addObject(v);
+        }
+    }
+
+    // prva kolona chunka (ili pk kolona) kad baza ne vraca generisane kljuceve
+    public void addColumn(ColumnBatch batch, int col) {
+        for (int r = 0; r < batch.size(); r++) {
+            if (batch.isNull(col, r)) {
+                continue;
+            }
+            switch (batch.kind(col)) {
+                case INT -> addLong(batch.getInt(col, r));
+                case LONG -> addLong(batch.getLong(col, r));
+                case STRING -> {
+                    if (mode == Mode.STRINGS || isEmpty()) {
+                        if (strings == null) {
+                            strings = new StringKeys();
+                            mode = Mode.STRINGS;
+                        }
+                        strings.add(batch.arena(col), batch.stringOffset(col, r), batch.stringLength(col, r));
+                    } else {
+                        addObject(batch.getString(col, r));
+                    }
+                }
+                default -> add(batch.getValue(col, r));
+            }
+        }
+    }
+
+    public void addAll(KeySetBuilder other) {
+        addAll(other.build());
+    }
+
+    public void addAll(KeySet ks) {
+        if (ks instanceof LongRangeKeys r && mode == Mode.RANGE && count == 0) {
+            start = r.start();
+            step = r.step();
+            count = r.size();
+            return;
+        }
+        for (int i = 0; i < ks.size(); i++) {
+            if (ks instanceof LongRangeKeys r) {
+                addLong(r.getLong(i));
+            } else if (ks instanceof LongArrayKeys a) {
+                addLong(a.getLong(i));
+            } else {
+                add(ks.get(i));
+            }
+        }
+    }
+
+    public KeySet build() {
+        return switch (mode) {
+            case RANGE -> count == 0 ? KeySet.EMPTY : new LongRangeKeys(start, count, count == 1 ? 1 : step);
+            case LONGS -> longs;
+            case STRINGS -> strings;
+            case OBJECTS -> objects;
+        };
+    }
+
+    private void toLongs() {
+        longs = new LongArrayKeys();
+        for (int i = 0; i < count; i++) {
+            longs.add(start + i * step);
+        }
+        mode = Mode.LONGS;
+    }
+
+    private void addObject(Object v) {
+        if (mode != Mode.OBJECTS) {
+            KeySet prev = build();
+            objects = new ObjectKeys();
+            for (int i = 0; i < prev.size(); i++) {
+                objects.add(prev.get(i));
+            }
+            mode = Mode.OBJECTS;
+        }
+        objects.add(v);
+    }
+}
@@ -0,0 +1,67 @@
+package prs.keys;
+
+import prs.data.ColumnBatch;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+
+// proizvoljni long kljucevi u segmentima koji se udvostrucuju (1024, 2048, ...);
+// veliki segmenti su van heapa (direct buffer) pa stotine miliona kljuceva ne opterecuju GC
+public final class LongArrayKeys implements KeySet {
+
+    private static final int BASE_SHIFT = 10;
+    private static final int BASE = 1 << BASE_SHIFT;
+    private static final int MAX_SEGMENTS = 19;                 // ukupno ~537M kljuceva
+    private static final int OFF_HEAP_MIN_LONGS = 1 << 16;
+
+    private final LongBuffer[] segments = new LongBuffer[MAX_SEGMENTS];
+    private int size;
+
+    // samo za KeySetBuilder; poslije build() se ne mijenja
+    void add(long v) {
+        int seg = segmentOf(size);
+        if (seg >= MAX_SEGMENTS) {
+            throw new IllegalStateException("Previse kljuceva za jednu tabelu: " + size);
+        }
+        LongBuffer b = segments[seg];
+        if (b == null) {
+            int len = BASE << seg;
+            b = len >= OFF_HEAP_MIN_LONGS
+                    ? ByteBuffer.allocateDirect(len * Long.BYTES).order(ByteOrder.nativeOrder()).asLongBuffer()
+                    : LongBuffer.wrap(new long[len]);
+            segments[seg] = b;
+        }
+        b.put(offsetIn(size, seg), v);
+        size++;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    public long getLong(int index) {
+        int seg = segmentOf(index);
+        return segments[seg].get(offsetIn(index, seg));
+    }
+
+    @Override
+    public Object get(int index) {
+        return getLong(index);
+    }
+
+    @Override
+    public void writeTo(ColumnBatch batch, int col, int row, int index) {
+        batch.setLongValue(col, row, getLong(index));
+    }
+
+    // segment k pocinje na BASE * (2^k - 1)
+    private static int segmentOf(int index) {
+        return 31 - Integer.numberOfLeadingZeros((index >>> BASE_SHIFT) + 1);
+    }
+
+    private static int offsetIn(int index, int seg) {
+        return index - ((BASE << seg) - BASE);
+    }
+}
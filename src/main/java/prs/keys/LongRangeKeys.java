@@ -0,0 +1,44 @@
+package prs.keys;
+
+import prs.data.ColumnBatch;
+
+// gusti niz kljuceva start, start + step, ... (auto_increment / sekvenca) - pamte se samo tri broja
+public final class LongRangeKeys implements KeySet {
+
+    private final long start;
+    private final int count;
+    private final long step;
+
+    public LongRangeKeys(long start, int count, long step) {
+        this.start = start;
+        this.count = count;
+        this.step = step;
+    }
+
+    public long start() {
+        return start;
+    }
+
+    public long step() {
+        return step;
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    public long getLong(int index) {
+        return start + index * step;
+    }
+
+    @Override
+    public Object get(int index) {
+        return getLong(index);
+    }
+
+    @Override
+    public void writeTo(ColumnBatch batch, int col, int row, int index) {
+        batch.setLongValue(col, row, getLong(index));
+    }
+}
@@ -0,0 +1,31 @@
+package prs.keys;
+
+import prs.data.ColumnBatch;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// ostali tipovi kljuceva (UUID, BigDecimal, datumi...) - boxovani kao i ranije
+public final class ObjectKeys implements KeySet {
+
+    private final List<Object> values = new ArrayList<>();
+
+    void add(Object v) {
+        values.add(v);
+    }
+
+    @Override
+    public int size() {
+        return values.size();
+    }
+
+    @Override
+    public Object get(int index) {
+        return values.get(index);
+    }
+
+    @Override
+    public void writeTo(ColumnBatch batch, int col, int row, int index) {
+        batch.setValue(col, row, values.get(index));
+    }
+}
@@ -0,0 +1,51 @@
+package prs.keys;
+
+import prs.data.ColumnBatch;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// string kljucevi u jednoj byte areni (UTF-8) sa nizom pocetaka, bez objekta po kljucu
+public final class StringKeys implements KeySet {
+
+    private byte[] arena = new byte[1024];
+    private int[] offsets = new int[129];
+    private int size;
+
+    void add(byte[] src, int off, int len) {
+        int pos = offsets[size];
+        if (pos + len > arena.length) {
+            arena = Arrays.copyOf(arena, Math.max(arena.length * 2, pos + len));
+        }
+        System.arraycopy(src, off, arena, pos, len);
+        if (size + 2 > offsets.length) {
+            offsets = Arrays.copyOf(offsets, offsets.length * 2);
+        }
+        offsets[size + 1] = pos + len;
+        size++;
+    }
+
+    void add(String s) {
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        add(b, 0, b.length);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Object get(int index) {
+        return new String(arena, offsets[index], offsets[index + 1] - offsets[index], StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void writeTo(ColumnBatch batch, int col, int row, int index) {
+        if (batch.kind(col) == ColumnBatch.Kind.STRING) {
+            batch.setBytes(col, row, arena, offsets[index], offsets[index + 1] - offsets[index]);
+        } else {
+            batch.setValue(col, row, get(index));
+        }
+    }
+}
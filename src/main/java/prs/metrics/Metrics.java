@@ -0,0 +1,217 @@
+package prs.metrics;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// metrike jednog punjenja: ukupno i po tabeli, plus cekanje na konekciju iz Hikari poola.
+// Brojaci su LongAdder pa ih niti pune bez zakljucavanja; citaju ih JMX i MetricsReporter.
+public class Metrics implements MetricsMXBean {
+
+    private static final String DOMAIN = "prs";
+
+    final LongAdder rowsGenerated = new LongAdder();
+    final LongAdder rowsInserted = new LongAdder();
+    final LongAdder bytesSent = new LongAdder();
+    final Histogram batchLatencyMicros = new Histogram();
+    final Histogram poolWaitMicros = new Histogram();
+    final LongAdder poolTimeouts = new LongAdder();
+    // zbirovi za prozore AdaptiveLimit-a (histogrami ne daju razliku izmedju dva citanja)
+    final LongAdder chunks = new LongAdder();
+    final LongAdder insertNanos = new LongAdder();
+    final LongAdder poolWaitNanos = new LongAdder();
+    final LongAdder poolAcquires = new LongAdder();
+    final AtomicInteger queueDepth = new AtomicInteger();
+    private final Map<String, TableMetrics> tables = new ConcurrentHashMap<>();
+    private final List<ObjectName> registered = Collections.synchronizedList(new ArrayList<>());
+    private volatile PoolStats poolStats;
+    private volatile boolean jmx;
+    private final long startNanos = System.nanoTime();
+
+    public TableMetrics table(String table) {
+        return tables.computeIfAbsent(table, t -> {
+            TableMetrics tm = new TableMetrics(t, this);
+            if (jmx) {
+                register(tm, "type=Table,name=" + ObjectName.quote(t));
+            }
+            return tm;
+        });
+    }
+
+    public Collection<TableMetrics> tables() {
+        return tables.values();
+    }
+
+    // Hikari javlja cekanje na konekciju i timeoute; HikariConfig.setMetricsTrackerFactory prije pravljenja poola
+    public MetricsTrackerFactory hikariTrackerFactory() {
+        return (poolName, stats) -> {
+            poolStats = stats;
+            return new IMetricsTracker() {
+                @Override
+                public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                    poolWaitMicros.record(elapsedAcquiredNanos / 1_000);
+                    poolWaitNanos.add(elapsedAcquiredNanos);
+                    poolAcquires.increment();
+                }
+
+                @Override
+                public void recordConnectionTimeout() {
+                    poolTimeouts.increment();
+                }
+            };
+        };
+    }
+
+    // rastuci zbirovi od pocetka punjenja; razlika dva uzorka je prozor
+    public record Sample(long bytes, long chunks, long insertNanos, long poolWaitNanos, long poolAcquires,
+                         long poolTimeouts) {
+
+        public Sample minus(Sample o) {
+            return new Sample(bytes - o.bytes, chunks - o.chunks, insertNanos - o.insertNanos,
+                    poolWaitNanos - o.poolWaitNanos, poolAcquires - o.poolAcquires, poolTimeouts - o.poolTimeouts);
+        }
+    }
+
+    public Sample sample() {
+        return new Sample(bytesSent.sum(), chunks.sum(), insertNanos.sum(), poolWaitNanos.sum(),
+                poolAcquires.sum(), poolTimeouts.sum());
+    }
+
+    public void registerJmx() {
+        jmx = true;
+        register(this, "type=Seeder");
+        for (TableMetrics tm : tables.values()) {
+            register(tm, "type=Table,name=" + ObjectName.quote(tm.table()));
+        }
+    }
+
+    public void unregisterJmx() {
+        jmx = false;
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        synchronized (registered) {
+            for (ObjectName name : registered) {
+                try {
+                    server.unregisterMBean(name);
+                } catch (JMException ignored) {
+                }
+            }
+            registered.clear();
+        }
+    }
+
+    private void register(Object bean, String keys) {
+        try {
+            ObjectName name = new ObjectName(DOMAIN + ":" + keys);
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(bean, name);
+            registered.add(name);
+        } catch (JMException e) {
+            System.err.println("JMX registracija nije uspjela za " + keys + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public long getRowsGenerated() {
+        return rowsGenerated.sum();
+    }
+
+    @Override
+    public long getRowsInserted() {
+        return rowsInserted.sum();
+    }
+
+    @Override
+    public long getBytesSent() {
+        return bytesSent.sum();
+    }
+
+    @Override
+    public long getElapsedMillis() {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    @Override
+    public double getInsertRowsPerSec() {
+        long ms = getElapsedMillis();
+        return ms == 0 ? 0 : getRowsInserted() * 1000.0 / ms;
+    }
+
+    @Override
+    public long getBatchLatencyP50Micros() {
+        return batchLatencyMicros.percentile(0.50);
+    }
+
+    @Override
+    public long getBatchLatencyP99Micros() {
+        return batchLatencyMicros.percentile(0.99);
+    }
+
+    @Override
+    public long getPoolWaitP50Micros() {
+        return poolWaitMicros.percentile(0.50);
+    }
+
+    @Override
+    public long getPoolWaitP99Micros() {
+        return poolWaitMicros.percentile(0.99);
+    }
+
+    @Override
+    public long getPoolTimeouts() {
+        return poolTimeouts.sum();
+    }
+
+    @Override
+    public int getPoolActive() {
+        PoolStats stats = poolStats;
+        return stats == null ? 0 : stats.getActiveConnections();
+    }
+
+    @Override
+    public int getPoolPending() {
+        PoolStats stats = poolStats;
+        return stats == null ? 0 : stats.getPendingThreads();
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    @Override
+    public int getTablesDone() {
+        int done = 0;
+        for (TableMetrics tm : tables.values()) {
+            if (tm.isDone()) {
+                done++;
+            }
+        }
+        return done;
+    }
+
+    @Override
+    public int getTablesStarted() {
+        return tables.size();
+    }
+
+    @Override
+    public Map<String, Long> getRowsInsertedByTable() {
+        Map<String, Long> rows = new TreeMap<>();
+        for (TableMetrics tm : tables.values()) {
+            rows.put(tm.table(), tm.getRowsInserted());
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,39 @@
+package prs.metrics;
+
+import java.util.Map;
+
+// JMX pogled na cijelo punjenje (prs:type=Seeder)
+public interface MetricsMXBean {
+
+    long getRowsGenerated();
+
+    long getRowsInserted();
+
+    long getBytesSent();
+
+    long getElapsedMillis();
+
+    double getInsertRowsPerSec();
+
+    long getBatchLatencyP50Micros();
+
+    long getBatchLatencyP99Micros();
+
+    long getPoolWaitP50Micros();
+
+    long getPoolWaitP99Micros();
+
+    long getPoolTimeouts();
+
+    int getPoolActive();
+
+    int getPoolPending();
+
+    int getQueueDepth();
+
+    int getTablesDone();
+
+    int getTablesStarted();
+
+    Map<String, Long> getRowsInsertedByTable();
+}
@@ -0,0 +1,205 @@
+package prs.metrics;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// periodicni ispis metrika dok punjenje traje. spec je lista odvojena zarezom:
+//   console      - jedna linija ukupno + linija po tabeli koja se promijenila
+//   csv:fajl     - red "*" (ukupno) i red po promijenjenoj tabeli, dopisuje se
+//   json:fajl    - JSON objekat po ispisu (JSON lines), dopisuje se
+public class MetricsReporter implements AutoCloseable {
+
+    private static final String CSV_HEADER = "time_ms,table,rows_generated,rows_inserted,bytes_sent,chunks,"
+            + "generation_ms,insert_ms,batch_p50_us,batch_p99_us,batch_max_us,queue_depth,"
+            + "pool_wait_p50_us,pool_wait_p99_us,pool_active,pool_pending";
+
+    private final Metrics metrics;
+    private final boolean console;
+    private final BufferedWriter csv;
+    private final BufferedWriter json;
+    private final ScheduledExecutorService timer;
+    // zadnje stanje po tabeli (generisano + ubaceno) da se ispisuju samo promijenjene
+    private final Map<String, Long> lastSeen = new HashMap<>();
+    private long lastInserted;
+    private long lastFlushMillis;
+
+    private MetricsReporter(Metrics metrics, boolean console, BufferedWriter csv, BufferedWriter json,
+                            int intervalSeconds) {
+        this.metrics = metrics;
+        this.console = console;
+        this.csv = csv;
+        this.json = json;
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "metrics-reporter");
+            t.setDaemon(true);
+            return t;
+        });
+        timer.scheduleAtFixedRate(this::flushQuietly, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    public static MetricsReporter start(Metrics metrics, String spec, int intervalSeconds) throws IOException {
+        boolean console = false;
+        BufferedWriter csv = null;
+        BufferedWriter json = null;
+        for (String part : spec.split(",")) {
+            String p = part.trim();
+            if (p.equalsIgnoreCase("console")) {
+                console = true;
+            } else if (p.toLowerCase().startsWith("csv:")) {
+                Path file = Path.of(p.substring(4));
+                boolean fresh = !Files.exists(file) || Files.size(file) == 0;
+                csv = open(file);
+                if (fresh) {
+                    csv.write(CSV_HEADER);
+                    csv.newLine();
+                }
+            } else if (p.toLowerCase().startsWith("json:")) {
+                json = open(Path.of(p.substring(5)));
+            } else if (!p.isEmpty()) {
+                throw new IllegalArgumentException("Nepoznat --metrics izlaz: " + p
+                        + " (ocekuje se console, csv:fajl ili json:fajl)");
+            }
+        }
+        return new MetricsReporter(metrics, console, csv, json, Math.max(1, intervalSeconds));
+    }
+
+    private static BufferedWriter open(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        return Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            System.err.println("Ispis metrika nije uspio: " + e.getMessage());
+        }
+    }
+
+    public synchronized void flush() throws IOException {
+        long now = metrics.getElapsedMillis();
+        List<TableMetrics> changed = new ArrayList<>();
+        List<TableMetrics> sorted = new ArrayList<>(metrics.tables());
+        sorted.sort(Comparator.comparing(TableMetrics::table));
+        for (TableMetrics tm : sorted) {
+            long seen = tm.getRowsGenerated() + tm.getRowsInserted();
+            Long prev = lastSeen.put(tm.table(), seen);
+            if (prev == null || prev != seen) {
+                changed.add(tm);
+            }
+        }
+
+        if (console) {
+            long inserted = metrics.getRowsInserted();
+            double rate = now > lastFlushMillis ? (inserted - lastInserted) * 1000.0 / (now - lastFlushMillis) : 0;
+            System.out.printf(Locale.ROOT,
+                    "[metrike %ds] ubaceno %d / generisano %d redova (%.0f redova/s), tabele %d/%d, "
+                            + "batch p50/p99 %.1f/%.1f ms, cekanje na konekciju p99 %.1f ms (ceka %d), red %d%n",
+                    now / 1000, inserted, metrics.getRowsGenerated(), rate,
+                    metrics.getTablesDone(), metrics.getTablesStarted(),
+                    metrics.getBatchLatencyP50Micros() / 1000.0, metrics.getBatchLatencyP99Micros() / 1000.0,
+                    metrics.getPoolWaitP99Micros() / 1000.0, metrics.getPoolPending(), metrics.getQueueDepth());
+            for (TableMetrics tm : changed) {
+                System.out.printf(Locale.ROOT,
+                        "    %s: ubaceno %d / generisano %d, generisanje %.1f s / upis %.1f s, batch p99 %.1f ms, red %d%s%n",
+                        tm.table(), tm.getRowsInserted(), tm.getRowsGenerated(),
+                        tm.getGenerationMillis() / 1000.0, tm.getInsertMillis() / 1000.0,
+                        tm.getBatchLatencyP99Micros() / 1000.0, tm.getQueueDepth(), tm.isDone() ? " (gotova)" : "");
+            }
+            lastInserted = inserted;
+        }
+
+        if (csv != null) {
+            csv.write(now + ",*," + metrics.getRowsGenerated() + "," + metrics.getRowsInserted() + ","
+                    + metrics.getBytesSent() + ",,,," + metrics.getBatchLatencyP50Micros() + ","
+                    + metrics.getBatchLatencyP99Micros() + "," + metrics.batchLatencyMicros.max() + ","
+                    + metrics.getQueueDepth() + "," + metrics.getPoolWaitP50Micros() + ","
+                    + metrics.getPoolWaitP99Micros() + "," + metrics.getPoolActive() + "," + metrics.getPoolPending());
+            csv.newLine();
+            for (TableMetrics tm : changed) {
+                csv.write(now + "," + csvField(tm.table()) + "," + tm.getRowsGenerated() + "," + tm.getRowsInserted()
+                        + "," + tm.getBytesSent() + "," + tm.getChunksWritten() + "," + tm.getGenerationMillis()
+                        + "," + tm.getInsertMillis() + "," + tm.getBatchLatencyP50Micros() + ","
+                        + tm.getBatchLatencyP99Micros() + "," + tm.getBatchLatencyMaxMicros() + ","
+                        + tm.getQueueDepth() + ",,,,");
+                csv.newLine();
+            }
+            csv.flush();
+        }
+
+        if (json != null) {
+            StringBuilder sb = new StringBuilder();
+            sb.append("{\"timeMs\":").append(now)
+                    .append(",\"rowsGenerated\":").append(metrics.getRowsGenerated())
+                    .append(",\"rowsInserted\":").append(metrics.getRowsInserted())
+                    .append(",\"bytesSent\":").append(metrics.getBytesSent())
+                    .append(",\"batchP50Us\":").append(metrics.getBatchLatencyP50Micros())
+                    .append(",\"batchP99Us\":").append(metrics.getBatchLatencyP99Micros())
+                    .append(",\"poolWaitP50Us\":").append(metrics.getPoolWaitP50Micros())
+                    .append(",\"poolWaitP99Us\":").append(metrics.getPoolWaitP99Micros())
+                    .append(",\"poolTimeouts\":").append(metrics.getPoolTimeouts())
+                    .append(",\"poolActive\":").append(metrics.getPoolActive())
+                    .append(",\"poolPending\":").append(metrics.getPoolPending())
+                    .append(",\"queueDepth\":").append(metrics.getQueueDepth())
+                    .append(",\"tables\":[");
+            String sep = "";
+            for (TableMetrics tm : changed) {
+                sb.append(sep).append("{\"table\":\"").append(jsonEscape(tm.table())).append('"')
+                        .append(",\"rowsGenerated\":").append(tm.getRowsGenerated())
+                        .append(",\"rowsInserted\":").append(tm.getRowsInserted())
+                        .append(",\"bytesSent\":").append(tm.getBytesSent())
+                        .append(",\"chunks\":").append(tm.getChunksWritten())
+                        .append(",\"generationMs\":").append(tm.getGenerationMillis())
+                        .append(",\"insertMs\":").append(tm.getInsertMillis())
+                        .append(",\"batchP50Us\":").append(tm.getBatchLatencyP50Micros())
+                        .append(",\"batchP99Us\":").append(tm.getBatchLatencyP99Micros())
+                        .append(",\"queueDepth\":").append(tm.getQueueDepth())
+                        .append(",\"done\":").append(tm.isDone()).append('}');
+                sep = ",";
+            }
+            sb.append("]}");
+            json.write(sb.toString());
+            json.newLine();
+            json.flush();
+        }
+        lastFlushMillis = now;
+    }
+
+    private static String csvField(String s) {
+        return s.contains(",") || s.contains("\"") ? "\"" + s.replace("\"", "\"\"") + "\"" : s;
+    }
+
+    private static String jsonEscape(String s) {
+        return s.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    // zadnji ispis sa konacnim stanjem
+    @Override
+    public void close() throws IOException {
+        timer.shutdownNow();
+        try {
+            timer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        if (csv != null) {
+            csv.close();
+        }
+        if (json != null) {
+            json.close();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package prs.metrics;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// brojaci jedne tabele; pisu ih generator, inserteri i shardovi istovremeno
+public class TableMetrics implements TableMetricsMXBean {
+
+    private final String table;
+    private final Metrics global;
+    final LongAdder rowsGenerated = new LongAdder();
+    final LongAdder rowsInserted = new LongAdder();
+    final LongAdder bytesSent = new LongAdder();
+    final LongAdder chunks = new LongAdder();
+    final LongAdder generationNanos = new LongAdder();
+    final LongAdder insertNanos = new LongAdder();
+    final Histogram batchLatencyMicros = new Histogram();
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private volatile boolean done;
+
+    TableMetrics(String table, Metrics global) {
+        this.table = table;
+        this.global = global;
+    }
+
+    public String table() {
+        return table;
+    }
+
+    public void generated(int rows, long nanos) {
+        rowsGenerated.add(rows);
+        generationNanos.add(nanos);
+        global.rowsGenerated.add(rows);
+    }
+
+    // jedan poziv TableWriter.write: redovi, procijenjeni bajtovi i trajanje
+    public void written(int rows, long bytes, long nanos) {
+        rowsInserted.add(rows);
+        bytesSent.add(bytes);
+        chunks.increment();
+        insertNanos.add(nanos);
+        batchLatencyMicros.record(nanos / 1_000);
+        global.rowsInserted.add(rows);
+        global.bytesSent.add(bytes);
+        global.batchLatencyMicros.record(nanos / 1_000);
+        global.chunks.increment();
+        global.insertNanos.add(nanos);
+    }
+
+    public void queued() {
+        queueDepth.incrementAndGet();
+        global.queueDepth.incrementAndGet();
+    }
+
+    public void dequeued() {
+        queueDepth.decrementAndGet();
+        global.queueDepth.decrementAndGet();
+    }
+
+    public void done() {
+        done = true;
+    }
+
+    @Override
+    public long getRowsGenerated() {
+        return rowsGenerated.sum();
+    }
+
+    @Override
+    public long getRowsInserted() {
+        return rowsInserted.sum();
+    }
+
+    @Override
+    public long getBytesSent() {
+        return bytesSent.sum();
+    }
+
+    @Override
+    public long getChunksWritten() {
+        return chunks.sum();
+    }
+
+    @Override
+    public long getGenerationMillis() {
+        return generationNanos.sum() / 1_000_000;
+    }
+
+    @Override
+    public long getInsertMillis() {
+        return insertNanos.sum() / 1_000_000;
+    }
+
+    @Override
+    public long getBatchLatencyP50Micros() {
+        return batchLatencyMicros.percentile(0.50);
+    }
+
+    @Override
+    public long getBatchLatencyP99Micros() {
+        return batchLatencyMicros.percentile(0.99);
+    }
+
+    @Override
+    public long getBatchLatencyMaxMicros() {
+        return batchLatencyMicros.max();
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    @Override
+    public boolean isDone() {
+        return done;
+    }
+}
@@ -0,0 +1,27 @@
+package prs.metrics;
+
+// JMX pogled na jednu tabelu (prs:type=Table,name=...)
+public interface TableMetricsMXBean {
+
+    long getRowsGenerated();
+
+    long getRowsInserted();
+
+    long getBytesSent();
+
+    long getChunksWritten();
+
+    long getGenerationMillis();
+
+    long getInsertMillis();
+
+    long getBatchLatencyP50Micros();
+
+    long getBatchLatencyP99Micros();
+
+    long getBatchLatencyMaxMicros();
+
+    int getQueueDepth();
+
+    boolean isDone();
+}
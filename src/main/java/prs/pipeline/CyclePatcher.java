@@ -0,0 +1,149 @@
+package prs.pipeline;
+
+import prs.data.Seeds;
+import prs.filler.ColumnPatch;
+import prs.filler.RowSink;
+import prs.graph.CyclePlan;
+import prs.graph.DependencyGraph;
+import prs.keys.ConcatKeys;
+import prs.keys.KeyRegistry;
+import prs.keys.KeySet;
+import prs.schema.ColumnMeta;
+import prs.schema.ForeignKeyMeta;
+import prs.schema.SchemaSnapshot;
+import prs.schema.TableMeta;
+
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// naknadno popunjavanje odlozenih fk kolona (CyclePlan): cim su upisane sve tabele jedne ciklicne
+// komponente, njeni patchevi krecu u pozadini, paralelno sa punjenjem ostalih tabela i sa drugim komponentama
+public class CyclePatcher {
+
+    private record Component(List<String> tables, AtomicInteger left) {
+    }
+
+    private final CyclePlan plan;
+    private final SchemaSnapshot schema;
+    private final RowSink sink;
+    private final KeyRegistry knownValues;
+    private final long runSeed;
+    private final ExecutorService executor;
+    private final Map<String, Component> byTable = new HashMap<>();
+    private final List<Future<?>> running = Collections.synchronizedList(new ArrayList<>());
+
+    public CyclePatcher(CyclePlan plan, SchemaSnapshot schema, RowSink sink, KeyRegistry knownValues,
+                        long runSeed, ExecutorService executor) {
+        this.plan = plan;
+        this.schema = schema;
+        this.sink = sink;
+        this.knownValues = knownValues;
+        this.runSeed = runSeed;
+        this.executor = executor;
+        for (List<String> tables : plan.cyclicComponents()) {
+            Component c = new Component(tables, new AtomicInteger(tables.size()));
+            for (String t : tables) {
+                byTable.put(t, c);
+            }
+        }
+    }
+
+    // ivica dijete -> roditelj se moze odloziti: sve fk kolone prema roditelju su nullable i jednokolonske
+    // (vrijednost je jedan kljuc roditelja), a dijete ima jednostavan pk po kome patch nalazi redove
+    public static boolean deferrable(SchemaSnapshot schema, String childLC, String parentLC) {
+        TableMeta child = schema.table(childLC);
+        if (child == null || child.primaryKey().size() != 1) {
+            return false;
+        }
+        boolean any = false;
+        for (ForeignKeyMeta fk : child.foreignKeys()) {
+            if (!fk.parentTable().equalsIgnoreCase(parentLC)) {
+                continue;
+            }
+            if (fk.columns().size() != 1) {
+                return false;
+            }
+            ColumnMeta col = child.column(fk.columns().get(0));
+            if (col == null || !col.nullable() || col.name().equalsIgnoreCase(child.primaryKey().get(0))) {
+                return false;
+            }
+            any = true;
+        }
+        return any;
+    }
+
+    // tabela je upisana (u ovom ili u prekinutom punjenju)
+    public void tableCompleted(String tableLC) {
+        Component c = byTable.get(tableLC);
+        if (c != null && c.left().decrementAndGet() == 0) {
+            running.add(executor.submit(() -> {
+                patch(c.tables());
+                return null;
+            }));
+        }
+    }
+
+    // ceka pokrenute patcheve; komponenta kojoj neka tabela nije upisana ostaje sa NULL kolonama
+    public void await() throws Exception {
+        for (Component c : new LinkedHashSet<>(byTable.values())) {
+            if (c.left().get() > 0) {
+                System.out.println("Ciklus " + c.tables() + " nije upisan cijeli, odlozene fk kolone ostaju NULL");
+            }
+        }
+        List<Future<?>> all;
+        synchronized (running) {
+            all = new ArrayList<>(running);
+        }
+        Exception first = null;
+        for (Future<?> f : all) {
+            try {
+                f.get();
+            } catch (ExecutionException e) {
+                Exception cause = e.getCause() instanceof Exception ex ? ex : e;
+                if (first == null) {
+                    first = cause;
+                } else {
+                    first.addSuppressed(cause);
+                }
+            }
+        }
+        if (first != null) {
+            throw first;
+        }
+    }
+
+    private void patch(List<String> component) throws SQLException {
+        long start = System.currentTimeMillis();
+        Map<String, List<String>> parentsByChild = new TreeMap<>();
+        for (DependencyGraph.Edge e : plan.deferredIn(component)) {
+            parentsByChild.computeIfAbsent(e.child(), k -> new ArrayList<>()).add(e.parent());
+        }
+
+        long rows = 0;
+        for (Map.Entry<String, List<String>> entry : parentsByChild.entrySet()) {
+            String childLC = entry.getKey();
+            TableMeta child = schema.table(childLC);
+            List<String> columns = new ArrayList<>();
+            List<Integer> types = new ArrayList<>();
+            List<KeySet> parentKeys = new ArrayList<>();
+            for (ForeignKeyMeta fk : child.foreignKeys()) {
+                String parentLC = fk.parentTable().toLowerCase();
+                if (entry.getValue().contains(parentLC)) {
+                    String col = fk.columns().get(0);
+                    columns.add(col);
+                    types.add(child.column(col).sqlType());
+                    parentKeys.add(knownValues.get(parentLC));
+                }
+            }
+            String keyColumn = child.primaryKey().get(0);
+            KeySet rowKeys = ConcatKeys.inserted(knownValues.get(childLC));
+            sink.patch(new ColumnPatch(child.name(), keyColumn, child.column(keyColumn).sqlType(), rowKeys,
+                    columns, types, parentKeys, Seeds.forTable(runSeed, childLC + "#ciklus")));
+            rows += rowKeys.size();
+        }
+        System.out.println("Ciklus " + component + ": odlozene fk kolone popunjene u " + rows + " redova za "
+                + (System.currentTimeMillis() - start) + " ms");
+    }
+}
@@ -0,0 +1,57 @@
+package prs.pipeline;
+
+import prs.data.ColumnBatch;
+import prs.keys.KeySet;
+import prs.keys.KeySetBuilder;
+import prs.schema.TableMeta;
+
+import java.util.TreeMap;
+
+// rezultat punjenja jedne tabele (ili dijela tabele)
+public class LoadResult {
+    // kljucevi po chunku; spajaju se redom chunkova (TableCheckpoint.chunkId), ne redom kojim su ih
+    // inserteri upisali, pa djeca dobijaju iste roditelje i kad se punjenje nastavi iz dnevnika
+    private final TreeMap<Long, KeySet> chunkKeys = new TreeMap<>();
+    public long rowsInserted;
+
+    public void addChunk(long chunkId, KeySet keys) {
+        if (!keys.isEmpty()) {
+            chunkKeys.put(chunkId, keys);
+        }
+    }
+
+    public void merge(LoadResult other) {
+        chunkKeys.putAll(other.chunkKeys);
+        rowsInserted += other.rowsInserted;
+    }
+
+    public KeySet knownKeys() {
+        KeySetBuilder b = new KeySetBuilder();
+        for (KeySet keys : chunkKeys.values()) {
+            b.addAll(keys);
+        }
+        return b.build();
+    }
+
+    // kljucevi upisanog chunka: generisani ako ih baza vrati, inace pk (ili prva) kolona
+    public static KeySet chunkKeys(TableMeta table, ColumnBatch chunk, KeySetBuilder generated) {
+        if (!generated.isEmpty()) {
+            return generated.build();
+        }
+        KeySetBuilder fallback = new KeySetBuilder();
+        fallback.addColumn(chunk, fallbackKeyColumn(table, chunk));
+        return fallback.build();
+    }
+
+    // kolona jednostavnog pk ako postoji u batchu, inace prva kolona (kao ranije)
+    public static int fallbackKeyColumn(TableMeta table, ColumnBatch batch) {
+        if (table.primaryKey().size() == 1) {
+            for (int c = 0; c < batch.columnCount(); c++) {
+                if (batch.name(c).equalsIgnoreCase(table.primaryKey().get(0))) {
+                    return c;
+                }
+            }
+        }
+        return 0;
+    }
+}
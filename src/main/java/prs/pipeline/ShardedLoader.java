@@ -0,0 +1,145 @@
+package prs.pipeline;
+
+import prs.checkpoint.TableCheckpoint;
+import prs.data.DataGenerator;
+import prs.data.ExistingRows;
+import prs.data.Seeds;
+import prs.filler.RowSink;
+import prs.filler.TableWriter;
+import prs.keys.KeyRegistry;
+import prs.keys.KeySet;
+import prs.keys.KeySetBuilder;
+import prs.metrics.Metrics;
+import prs.metrics.TableMetrics;
+import prs.schema.TableMeta;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+
+// velika tabela se dijeli na opsege redova (shardove); svaki shard generise i upisuje na svojoj konekciji
+// sa svojim seedom, pa je rezultat shardova isti bez obzira na redoslijed izvrsavanja
+public class ShardedLoader {
+
+    private final RowSink sink;
+    private final ExecutorService shardPool;
+    private final int chunkSize;
+    private final int shards;
+    private final DataGenerator.Factory generators;
+    private final Metrics metrics;
+
+    public ShardedLoader(RowSink sink, ExecutorService shardPool,
+                         int chunkSize, int shards, DataGenerator.Factory generators, Metrics metrics) {
+        this.sink = sink;
+        this.shardPool = shardPool;
+        this.chunkSize = chunkSize;
+        this.shards = shards;
+        this.generators = generators;
+        this.metrics = metrics;
+    }
+
+    // broj shardova za tabelu: bar jedan chunk po shardu; tabele cija se jedinstvenost provjerava hesom se ne dijele
+    public static int shardCount(TableMeta table, int rowCount, int chunkSize, int maxShards) {
+        return shardCount(table, rowCount, chunkSize, maxShards, ExistingRows.NONE);
+    }
+
+    // --append: ni tabele ciji se redovi odbacuju zbog postojecih kombinacija (vidi DataGenerator.shardable)
+    public static int shardCount(TableMeta table, int rowCount, int chunkSize, int maxShards, ExistingRows existing) {
+        if (maxShards <= 1 || !DataGenerator.shardable(table, existing)) {
+            return 1;
+        }
+        int byChunks = (int) Math.max(1, ((long) rowCount + chunkSize - 1) / chunkSize);
+        return Math.min(maxShards, byChunks);
+    }
+
+    public LoadResult load(TableMeta table,
+                           int rowCount,
+                           KeyRegistry knownValues,
+                           long tableSeed,
+                           boolean collectKeys,
+                           TableCheckpoint checkpoint) throws Exception {
+        List<Future<LoadResult>> futures = new ArrayList<>();
+        int base = rowCount / shards;
+        int extra = rowCount % shards;
+        long firstRow = 0;
+        for (int s = 0; s < shards; s++) {
+            int shard = s;
+            int shardRows = base + (s < extra ? 1 : 0);
+            long shardSeed = Seeds.forShard(tableSeed, s);
+            // jedinstvene kolone: isti seed tabele, disjunktni opsezi redova
+            DataGenerator.RowSlice slice = new DataGenerator.RowSlice(tableSeed, firstRow, rowCount);
+            futures.add(shardPool.submit(() -> loadShard(table, shard, shardRows, knownValues, shardSeed, slice,
+                    collectKeys, checkpoint)));
+            firstRow += shardRows;
+        }
+
+        // spajanje po redoslijedu shardova da kljucevi uvijek budu istim redom
+        LoadResult total = new LoadResult();
+        Exception failure = null;
+        for (Future<LoadResult> f : futures) {
+            try {
+                total.merge(f.get());
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause() instanceof Exception ex ? ex : e;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return total;
+    }
+
+    private LoadResult loadShard(TableMeta table, int shard, int rows, KeyRegistry knownValues,
+                                 long seed, DataGenerator.RowSlice slice,
+                                 boolean collectKeys, TableCheckpoint checkpoint) throws Exception {
+        LoadResult part = new LoadResult();
+        if (rows == 0) {
+            return part;
+        }
+        DataGenerator generator = generators.create(seed);
+        TableMetrics tableMetrics = metrics.table(table.name());
+
+        TableWriter[] writer = new TableWriter[1];
+        long[] genStart = {System.nanoTime()};
+        int[] seq = {0};
+        try {
+            generator.generateChunks(table, rows, chunkSize, knownValues, chunk -> {
+                tableMetrics.generated(chunk.size(), System.nanoTime() - genStart[0]);
+                long id = TableCheckpoint.chunkId(shard, seq[0]++);
+                if (checkpoint.committed(id)) {
+                    // upisan u prethodnom pokretanju: generisan samo da RNG dodje u isto stanje
+                    if (collectKeys) {
+                        part.addChunk(id, checkpoint.keys(id));
+                    }
+                } else {
+                    try {
+                        if (writer[0] == null) {
+                            writer[0] = sink.open(table.name(), chunk);
+                        }
+                        KeySetBuilder generated = new KeySetBuilder();
+                        int written = writer[0].write(chunk, generated);
+                        part.rowsInserted += written;
+                        KeySet keys = collectKeys ? LoadResult.chunkKeys(table, chunk, generated) : KeySet.EMPTY;
+                        part.addChunk(id, keys);
+                        checkpoint.chunkCommitted(id, written, keys);
+                    } catch (java.sql.SQLException | IOException e) {
+                        throw new CompletionException(e);
+                    }
+                }
+                // shard upisuje sinhrono pa se isti batch odmah puni ponovo
+                chunk.reset();
+                genStart[0] = System.nanoTime();
+                return chunk;
+            }, slice);
+        } catch (CompletionException e) {
+            throw (Exception) e.getCause();
+        } finally {
+            if (writer[0] != null) {
+                writer[0].close();
+            }
+        }
+        return part;
+    }
+}
@@ -0,0 +1,221 @@
+package prs.pipeline;
+
+import prs.checkpoint.TableCheckpoint;
+import prs.data.ColumnBatch;
+import prs.data.DataGenerator;
+import prs.filler.RowSink;
+import prs.filler.TableWriter;
+import prs.keys.KeyRegistry;
+import prs.keys.KeySet;
+import prs.keys.KeySetBuilder;
+import prs.metrics.Metrics;
+import prs.metrics.TableMetrics;
+import prs.schema.TableMeta;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+// producer/consumer: generator puni ogranicen red chunkovima, inserter niti ga prazne
+// pa je memorija po tabeli najvise (kapacitet reda + inserteri + 1) * chunkSize redova;
+// ispraznjeni batchevi se vracaju generatoru i ponovo pune
+public class StreamingLoader {
+
+    // chunk u redu sa rednim brojem, da se kljucevi spoje redom generisanja
+    private record Chunk(long id, ColumnBatch rows) {
+    }
+
+    // signal kraja, poredi se po referenci
+    private static final Chunk POISON = new Chunk(-1, null);
+
+    private final RowSink sink;
+    private final ExecutorService inserterPool;
+    private final Executor generatorExecutor;
+    private final int chunkSize;
+    private final int queueCapacity;
+    private final int inserters;
+    private final DataGenerator.Factory generators;
+    private final Metrics metrics;
+
+    // generatorExecutor == null: generise se u pozivajucoj niti
+    public StreamingLoader(RowSink sink, ExecutorService inserterPool,
+                           Executor generatorExecutor, int chunkSize, int queueCapacity, int inserters,
+                           DataGenerator.Factory generators, Metrics metrics) {
+        this.sink = sink;
+        this.inserterPool = inserterPool;
+        this.generatorExecutor = generatorExecutor;
+        this.chunkSize = chunkSize;
+        this.queueCapacity = queueCapacity;
+        this.inserters = inserters;
+        this.generators = generators;
+        this.metrics = metrics;
+    }
+
+    public LoadResult load(TableMeta table,
+                           int rowCount,
+                           KeyRegistry knownValues,
+                           long seed,
+                           boolean collectKeys,
+                           TableCheckpoint checkpoint) throws Exception {
+
+        BlockingQueue<Chunk> queue = new ArrayBlockingQueue<>(queueCapacity);
+        Queue<ColumnBatch> free = new ConcurrentLinkedQueue<>();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        TableMetrics tableMetrics = metrics.table(table.name());
+
+        List<Future<LoadResult>> consumers = new ArrayList<>();
+        for (int i = 0; i < inserters; i++) {
+            consumers.add(inserterPool.submit(() -> drain(table, queue, free, tableMetrics, failure, collectKeys, checkpoint)));
+        }
+
+        // chunkovi commitovani u prethodnom pokretanju se generisu (da RNG dodje u isto stanje) ali ne upisuju
+        LoadResult skipped = new LoadResult();
+        DataGenerator generator = generators.create(seed);
+        Runnable producer = () -> produce(table, rowCount, knownValues, generator, tableMetrics, queue, free, failure,
+                collectKeys, checkpoint, skipped);
+        if (generatorExecutor == null) {
+            producer.run();
+        } else {
+            CompletableFuture.runAsync(producer, generatorExecutor).join();
+        }
+
+        LoadResult total = new LoadResult();
+        total.merge(skipped);
+        for (Future<LoadResult> f : consumers) {
+            total.merge(f.get());
+        }
+
+        Throwable t = failure.get();
+        if (t instanceof Exception ex) {
+            throw ex;
+        } else if (t != null) {
+            throw new ExecutionException(t);
+        }
+        return total;
+    }
+
+    private void produce(TableMeta table, int rowCount, KeyRegistry knownValues, DataGenerator generator,
+                         TableMetrics tableMetrics, BlockingQueue<Chunk> queue, Queue<ColumnBatch> free,
+                         AtomicReference<Throwable> failure, boolean collectKeys, TableCheckpoint checkpoint,
+                         LoadResult skipped) {
+        try {
+            // vrijeme generisanja bez cekanja na mjesto u redu
+            long[] genStart = {System.nanoTime()};
+            int[] seq = {0};
+            generator.generateChunks(table, rowCount, chunkSize, knownValues, chunk -> {
+                tableMetrics.generated(chunk.size(), System.nanoTime() - genStart[0]);
+                long id = TableCheckpoint.chunkId(0, seq[0]++);
+                if (checkpoint.committed(id)) {
+                    if (collectKeys) {
+                        skipped.addChunk(id, checkpoint.keys(id));
+                    }
+                    chunk.reset();
+                    genStart[0] = System.nanoTime();
+                    return chunk;
+                }
+                tableMetrics.queued();
+                try {
+                    while (!queue.offer(new Chunk(id, chunk), 100, TimeUnit.MILLISECONDS)) {
+                        if (failure.get() != null) {
+                            throw new CancellationException("inserter prekinut");
+                        }
+                    }
+                } catch (InterruptedException | CancellationException e) {
+                    tableMetrics.dequeued();
+                    throw e;
+                }
+                ColumnBatch next = free.poll();
+                next = next != null ? next : chunk.newEmptyLike();
+                genStart[0] = System.nanoTime();
+                return next;
+            });
+        } catch (CancellationException ignored) {
+            // pravi uzrok je u failure
+        } catch (Exception e) {
+            failure.compareAndSet(null, e);
+        } finally {
+            // kraj se mora predati i kad je nit prekinuta, inace inserteri cekaju zauvijek
+            boolean interrupted = false;
+            int pending = inserters;
+            while (pending > 0) {
+                if (failure.get() != null) {
+                    // izbacen signal kraja koji inserter jos nije uzeo mora se poslati ponovo
+                    List<Chunk> dropped = new ArrayList<>();
+                    queue.drainTo(dropped);
+                    for (Chunk b : dropped) {
+                        if (b == POISON) {
+                            pending++;
+                        } else {
+                            tableMetrics.dequeued();
+                        }
+                    }
+                }
+                try {
+                    if (queue.offer(POISON, 100, TimeUnit.MILLISECONDS)) {
+                        pending--;
+                    }
+                } catch (InterruptedException e) {
+                    failure.compareAndSet(null, e);
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private LoadResult drain(TableMeta table,
+                         BlockingQueue<Chunk> queue,
+                         Queue<ColumnBatch> free,
+                         TableMetrics tableMetrics,
+                         AtomicReference<Throwable> failure,
+                         boolean collectKeys,
+                         TableCheckpoint checkpoint) throws InterruptedException {
+        LoadResult part = new LoadResult();
+        TableWriter writer = null;
+
+        try {
+            while (true) {
+                Chunk next = queue.take();
+                if (next == POISON) {
+                    break;
+                }
+                ColumnBatch chunk = next.rows();
+                tableMetrics.dequeued();
+                if (failure.get() != null) {
+                    continue; // prazni red dok ne stigne POISON
+                }
+                if (writer == null) {
+                    writer = sink.open(table.name(), chunk);
+                }
+                KeySetBuilder generated = new KeySetBuilder();
+                int rows = writer.write(chunk, generated);
+                part.rowsInserted += rows;
+
+                // kljucevi se pamte samo ako tabela ima djecu
+                KeySet keys = collectKeys ? LoadResult.chunkKeys(table, chunk, generated) : KeySet.EMPTY;
+                part.addChunk(next.id(), keys);
+                checkpoint.chunkCommitted(next.id(), rows, keys);
+                chunk.reset();
+                free.offer(chunk);
+            }
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Exception e) {
+            failure.compareAndSet(null, e);
+            // nastavi prazniti da producer ne ostane blokiran
+            while (queue.take() != POISON) {
+                tableMetrics.dequeued();
+            }
+        } finally {
+            if (writer != null) {
+                try {
+                    writer.close();
+                } catch (Exception ignored) {
+                }
+            }
+        }
+        return part;
+    }
+}
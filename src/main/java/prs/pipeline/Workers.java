@@ -0,0 +1,113 @@
+package prs.pipeline;
+
+import prs.db.PermitDataSource;
+
+import javax.sql.DataSource;
+import java.util.concurrent.*;
+
+// niti za tabele, I/O (inserteri, shardovi) i generisanje.
+// PLATFORM: fiksni pool za tabele i za I/O, generisanje u niti tabele (ranije ponasanje).
+// VIRTUAL: virtualna nit po tabeli i po I/O zadatku, broj konekcija ogranicen semaforom na velicinu poola,
+//          a CPU generisanje ide na poseban ograniceni pool platformskih niti.
+public class Workers implements AutoCloseable {
+
+    public enum Mode {
+        PLATFORM, VIRTUAL;
+
+        public static Mode parse(String value) {
+            return switch (value.toLowerCase()) {
+                case "platform" -> PLATFORM;
+                case "virtual" -> VIRTUAL;
+                default -> throw new IllegalArgumentException("Nepoznat --executor: " + value);
+            };
+        }
+    }
+
+    private final Mode mode;
+    private final DataSource dataSource;
+    private final ExecutorService tableExecutor;
+    private final int tableConcurrency;
+    private final ExecutorService ioPool;
+    private final ExecutorService cpuPool;
+
+    private Workers(Mode mode, DataSource dataSource, ExecutorService tableExecutor, int tableConcurrency,
+                    ExecutorService ioPool, ExecutorService cpuPool) {
+        this.mode = mode;
+        this.dataSource = dataSource;
+        this.tableExecutor = tableExecutor;
+        this.tableConcurrency = tableConcurrency;
+        this.ioPool = ioPool;
+        this.cpuPool = cpuPool;
+    }
+
+    public static Workers platform(DataSource ds, int tableThreads, int ioThreads) {
+        return new Workers(Mode.PLATFORM, ds, Executors.newFixedThreadPool(tableThreads), tableThreads,
+                Executors.newFixedThreadPool(ioThreads), null);
+    }
+
+    public static Workers virtual(DataSource ds, int poolSize, int maxTables, int cpuThreads) {
+        return virtual(new PermitDataSource(ds, poolSize), maxTables, cpuThreads);
+    }
+
+    // konekcije vec ogranicava PermitDataSource (npr. sa AdaptiveLimit)
+    public static Workers virtual(PermitDataSource ds, int maxTables, int cpuThreads) {
+        return new Workers(Mode.VIRTUAL, ds,
+                Executors.newVirtualThreadPerTaskExecutor(), maxTables,
+                Executors.newVirtualThreadPerTaskExecutor(),
+                Executors.newFixedThreadPool(cpuThreads));
+    }
+
+    public Mode mode() {
+        return mode;
+    }
+
+    // DataSource koji treba koristiti za upis (u VIRTUAL modu ogranicen semaforom)
+    public DataSource dataSource() {
+        return dataSource;
+    }
+
+    public Executor tableExecutor() {
+        return tableExecutor;
+    }
+
+    public int tableConcurrency() {
+        return tableConcurrency;
+    }
+
+    public ExecutorService ioPool() {
+        return ioPool;
+    }
+
+    // izvrsavac za generisanje; null znaci "u pozivajucoj niti"
+    public Executor cpuExecutor() {
+        return cpuPool;
+    }
+
+    // CPU posao: u VIRTUAL modu na platformskom poolu (virtualna nit samo ceka), inace direktno
+    public <T> T onCpu(Callable<T> work) throws Exception {
+        if (cpuPool == null) {
+            return work.call();
+        }
+        try {
+            return cpuPool.submit(work).get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ex ? ex : e;
+        }
+    }
+
+    // prekid dok se ceka na tabele ih prekida i ostavlja zastavicu niti pozivaocu
+    @Override
+    public void close() {
+        tableExecutor.shutdown();
+        try {
+            tableExecutor.awaitTermination(1, TimeUnit.HOURS);
+        } catch (InterruptedException e) {
+            tableExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        ioPool.shutdown();
+        if (cpuPool != null) {
+            cpuPool.shutdown();
+        }
+    }
+}
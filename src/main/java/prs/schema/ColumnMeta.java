@@ -0,0 +1,12 @@
+package prs.schema;
+
+import java.io.Serializable;
+
+// sqlType je java.sql.Types; scale je broj decimala (DECIMAL_DIGITS), 0 kad nije zadan
+public record ColumnMeta(String name, int sqlType, String typeName, int size, int scale,
+                         boolean nullable, boolean autoIncrement) implements Serializable {
+
+    public ColumnMeta(String name, int sqlType, String typeName, int size, boolean nullable, boolean autoIncrement) {
+        this(name, sqlType, typeName, size, 0, nullable, autoIncrement);
+    }
+}
@@ -0,0 +1,14 @@
+package prs.schema;
+
+import java.io.Serializable;
+import java.util.List;
+
+// kolone i parentColumns su u istom redoslijedu (slozeni fk ima vise kolona)
+public record ForeignKeyMeta(String name, List<String> columns, String parentTable,
+                             List<String> parentColumns) implements Serializable {
+
+    public ForeignKeyMeta {
+        columns = List.copyOf(columns);
+        parentColumns = List.copyOf(parentColumns);
+    }
+}
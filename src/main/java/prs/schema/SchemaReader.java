@@ -16,15 +16,20 @@ public class SchemaReader {
         this.dbType = dbType;
     }
 
-    public List<String> getAllTables(String dbName) throws SQLException {
-        List<String> tables = new ArrayList<>();
+    // cijela sema u nekoliko upita: tabele, sve kolone, sva ogranicenja (pk/fk/unique/check)
+    public SchemaSnapshot readSnapshot(String dbName) throws SQLException {
+        return readSnapshot(dbName, null);
+    }
+
+    // url se pamti u snimku da se fajl seme (--schema-cache) ne koristi za drugu bazu
+    public SchemaSnapshot readSnapshot(String dbName, String url) throws SQLException {
+        Map<String, TableBuilder> builders = new LinkedHashMap<>();
 
         try (Connection conn = ds.getConnection()) {
             DatabaseMetaData meta = conn.getMetaData();
 
             String catalogArg;
             String schemaPattern;
-
             if (dbType == DbType.MYSQL) {
                 catalogArg    = dbName;
                 schemaPattern = null;
@@ -36,77 +41,162 @@ public class SchemaReader {
             try (ResultSet rs = meta.getTables(catalogArg, schemaPattern, "%", new String[]{"TABLE"})) {
                 while (rs.next()) {
                     String tableName = rs.getString("TABLE_NAME");
-                    tables.add(tableName);
+                    builders.put(tableName, new TableBuilder(tableName));
                 }
             }
-        }
-
-        return tables;
-    }
 
-    public Map<String, List<String>> getTableDependencies(String dbName) throws SQLException {
-        Map<String, List<String>> dependencies = new HashMap<>();
-        List<String> allTables = getAllTables(dbName);
+            // jedan poziv za kolone svih tabela
+            try (ResultSet rs = meta.getColumns(catalogArg, schemaPattern, "%", "%")) {
+                while (rs.next()) {
+                    TableBuilder tb = builders.get(rs.getString("TABLE_NAME"));
+                    if (tb == null) {
+                        continue; // view ili tabela iz druge seme
+                    }
+                    tb.columns.add(new ColumnMeta(
+                            rs.getString("COLUMN_NAME"),
+                            rs.getInt("DATA_TYPE"),
+                            rs.getString("TYPE_NAME"),
+                            rs.getInt("COLUMN_SIZE"),
+                            Math.max(0, rs.getInt("DECIMAL_DIGITS")),
+                            "YES".equalsIgnoreCase(rs.getString("IS_NULLABLE")),
+                            "YES".equalsIgnoreCase(rs.getString("IS_AUTOINCREMENT"))));
+                }
+            }
 
-        for (String tableOrig : allTables) {
-            dependencies.put(tableOrig.toLowerCase(), new ArrayList<>());
+            if (dbType == DbType.MYSQL) {
+                readMySqlConstraints(conn, dbName, builders);
+            } else {
+                readPgConstraints(conn, builders);
+            }
         }
 
-        try (Connection conn = ds.getConnection()) {
-            DatabaseMetaData meta = conn.getMetaData();
+        List<TableMeta> tables = new ArrayList<>();
+        for (TableBuilder tb : builders.values()) {
+            tables.add(tb.build());
+        }
+        return new SchemaSnapshot(dbName, dbType, url, tables);
+    }
 
-            for (String tableOrig : allTables) {
-                String tableLC = tableOrig.toLowerCase();
-
-                String catalogArg;
-                String schemaPattern;
-                if (dbType == DbType.MYSQL) {
-                    catalogArg    = dbName;
-                    schemaPattern = null;
-                } else {
-                    catalogArg    = null;
-                    schemaPattern = "public";
+    private void readMySqlConstraints(Connection conn, String dbName, Map<String, TableBuilder> builders)
+            throws SQLException {
+        String sql = "SELECT tc.TABLE_NAME, tc.CONSTRAINT_NAME, tc.CONSTRAINT_TYPE, k.COLUMN_NAME, "
+                + "k.REFERENCED_TABLE_NAME, k.REFERENCED_COLUMN_NAME "
+                + "FROM information_schema.TABLE_CONSTRAINTS tc "
+                + "JOIN information_schema.KEY_COLUMN_USAGE k "
+                + "  ON k.CONSTRAINT_SCHEMA = tc.CONSTRAINT_SCHEMA AND k.TABLE_NAME = tc.TABLE_NAME "
+                + " AND k.CONSTRAINT_NAME = tc.CONSTRAINT_NAME "
+                + "WHERE tc.TABLE_SCHEMA = ? AND tc.CONSTRAINT_TYPE IN ('PRIMARY KEY', 'UNIQUE', 'FOREIGN KEY') "
+                + "ORDER BY tc.TABLE_NAME, tc.CONSTRAINT_NAME, k.ORDINAL_POSITION";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, dbName);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    TableBuilder tb = builders.get(rs.getString(1));
+                    if (tb != null) {
+                        tb.addConstraintColumn(rs.getString(2), typeCode(rs.getString(3)),
+                                rs.getString(4), rs.getString(5), rs.getString(6));
+                    }
                 }
+            }
+        }
 
-                try (ResultSet rs = meta.getImportedKeys(catalogArg, schemaPattern, tableOrig)) {
-                    while (rs.next()) {
-                        String parentTableOrig = rs.getString("PKTABLE_NAME");
-                        dependencies.get(tableLC).add(parentTableOrig.toLowerCase());
+        // CHECK postoji tek od MySQL 8.0.16
+        String checks = "SELECT tc.TABLE_NAME, cc.CHECK_CLAUSE "
+                + "FROM information_schema.TABLE_CONSTRAINTS tc "
+                + "JOIN information_schema.CHECK_CONSTRAINTS cc "
+                + "  ON cc.CONSTRAINT_SCHEMA = tc.CONSTRAINT_SCHEMA AND cc.CONSTRAINT_NAME = tc.CONSTRAINT_NAME "
+                + "WHERE tc.TABLE_SCHEMA = ? AND tc.CONSTRAINT_TYPE = 'CHECK'";
+        try (PreparedStatement ps = conn.prepareStatement(checks)) {
+            ps.setString(1, dbName);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    TableBuilder tb = builders.get(rs.getString(1));
+                    if (tb != null) {
+                        tb.checks.add(rs.getString(2));
                     }
                 }
             }
+        } catch (SQLException e) {
+            System.out.println("CHECK ogranicenja nisu dostupna: " + e.getMessage());
         }
-
-        return dependencies;
     }
 
-    public Map<String, String> getForeignKeys(String dbName, String tableNameOrig) throws SQLException {
-        Map<String, String> fkMap = new HashMap<>();
+    private void readPgConstraints(Connection conn, Map<String, TableBuilder> builders) throws SQLException {
+        String sql = "SELECT cl.relname, c.conname, c.contype, a.attname, fcl.relname, fa.attname, "
+                + "       CASE WHEN c.contype = 'c' THEN pg_get_constraintdef(c.oid) END "
+                + "FROM pg_constraint c "
+                + "JOIN pg_class cl ON cl.oid = c.conrelid "
+                + "JOIN pg_namespace n ON n.oid = cl.relnamespace "
+                + "LEFT JOIN LATERAL unnest(c.conkey) WITH ORDINALITY AS k(attnum, ord) ON true "
+                + "LEFT JOIN pg_attribute a ON a.attrelid = c.conrelid AND a.attnum = k.attnum "
+                + "LEFT JOIN pg_class fcl ON fcl.oid = c.confrelid "
+                + "LEFT JOIN pg_attribute fa ON fa.attrelid = c.confrelid AND fa.attnum = c.confkey[k.ord] "
+                + "WHERE n.nspname = 'public' AND c.contype IN ('p', 'f', 'u', 'c') "
+                + "ORDER BY cl.relname, c.conname, k.ord";
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery(sql)) {
+            Set<String> seenChecks = new HashSet<>();
+            while (rs.next()) {
+                TableBuilder tb = builders.get(rs.getString(1));
+                if (tb == null) {
+                    continue;
+                }
+                char type = rs.getString(3).charAt(0);
+                if (type == 'c') {
+                    // check sa vise kolona dolazi u vise redova
+                    if (seenChecks.add(tb.name + "." + rs.getString(2))) {
+                        tb.checks.add(rs.getString(7));
+                    }
+                    continue;
+                }
+                tb.addConstraintColumn(rs.getString(2), type, rs.getString(4), rs.getString(5), rs.getString(6));
+            }
+        }
+    }
 
-        try (Connection conn = ds.getConnection()) {
-            DatabaseMetaData meta = conn.getMetaData();
+    private static char typeCode(String constraintType) {
+        return switch (constraintType) {
+            case "PRIMARY KEY" -> 'p';
+            case "FOREIGN KEY" -> 'f';
+            default -> 'u';
+        };
+    }
 
-            String catalogArg;
-            String schemaPattern;
-            if (dbType == DbType.MYSQL) {
-                catalogArg    = dbName;
-                schemaPattern = null;
-            } else {
-                catalogArg    = null;
-                schemaPattern = "public";
-            }
+    private static class TableBuilder {
+        final String name;
+        final List<ColumnMeta> columns = new ArrayList<>();
+        final List<String> primaryKey = new ArrayList<>();
+        final Map<String, List<String>> fkColumns = new LinkedHashMap<>();
+        final Map<String, List<String>> fkParentColumns = new LinkedHashMap<>();
+        final Map<String, String> fkParent = new HashMap<>();
+        final Map<String, List<String>> uniques = new LinkedHashMap<>();
+        final List<String> checks = new ArrayList<>();
+
+        TableBuilder(String name) {
+            this.name = name;
+        }
 
-            try (ResultSet rs = meta.getImportedKeys(catalogArg, schemaPattern, tableNameOrig)) {
-                while (rs.next()) {
-                    String fkColumnOrig = rs.getString("FKCOLUMN_NAME");
-                    String fkColumnLC   = fkColumnOrig.toLowerCase();
-                    String pkTableOrig  = rs.getString("PKTABLE_NAME");
-                    String pkTableLC    = pkTableOrig.toLowerCase();
-                    fkMap.put(fkColumnLC, pkTableLC);
+        void addConstraintColumn(String constraint, char type, String column, String refTable, String refColumn) {
+            switch (type) {
+                case 'p' -> primaryKey.add(column);
+                case 'u' -> uniques.computeIfAbsent(constraint, k -> new ArrayList<>()).add(column);
+                case 'f' -> {
+                    fkColumns.computeIfAbsent(constraint, k -> new ArrayList<>()).add(column);
+                    fkParentColumns.computeIfAbsent(constraint, k -> new ArrayList<>()).add(refColumn);
+                    fkParent.put(constraint, refTable);
+                }
+                default -> {
                 }
             }
         }
 
-        return fkMap;
+        TableMeta build() {
+            List<ForeignKeyMeta> fks = new ArrayList<>();
+            for (Map.Entry<String, List<String>> e : fkColumns.entrySet()) {
+                fks.add(new ForeignKeyMeta(e.getKey(), e.getValue(), fkParent.get(e.getKey()),
+                        fkParentColumns.get(e.getKey())));
+            }
+            return new TableMeta(name, columns, primaryKey, fks, new ArrayList<>(uniques.values()), checks);
+        }
     }
 }
@@ -0,0 +1,121 @@
+package prs.schema;
+
+import prs.db.DbType;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+// cijela sema ucitana jednom; nepromjenljiva pa je niti dijele bez zakljucavanja
+public class SchemaSnapshot implements Serializable {
+
+    private static final long serialVersionUID = 2L;
+
+    private final String dbName;
+    // odakle je sema procitana; null za sintetisku semu
+    private final DbType dbType;
+    private final String url;
+    private final List<TableMeta> tables;
+    private final Map<String, TableMeta> byLC;
+
+    public SchemaSnapshot(String dbName, List<TableMeta> tables) {
+        this(dbName, null, null, tables);
+    }
+
+    // url: jdbc adresa baze bez parametara (jdbc:postgresql://host:port/baza)
+    public SchemaSnapshot(String dbName, DbType dbType, String url, List<TableMeta> tables) {
+        this.dbName = dbName;
+        this.dbType = dbType;
+        this.url = url;
+        this.tables = List.copyOf(tables);
+        Map<String, TableMeta> m = new HashMap<>();
+        for (TableMeta t : tables) {
+            m.put(t.nameLC(), t);
+        }
+        this.byLC = Collections.unmodifiableMap(m);
+    }
+
+    public String dbName() {
+        return dbName;
+    }
+
+    public DbType dbType() {
+        return dbType;
+    }
+
+    public String url() {
+        return url;
+    }
+
+    // fajl seme vazi samo za istu vrstu baze na istoj adresi: ime baze se ponavlja (npr. mydb na MySQL-u i
+    // PostgreSQL-u), a tipovi, navodnici i auto-increment se razlikuju
+    public boolean readFrom(DbType type, String jdbcUrl, String name) {
+        return type == dbType && Objects.equals(jdbcUrl, url) && Objects.equals(name, dbName);
+    }
+
+    public List<TableMeta> tables() {
+        return tables;
+    }
+
+    public TableMeta table(String name) {
+        return byLC.get(name.toLowerCase());
+    }
+
+    public List<String> tableNames() {
+        List<String> names = new ArrayList<>();
+        for (TableMeta t : tables) {
+            names.add(t.name());
+        }
+        return names;
+    }
+
+    // dijete (lower-case) -> roditelji (lower-case)
+    public Map<String, List<String>> dependencies() {
+        Map<String, List<String>> deps = new HashMap<>();
+        for (TableMeta t : tables) {
+            deps.put(t.nameLC(), t.parentTablesLC());
+        }
+        return deps;
+    }
+
+    // tabele i kolone ove seme koje u drugoj nemaju isto ime (velika/mala slova se razlikuju u navodnicima);
+    // prazno kad druga baza moze primiti iste redove
+    public List<String> missingIn(SchemaSnapshot other) {
+        List<String> missing = new ArrayList<>();
+        for (TableMeta t : tables) {
+            TableMeta o = other.table(t.name());
+            if (o == null || !o.name().equals(t.name())) {
+                missing.add("tabela " + t.name());
+                continue;
+            }
+            for (ColumnMeta c : t.columns()) {
+                ColumnMeta oc = o.column(c.name());
+                if (oc == null || !oc.name().equals(c.name())) {
+                    missing.add("kolona " + t.name() + "." + c.name());
+                }
+            }
+        }
+        return missing;
+    }
+
+    public void save(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        try (ObjectOutputStream out = new ObjectOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeObject(this);
+        }
+    }
+
+    public static SchemaSnapshot load(Path file) throws IOException {
+        try (ObjectInputStream in = new ObjectInputStream(
+                new BufferedInputStream(Files.newInputStream(file)))) {
+            return (SchemaSnapshot) in.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Neispravan fajl seme: " + file, e);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package prs.schema;
+
+import java.io.Serializable;
+import java.util.*;
+
+// nepromjenljiv opis tabele, dijeli se izmedju niti
+public record TableMeta(String name,
+                        List<ColumnMeta> columns,
+                        List<String> primaryKey,
+                        List<ForeignKeyMeta> foreignKeys,
+                        List<List<String>> uniqueConstraints,
+                        List<String> checkConstraints) implements Serializable {
+
+    public TableMeta {
+        columns = List.copyOf(columns);
+        primaryKey = List.copyOf(primaryKey);
+        foreignKeys = List.copyOf(foreignKeys);
+        List<List<String>> uniques = new ArrayList<>();
+        for (List<String> u : uniqueConstraints) {
+            uniques.add(List.copyOf(u));
+        }
+        uniqueConstraints = List.copyOf(uniques);
+        checkConstraints = List.copyOf(checkConstraints);
+    }
+
+    public String nameLC() {
+        return name.toLowerCase();
+    }
+
+    // fk kolona (lower-case) -> roditeljska tabela (lower-case)
+    public Map<String, String> foreignKeyMap() {
+        Map<String, String> fkMap = new HashMap<>();
+        for (ForeignKeyMeta fk : foreignKeys) {
+            for (String col : fk.columns()) {
+                fkMap.put(col.toLowerCase(), fk.parentTable().toLowerCase());
+            }
+        }
+        return fkMap;
+    }
+
+    public List<String> parentTablesLC() {
+        List<String> parents = new ArrayList<>();
+        for (ForeignKeyMeta fk : foreignKeys) {
+            String p = fk.parentTable().toLowerCase();
+            if (!parents.contains(p)) {
+                parents.add(p);
+            }
+        }
+        return parents;
+    }
+
+    public ColumnMeta column(String columnName) {
+        for (ColumnMeta c : columns) {
+            if (c.name().equalsIgnoreCase(columnName)) {
+                return c;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,24 @@
+package prs.stats;
+
+import java.io.Serializable;
+import java.util.List;
+
+// statistika jedne kolone izvorne baze, vrijednosti kao tekst (tip se odredjuje tek pri prevodjenju za kolonu):
+// udio NULL, broj razlicitih vrijednosti (> 0 apsolutno, < 0 udio broja redova kao u pg_stats, 0 nepoznato),
+// najcesce vrijednosti sa udjelima u svim redovima, kante [lo, hi] sa udjelima za ostale vrijednosti
+// i raspodjela duzine teksta
+public record ColumnStats(double nullFrac, double distinct,
+                          List<String> mcv, double[] mcvFreq,
+                          List<String> bucketLo, List<String> bucketHi, double[] bucketFreq,
+                          int[] lengths, double[] lengthFreq) implements Serializable {
+
+    public ColumnStats {
+        mcv = List.copyOf(mcv);
+        bucketLo = List.copyOf(bucketLo);
+        bucketHi = List.copyOf(bucketHi);
+    }
+
+    public boolean isEmpty() {
+        return nullFrac == 0 && mcv.isEmpty() && bucketLo.isEmpty() && lengths.length == 0;
+    }
+}
@@ -0,0 +1,434 @@
+package prs.stats;
+
+import prs.config.Json;
+import prs.data.ColumnBatch;
+import prs.db.DbType;
+import prs.schema.ColumnMeta;
+import prs.schema.SchemaSnapshot;
+import prs.schema.TableMeta;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.*;
+import java.util.*;
+
+// jedan prolaz kroz izvornu bazu: statistika planera (pg_stats, MySQL histogrami iz ANALYZE TABLE ...
+// UPDATE HISTOGRAM), a za kolone bez nje uzorak redova (TABLESAMPLE na PostgreSQL-u, RAND() na MySQL-u)
+public class StatsReader {
+
+    private static final int MAX_MCV = 100;
+    private static final int SAMPLE_BUCKETS = 50;
+
+    private final DbType dbType;
+    private final int sampleRows;
+
+    // sampleRows: redova uzorka po tabeli za kolone bez statistike planera, 0 bez uzorka
+    public StatsReader(DbType dbType, int sampleRows) {
+        this.dbType = dbType;
+        this.sampleRows = sampleRows;
+    }
+
+    // samo tabele i kolone iz seme koja se puni
+    public StatsSnapshot read(Connection conn, SchemaSnapshot schema) throws SQLException {
+        Map<String, Map<String, ColumnStats>> stats = new HashMap<>();
+        if (dbType == DbType.POSTGRESQL) {
+            readPostgres(conn, schema, stats);
+        } else {
+            readMySql(conn, schema, stats);
+        }
+        int planner = count(stats);
+
+        int sampled = 0;
+        if (sampleRows > 0) {
+            Map<String, Long> tableRows = tableRows(conn);
+            for (TableMeta table : schema.tables()) {
+                Map<String, ColumnStats> cols = stats.computeIfAbsent(table.nameLC(), t -> new HashMap<>());
+                List<ColumnMeta> missing = new ArrayList<>();
+                for (ColumnMeta col : table.columns()) {
+                    if (!col.autoIncrement() && !cols.containsKey(col.name().toLowerCase())
+                            && ColumnBatch.Kind.of(col.sqlType()) != ColumnBatch.Kind.OBJECT) {
+                        missing.add(col);
+                    }
+                }
+                if (!missing.isEmpty()) {
+                    try {
+                        sampled += sample(conn, table, missing, tableRows.getOrDefault(table.nameLC(), -1L), cols);
+                    } catch (SQLException e) {
+                        System.out.println("Uzorak tabele " + table.name() + " nije procitan: " + e.getMessage());
+                    }
+                }
+            }
+        }
+        stats.values().removeIf(Map::isEmpty);
+        System.out.println("Statistika: " + planner + " kolona iz statistike planera, " + sampled + " iz uzorka");
+        return new StatsSnapshot(stats);
+    }
+
+    private static int count(Map<String, Map<String, ColumnStats>> stats) {
+        int n = 0;
+        for (Map<String, ColumnStats> cols : stats.values()) {
+            n += cols.size();
+        }
+        return n;
+    }
+
+    // --- PostgreSQL: pg_stats ---
+
+    private void readPostgres(Connection conn, SchemaSnapshot schema,
+                              Map<String, Map<String, ColumnStats>> stats) throws SQLException {
+        String sql = "SELECT tablename, attname, null_frac, n_distinct, avg_width, most_common_vals::text, "
+                + "most_common_freqs::text, histogram_bounds::text FROM pg_stats WHERE schemaname = 'public'";
+        try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery(sql)) {
+            while (rs.next()) {
+                TableMeta table = schema.table(rs.getString(1));
+                ColumnMeta col = table == null ? null : table.column(rs.getString(2));
+                if (col == null || col.autoIncrement()) {
+                    continue;
+                }
+                double nullFrac = rs.getDouble(3);
+                List<String> mcv = pgArray(rs.getString(6));
+                List<String> freqText = pgArray(rs.getString(7));
+                double[] mcvFreq = new double[Math.min(mcv.size(), freqText.size())];
+                double mcvMass = 0;
+                for (int i = 0; i < mcvFreq.length; i++) {
+                    mcvFreq[i] = Double.parseDouble(freqText.get(i));
+                    mcvMass += mcvFreq[i];
+                }
+                mcv = mcv.subList(0, mcvFreq.length);
+
+                // histogram_bounds dijeli ostale (ne-mcv) vrijednosti na kante sa jednakim brojem redova
+                List<String> bounds = pgArray(rs.getString(8));
+                List<String> lo = new ArrayList<>();
+                List<String> hi = new ArrayList<>();
+                double[] bucketFreq = new double[Math.max(0, bounds.size() - 1)];
+                double rest = Math.max(0, 1 - nullFrac - mcvMass);
+                for (int i = 0; i < bucketFreq.length; i++) {
+                    lo.add(bounds.get(i));
+                    hi.add(bounds.get(i + 1));
+                    bucketFreq[i] = rest / bucketFreq.length;
+                }
+
+                Map<Integer, Double> lengths = new TreeMap<>();
+                if (ColumnBatch.Kind.of(col.sqlType()) == ColumnBatch.Kind.STRING) {
+                    for (String b : bounds) {
+                        lengths.merge(b.getBytes(StandardCharsets.UTF_8).length, 1.0, Double::sum);
+                    }
+                    if (lengths.isEmpty() && rs.getInt(5) > 1) {
+                        // bez histograma ostaje prosjecna sirina (jedan bajt je zaglavlje kratkog varlena)
+                        lengths.put(rs.getInt(5) - 1, 1.0);
+                    }
+                }
+                put(stats, table, col, new ColumnStats(nullFrac, rs.getDouble(4), mcv, mcvFreq, lo, hi, bucketFreq,
+                        keys(lengths), values(lengths)));
+            }
+        }
+    }
+
+    // tekstualni oblik PostgreSQL niza: {a,"b c",NULL}; NULL elementi se izostavljaju
+    static List<String> pgArray(String text) {
+        List<String> out = new ArrayList<>();
+        if (text == null || text.length() <= 2) {
+            return out;
+        }
+        StringBuilder sb = new StringBuilder();
+        boolean quoted = false;
+        boolean wasQuoted = false;
+        for (int i = 1; i < text.length() - 1; i++) {
+            char ch = text.charAt(i);
+            if (quoted) {
+                if (ch == '\\' && i + 1 < text.length() - 1) {
+                    sb.append(text.charAt(++i));
+                } else if (ch == '"') {
+                    quoted = false;
+                } else {
+                    sb.append(ch);
+                }
+            } else if (ch == '"') {
+                quoted = true;
+                wasQuoted = true;
+            } else if (ch == ',') {
+                addElement(out, sb, wasQuoted);
+                wasQuoted = false;
+            } else {
+                sb.append(ch);
+            }
+        }
+        addElement(out, sb, wasQuoted);
+        return out;
+    }
+
+    private static void addElement(List<String> out, StringBuilder sb, boolean quoted) {
+        String v = sb.toString();
+        sb.setLength(0);
+        if (quoted || !v.equals("NULL")) {
+            out.add(v);
+        }
+    }
+
+    // --- MySQL 8: information_schema.COLUMN_STATISTICS ---
+
+    private void readMySql(Connection conn, SchemaSnapshot schema,
+                           Map<String, Map<String, ColumnStats>> stats) throws SQLException {
+        String sql = "SELECT TABLE_NAME, COLUMN_NAME, HISTOGRAM FROM information_schema.COLUMN_STATISTICS "
+                + "WHERE SCHEMA_NAME = DATABASE()";
+        try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery(sql)) {
+            while (rs.next()) {
+                TableMeta table = schema.table(rs.getString(1));
+                ColumnMeta col = table == null ? null : table.column(rs.getString(2));
+                if (col == null || col.autoIncrement()) {
+                    continue;
+                }
+                ColumnStats cs = mySqlHistogram(rs.getString(3), ColumnBatch.Kind.of(col.sqlType()));
+                if (cs != null) {
+                    put(stats, table, col, cs);
+                }
+            }
+        } catch (SQLSyntaxErrorException e) {
+            // MySQL 5.7 nema histograme, ostaje uzorak
+            System.out.println("MySQL histogrami nisu dostupni (" + e.getMessage() + ")");
+        }
+    }
+
+    // singleton: [[vrijednost, kumulativni udio]]; equi-height: [[lo, hi, kumulativni udio, broj razlicitih]]
+    static ColumnStats mySqlHistogram(String json, ColumnBatch.Kind kind) {
+        if (!(Json.parse(json) instanceof Map<?, ?> h) || !(h.get("buckets") instanceof List<?> buckets)) {
+            return null;
+        }
+        double nullFrac = h.get("null-values") instanceof Number n ? n.doubleValue() : 0;
+        boolean singleton = "singleton".equals(h.get("histogram-type"));
+        double total = 0;
+        if (!buckets.isEmpty() && buckets.get(buckets.size() - 1) instanceof List<?> last) {
+            total = ((Number) last.get(singleton ? 1 : 2)).doubleValue();
+        }
+        // udjeli se svode na (1 - null) bez obzira da li kumulativni udio racuna i NULL redove
+        double scale = total > 0 ? (1 - nullFrac) / total : 0;
+
+        List<String> mcv = new ArrayList<>();
+        List<String> lo = new ArrayList<>();
+        List<String> hi = new ArrayList<>();
+        List<Double> freqs = new ArrayList<>();
+        Map<Integer, Double> lengths = new TreeMap<>();
+        double distinct = 0;
+        double prev = 0;
+        for (Object o : buckets) {
+            List<?> b = (List<?>) o;
+            double cum = ((Number) b.get(singleton ? 1 : 2)).doubleValue();
+            double f = (cum - prev) * scale;
+            prev = cum;
+            freqs.add(f);
+            if (singleton) {
+                String v = mySqlValue(b.get(0));
+                mcv.add(v);
+                distinct++;
+                if (kind == ColumnBatch.Kind.STRING) {
+                    lengths.merge(v.getBytes(StandardCharsets.UTF_8).length, f, Double::sum);
+                }
+            } else {
+                String l = mySqlValue(b.get(0));
+                String u = mySqlValue(b.get(1));
+                lo.add(l);
+                hi.add(u);
+                distinct += ((Number) b.get(3)).doubleValue();
+                if (kind == ColumnBatch.Kind.STRING) {
+                    lengths.merge(l.getBytes(StandardCharsets.UTF_8).length, f / 2, Double::sum);
+                    lengths.merge(u.getBytes(StandardCharsets.UTF_8).length, f / 2, Double::sum);
+                }
+            }
+        }
+        double[] f = new double[freqs.size()];
+        for (int i = 0; i < f.length; i++) {
+            f[i] = freqs.get(i);
+        }
+        return singleton
+                ? new ColumnStats(nullFrac, distinct, mcv, f, List.of(), List.of(), new double[0], keys(lengths), values(lengths))
+                : new ColumnStats(nullFrac, distinct, List.of(), new double[0], lo, hi, f, keys(lengths), values(lengths));
+    }
+
+    // stringovi u histogramu su "base64:type<N>:<base64>"
+    private static String mySqlValue(Object v) {
+        String s = String.valueOf(v);
+        if (s.startsWith("base64:")) {
+            int colon = s.indexOf(':', 7);
+            return new String(Base64.getDecoder().decode(s.substring(colon + 1)), StandardCharsets.UTF_8);
+        }
+        return s;
+    }
+
+    // --- uzorak redova ---
+
+    private Map<String, Long> tableRows(Connection conn) throws SQLException {
+        String sql = dbType == DbType.POSTGRESQL
+                ? "SELECT c.relname, c.reltuples FROM pg_class c JOIN pg_namespace n ON n.oid = c.relnamespace "
+                + "WHERE n.nspname = 'public' AND c.relkind IN ('r', 'p')"
+                : "SELECT table_name, table_rows FROM information_schema.tables WHERE table_schema = DATABASE()";
+        Map<String, Long> rows = new HashMap<>();
+        try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery(sql)) {
+            while (rs.next()) {
+                long n = rs.getLong(2);
+                rows.put(rs.getString(1).toLowerCase(), rs.wasNull() ? -1 : n);
+            }
+        }
+        return rows;
+    }
+
+    // tableRows < 0: broj redova nije poznat, uzima se prvih sampleRows redova
+    private int sample(Connection conn, TableMeta table, List<ColumnMeta> cols, long tableRows,
+                       Map<String, ColumnStats> out) throws SQLException {
+        String q = dbType == DbType.POSTGRESQL ? "\"" : "`";
+        StringBuilder sql = new StringBuilder("SELECT ");
+        for (int i = 0; i < cols.size(); i++) {
+            sql.append(i == 0 ? "" : ", ").append(q).append(cols.get(i).name()).append(q);
+        }
+        sql.append(" FROM ").append(q).append(table.name()).append(q);
+        // dvostruko vise od trazenog da LIMIT ne ostane nedostignut zbog slucajnosti
+        double fraction = tableRows > 0 ? Math.min(1.0, 2.0 * sampleRows / tableRows) : 1.0;
+        if (fraction < 1.0) {
+            sql.append(dbType == DbType.POSTGRESQL
+                    ? " TABLESAMPLE BERNOULLI (" + (fraction * 100) + ")"
+                    : " WHERE RAND() < " + fraction);
+        }
+        sql.append(" LIMIT ").append(sampleRows);
+
+        List<Map<String, Integer>> counts = new ArrayList<>();
+        int[] nulls = new int[cols.size()];
+        for (int i = 0; i < cols.size(); i++) {
+            counts.add(new HashMap<>());
+        }
+        int n = 0;
+        try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery(sql.toString())) {
+            while (rs.next()) {
+                n++;
+                for (int i = 0; i < cols.size(); i++) {
+                    String v = sampleValue(rs, i + 1, ColumnBatch.Kind.of(cols.get(i).sqlType()));
+                    if (v == null) {
+                        nulls[i]++;
+                    } else {
+                        counts.get(i).merge(v, 1, Integer::sum);
+                    }
+                }
+            }
+        }
+        if (n == 0) {
+            return 0;
+        }
+        for (int i = 0; i < cols.size(); i++) {
+            ColumnMeta col = cols.get(i);
+            out.put(col.name().toLowerCase(), fromSample(counts.get(i), nulls[i], n, tableRows,
+                    ColumnBatch.Kind.of(col.sqlType())));
+        }
+        return cols.size();
+    }
+
+    // datumi kao yyyy-MM-dd[ HH:mm:ss], boolean kao t/f, da odgovaraju obliku iz pg_stats
+    private static String sampleValue(ResultSet rs, int i, ColumnBatch.Kind kind) throws SQLException {
+        switch (kind) {
+            case DATE -> {
+                java.sql.Date d = rs.getDate(i);
+                return d == null ? null : d.toLocalDate().toString();
+            }
+            case TIMESTAMP -> {
+                Timestamp t = rs.getTimestamp(i);
+                return t == null ? null : t.toLocalDateTime().toString().replace('T', ' ');
+            }
+            case BOOLEAN -> {
+                boolean b = rs.getBoolean(i);
+                return rs.wasNull() ? null : (b ? "t" : "f");
+            }
+            default -> {
+                return rs.getString(i);
+            }
+        }
+    }
+
+    // kao ANALYZE: broj razlicitih po procjeni Haas-Stokes (Duj1), najcesce su vrijednosti cestce od
+    // 1.25 prosjecne, ostale idu u kante jednake dubine
+    static ColumnStats fromSample(Map<String, Integer> counts, int nulls, int n, long tableRows, ColumnBatch.Kind kind) {
+        List<Map.Entry<String, Integer>> byCount = new ArrayList<>(counts.entrySet());
+        byCount.sort(Map.Entry.<String, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+
+        int nonNull = n - nulls;
+        int singles = 0;
+        for (Map.Entry<String, Integer> e : byCount) {
+            if (e.getValue() == 1) {
+                singles++;
+            }
+        }
+        double distinct = counts.size();
+        if (tableRows > n && nonNull > 0) {
+            distinct = Math.min(tableRows, (double) nonNull * counts.size()
+                    / (nonNull - singles + (double) singles * nonNull / tableRows));
+        }
+        double minCount = Math.max(2, 1.25 * nonNull / Math.max(1, distinct));
+
+        List<String> mcv = new ArrayList<>();
+        List<Double> mcvFreq = new ArrayList<>();
+        List<String> rest = new ArrayList<>();
+        Map<Integer, Double> lengths = new TreeMap<>();
+        for (Map.Entry<String, Integer> e : byCount) {
+            int c = e.getValue();
+            if (c >= minCount && mcv.size() < MAX_MCV) {
+                mcv.add(e.getKey());
+                mcvFreq.add((double) c / n);
+            } else {
+                for (int k = 0; k < c; k++) {
+                    rest.add(e.getKey());
+                }
+                if (kind == ColumnBatch.Kind.STRING) {
+                    lengths.merge(e.getKey().getBytes(StandardCharsets.UTF_8).length, (double) c, Double::sum);
+                }
+            }
+        }
+
+        List<String> lo = new ArrayList<>();
+        List<String> hi = new ArrayList<>();
+        double[] bucketFreq = new double[0];
+        if (!rest.isEmpty() && kind != ColumnBatch.Kind.STRING && kind != ColumnBatch.Kind.BOOLEAN) {
+            Comparator<String> order = kind == ColumnBatch.Kind.DATE || kind == ColumnBatch.Kind.TIMESTAMP
+                    ? Comparator.naturalOrder()
+                    : Comparator.comparingDouble(Double::parseDouble);
+            rest.sort(order);
+            int buckets = Math.min(SAMPLE_BUCKETS, rest.size());
+            bucketFreq = new double[buckets];
+            for (int b = 0; b < buckets; b++) {
+                int from = (int) ((long) b * rest.size() / buckets);
+                int to = (int) ((long) (b + 1) * rest.size() / buckets) - 1;
+                lo.add(rest.get(from));
+                hi.add(rest.get(to));
+                bucketFreq[b] = (double) (to - from + 1) / n;
+            }
+        }
+
+        // kao pg_stats: vise od 10% redova se cuva kao udio, pa se skalira sa brojem generisanih redova
+        long rows = tableRows > n ? tableRows : n;
+        if (distinct > 0.1 * rows) {
+            distinct = -distinct / rows;
+        }
+
+        double[] freq = new double[mcvFreq.size()];
+        for (int i = 0; i < freq.length; i++) {
+            freq[i] = mcvFreq.get(i);
+        }
+        return new ColumnStats((double) nulls / n, distinct, mcv, freq, lo, hi, bucketFreq, keys(lengths), values(lengths));
+    }
+
+    private static void put(Map<String, Map<String, ColumnStats>> stats, TableMeta table, ColumnMeta col, ColumnStats cs) {
+        stats.computeIfAbsent(table.nameLC(), t -> new HashMap<>()).put(col.name().toLowerCase(), cs);
+    }
+
+    private static int[] keys(Map<Integer, Double> m) {
+        int[] k = new int[m.size()];
+        int i = 0;
+        for (int key : m.keySet()) {
+            k[i++] = key;
+        }
+        return k;
+    }
+
+    private static double[] values(Map<Integer, Double> m) {
+        double[] v = new double[m.size()];
+        int i = 0;
+        for (double value : m.values()) {
+            v[i++] = value;
+        }
+        return v;
+    }
+}
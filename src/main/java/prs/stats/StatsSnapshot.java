@@ -0,0 +1,75 @@
+package prs.stats;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+// statistika kolona izvorne baze po tabeli i koloni (lower-case); cuva se u --stats fajl kao SchemaSnapshot,
+// pa se naredna punjenja ne vracaju na izvornu bazu
+public class StatsSnapshot implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Map<String, Map<String, ColumnStats>> byTable;
+    // hes sadrzaja fajla, upisuje se u checkpoint dnevnik da --resume koristi istu statistiku
+    private transient long hash;
+
+    public StatsSnapshot(Map<String, Map<String, ColumnStats>> byTable) {
+        Map<String, Map<String, ColumnStats>> copy = new HashMap<>();
+        byTable.forEach((t, cols) -> copy.put(t, new HashMap<>(cols)));
+        this.byTable = copy;
+    }
+
+    // null ako kolona nema statistiku
+    public ColumnStats get(String tableLC, String columnLC) {
+        Map<String, ColumnStats> cols = byTable.get(tableLC);
+        return cols == null ? null : cols.get(columnLC);
+    }
+
+    public int columnCount() {
+        int n = 0;
+        for (Map<String, ColumnStats> cols : byTable.values()) {
+            n += cols.size();
+        }
+        return n;
+    }
+
+    public long hash() {
+        return hash;
+    }
+
+    public void save(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(this);
+        }
+        byte[] content = bytes.toByteArray();
+        Files.write(file, content);
+        hash = hash(content);
+    }
+
+    public static StatsSnapshot load(Path file) throws IOException {
+        byte[] content = Files.readAllBytes(file);
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(content))) {
+            StatsSnapshot stats = (StatsSnapshot) in.readObject();
+            stats.hash = hash(content);
+            return stats;
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException("Neispravan fajl statistike: " + file, e);
+        }
+    }
+
+    // FNV-1a, 64 bita
+    private static long hash(byte[] content) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : content) {
+            h = (h ^ (b & 0xFF)) * 0x100000001b3L;
+        }
+        return h == 0 ? 1 : h;
+    }
+}
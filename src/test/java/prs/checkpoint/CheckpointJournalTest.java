@@ -0,0 +1,77 @@
+package prs.checkpoint;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import prs.keys.LongRangeKeys;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CheckpointJournalTest {
+
+    private static final CheckpointJournal.Header HEADER =
+            new CheckpointJournal.Header(7, 1_700_000_000_000L, 1000, 100, 1, true, 99, "", 0);
+
+    @TempDir
+    Path dir;
+
+    private Path journalWithTwoChunks() throws IOException {
+        Path file = dir.resolve("journal.bin");
+        try (CheckpointJournal journal = CheckpointJournal.create(file, HEADER)) {
+            TableCheckpoint t = journal.table("t");
+            t.chunkCommitted(TableCheckpoint.chunkId(0, 0), 100, new LongRangeKeys(1, 100, 1));
+            t.chunkCommitted(TableCheckpoint.chunkId(0, 1), 100, new LongRangeKeys(101, 100, 1));
+        }
+        return file;
+    }
+
+    // pad usred upisa ostavi pola zapisa: odsijeca se, a dopisivanje nastavlja od zadnjeg cijelog zapisa
+    @Test
+    void partialTailIsTruncatedAndAppendContinues() throws IOException {
+        Path file = journalWithTwoChunks();
+        long complete = Files.size(file);
+        Files.write(file, new byte[]{0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        try (CheckpointJournal journal = CheckpointJournal.open(file)) {
+            assertEquals(HEADER, journal.header());
+            assertEquals(complete, Files.size(file));
+            TableCheckpoint t = journal.table("t");
+            assertTrue(t.committed(TableCheckpoint.chunkId(0, 0)));
+            assertTrue(t.committed(TableCheckpoint.chunkId(0, 1)));
+            assertEquals(200, t.committedRows());
+            t.chunkCommitted(TableCheckpoint.chunkId(0, 2), 50, new LongRangeKeys(201, 50, 1));
+            t.finished();
+        }
+
+        try (CheckpointJournal journal = CheckpointJournal.open(file)) {
+            TableCheckpoint t = journal.table("t");
+            assertTrue(t.done());
+            assertEquals(250, t.committedRows());
+            assertEquals(250, t.keys().size());
+        }
+    }
+
+    // zapis sa pogresnim crc-om (rep upisan samo djelimicno na disk) se ne cita kao commitovan
+    @Test
+    void recordWithBadChecksumIsDropped() throws IOException {
+        Path file = journalWithTwoChunks();
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.seek(raf.length() - 1);
+            int last = raf.read();
+            raf.seek(raf.length() - 1);
+            raf.write(last ^ 0xFF);
+        }
+
+        try (CheckpointJournal journal = CheckpointJournal.open(file)) {
+            TableCheckpoint t = journal.table("t");
+            assertTrue(t.committed(TableCheckpoint.chunkId(0, 0)));
+            assertFalse(t.committed(TableCheckpoint.chunkId(0, 1)));
+            assertEquals(100, t.keys().size());
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package prs.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.Types;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColumnBatchTest {
+
+    private static final String[] NAMES = {"i", "l", "d", "b", "s", "o"};
+    private static final int[] TYPES = {Types.INTEGER, Types.BIGINT, Types.DOUBLE, Types.BOOLEAN, Types.VARCHAR,
+            Types.OTHER};
+
+    private static ColumnBatch allNull() {
+        ColumnBatch batch = new ColumnBatch(NAMES, TYPES, 4);
+        int row = batch.addRow();
+        for (int c = 0; c < NAMES.length; c++) {
+            batch.setNull(c, row);
+        }
+        return batch;
+    }
+
+    // vrijednost upisana preko null-a (CyclePatcher, ponovljen red) ne smije ostati NULL
+    @Test
+    void settersClearNullBit() {
+        ColumnBatch batch = allNull();
+        batch.setInt(0, 0, 1);
+        batch.setLong(1, 0, 2);
+        batch.setDouble(2, 0, 3.5);
+        batch.setBoolean(3, 0, true);
+        batch.setString(4, 0, "x");
+        batch.setObject(5, 0, "o");
+        for (int c = 0; c < NAMES.length; c++) {
+            assertFalse(batch.isNull(c, 0), NAMES[c]);
+        }
+        assertEquals(1, batch.getInt(0, 0));
+        assertEquals("x", batch.getString(4, 0));
+    }
+
+    @Test
+    void copyValueClearsNullBit() {
+        ColumnBatch src = new ColumnBatch(NAMES, TYPES, 4);
+        int r = src.addRow();
+        src.setInt(0, r, 1);
+        src.setLong(1, r, 2);
+        src.setDouble(2, r, 3.5);
+        src.setBoolean(3, r, true);
+        src.setString(4, r, "x");
+        src.setObject(5, r, "o");
+
+        ColumnBatch dst = allNull();
+        for (int c = 0; c < NAMES.length; c++) {
+            dst.copyValue(c, 0, src, c, r);
+            assertFalse(dst.isNull(c, 0), NAMES[c]);
+        }
+        assertEquals(2, dst.getLong(1, 0));
+        assertEquals(3.5, dst.getDouble(2, 0));
+        assertTrue(dst.getBoolean(3, 0));
+
+        ColumnBatch nulls = allNull();
+        dst.copyValue(0, 0, nulls, 0, 0);
+        assertTrue(dst.isNull(0, 0));
+    }
+}
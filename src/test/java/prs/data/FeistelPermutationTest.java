@@ -0,0 +1,35 @@
+package prs.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FeistelPermutationTest {
+
+    // domeni koji nisu stepen dvojke: cycle walking mora ostati u [0, n) i pogoditi svaki broj tacno jednom
+    @Test
+    void bijectionOverNonPowerOfTwoDomains() {
+        for (long n : new long[]{1, 2, 3, 5, 7, 77, 1000, 4097, 65_537}) {
+            for (long seed : new long[]{0, 42, -7}) {
+                FeistelPermutation perm = new FeistelPermutation(n, seed);
+                BitSet seen = new BitSet((int) n);
+                for (long i = 0; i < n; i++) {
+                    long x = perm.apply(i);
+                    assertTrue(x >= 0 && x < n, "n=" + n + " seed=" + seed + ": " + x + " van domena");
+                    assertFalse(seen.get((int) x), "n=" + n + " seed=" + seed + ": " + x + " ponovljen");
+                    seen.set((int) x);
+                }
+                assertEquals(n, seen.cardinality());
+            }
+        }
+    }
+
+    @Test
+    void rejectsIndexOutsideDomain() {
+        FeistelPermutation perm = new FeistelPermutation(10, 1);
+        assertThrows(IndexOutOfBoundsException.class, () -> perm.apply(10));
+        assertThrows(IndexOutOfBoundsException.class, () -> perm.apply(-1));
+    }
+}
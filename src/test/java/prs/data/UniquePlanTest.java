@@ -0,0 +1,55 @@
+package prs.data;
+
+import org.junit.jupiter.api.Test;
+import prs.keys.KeySet;
+import prs.keys.LongRangeKeys;
+import prs.schema.ColumnMeta;
+import prs.schema.ForeignKeyMeta;
+import prs.schema.TableMeta;
+
+import java.sql.Types;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UniquePlanTest {
+
+    // veza vise-prema-vise: pk od dva fk sa 7 i 11 roditelja daje 77 kombinacija, sto nije stepen dvojke
+    private static final TableMeta VEZA = new TableMeta("veza",
+            List.of(new ColumnMeta("a_id", Types.INTEGER, "INT", 10, false, false),
+                    new ColumnMeta("b_id", Types.INTEGER, "INT", 10, false, false)),
+            List.of("a_id", "b_id"),
+            List.of(new ForeignKeyMeta("fk_a", List.of("a_id"), "a", List.of("id")),
+                    new ForeignKeyMeta("fk_b", List.of("b_id"), "b", List.of("id"))),
+            List.of(), List.of());
+
+    // shardovi pisu redove [firstRow, firstRow + rows) iste permutacije; dijelovi ne smiju dati istu kombinaciju
+    @Test
+    void shardSlicesOfWritePermutedAreDisjoint() {
+        KeySet[] parents = {new LongRangeKeys(1, 7, 1), new LongRangeKeys(100, 11, 1)};
+        UniquePlan plan = UniquePlan.build(VEZA, VEZA.columns(), parents, 12345, 77, ExistingRows.NONE);
+        assertEquals(77, plan.rowsFor(0, 1000));
+
+        long[][] slices = {{0, 20}, {20, 30}, {50, 27}};
+        Set<Long> all = new HashSet<>();
+        for (long[] slice : slices) {
+            ColumnBatch batch = new ColumnBatch(new String[]{"a_id", "b_id"},
+                    new int[]{Types.INTEGER, Types.INTEGER}, (int) slice[1]);
+            byte[] strBuf = new byte[64];
+            for (int r = 0; r < slice[1]; r++) {
+                int row = batch.addRow();
+                plan.writePermuted(batch, row, slice[0] + r, strBuf, 0);
+            }
+            for (int r = 0; r < batch.size(); r++) {
+                long a = batch.getInt(0, r);
+                long b = batch.getInt(1, r);
+                assertTrue(a >= 1 && a <= 7, "a_id van roditelja: " + a);
+                assertTrue(b >= 100 && b <= 110, "b_id van roditelja: " + b);
+                assertTrue(all.add(a * 1000 + b), "kombinacija (" + a + ", " + b + ") u dva sharda");
+            }
+        }
+        assertEquals(77, all.size());
+    }
+}
@@ -0,0 +1,92 @@
+package prs.filler;
+
+import org.junit.jupiter.api.Test;
+import prs.data.ColumnBatch;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TextRowEncoderTest {
+
+    private static String text(TextRowEncoder encoder) {
+        return new String(encoder.buffer(), 0, encoder.length(), StandardCharsets.UTF_8);
+    }
+
+    private static ColumnBatch batch(int sqlType, int capacity) {
+        return new ColumnBatch(new String[]{"c"}, new int[]{sqlType}, capacity);
+    }
+
+    // tab, novi red, CR i backslash u tekstu bi razbili red ili kolonu; UTF-8 ide bez izmjena
+    @Test
+    void escapesSpecialCharacters() {
+        ColumnBatch rows = batch(Types.VARCHAR, 2);
+        rows.setString(0, rows.addRow(), "a\tb\nc\rd\\e");
+        rows.setString(0, rows.addRow(), "čćž");
+        TextRowEncoder encoder = TextRowEncoder.forPostgres(4);
+        encoder.writeRow(rows, 0, -1);
+        encoder.writeRow(rows, 1, -1);
+        assertEquals("a\\tb\\nc\\rd\\\\e\nčćž\n", text(encoder));
+    }
+
+    @Test
+    void nullIsBackslashN() {
+        ColumnBatch rows = new ColumnBatch(new String[]{"s", "i"}, new int[]{Types.VARCHAR, Types.INTEGER}, 1);
+        int r = rows.addRow();
+        rows.setNull(0, r);
+        rows.setNull(1, r);
+        TextRowEncoder encoder = TextRowEncoder.forMySql(16);
+        encoder.writeRow(rows, r, -1);
+        assertEquals("\\N\t\\N\n", text(encoder));
+    }
+
+    // datumi se cuvaju kao epoch ms, u fajl idu u lokalnoj zoni kao kod setDate/setTimestamp
+    @Test
+    void formatsDateTimestampAndDouble() {
+        ColumnBatch rows = new ColumnBatch(new String[]{"d", "t", "x"},
+                new int[]{Types.DATE, Types.TIMESTAMP, Types.DOUBLE}, 1);
+        int r = rows.addRow();
+        ZoneId zone = ZoneId.systemDefault();
+        rows.setLong(0, r, LocalDate.of(2024, 3, 5).atStartOfDay(zone).toInstant().toEpochMilli());
+        rows.setLong(1, r, LocalDateTime.of(2024, 3, 5, 13, 45, 6, 500_000_000).atZone(zone).toInstant().toEpochMilli());
+        rows.setDouble(2, r, 12.5);
+        TextRowEncoder encoder = TextRowEncoder.forPostgres(16);
+        encoder.writeRow(rows, r, -1);
+        assertEquals("2024-03-05\t2024-03-05 13:45:06.5\t12.5\n", text(encoder));
+    }
+
+    @Test
+    void booleansPerDatabase() {
+        ColumnBatch rows = batch(Types.BOOLEAN, 2);
+        rows.setBoolean(0, rows.addRow(), true);
+        rows.setBoolean(0, rows.addRow(), false);
+        TextRowEncoder pg = TextRowEncoder.forPostgres(8);
+        TextRowEncoder my = TextRowEncoder.forMySql(8);
+        for (int r = 0; r < 2; r++) {
+            pg.writeRow(rows, r, -1);
+            my.writeRow(rows, r, -1);
+        }
+        assertEquals("t\nf\n", text(pg));
+        assertEquals("1\n0\n", text(my));
+    }
+
+    // rezervisani kljuc (klijent dodjeljuje auto-increment) je prva kolona, ispred kolona batcha
+    @Test
+    void clientKeyIsFirstColumn() {
+        ColumnBatch rows = new ColumnBatch(new String[]{"i", "l"}, new int[]{Types.INTEGER, Types.BIGINT}, 1);
+        int r = rows.addRow();
+        rows.setInt(0, r, -17);
+        rows.setLong(1, r, Long.MIN_VALUE);
+        TextRowEncoder encoder = TextRowEncoder.forMySql(4);
+        encoder.writeRow(rows, r, 1_000_000_007L);
+        assertEquals("1000000007\t-17\t" + Long.MIN_VALUE + "\n", text(encoder));
+
+        encoder.clear();
+        encoder.writeRow(rows, r, 0);
+        assertEquals("0\t-17\t" + Long.MIN_VALUE + "\n", text(encoder));
+    }
+}
@@ -0,0 +1,114 @@
+package prs.stats;
+
+import org.junit.jupiter.api.Test;
+import prs.data.ColumnBatch;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatsReaderTest {
+
+    private static final double EPS = 1e-9;
+
+    // --- pg_stats nizovi ---
+
+    @Test
+    void pgArrayQuotedEscapedAndNullElements() {
+        String text = "{a,\"b c\",NULL,\"NULL\",\"say \\\"hi\\\"\",\"back\\\\slash\",\"\"}";
+        assertEquals(List.of("a", "b c", "NULL", "say \"hi\"", "back\\slash", ""), StatsReader.pgArray(text));
+    }
+
+    @Test
+    void pgArrayEmpty() {
+        assertEquals(List.of(), StatsReader.pgArray(null));
+        assertEquals(List.of(), StatsReader.pgArray("{}"));
+        assertEquals(List.of(), StatsReader.pgArray("{NULL}"));
+    }
+
+    // --- MySQL histogrami ---
+
+    // kumulativni udio ide do 1 i racuna NULL redove, pa se udjeli svode na (1 - null)
+    @Test
+    void mySqlSingletonWithBase64Strings() {
+        String json = "{\"buckets\": [[\"base64:type254:YQ==\", 0.4], [\"base64:type254:YmJi\", 1.0]],"
+                + " \"null-values\": 0.1, \"histogram-type\": \"singleton\", \"number-of-buckets-specified\": 100}";
+        ColumnStats cs = StatsReader.mySqlHistogram(json, ColumnBatch.Kind.STRING);
+        assertNotNull(cs);
+        assertEquals(0.1, cs.nullFrac(), EPS);
+        assertEquals(2, cs.distinct(), EPS);
+        assertEquals(List.of("a", "bbb"), cs.mcv());
+        assertArrayEquals(new double[]{0.36, 0.54}, cs.mcvFreq(), EPS);
+        assertTrue(cs.bucketLo().isEmpty());
+        assertArrayEquals(new int[]{1, 3}, cs.lengths());
+        assertArrayEquals(new double[]{0.36, 0.54}, cs.lengthFreq(), EPS);
+    }
+
+    @Test
+    void mySqlEquiHeight() {
+        String json = "{\"buckets\": [[1, 10, 0.5, 10], [11, 30, 1.0, 20]],"
+                + " \"null-values\": 0.0, \"histogram-type\": \"equi-height\"}";
+        ColumnStats cs = StatsReader.mySqlHistogram(json, ColumnBatch.Kind.INT);
+        assertNotNull(cs);
+        assertEquals(30, cs.distinct(), EPS);
+        assertTrue(cs.mcv().isEmpty());
+        assertEquals(List.of("1", "11"), cs.bucketLo());
+        assertEquals(List.of("10", "30"), cs.bucketHi());
+        assertArrayEquals(new double[]{0.5, 0.5}, cs.bucketFreq(), EPS);
+        assertEquals(0, cs.lengths().length);
+    }
+
+    @Test
+    void mySqlHistogramWithoutBuckets() {
+        assertNull(StatsReader.mySqlHistogram("{\"histogram-type\": \"singleton\"}", ColumnBatch.Kind.INT));
+    }
+
+    // --- uzorak ---
+
+    // 100 redova uzorka iz 10000: 10 NULL, vrijednosti 7 x40, 3 x20, 5 x2 i 28 jedinstvenih
+    @Test
+    void sampleDistinctEstimateAndMcvCutoff() {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        counts.put("7", 40);
+        counts.put("3", 20);
+        counts.put("5", 2);
+        for (int i = 0; i < 28; i++) {
+            counts.put(Integer.toString(100 + i), 1);
+        }
+        ColumnStats cs = StatsReader.fromSample(counts, 10, 100, 10_000, ColumnBatch.Kind.INT);
+
+        // Haas-Stokes: n * d / (n - f1 + f1 * n / N) = 90 * 31 / (90 - 28 + 28 * 90 / 10000)
+        double distinct = 90.0 * 31 / (90 - 28 + 28 * 90 / 10_000.0);
+        assertEquals(distinct, cs.distinct(), EPS);
+        assertEquals(0.1, cs.nullFrac(), EPS);
+        // granica je 1.25 * 90 / distinct (oko 2.5), pa vrijednost sa 2 ponavljanja ide u kante
+        assertEquals(List.of("7", "3"), cs.mcv());
+        assertArrayEquals(new double[]{0.4, 0.2}, cs.mcvFreq(), EPS);
+        assertEquals(30, cs.bucketLo().size());
+        assertEquals("5", cs.bucketLo().get(0));
+        assertEquals("5", cs.bucketHi().get(0));
+        assertEquals("127", cs.bucketHi().get(29));
+        double buckets = 0;
+        for (double f : cs.bucketFreq()) {
+            buckets += f;
+        }
+        assertEquals(0.3, buckets, EPS);
+    }
+
+    // cijela tabela u uzorku i sve vrijednosti razlicite: udio -1 kao jedinstvena kolona u pg_stats
+    @Test
+    void sampleOfUniqueColumnIsNegativeDistinct() {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (int i = 0; i < 100; i++) {
+            counts.put("v" + i, 1);
+        }
+        ColumnStats cs = StatsReader.fromSample(counts, 0, 100, 100, ColumnBatch.Kind.STRING);
+        assertEquals(-1.0, cs.distinct(), EPS);
+        assertTrue(cs.mcv().isEmpty());
+        assertTrue(cs.bucketLo().isEmpty());
+        assertArrayEquals(new int[]{2, 3}, cs.lengths());
+        assertArrayEquals(new double[]{10, 90}, cs.lengthFreq(), EPS);
+    }
+}